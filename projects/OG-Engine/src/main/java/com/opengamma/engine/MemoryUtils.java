@@ -9,9 +9,12 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.util.HashSet;
+import java.util.Set;
 
 import com.opengamma.OpenGammaRuntimeException;
 import com.opengamma.engine.value.ValueProperties;
+import com.opengamma.engine.value.ValueProperties.ValuePropertiesImpl;
 import com.opengamma.engine.value.ValueRequirement;
 import com.opengamma.engine.value.ValueSpecification;
 import com.opengamma.util.NormalizingWeakInstanceCache;
@@ -26,7 +29,35 @@ public final class MemoryUtils {
   // is cheap enough - if in the cache, map operations no more costly than the approach here
 
   private static final WeakInstanceCache<ComputationTargetSpecification> s_computationTargetSpecification = new WeakInstanceCache<ComputationTargetSpecification>();
-  private static final WeakInstanceCache<ValueProperties> s_valueProperties = new WeakInstanceCache<ValueProperties>();
+  private static final WeakInstanceCache<String> s_propertyValue = new WeakInstanceCache<String>();
+  private static final WeakInstanceCache<ValueProperties> s_valueProperties = new NormalizingWeakInstanceCache<ValueProperties>() {
+    @Override
+    protected ValueProperties normalize(final ValueProperties valueProperties) {
+      if (!(valueProperties instanceof ValuePropertiesImpl)) {
+        return valueProperties;
+      }
+      // Rebuild so that the canonical instance doesn't hold on to duplicate copies of common property values such as currencies
+      final ValueProperties.Builder builder = ValueProperties.builder();
+      for (String property : valueProperties.getProperties()) {
+        final Set<String> values = valueProperties.getValues(property);
+        if (values.isEmpty()) {
+          builder.withAny(property);
+        } else if (values.size() == 1) {
+          builder.with(property, s_propertyValue.get(values.iterator().next()));
+        } else {
+          final Set<String> canonicalValues = new HashSet<String>();
+          for (String value : values) {
+            canonicalValues.add(s_propertyValue.get(value));
+          }
+          builder.with(property, canonicalValues);
+        }
+        if (valueProperties.isOptional(property)) {
+          builder.withOptional(property);
+        }
+      }
+      return builder.get();
+    }
+  };
   private static final WeakInstanceCache<ValueRequirement> s_valueRequirement = new NormalizingWeakInstanceCache<ValueRequirement>() {
     @Override
     protected ValueRequirement normalize(final ValueRequirement valueRequirement) {
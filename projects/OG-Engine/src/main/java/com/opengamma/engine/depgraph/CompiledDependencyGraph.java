@@ -0,0 +1,363 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.depgraph;
+
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import com.opengamma.engine.value.ValueRequirement;
+import com.opengamma.engine.value.ValueSpecification;
+import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.tuple.Pair;
+
+/**
+ * An immutable, array based, form of a {@link DependencyGraph} for use once graph construction has finished.
+ * <p>
+ * Each node is given an integer identifier which is its position in a valid execution order, so the inputs of a node
+ * always have lower identifiers than the node itself. The input and dependent edges are held in compressed sparse row
+ * arrays and each distinct value specification referenced by the graph is held once in a value table, again with an
+ * integer identifier. Walking the graph, or holding per-node state in arrays or bit sets indexed by the node identifier,
+ * is then much cheaper than traversing the hash sets of the underlying {@link DependencyNode} instances.
+ * <p>
+ * The compiled form is a snapshot; the underlying graph and its nodes must not be modified after it has been created.
+ * It adds its arrays to the node sets rather than replacing them, so it is intended to be built when needed, for
+ * example once per cycle, and discarded afterwards rather than held for the life of the graph. No hash lookup from
+ * nodes or values to identifiers is retained once it has been built.
+ */
+public final class CompiledDependencyGraph {
+
+  private final DependencyGraph _graph;
+  private final DependencyNode[] _nodes;
+  private final int[] _inputOffsets;
+  private final int[] _inputs;
+  private final int[] _dependentOffsets;
+  private final int[] _dependents;
+  private final ValueSpecification[] _values;
+  private final int[] _outputValueOffsets;
+  private final int[] _outputValues;
+  private final int[] _inputValueOffsets;
+  private final int[] _inputValues;
+  private final int[] _marketData;
+  private final int[] _marketDataNodes;
+
+  /**
+   * Creates the compiled form of a graph.
+   *
+   * @param graph the graph to compile, not null
+   * @throws IllegalStateException if the graph contains a cycle
+   */
+  public CompiledDependencyGraph(final DependencyGraph graph) {
+    ArgumentChecker.notNull(graph, "graph");
+    _graph = graph;
+    _nodes = executionOrder(graph);
+    final int size = _nodes.length;
+    final Object2IntOpenHashMap<DependencyNode> nodeIds = new Object2IntOpenHashMap<DependencyNode>(size);
+    nodeIds.defaultReturnValue(-1);
+    for (int i = 0; i < size; i++) {
+      nodeIds.put(_nodes[i], i);
+    }
+    _inputOffsets = new int[size + 1];
+    _dependentOffsets = new int[size + 1];
+    int inputCount = 0;
+    int dependentCount = 0;
+    for (int i = 0; i < size; i++) {
+      _inputOffsets[i] = inputCount;
+      _dependentOffsets[i] = dependentCount;
+      for (DependencyNode input : _nodes[i].getInputNodes()) {
+        if (nodeIds.containsKey(input)) {
+          inputCount++;
+        }
+      }
+      for (DependencyNode dependent : _nodes[i].getDependentNodes()) {
+        if (nodeIds.containsKey(dependent)) {
+          dependentCount++;
+        }
+      }
+    }
+    _inputOffsets[size] = inputCount;
+    _dependentOffsets[size] = dependentCount;
+    _inputs = new int[inputCount];
+    _dependents = new int[dependentCount];
+    final List<ValueSpecification> values = new ArrayList<ValueSpecification>();
+    final Object2IntOpenHashMap<ValueSpecification> valueIds = new Object2IntOpenHashMap<ValueSpecification>();
+    valueIds.defaultReturnValue(-1);
+    _outputValueOffsets = new int[size + 1];
+    _inputValueOffsets = new int[size + 1];
+    int[] outputValueBuffer = new int[Math.max(size, 1)];
+    int outputValueCount = 0;
+    int[] inputValueBuffer = new int[Math.max(size, 1)];
+    int inputValueCount = 0;
+    _marketData = new int[size];
+    int marketDataNodeCount = 0;
+    inputCount = 0;
+    dependentCount = 0;
+    for (int i = 0; i < size; i++) {
+      final DependencyNode node = _nodes[i];
+      for (DependencyNode input : node.getInputNodes()) {
+        final int id = nodeIds.getInt(input);
+        if (id >= 0) {
+          _inputs[inputCount++] = id;
+        }
+      }
+      for (DependencyNode dependent : node.getDependentNodes()) {
+        final int id = nodeIds.getInt(dependent);
+        if (id >= 0) {
+          _dependents[dependentCount++] = id;
+        }
+      }
+      _outputValueOffsets[i] = outputValueCount;
+      for (ValueSpecification output : node.getOutputValues()) {
+        if (outputValueCount == outputValueBuffer.length) {
+          outputValueBuffer = Arrays.copyOf(outputValueBuffer, outputValueCount * 2);
+        }
+        outputValueBuffer[outputValueCount++] = intern(output, values, valueIds);
+      }
+      _inputValueOffsets[i] = inputValueCount;
+      for (ValueSpecification input : node.getInputValues()) {
+        if (inputValueCount == inputValueBuffer.length) {
+          inputValueBuffer = Arrays.copyOf(inputValueBuffer, inputValueCount * 2);
+        }
+        inputValueBuffer[inputValueCount++] = intern(input, values, valueIds);
+      }
+      final Pair<ValueRequirement, ValueSpecification> marketData = node.getRequiredMarketData();
+      if (marketData != null) {
+        _marketData[i] = intern(marketData.getSecond(), values, valueIds);
+        marketDataNodeCount++;
+      } else {
+        _marketData[i] = -1;
+      }
+    }
+    _marketDataNodes = new int[marketDataNodeCount];
+    marketDataNodeCount = 0;
+    for (int i = 0; i < size; i++) {
+      if (_marketData[i] >= 0) {
+        _marketDataNodes[marketDataNodeCount++] = i;
+      }
+    }
+    _outputValueOffsets[size] = outputValueCount;
+    _inputValueOffsets[size] = inputValueCount;
+    _outputValues = Arrays.copyOf(outputValueBuffer, outputValueCount);
+    _inputValues = Arrays.copyOf(inputValueBuffer, inputValueCount);
+    _values = values.toArray(new ValueSpecification[values.size()]);
+  }
+
+  private static int intern(final ValueSpecification value, final List<ValueSpecification> values, final Object2IntOpenHashMap<ValueSpecification> valueIds) {
+    int id = valueIds.getInt(value);
+    if (id < 0) {
+      id = values.size();
+      values.add(value);
+      valueIds.put(value, id);
+    }
+    return id;
+  }
+
+  /**
+   * Orders the nodes of a graph so that every node comes after its inputs, without building the rest of the compiled form.
+   * This is done iteratively so that very deep graphs can be handled.
+   *
+   * @param graph the graph, not null
+   * @return the nodes in a valid execution order, not null
+   * @throws IllegalStateException if the graph contains a cycle
+   */
+  public static List<DependencyNode> getExecutionOrder(final DependencyGraph graph) {
+    ArgumentChecker.notNull(graph, "graph");
+    return Arrays.asList(executionOrder(graph));
+  }
+
+  /**
+   * Orders the nodes of the graph so that every node comes after its inputs. This is done iteratively, rather than with
+   * the recursive walk of {@link DependencyGraph#getExecutionOrder}, so that very deep graphs can be handled.
+   */
+  private static DependencyNode[] executionOrder(final DependencyGraph graph) {
+    final Collection<DependencyNode> nodes = graph.getDependencyNodes();
+    final DependencyNode[] order = new DependencyNode[nodes.size()];
+    final Object2IntOpenHashMap<DependencyNode> pending = new Object2IntOpenHashMap<DependencyNode>();
+    int tail = 0;
+    for (DependencyNode node : nodes) {
+      int count = 0;
+      for (DependencyNode input : node.getInputNodes()) {
+        if (graph.containsNode(input)) {
+          count++;
+        }
+      }
+      if (count == 0) {
+        order[tail++] = node;
+      } else {
+        pending.put(node, count);
+      }
+    }
+    for (int head = 0; head < tail; head++) {
+      for (DependencyNode dependent : order[head].getDependentNodes()) {
+        if (pending.containsKey(dependent)) {
+          final int count = pending.getInt(dependent) - 1;
+          if (count == 0) {
+            pending.remove(dependent);
+            order[tail++] = dependent;
+          } else {
+            pending.put(dependent, count);
+          }
+        }
+      }
+    }
+    if (tail != order.length) {
+      throw new IllegalStateException("Dependency graph " + graph + " contains a cycle through " + pending.size() + " node(s)");
+    }
+    return order;
+  }
+
+  /**
+   * Returns the graph this was compiled from.
+   *
+   * @return the graph, not null
+   */
+  public DependencyGraph getDependencyGraph() {
+    return _graph;
+  }
+
+  /**
+   * Returns the number of nodes in the graph. Node identifiers run from zero to one less than this.
+   *
+   * @return the number of nodes
+   */
+  public int getSize() {
+    return _nodes.length;
+  }
+
+  public DependencyNode getNode(final int node) {
+    return _nodes[node];
+  }
+
+  /**
+   * Returns the nodes in a valid execution order, for example as returned by {@link DependencyGraph#getExecutionOrder}.
+   * The position of each node in the list is its identifier.
+   *
+   * @return the nodes, not null
+   */
+  public List<DependencyNode> getExecutionOrder() {
+    return Collections.unmodifiableList(Arrays.asList(_nodes));
+  }
+
+  public int getInputCount(final int node) {
+    return _inputOffsets[node + 1] - _inputOffsets[node];
+  }
+
+  /**
+   * Returns the identifier of an input node. Input nodes always have a lower identifier than the node that consumes them.
+   *
+   * @param node the node identifier
+   * @param index the index of the input, from zero to one less than {@link #getInputCount}
+   * @return the identifier of the input node
+   */
+  public int getInput(final int node, final int index) {
+    return _inputs[_inputOffsets[node] + index];
+  }
+
+  public int getDependentCount(final int node) {
+    return _dependentOffsets[node + 1] - _dependentOffsets[node];
+  }
+
+  public int getDependent(final int node, final int index) {
+    return _dependents[_dependentOffsets[node] + index];
+  }
+
+  /**
+   * Tests whether a node is a root of the graph, having no dependents within it.
+   *
+   * @param node the node identifier
+   * @return true if the node is a root
+   */
+  public boolean isRoot(final int node) {
+    return _dependentOffsets[node + 1] == _dependentOffsets[node];
+  }
+
+  /**
+   * Returns the number of distinct value specifications referenced by the graph. Value identifiers run from zero to one
+   * less than this.
+   *
+   * @return the number of values
+   */
+  public int getValueCount() {
+    return _values.length;
+  }
+
+  public ValueSpecification getValue(final int value) {
+    return _values[value];
+  }
+
+  public int getOutputValueCount(final int node) {
+    return _outputValueOffsets[node + 1] - _outputValueOffsets[node];
+  }
+
+  public int getOutputValue(final int node, final int index) {
+    return _outputValues[_outputValueOffsets[node] + index];
+  }
+
+  public int getInputValueCount(final int node) {
+    return _inputValueOffsets[node + 1] - _inputValueOffsets[node];
+  }
+
+  public int getInputValue(final int node, final int index) {
+    return _inputValues[_inputValueOffsets[node] + index];
+  }
+
+  /**
+   * Returns the market data value required by a node, as described by {@link DependencyNode#getRequiredMarketData}.
+   *
+   * @param node the node identifier
+   * @return the value identifier, or -1 if the node does not require market data
+   */
+  public int getMarketData(final int node) {
+    return _marketData[node];
+  }
+
+  /**
+   * Returns the number of nodes that require market data.
+   *
+   * @return the number of nodes
+   */
+  public int getMarketDataNodeCount() {
+    return _marketDataNodes.length;
+  }
+
+  /**
+   * Returns the identifier of a node that requires market data.
+   *
+   * @param index the index of the node, from zero to one less than {@link #getMarketDataNodeCount}
+   * @return the node identifier
+   */
+  public int getMarketDataNode(final int index) {
+    return _marketDataNodes[index];
+  }
+
+  /**
+   * Applies a filter to the graph to create a sub-graph, as {@link DependencyGraph#subGraph(DependencyNodeFilter)}. The
+   * filter is applied to the nodes in execution order.
+   *
+   * @param filter the filter, not null
+   * @return the sub-graph, not null
+   */
+  public DependencyGraph subGraph(final DependencyNodeFilter filter) {
+    ArgumentChecker.notNull(filter, "filter");
+    final List<DependencyNode> nodes = new ArrayList<DependencyNode>(_nodes.length);
+    for (DependencyNode node : _nodes) {
+      if (filter.accept(node)) {
+        nodes.add(node);
+      }
+    }
+    return _graph.subGraph(nodes);
+  }
+
+  @Override
+  public String toString() {
+    return "CompiledDependencyGraph[calcConf=" + _graph.getCalculationConfigurationName() + ",size=" + getSize() + ",values=" + getValueCount() + "]";
+  }
+
+}
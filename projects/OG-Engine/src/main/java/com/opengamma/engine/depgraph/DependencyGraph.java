@@ -321,6 +321,66 @@ public class DependencyGraph {
     }
   }
 
+  /**
+   * Adds the nodes and terminal outputs of another graph, built for the same configuration, to this one. A node that produces a value
+   * already produced by a node in this graph, for example market data or a curve required by both graphs, is combined with the existing
+   * node rather than duplicated. The other graph is not modified; its nodes are copied.
+   * 
+   * @param graph the graph to merge into this one, not null
+   */
+  public void merge(final DependencyGraph graph) {
+    ArgumentChecker.notNull(graph, "graph");
+    final Map<DependencyNode, DependencyNode> mergedNodes = new HashMap<DependencyNode, DependencyNode>();
+    for (DependencyNode node : graph.getExecutionOrder()) {
+      DependencyNode merged = null;
+      for (ValueSpecification output : node.getOutputValues()) {
+        merged = _outputValues.get(output);
+        if (merged != null) {
+          break;
+        }
+      }
+      if (merged == null) {
+        merged = new DependencyNode(node.getComputationTarget());
+        merged.setFunction(node.getFunction());
+        merged.addOutputValues(node.getOutputValues());
+        for (ValueSpecification input : node.getInputValues()) {
+          merged.addInputValue(input);
+        }
+        for (DependencyNode input : node.getInputNodes()) {
+          merged.addInputNode(mergedNodes.get(input));
+        }
+        addDependencyNode(merged);
+      } else {
+        for (ValueSpecification output : node.getOutputValues()) {
+          if (!_outputValues.containsKey(output)) {
+            merged.addOutputValue(output);
+            _outputValues.put(output, merged);
+          }
+        }
+        for (ValueSpecification input : node.getInputValues()) {
+          if (!merged.hasInputValue(input)) {
+            merged.addInputValue(input);
+          }
+        }
+        for (DependencyNode input : node.getInputNodes()) {
+          final DependencyNode mergedInput = mergedNodes.get(input);
+          if (!merged.getInputNodes().contains(mergedInput)) {
+            merged.addInputNode(mergedInput);
+            _rootNodes.remove(mergedInput);
+          }
+        }
+      }
+      mergedNodes.put(node, merged);
+    }
+    for (Map.Entry<ValueSpecification, Set<ValueRequirement>> terminalOutput : graph.getTerminalOutputs().entrySet()) {
+      if (terminalOutput.getValue() != null) {
+        for (ValueRequirement requirement : terminalOutput.getValue()) {
+          addTerminalOutput(requirement, terminalOutput.getKey());
+        }
+      }
+    }
+  }
+
   /**
    * Marks an output as terminal, meaning that it cannot be pruned.
    * @param requirement the output requirement to mark as terminal
@@ -122,6 +122,11 @@ public final class DependencyGraphBuilder implements Cancelable {
    */
   private boolean _disableFailureReporting;
 
+  /**
+   * Flag to indicate whether the resolution state should be kept when a build completes so that requirements added later can reuse it. The state is still flushed if memory runs low.
+   */
+  private volatile boolean _retainResolutions;
+
   // TODO: We should use an external execution framework rather than the one here; there are far better (and probably more accurate) implementations of
   // the algorithm in other projects I've worked on.
 
@@ -243,6 +248,26 @@ public final class DependencyGraphBuilder implements Cancelable {
     return _disableFailureReporting;
   }
 
+  /**
+   * Sets whether the intermediate resolution state should be retained after a build completes. When retained, requirements added after a build can reuse the resolutions made for the earlier ones
+   * rather than repeating the algorithm. This is intended for builders that are kept to process incremental changes; the state is still discarded if memory runs low, including when a graph is
+   * extracted by {@link #getDependencyGraph(Collection)}.
+   * 
+   * @param retainResolutions true to retain the state between builds, false to discard it once each build completes
+   */
+  public void setRetainResolutions(final boolean retainResolutions) {
+    _retainResolutions = retainResolutions;
+  }
+
+  /**
+   * Tests whether the intermediate resolution state is retained after a build completes.
+   * 
+   * @return true if the state is retained, false if it is discarded
+   */
+  public boolean isRetainResolutions() {
+    return _retainResolutions;
+  }
+
   public int getMaxAdditionalThreads() {
     return _maxAdditionalThreads;
   }
@@ -311,6 +336,19 @@ public final class DependencyGraphBuilder implements Cancelable {
     _resolvedValues.put(value.getValueSpecification(), value);
   }
 
+  /**
+   * Makes the productions resolved by another builder available to this one. A requirement that resolves to a value specification the other builder has already produced will use that
+   * production, and the graph built for it, instead of resolving its inputs again. The other builder must be for the same calculation configuration and should have completed its build.
+   *
+   * @param builder the builder to take the resolved productions from, not null
+   */
+  public void addResolvedValues(final DependencyGraphBuilder builder) {
+    ArgumentChecker.notNull(builder, "builder");
+    for (ResolvedValue value : builder._resolvedValues.values()) {
+      _resolvedValues.putIfAbsent(value.getValueSpecification(), value);
+    }
+  }
+
   /**
    * Sets the visitor to receive resolution failures. If not set, a synthetic exception is created for each failure in the miscellaneous exception set.
    * 
@@ -868,6 +906,89 @@ public final class DependencyGraphBuilder implements Cancelable {
     return graph;
   }
 
+  /**
+   * Returns a dependency graph for a subset of the requirements requested of this builder. If graph construction has not completed, the caller will be blocked as for {@link #getDependencyGraph}.
+   * <p>
+   * The graph is built from copies of the nodes held by the builder so it may be modified, for example by {@link DependencyGraph#removeUnnecessaryValues}, without affecting later builds. This allows
+   * a builder that retains its state to be given additional requirements and produce graphs for successive sets of requirements, only resolving the ones it has not seen before. Once the copy has
+   * been made the cached resolution state is flushed, as at the end of a normal build, unless the builder is retaining it and memory is not low. The builder's own nodes are kept for later
+   * requirements to be merged into.
+   * 
+   * @param requirements the requirements to include as terminal outputs, not null. Any that were not requested of, or could not be satisfied by, this builder are ignored.
+   * @return the graph, not null
+   */
+  public DependencyGraph getDependencyGraph(final Collection<ValueRequirement> requirements) {
+    ArgumentChecker.notNull(requirements, "requirements");
+    try {
+      isGraphBuilt(true);
+    } catch (InterruptedException e) {
+      throw new OpenGammaRuntimeException("Interrupted", e);
+    }
+    final Map<ValueSpecification, DependencyNode> producers = new HashMap<ValueSpecification, DependencyNode>();
+    for (DependencyNode node : getTerminalValuesCallback().getGraphNodes()) {
+      for (ValueSpecification output : node.getOutputValues()) {
+        producers.put(output, node);
+      }
+    }
+    final Map<ValueRequirement, ValueSpecification> terminalValues = getTerminalValuesCallback().getTerminalValues();
+    final DependencyGraph graph = new DependencyGraph(getCalculationConfigurationName());
+    final Map<ValueRequirement, ValueSpecification> graphTerminalValues = new HashMap<ValueRequirement, ValueSpecification>();
+    final List<DependencyNode> roots = new ArrayList<DependencyNode>();
+    for (ValueRequirement requirement : requirements) {
+      final ValueSpecification terminalValue = terminalValues.get(requirement);
+      if (terminalValue != null) {
+        final DependencyNode node = producers.get(terminalValue);
+        if (node != null) {
+          roots.add(node);
+          graphTerminalValues.put(requirement, terminalValue);
+        }
+      }
+    }
+    copyNodes(roots, graph);
+    for (Map.Entry<ValueRequirement, ValueSpecification> terminalValue : graphTerminalValues.entrySet()) {
+      graph.addTerminalOutput(terminalValue.getKey(), terminalValue.getValue());
+    }
+    s_logger.info("{} node graph extracted for {} requirements", graph.getSize(), requirements.size());
+    // A builder retaining its state keeps the inactive producers for later requirements to reuse unless memory is short
+    if (!isRetainResolutions() || ResolutionCacheCleanup.INSTANCE.isLowMemory()) {
+      while (flushCachedStates()) {
+        s_logger.debug("Flushed cached state after extracting graph");
+      }
+    }
+    return graph;
+  }
+
+  /**
+   * Adds copies of the nodes reachable from the roots to a graph. The nodes are visited from an explicit stack rather than by recursion as the depth of a graph is not bounded.
+   */
+  private static void copyNodes(final Collection<DependencyNode> roots, final DependencyGraph graph) {
+    final Map<DependencyNode, DependencyNode> copies = new HashMap<DependencyNode, DependencyNode>();
+    final LinkedList<DependencyNode> pending = new LinkedList<DependencyNode>(roots);
+    while (!pending.isEmpty()) {
+      final DependencyNode node = pending.removeLast();
+      if (copies.containsKey(node)) {
+        continue;
+      }
+      final DependencyNode copy = new DependencyNode(node.getComputationTarget());
+      copy.setFunction(node.getFunction());
+      copy.addOutputValues(node.getOutputValues());
+      for (ValueSpecification input : node.getInputValues()) {
+        copy.addInputValue(input);
+      }
+      copies.put(node, copy);
+      pending.addAll(node.getInputNodes());
+    }
+    // Link the copies before adding any to the graph so that its root nodes are determined correctly
+    for (Map.Entry<DependencyNode, DependencyNode> copy : copies.entrySet()) {
+      for (DependencyNode input : copy.getKey().getInputNodes()) {
+        copy.getValue().addInputNode(copies.get(input));
+      }
+    }
+    for (DependencyNode copy : copies.values()) {
+      graph.addDependencyNode(copy);
+    }
+  }
+
   protected PrintStream openDebugStream(final String name) {
     try {
       final String fileName = System.getProperty("java.io.tmpdir") + File.separatorChar + name + _objectId + ".txt";
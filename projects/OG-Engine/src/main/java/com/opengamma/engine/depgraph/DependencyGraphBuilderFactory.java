@@ -16,6 +16,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.opengamma.engine.function.exclusion.FunctionExclusionGroups;
+import com.opengamma.util.ArgumentChecker;
 
 /**
  * Constructs {@link DependencyGraphBuider} instances with common parameters. All dependency graph builders
@@ -51,6 +52,7 @@ public class DependencyGraphBuilderFactory {
   private boolean _enableFailureReporting = System.getProperty("DependencyGraphBuilderFactory.enableFailureReporting", "FALSE").equalsIgnoreCase("TRUE");
   private RunQueueFactory _runQueue = DependencyGraphBuilder.getDefaultRunQueueFactory();
   private FunctionExclusionGroups _functionExclusionGroups;
+  private int _partitions = Integer.parseInt(System.getProperty("DependencyGraphBuilderFactory.partitions", "1"));
   private final Executor _executor = createExecutor();
 
   public DependencyGraphBuilderFactory() {
@@ -103,6 +105,23 @@ public class DependencyGraphBuilderFactory {
     return _functionExclusionGroups;
   }
 
+  /**
+   * Sets the number of partitions that position and trade level requirements for a large portfolio may be divided between. Each partition is
+   * resolved by its own builder, so partitions are built concurrently without sharing any state, and the resulting graphs merged. A value of
+   * 1 disables partitioning. The default setting is taken from system property {@code DependencyGraphBuilderFactory.partitions} if set,
+   * otherwise it is 1.
+   * 
+   * @param partitions the maximum number of partitions, at least 1
+   */
+  public void setPartitions(final int partitions) {
+    ArgumentChecker.isTrue(partitions >= 1, "partitions");
+    _partitions = partitions;
+  }
+
+  public int getPartitions() {
+    return _partitions;
+  }
+
   public DependencyGraphBuilder newInstance() {
     final DependencyGraphBuilder builder = new DependencyGraphBuilder(getExecutor(), getRunQueueFactory());
     configureBuilder(builder);
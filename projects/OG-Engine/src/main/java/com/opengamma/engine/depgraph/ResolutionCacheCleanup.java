@@ -38,7 +38,12 @@ import org.slf4j.LoggerFactory;
   private ResolutionCacheCleanup() {
   }
 
-  private boolean isLowMemory() {
+  /**
+   * Tests whether free memory is low enough that cached resolution state should be flushed.
+   * 
+   * @return true if memory is low, false otherwise
+   */
+  /* package */boolean isLowMemory() {
     final long free = s_runtime.freeMemory();
     if (free >= MAX_FREE) {
       return false;
@@ -80,7 +85,11 @@ import org.slf4j.LoggerFactory;
   @Override
   public boolean completed(final DependencyGraphBuilder builder, final Void data) {
     // Flush the cache and stop. If this is an intermediate state we'll be restarted. If the cache isn't empty, we'll run again
-    // and keep going until the cache is empty.
+    // and keep going until the cache is empty. A builder retaining its state for later requirements is left alone; the ticks
+    // will resume, and flush if memory is low, when it is restarted.
+    if (builder.isRetainResolutions()) {
+      return false;
+    }
     return builder.flushCachedStates();
   }
 
@@ -40,6 +40,8 @@ public class ExecutionOptionsFudgeBuilder implements FudgeBuilder<ExecutionOptio
   private static final String DEFAULT_EXECUTION_OPTIONS_FIELD = "defaultExecutionOptions";
   private static final String VERSION_CORRECTION_FIELD = "versionCorrection";
   private static final String BATCH_FIELD = "batch";
+  private static final String INCREMENTAL_COMPILATION_FIELD = "incrementalCompilation";
+  private static final String PIPELINE_CYCLES_FIELD = "pipelineCycles";
 
   @Override
   public MutableFudgeMsg buildMessage(FudgeSerializer serializer, ExecutionOptions object) {
@@ -52,6 +54,8 @@ public class ExecutionOptionsFudgeBuilder implements FudgeBuilder<ExecutionOptio
     msg.add(COMPILE_ONLY_FIELD, object.getFlags().contains(ViewExecutionFlags.COMPILE_ONLY));
     msg.add(WAIT_FOR_INITIAL_TRIGGER_FIELD, object.getFlags().contains(ViewExecutionFlags.WAIT_FOR_INITIAL_TRIGGER));
     msg.add(BATCH_FIELD, object.getFlags().contains(ViewExecutionFlags.BATCH));
+    msg.add(INCREMENTAL_COMPILATION_FIELD, object.getFlags().contains(ViewExecutionFlags.INCREMENTAL_COMPILATION));
+    msg.add(PIPELINE_CYCLES_FIELD, object.getFlags().contains(ViewExecutionFlags.PIPELINE_CYCLES));
     if (object.getMaxSuccessiveDeltaCycles() != null) {
       msg.add(MAX_SUCCESSIVE_DELTA_CYCLES_FIELD, object.getMaxSuccessiveDeltaCycles());
     }
@@ -85,6 +89,12 @@ public class ExecutionOptionsFudgeBuilder implements FudgeBuilder<ExecutionOptio
     if (BooleanUtils.isTrue(message.getBoolean(BATCH_FIELD))) {
       flags.add(ViewExecutionFlags.BATCH);
     }
+    if (BooleanUtils.isTrue(message.getBoolean(INCREMENTAL_COMPILATION_FIELD))) {
+      flags.add(ViewExecutionFlags.INCREMENTAL_COMPILATION);
+    }
+    if (BooleanUtils.isTrue(message.getBoolean(PIPELINE_CYCLES_FIELD))) {
+      flags.add(ViewExecutionFlags.PIPELINE_CYCLES);
+    }
     Integer maxSuccessiveDeltaCycles = null;
     if (message.hasField(MAX_SUCCESSIVE_DELTA_CYCLES_FIELD)) {
       maxSuccessiveDeltaCycles = message.getInt(MAX_SUCCESSIVE_DELTA_CYCLES_FIELD);
@@ -6,9 +6,6 @@
 package com.opengamma.engine.fudgemsg;
 
 import java.util.Collection;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.Map;
 
 import org.fudgemsg.FudgeField;
 import org.fudgemsg.FudgeMsg;
@@ -20,9 +17,8 @@ import org.fudgemsg.mapping.GenericFudgeBuilderFor;
 
 import com.opengamma.engine.ComputationTargetSpecification;
 import com.opengamma.engine.value.ComputedValueResult;
-import com.opengamma.engine.value.ValueProperties;
 import com.opengamma.engine.view.ViewCalculationResultModel;
-import com.opengamma.util.tuple.Pair;
+import com.opengamma.engine.view.ViewCalculationResultModelImpl;
 
 /**
  * 
@@ -33,11 +29,20 @@ public class ViewCalculationResultModelFudgeBuilder implements FudgeBuilder<View
   @Override
   public MutableFudgeMsg buildMessage(FudgeSerializer serializer, ViewCalculationResultModel resultModel) {
     final MutableFudgeMsg message = serializer.newMessage();
-    final Collection<ComputationTargetSpecification> targets = resultModel.getAllTargets();
-    for (ComputationTargetSpecification target : targets) {
-      final Collection<ComputedValueResult> values = resultModel.getAllValues(target);
-      for (ComputedValueResult value : values) {
-        serializer.addToMessage(message, null, null, value);
+    if (resultModel instanceof ViewCalculationResultModelImpl) {
+      final ViewCalculationResultModelImpl columns = (ViewCalculationResultModelImpl) resultModel;
+      for (int column = 0; column < columns.getColumnCount(); column++) {
+        for (int cell = 0; cell < columns.getCellCount(column); cell++) {
+          serializer.addToMessage(message, null, null, columns.getCellResult(column, cell));
+        }
+      }
+    } else {
+      final Collection<ComputationTargetSpecification> targets = resultModel.getAllTargets();
+      for (ComputationTargetSpecification target : targets) {
+        final Collection<ComputedValueResult> values = resultModel.getAllValues(target);
+        for (ComputedValueResult value : values) {
+          serializer.addToMessage(message, null, null, value);
+        }
       }
     }
     return message;
@@ -45,35 +50,12 @@ public class ViewCalculationResultModelFudgeBuilder implements FudgeBuilder<View
   
   @Override
   public ViewCalculationResultModel buildObject(FudgeDeserializer deserializer, FudgeMsg message) {
-    final Map<ComputationTargetSpecification, Map<Pair<String, ValueProperties>, ComputedValueResult>> mapNames =
-      new HashMap<ComputationTargetSpecification, Map<Pair<String, ValueProperties>, ComputedValueResult>>();
+    final ViewCalculationResultModelImpl resultModel = new ViewCalculationResultModelImpl();
     for (FudgeField field : message) {
       final ComputedValueResult value = deserializer.fieldValueToObject(ComputedValueResult.class, field);
-      final ComputationTargetSpecification target = value.getSpecification().getTargetSpecification();
-      if (!mapNames.containsKey(target)) {
-        mapNames.put(target, new HashMap<Pair<String, ValueProperties>, ComputedValueResult>());
-      }
-      mapNames.get(target).put(Pair.of(value.getSpecification().getValueName(), value.getSpecification().getProperties()), value);
+      resultModel.addValue(value.getSpecification().getTargetSpecification(), value);
     }
-    return new ViewCalculationResultModel() {
-      
-      @Override
-      public Collection<ComputationTargetSpecification> getAllTargets() {
-        return mapNames.keySet();
-      }
-
-      @Override
-      public Map<Pair<String, ValueProperties>, ComputedValueResult> getValues(ComputationTargetSpecification target) {
-        return mapNames.get(target);
-      }
-      
-      @Override
-      public Collection<ComputedValueResult> getAllValues(ComputationTargetSpecification target) {
-        Map<Pair<String, ValueProperties>, ComputedValueResult> targetValuesMap = mapNames.get(target);
-        return targetValuesMap != null ? Collections.unmodifiableCollection(targetValuesMap.values()) : null;
-      }
-
-    };
+    return resultModel;
   }
  
 }
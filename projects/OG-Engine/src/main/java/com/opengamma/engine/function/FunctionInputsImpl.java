@@ -67,6 +67,17 @@ public class FunctionInputsImpl implements FunctionInputs, Serializable {
     }
   }
 
+  /**
+   * Removes all of the values, leaving the instance as if newly constructed with the same missing value collection.
+   * This allows a calculation node to reuse the instance for a subsequent invocation once the function it was passed
+   * to has completed.
+   */
+  public void clear() {
+    _values.clear();
+    _valuesByRequirementName.clear();
+    _valuesByRequirement.clear();
+  }
+
   @Override
   public Collection<ComputedValue> getAllValues() {
     return Collections.unmodifiableSet(_values);
@@ -147,6 +147,12 @@ public class GraphExecutionStatistics implements GraphExecutionStatisticsMBean {
     return graphExecutionStatistics != null ? graphExecutionStatistics.getProcessedJobDataCost() : null;
   }
 
+  @Override
+  public Long getSharedNodes() {
+    com.opengamma.engine.view.calc.stats.GraphExecutionStatistics graphExecutionStatistics = getGraphExecutionStatistics();
+    return graphExecutionStatistics != null ? graphExecutionStatistics.getSharedNodes() : null;
+  }
+
   @Override
   public String getLastProcessedTime() {
     com.opengamma.engine.view.calc.stats.GraphExecutionStatistics graphExecutionStatistics = getGraphExecutionStatistics();
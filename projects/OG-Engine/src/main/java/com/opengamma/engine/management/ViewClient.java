@@ -11,6 +11,7 @@ import javax.management.ObjectName;
 import net.sf.ehcache.CacheException;
 
 import com.opengamma.engine.view.ViewComputationResultModel;
+import com.opengamma.engine.view.client.ViewClientImpl;
 import com.opengamma.engine.view.client.ViewClientState;
 import com.opengamma.id.UniqueId;
 import com.opengamma.livedata.UserPrincipal;
@@ -124,6 +125,31 @@ public class ViewClient implements ViewClientMBean {
     _viewClient.setViewCycleAccessSupported(isViewCycleAccessSupported);
   }
 
+  //-------------------------------------------------------------------------
+  @Override
+  public long getResultLagMillis() {
+    if (_viewClient instanceof ViewClientImpl) {
+      return ((ViewClientImpl) _viewClient).getResultLagMillis();
+    }
+    return -1;
+  }
+
+  @Override
+  public long getMaxResultLagMillis() {
+    if (_viewClient instanceof ViewClientImpl) {
+      return ((ViewClientImpl) _viewClient).getMaxResultLagMillis();
+    }
+    return -1;
+  }
+
+  @Override
+  public long getCyclesDropped() {
+    if (_viewClient instanceof ViewClientImpl) {
+      return ((ViewClientImpl) _viewClient).getCyclesDropped();
+    }
+    return -1;
+  }
+
   //-------------------------------------------------------------------------
   @Override
   public void shutdown() {
@@ -115,6 +115,29 @@ public interface ViewClientMBean {
    */
   void setViewCycleAccessSupported(boolean isViewCycleAccessSupported);
   
+  //-------------------------------------------------------------------------
+  /**
+   * Gets the time between the most recent result delivered to this client being calculated and its delivery.
+   * 
+   * @return the lag in milliseconds, -1 if no result has been delivered or this is unknown
+   */
+  long getResultLagMillis();
+  
+  /**
+   * Gets the greatest time between a result delivered to this client being calculated and its delivery.
+   * 
+   * @return the lag in milliseconds, -1 if no result has been delivered or this is unknown
+   */
+  long getMaxResultLagMillis();
+  
+  /**
+   * Gets the number of cycle results which were merged into a later result rather than delivered to this client
+   * because of its update period.
+   * 
+   * @return the number of results, -1 if unknown
+   */
+  long getCyclesDropped();
+  
   //-------------------------------------------------------------------------
   /**
    * Terminates this client, detaching it from any process, disconnecting it from any listener, and releasing any
@@ -6,10 +6,9 @@
 package com.opengamma.engine.marketdata;
 
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -26,15 +25,61 @@ import com.opengamma.id.ExternalId;
 import com.opengamma.id.ExternalIdBundle;
 import com.opengamma.id.UniqueId;
 import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.map.PersistentHashMap;
 
 /**
  * An implementation of {@link MarketDataProvider} which maintains an LKV cache of externally-provided values.
+ * <p>
+ * The values are held in an immutable {@link Version} which is replaced on each update. Consecutive versions share
+ * all but the path to the changed value, so an update costs time logarithmic in the number of values and taking a
+ * snapshot costs nothing. A version remains valid for as long as a snapshot refers to it.
  */
 public class InMemoryLKVMarketDataProvider extends AbstractMarketDataProvider implements MarketDataInjector, MarketDataAvailabilityProvider {
   
   private static final Logger s_logger = LoggerFactory.getLogger(InMemoryLKVMarketDataProvider.class);
   
-  private final Map<ValueRequirement, ComputedValue> _lastKnownValues = new ConcurrentHashMap<ValueRequirement, ComputedValue>();
+  /**
+   * An immutable set of last known values.
+   */
+  public static final class Version {
+
+    private final long _sequenceNumber;
+    private final PersistentHashMap<ValueRequirement, ComputedValue> _values;
+
+    private Version(final long sequenceNumber, final PersistentHashMap<ValueRequirement, ComputedValue> values) {
+      _sequenceNumber = sequenceNumber;
+      _values = values;
+    }
+
+    /**
+     * Gets the sequence number of this version. Each update to the provider increments the sequence number.
+     * 
+     * @return the sequence number
+     */
+    public long getSequenceNumber() {
+      return _sequenceNumber;
+    }
+
+    /**
+     * Gets the values in this version.
+     * 
+     * @return the values, not null
+     */
+    public Map<ValueRequirement, ComputedValue> getValues() {
+      return _values;
+    }
+
+    private Version with(final ValueRequirement requirement, final ComputedValue value) {
+      return new Version(_sequenceNumber + 1, _values.with(requirement, value));
+    }
+
+    private Version without(final ValueRequirement requirement) {
+      return new Version(_sequenceNumber + 1, _values.without(requirement));
+    }
+
+  }
+
+  private final AtomicReference<Version> _lastKnownValues = new AtomicReference<Version>(new Version(0, PersistentHashMap.<ValueRequirement, ComputedValue>of()));
   private final SecuritySource _securitySource;
   private final MarketDataPermissionProvider _permissionProvider;
 
@@ -102,13 +147,17 @@ public class InMemoryLKVMarketDataProvider extends AbstractMarketDataProvider im
   //-------------------------------------------------------------------------
   @Override
   public ValueSpecification getAvailability(ValueRequirement requirement) {
-    return _lastKnownValues.containsKey(requirement) ? MarketDataUtils.createMarketDataValue(requirement) : null;
+    return _lastKnownValues.get().getValues().containsKey(requirement) ? MarketDataUtils.createMarketDataValue(requirement) : null;
   }
 
   //-------------------------------------------------------------------------
   @Override
   public void addValue(ValueRequirement requirement, Object value) {
-    _lastKnownValues.put(requirement, new ComputedValue(MarketDataUtils.createMarketDataValue(requirement), value));
+    final ComputedValue computedValue = new ComputedValue(MarketDataUtils.createMarketDataValue(requirement), value);
+    Version version;
+    do {
+      version = _lastKnownValues.get();
+    } while (!_lastKnownValues.compareAndSet(version, version.with(requirement, computedValue)));
     valueChanged(requirement);
   }
   
@@ -120,7 +169,10 @@ public class InMemoryLKVMarketDataProvider extends AbstractMarketDataProvider im
 
   @Override
   public void removeValue(final ValueRequirement valueRequirement) {
-    _lastKnownValues.remove(valueRequirement);
+    Version version;
+    do {
+      version = _lastKnownValues.get();
+    } while (!_lastKnownValues.compareAndSet(version, version.without(valueRequirement)));
     valueChanged(valueRequirement);
   }
   
@@ -132,16 +184,25 @@ public class InMemoryLKVMarketDataProvider extends AbstractMarketDataProvider im
   
   //-------------------------------------------------------------------------
   public Set<ValueRequirement> getAllValueKeys() {
-    return Collections.unmodifiableSet(_lastKnownValues.keySet());
+    return Collections.unmodifiableSet(_lastKnownValues.get().getValues().keySet());
   }
 
   public ComputedValue getCurrentValue(ValueRequirement valueRequirement) {
-    return _lastKnownValues.get(valueRequirement);
+    return _lastKnownValues.get().getValues().get(valueRequirement);
+  }
+
+  /**
+   * Gets the current version of the last known values. The version is immutable and unaffected by later updates.
+   * 
+   * @return the current version, not null
+   */
+  public Version getCurrentVersion() {
+    return _lastKnownValues.get();
   }
   
   //-------------------------------------------------------------------------
-  /*package*/Map<ValueRequirement, ComputedValue> doSnapshot() {
-    return new HashMap<ValueRequirement, ComputedValue>(_lastKnownValues);
+  /*package*/Version doSnapshot() {
+    return _lastKnownValues.get();
   }
   
   private ValueRequirement resolveRequirement(ExternalId identifier, String valueName) {
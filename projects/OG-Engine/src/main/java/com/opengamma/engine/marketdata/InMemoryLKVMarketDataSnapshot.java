@@ -15,6 +15,7 @@ import javax.time.Instant;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.collect.Maps;
 import com.opengamma.engine.value.ComputedValue;
 import com.opengamma.engine.value.ValueRequirement;
 import com.opengamma.id.UniqueId;
@@ -28,7 +29,7 @@ public class InMemoryLKVMarketDataSnapshot extends AbstractMarketDataSnapshot {
   
   private final InMemoryLKVMarketDataProvider _provider;
   private Instant _snapshotTime;
-  private Map<ValueRequirement, ComputedValue> _snapshot;
+  private InMemoryLKVMarketDataProvider.Version _snapshot;
   
   public InMemoryLKVMarketDataSnapshot(InMemoryLKVMarketDataProvider provider) {
     _provider = provider;
@@ -63,16 +64,38 @@ public class InMemoryLKVMarketDataSnapshot extends AbstractMarketDataSnapshot {
 
   @Override
   public ComputedValue query(ValueRequirement requirement) {
-    return getSnapshot().get(requirement);
+    return getSnapshot().getValues().get(requirement);
+  }
+
+  @Override
+  public Map<ValueRequirement, ComputedValue> query(final Set<ValueRequirement> requirements) {
+    final Map<ValueRequirement, ComputedValue> values = getSnapshot().getValues();
+    final Map<ValueRequirement, ComputedValue> result = Maps.newHashMapWithExpectedSize(requirements.size());
+    for (ValueRequirement requirement : requirements) {
+      final ComputedValue value = values.get(requirement);
+      if (value != null) {
+        result.put(requirement, value);
+      }
+    }
+    return result;
   }
 
   //-------------------------------------------------------------------------
   public Set<ValueRequirement> getAllValueKeys() {
-    return Collections.unmodifiableSet(getSnapshot().keySet());
+    return Collections.unmodifiableSet(getSnapshot().getValues().keySet());
+  }
+
+  /**
+   * Gets the sequence number of the provider's values captured by this snapshot.
+   * 
+   * @return the sequence number
+   */
+  public long getSequenceNumber() {
+    return getSnapshot().getSequenceNumber();
   }
   
   //-------------------------------------------------------------------------
-  private Map<ValueRequirement, ComputedValue> getSnapshot() {
+  private InMemoryLKVMarketDataProvider.Version getSnapshot() {
     if (_snapshot == null) {
       throw new IllegalStateException("Snapshot has not been initialised");
     }
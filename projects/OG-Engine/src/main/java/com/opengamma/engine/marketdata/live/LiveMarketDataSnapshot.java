@@ -8,6 +8,7 @@ package com.opengamma.engine.marketdata.live;
 import java.text.MessageFormat;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
@@ -87,7 +88,8 @@ public class LiveMarketDataSnapshot extends AbstractMarketDataSnapshot {
       };
       _liveMarketDataProvider.addListener(listener);
       try {
-        _underlyingSnapshot.init(); // TODO We need something to query, but snapshotting twice is a bit overkill
+        // Snapshots of the LKV provider are a single reference read, so taking one here to query is cheap
+        _underlyingSnapshot.init();
         for (ValueRequirement requirement : valuesRequired) {
           if (_underlyingSnapshot.query(requirement) != null) {
             unavailableRequirements.remove(requirement);
@@ -124,4 +126,10 @@ public class LiveMarketDataSnapshot extends AbstractMarketDataSnapshot {
     //TODO: return useful error message if failed
     return _underlyingSnapshot.query(requirement);
   }
+
+  @Override
+  public Map<ValueRequirement, ComputedValue> query(final Set<ValueRequirement> requirements) {
+    return _underlyingSnapshot.query(requirements);
+  }
+
 }
@@ -329,6 +329,9 @@ public abstract class ValueProperties implements Serializable, Comparable<ValueP
     @Override
     public boolean isSatisfiedBy(final ValueProperties properties) {
       assert properties != null;
+      if (properties == this) {
+        return true;
+      }
       nextProperty: // CSIGNORE [DVI-122]
       for (Map.Entry<String, Set<String>> property : _properties.entrySet()) {
         final Set<String> available = properties.getValues(property.getKey());
@@ -366,7 +369,7 @@ public abstract class ValueProperties implements Serializable, Comparable<ValueP
     @Override
     public ValueProperties compose(final ValueProperties properties) {
       assert properties != null;
-      if ((properties == EMPTY) || (properties == INFINITE)) {
+      if ((properties == this) || (properties == EMPTY) || (properties == INFINITE)) {
         return this;
       }
       for (Map.Entry<String, Set<String>> property : _properties.entrySet()) {
@@ -547,6 +550,9 @@ public abstract class ValueProperties implements Serializable, Comparable<ValueP
         return false;
       }
       final ValuePropertiesImpl other = (ValuePropertiesImpl) o;
+      if (_hashCodeValid && other._hashCodeValid && (_hashCode != other._hashCode)) {
+        return false;
+      }
       return _properties.equals(other._properties) && ObjectUtils.equals(_optional, other._optional);
     }
 
@@ -234,6 +234,10 @@ public final class ValueRequirement implements Serializable {
     }
     if (obj instanceof ValueRequirement) {
       ValueRequirement other = (ValueRequirement) obj;
+      // hash codes are cached, so most unequal values can be rejected without comparing the constraints
+      if ((_hashCode != 0) && (other._hashCode != 0) && (_hashCode != other._hashCode)) {
+        return false;
+      }
       return _valueName == other._valueName && // values are interned
           _targetSpecification.equals(other._targetSpecification) &&
           _constraints.equals(other._constraints);
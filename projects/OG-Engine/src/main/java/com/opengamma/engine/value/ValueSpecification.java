@@ -318,6 +318,10 @@ public class ValueSpecification implements Serializable {
     }
     if (obj instanceof ValueSpecification) {
       final ValueSpecification other = (ValueSpecification) obj;
+      // hash codes are cached, so most unequal values can be rejected without comparing the properties
+      if ((_hashCode != 0) && (other._hashCode != 0) && (_hashCode != other._hashCode)) {
+        return false;
+      }
       // valueName is interned
       return (_valueName == other._valueName) &&
         ObjectUtils.equals(_targetSpecification, other._targetSpecification) &&
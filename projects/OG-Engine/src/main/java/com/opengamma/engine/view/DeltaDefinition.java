@@ -5,6 +5,8 @@
  */
 package com.opengamma.engine.view;
 
+import java.util.BitSet;
+
 import org.apache.commons.lang.ObjectUtils;
 
 import com.opengamma.engine.value.ComputedValue;
@@ -59,6 +61,58 @@ public class DeltaDefinition {
     // Finally, fall back onto the most basic check
     return !ObjectUtils.equals(previousValue, newValue);
   }
+
+  /**
+   * Indicates whether the difference between two primitive values, with the same specification, is sufficient to be
+   * treated as a delta. This gives the same answer as {@link #isDelta(ComputedValue, ComputedValue)} would for the
+   * boxed values; identical values are never a delta.
+   * 
+   * @param previousValue  the previous value
+   * @param newValue  the new value
+   * @return true if the new value should be treated as a delta, false otherwise
+   */
+  public boolean isDelta(double previousValue, double newValue) {
+    if (Double.doubleToLongBits(previousValue) == Double.doubleToLongBits(newValue)) {
+      return false;
+    }
+    final DeltaComparer<Number> comparer = getNumberComparer();
+    if (comparer == null) {
+      return true;
+    }
+    if (comparer instanceof NumberDeltaComparer) {
+      return ((NumberDeltaComparer) comparer).isDelta(previousValue, newValue);
+    }
+    return comparer.isDelta(previousValue, newValue);
+  }
+
+  /**
+   * Compares two columns of primitive values, with the same specifications, marking the positions at which the new
+   * value is a delta. Each position gives the same answer as {@link #isDelta(double, double)} would.
+   * 
+   * @param previousValues  the previous values, not null
+   * @param newValues  the new values, not null
+   * @param count  the number of values to compare from the start of the arrays
+   * @param deltas  the positions of the values which are deltas, not null
+   */
+  public void findDeltas(double[] previousValues, double[] newValues, int count, BitSet deltas) {
+    final DeltaComparer<Number> comparer = getNumberComparer();
+    if (comparer instanceof NumberDeltaComparer) {
+      // Identical values always truncate to the same value so need no separate check
+      ((NumberDeltaComparer) comparer).findDeltas(previousValues, newValues, count, deltas);
+    } else if (comparer == null) {
+      for (int i = 0; i < count; i++) {
+        if (Double.doubleToLongBits(previousValues[i]) != Double.doubleToLongBits(newValues[i])) {
+          deltas.set(i);
+        }
+      }
+    } else {
+      for (int i = 0; i < count; i++) {
+        if ((Double.doubleToLongBits(previousValues[i]) != Double.doubleToLongBits(newValues[i])) && comparer.isDelta(previousValues[i], newValues[i])) {
+          deltas.set(i);
+        }
+      }
+    }
+  }
   
   @Override
   public int hashCode() {
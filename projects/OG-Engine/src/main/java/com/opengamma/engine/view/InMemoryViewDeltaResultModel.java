@@ -5,6 +5,10 @@
  */
 package com.opengamma.engine.view;
 
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
 import javax.time.Instant;
 
 /**
@@ -15,6 +19,7 @@ public class InMemoryViewDeltaResultModel extends InMemoryViewResultModel implem
   private static final long serialVersionUID = 1L;
   
   private Instant _previousResultTimestamp;
+  private final Map<String, BitSet[]> _deltaMasks = new HashMap<String, BitSet[]>();
 
   /**
    * @return the previousResultTimestamp
@@ -29,4 +34,36 @@ public class InMemoryViewDeltaResultModel extends InMemoryViewResultModel implem
   public void setPreviousCalculationTime(Instant previousResultTimestamp) {
     _previousResultTimestamp = previousResultTimestamp;
   }
+
+  /**
+   * Adds the values from a full result which are marked as deltas, recording the masks so that consumers holding the
+   * full result can work with the changed cells directly.
+   * 
+   * @param calcConfigurationName  the calculation configuration name, not null
+   * @param result  the full result for the configuration, not null
+   * @param deltas  the cells holding deltas, indexed by column of the full result, as produced by
+   *  {@link ViewCalculationResultModelImpl#computeDeltas}, not null
+   */
+  public void addDeltas(String calcConfigurationName, ViewCalculationResultModelImpl result, BitSet[] deltas) {
+    for (int column = 0; column < deltas.length; column++) {
+      final BitSet delta = deltas[column];
+      for (int cell = delta.nextSetBit(0); cell >= 0; cell = delta.nextSetBit(cell + 1)) {
+        addValue(calcConfigurationName, result.getCellResult(column, cell));
+      }
+    }
+    _deltaMasks.put(calcConfigurationName, deltas);
+  }
+
+  /**
+   * Gets the delta masks for a calculation configuration. Each mask is indexed by column of the full result's
+   * {@link ViewCalculationResultModelImpl} for the configuration and has a bit set for each cell holding a delta. The
+   * masks must not be modified.
+   * 
+   * @param calcConfigurationName  the calculation configuration name, not null
+   * @return the masks, or null if the delta was not produced from a columnar result or has since been merged
+   */
+  public BitSet[] getDeltaMasks(String calcConfigurationName) {
+    return _deltaMasks.get(calcConfigurationName);
+  }
+
 }
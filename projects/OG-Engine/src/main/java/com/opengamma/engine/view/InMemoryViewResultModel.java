@@ -37,7 +37,8 @@ public abstract class InMemoryViewResultModel implements ViewResultModel, Serial
   private Duration _calculationDuration;
   private VersionCorrection _versionCorrection;
   private final Map<String, ViewCalculationResultModelImpl> _resultsByConfiguration = new HashMap<String, ViewCalculationResultModelImpl>();
-  private final Map<ComputationTargetSpecification, ViewTargetResultModelImpl> _resultsByTarget = new HashMap<ComputationTargetSpecification, ViewTargetResultModelImpl>();
+  private final Set<ComputationTargetSpecification> _allTargets = new HashSet<ComputationTargetSpecification>();
+  private transient volatile Map<ComputationTargetSpecification, ViewTargetResultModelImpl> _resultsByTarget;
   private final List<ViewResultEntry> _allResults = new ArrayList<ViewResultEntry>();
   
   @Override
@@ -96,7 +97,7 @@ public abstract class InMemoryViewResultModel implements ViewResultModel, Serial
 
   @Override
   public Set<ComputationTargetSpecification> getAllTargets() {
-    return Collections.unmodifiableSet(_resultsByTarget.keySet());
+    return Collections.unmodifiableSet(_allTargets);
   }
 
   /**
@@ -115,18 +116,45 @@ public abstract class InMemoryViewResultModel implements ViewResultModel, Serial
       _resultsByConfiguration.put(calcConfigurationName, result);
     }
     result.addValue(target, value);
-    
-    ViewTargetResultModelImpl targetResult = _resultsByTarget.get(target);
-    if (targetResult == null) {
-      targetResult = new ViewTargetResultModelImpl();
-      _resultsByTarget.put(target, targetResult);
+    _allTargets.add(target);
+    if (_resultsByTarget != null) {
+      _resultsByTarget = null;
     }
-    
-    targetResult.addValue(calcConfigurationName, value);
-    
     _allResults.add(new ViewResultEntry(calcConfigurationName, value));
   }
 
+  /**
+   * Gets the results indexed by target, constructing them from the results held by configuration if necessary.
+   * 
+   * @return the results indexed by target, not null
+   */
+  private synchronized Map<ComputationTargetSpecification, ViewTargetResultModelImpl> getResultsByTarget() {
+    Map<ComputationTargetSpecification, ViewTargetResultModelImpl> resultsByTarget = _resultsByTarget;
+    if (resultsByTarget == null) {
+      resultsByTarget = new HashMap<ComputationTargetSpecification, ViewTargetResultModelImpl>();
+      for (Map.Entry<String, ViewCalculationResultModelImpl> configuration : _resultsByConfiguration.entrySet()) {
+        final ViewCalculationResultModelImpl calcResult = configuration.getValue();
+        final ViewTargetResultModelImpl[] targetResults = new ViewTargetResultModelImpl[calcResult.getTargetCount()];
+        for (int row = 0; row < targetResults.length; row++) {
+          final ComputationTargetSpecification target = calcResult.getTarget(row);
+          ViewTargetResultModelImpl targetResult = resultsByTarget.get(target);
+          if (targetResult == null) {
+            targetResult = new ViewTargetResultModelImpl();
+            resultsByTarget.put(target, targetResult);
+          }
+          targetResults[row] = targetResult;
+        }
+        for (int column = 0; column < calcResult.getColumnCount(); column++) {
+          for (int cell = 0; cell < calcResult.getCellCount(column); cell++) {
+            targetResults[calcResult.getCellRow(column, cell)].addValue(configuration.getKey(), calcResult.getCellResult(column, cell));
+          }
+        }
+      }
+      _resultsByTarget = resultsByTarget;
+    }
+    return resultsByTarget;
+  }
+
   @Override
   public Collection<String> getCalculationConfigurationNames() {
     return Collections.unmodifiableSet(_resultsByConfiguration.keySet());
@@ -139,7 +167,7 @@ public abstract class InMemoryViewResultModel implements ViewResultModel, Serial
 
   @Override
   public ViewTargetResultModel getTargetResult(ComputationTargetSpecification targetSpecification) {
-    return _resultsByTarget.get(targetSpecification);
+    return getResultsByTarget().get(targetSpecification);
   }
 
   @Override
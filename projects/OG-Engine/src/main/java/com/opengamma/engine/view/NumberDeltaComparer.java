@@ -5,6 +5,8 @@
  */
 package com.opengamma.engine.view;
 
+import java.util.BitSet;
+
 import org.apache.commons.lang.ObjectUtils;
 import org.fudgemsg.FudgeMsg;
 import org.fudgemsg.MutableFudgeMsg;
@@ -44,10 +46,38 @@ public class NumberDeltaComparer implements DeltaComparer<Number> {
       return true;
     }
     
-    long previousCompare = (long) (previousValue.doubleValue() * _multiplier);
-    long newCompare = (long) (newValue.doubleValue() * _multiplier);
+    return isDelta(previousValue.doubleValue(), newValue.doubleValue());
+  }
+
+  /**
+   * Indicates whether the difference between two primitive values is sufficient to be treated as a delta.
+   * 
+   * @param previousValue  the previous value
+   * @param newValue  the new value
+   * @return true if the new value should be treated as a delta, false otherwise
+   */
+  public boolean isDelta(double previousValue, double newValue) {
+    long previousCompare = (long) (previousValue * _multiplier);
+    long newCompare = (long) (newValue * _multiplier);
     return previousCompare != newCompare;
   }
+
+  /**
+   * Compares two columns of primitive values, marking the positions at which the new value is a delta.
+   * 
+   * @param previousValues  the previous values, not null
+   * @param newValues  the new values, not null
+   * @param count  the number of values to compare from the start of the arrays
+   * @param deltas  the positions of the values which are deltas, not null
+   */
+  public void findDeltas(double[] previousValues, double[] newValues, int count, BitSet deltas) {
+    final double multiplier = _multiplier;
+    for (int i = 0; i < count; i++) {
+      if ((long) (previousValues[i] * multiplier) != (long) (newValues[i] * multiplier)) {
+        deltas.set(i);
+      }
+    }
+  }
   
   public FudgeMsg toFudgeMsg(FudgeSerializer fudgeContext) {
     MutableFudgeMsg msg = fudgeContext.newMessage();
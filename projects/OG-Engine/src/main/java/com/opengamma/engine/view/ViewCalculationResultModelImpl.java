@@ -1,28 +1,120 @@
 /**
  * Copyright (C) 2009 - present by OpenGamma Inc. and the OpenGamma group of companies
- * 
+ *
  * Please see distribution for license.
  */
 package com.opengamma.engine.view;
 
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import com.opengamma.engine.ComputationTargetSpecification;
 import com.opengamma.engine.depgraph.DependencyGraphBuilder;
+import com.opengamma.engine.value.ComputedValue;
 import com.opengamma.engine.value.ComputedValueResult;
 import com.opengamma.engine.value.ValueProperties;
 import com.opengamma.util.tuple.Pair;
 
 /**
  * A simple implementation of the calculation result model.
+ * <p>
+ * Results are held in columnar form. Each target is a row and each value name and property combination is a column.
+ * Columns are sparse; each holds only the cells that have been set, together with their row indices, and each row
+ * holds the column and cell indices of its values so that neither per-target nor per-column access need visit every
+ * combination of the two. Values which are {@link Double} are also held as primitives in an array for their column so
+ * that they can be compared and copied without unboxing; other values are only available from the
+ * {@link ComputedValueResult}. The per-target maps of the {@link ViewCalculationResultModel} interface are constructed
+ * on first use and kept until the target is next updated.
  */
-public class ViewCalculationResultModelImpl extends AbstractResultModel<ComputationTargetSpecification> implements ViewCalculationResultModel {
+public class ViewCalculationResultModelImpl implements ViewCalculationResultModel, Serializable {
 
   private static final long serialVersionUID = 1L;
-  
+
+  /**
+   * The values for a single value name and property combination. Cells are held in the order they were first set.
+   */
+  private static final class Column implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private int[] _rows = new int[4];
+    private ComputedValueResult[] _results = new ComputedValueResult[4];
+    private double[] _doubles = new double[4];
+    private final BitSet _isDouble = new BitSet();
+    private int _size;
+
+    public int add(final int row, final ComputedValueResult result) {
+      if (_size == _rows.length) {
+        final int size = _size * 2;
+        _rows = Arrays.copyOf(_rows, size);
+        _results = Arrays.copyOf(_results, size);
+        _doubles = Arrays.copyOf(_doubles, size);
+      }
+      final int cell = _size++;
+      _rows[cell] = row;
+      set(cell, result);
+      return cell;
+    }
+
+    public void set(final int cell, final ComputedValueResult result) {
+      _results[cell] = result;
+      final Object value = result.getValue();
+      if (value instanceof Double) {
+        _doubles[cell] = (Double) value;
+        _isDouble.set(cell);
+      } else {
+        _isDouble.clear(cell);
+      }
+    }
+
+  }
+
+  /**
+   * The values for a single target, as pairs of column and cell indices.
+   */
+  private static final class Row implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final IntArrayList _cells = new IntArrayList(4);
+    private transient volatile Map<Pair<String, ValueProperties>, ComputedValueResult> _values;
+
+    public int findCell(final int column) {
+      final int size = _cells.size();
+      for (int i = 0; i < size; i += 2) {
+        if (_cells.getInt(i) == column) {
+          return _cells.getInt(i + 1);
+        }
+      }
+      return -1;
+    }
+
+  }
+
   private DependencyGraphBuilder _dependencyGraphModel;
 
+  private final List<ComputationTargetSpecification> _targets = new ArrayList<ComputationTargetSpecification>();
+  private final List<Row> _targetRows = new ArrayList<Row>();
+  private final Object2IntOpenHashMap<ComputationTargetSpecification> _targetIndex = new Object2IntOpenHashMap<ComputationTargetSpecification>();
+  private final List<Pair<String, ValueProperties>> _columnKeys = new ArrayList<Pair<String, ValueProperties>>();
+  private final Object2IntOpenHashMap<Pair<String, ValueProperties>> _columnIndex = new Object2IntOpenHashMap<Pair<String, ValueProperties>>();
+  private final List<Column> _columns = new ArrayList<Column>();
+
+  public ViewCalculationResultModelImpl() {
+    _targetIndex.defaultReturnValue(-1);
+    _columnIndex.defaultReturnValue(-1);
+  }
+
   public void setDependencyGraphModel(DependencyGraphBuilder dependencyGraphModel) {
     _dependencyGraphModel = dependencyGraphModel;
   }
@@ -30,22 +122,284 @@ public class ViewCalculationResultModelImpl extends AbstractResultModel<Computat
   public DependencyGraphBuilder getDependencyGraphModel() {
     return _dependencyGraphModel;
   }
-  
+
   // REVIEW Andrew 2010-09-14 -- Do we need the dependency graph model ?
 
+  //-------------------------------------------------------------------------
+  /**
+   * Adds a value for a target, replacing any previous value with the same name and properties. The target is added
+   * as a row if it is not already present, even if the value is null.
+   *
+   * @param target  the target, not null
+   * @param value  the value to add, or null to only add the target
+   */
+  public void addValue(final ComputationTargetSpecification target, final ComputedValueResult value) {
+    int rowIndex = _targetIndex.getInt(target);
+    final Row row;
+    if (rowIndex < 0) {
+      rowIndex = _targets.size();
+      _targets.add(target);
+      _targetIndex.put(target, rowIndex);
+      row = new Row();
+      _targetRows.add(row);
+    } else {
+      row = _targetRows.get(rowIndex);
+    }
+    if (value != null) {
+      final Pair<String, ValueProperties> key = Pair.of(value.getSpecification().getValueName(), value.getSpecification().getProperties());
+      int column = _columnIndex.getInt(key);
+      if (column < 0) {
+        column = _columnKeys.size();
+        _columnKeys.add(key);
+        _columnIndex.put(key, column);
+        _columns.add(new Column());
+      }
+      final int cell = row.findCell(column);
+      if (cell < 0) {
+        row._cells.add(column);
+        row._cells.add(_columns.get(column).add(rowIndex, value));
+      } else {
+        _columns.get(column).set(cell, value);
+      }
+      row._values = null;
+    }
+  }
+
+  /**
+   * Gets the number of targets, or rows, in the model.
+   *
+   * @return the number of targets
+   */
+  public int getTargetCount() {
+    return _targets.size();
+  }
+
+  /**
+   * Gets the target for a row.
+   *
+   * @param row  the row index, from 0 (inclusive) to {@link #getTargetCount} (exclusive)
+   * @return the target, not null
+   */
+  public ComputationTargetSpecification getTarget(final int row) {
+    return _targets.get(row);
+  }
+
+  /**
+   * Gets the row for a target.
+   *
+   * @param target  the target to search for, not null
+   * @return the row index, or -1 if the target is not present
+   */
+  public int getTargetIndex(final ComputationTargetSpecification target) {
+    return _targetIndex.getInt(target);
+  }
+
+  /**
+   * Gets the number of value name and property combinations, or columns, in the model.
+   *
+   * @return the number of columns
+   */
+  public int getColumnCount() {
+    return _columnKeys.size();
+  }
+
+  /**
+   * Gets the value name and properties for a column.
+   *
+   * @param column  the column index, from 0 (inclusive) to {@link #getColumnCount} (exclusive)
+   * @return the value name and properties, not null
+   */
+  public Pair<String, ValueProperties> getColumn(final int column) {
+    return _columnKeys.get(column);
+  }
+
+  /**
+   * Gets the column for a value name and property combination.
+   *
+   * @param key  the value name and properties to search for, not null
+   * @return the column index, or -1 if the column is not present
+   */
+  public int getColumnIndex(final Pair<String, ValueProperties> key) {
+    return _columnIndex.getInt(key);
+  }
+
+  /**
+   * Gets the number of cells that have been set in a column.
+   *
+   * @param column  the column index
+   * @return the number of cells
+   */
+  public int getCellCount(final int column) {
+    return _columns.get(column)._size;
+  }
+
+  /**
+   * Gets the row of a cell in a column.
+   *
+   * @param column  the column index
+   * @param cell  the cell index, from 0 (inclusive) to {@link #getCellCount} (exclusive)
+   * @return the row index
+   */
+  public int getCellRow(final int column, final int cell) {
+    return _columns.get(column)._rows[cell];
+  }
+
+  /**
+   * Gets the result held in a cell of a column.
+   *
+   * @param column  the column index
+   * @param cell  the cell index, from 0 (inclusive) to {@link #getCellCount} (exclusive)
+   * @return the result, not null
+   */
+  public ComputedValueResult getCellResult(final int column, final int cell) {
+    return _columns.get(column)._results[cell];
+  }
+
+  /**
+   * Gets the cell of a column that holds the value for a row.
+   *
+   * @param row  the row index
+   * @param column  the column index
+   * @return the cell index, or -1 if the row has no value in the column
+   */
+  public int getCell(final int row, final int column) {
+    return _targetRows.get(row).findCell(column);
+  }
+
+  /**
+   * Gets the result held for a row and column.
+   *
+   * @param row  the row index
+   * @param column  the column index
+   * @return the result, or null if there is none
+   */
+  public ComputedValueResult getResult(final int row, final int column) {
+    final int cell = getCell(row, column);
+    return (cell >= 0) ? _columns.get(column)._results[cell] : null;
+  }
+
+  /**
+   * Tests whether the result held for a row and column is a {@link Double}.
+   *
+   * @param row  the row index
+   * @param column  the column index
+   * @return true if there is a result with a double value, false otherwise
+   */
+  public boolean isDouble(final int row, final int column) {
+    final int cell = getCell(row, column);
+    return (cell >= 0) && _columns.get(column)._isDouble.get(cell);
+  }
+
+  /**
+   * Gets the double value held for a row and column. This is only valid if {@link #isDouble} is true for them.
+   *
+   * @param row  the row index
+   * @param column  the column index
+   * @return the value
+   */
+  public double getDouble(final int row, final int column) {
+    return _columns.get(column)._doubles[getCell(row, column)];
+  }
+
+  /**
+   * Compares this model with the result of a previous cycle, a column at a time. Double values present in both are
+   * gathered into primitive arrays and compared by {@link DeltaDefinition#findDeltas}. Other values are compared
+   * individually by {@link DeltaDefinition#isDelta(ComputedValue, ComputedValue)}. Values with no previous value
+   * are always deltas.
+   *
+   * @param previous  the previous result, or null if there is none
+   * @param deltaDefinition  the delta definition, not null
+   * @return the cells holding deltas, indexed by column, not null
+   */
+  public BitSet[] computeDeltas(final ViewCalculationResultModelImpl previous, final DeltaDefinition deltaDefinition) {
+    final int columns = getColumnCount();
+    final BitSet[] deltas = new BitSet[columns];
+    int[] previousRows = null;
+    if (previous != null) {
+      final int rows = getTargetCount();
+      previousRows = new int[rows];
+      for (int row = 0; row < rows; row++) {
+        previousRows[row] = previous.getTargetIndex(getTarget(row));
+      }
+    }
+    int maxCells = 0;
+    for (Column column : _columns) {
+      maxCells = Math.max(maxCells, column._size);
+    }
+    final double[] previousValues = new double[maxCells];
+    final double[] newValues = new double[maxCells];
+    final int[] candidateCells = new int[maxCells];
+    final BitSet candidateDeltas = new BitSet(maxCells);
+    for (int column = 0; column < columns; column++) {
+      final Column current = _columns.get(column);
+      final BitSet delta = new BitSet(current._size);
+      deltas[column] = delta;
+      final int previousColumnIndex = (previous != null) ? previous.getColumnIndex(getColumn(column)) : -1;
+      if (previousColumnIndex < 0) {
+        delta.set(0, current._size);
+        continue;
+      }
+      final Column previousColumn = previous._columns.get(previousColumnIndex);
+      int candidates = 0;
+      for (int cell = 0; cell < current._size; cell++) {
+        final int previousRow = previousRows[current._rows[cell]];
+        final int previousCell = (previousRow >= 0) ? previous._targetRows.get(previousRow).findCell(previousColumnIndex) : -1;
+        if (previousCell < 0) {
+          delta.set(cell);
+        } else if (current._isDouble.get(cell) && previousColumn._isDouble.get(previousCell)) {
+          previousValues[candidates] = previousColumn._doubles[previousCell];
+          newValues[candidates] = current._doubles[cell];
+          candidateCells[candidates++] = cell;
+        } else if (deltaDefinition.isDelta(previousColumn._results[previousCell], current._results[cell])) {
+          delta.set(cell);
+        }
+      }
+      if (candidates > 0) {
+        candidateDeltas.clear();
+        deltaDefinition.findDeltas(previousValues, newValues, candidates, candidateDeltas);
+        for (int i = candidateDeltas.nextSetBit(0); i >= 0; i = candidateDeltas.nextSetBit(i + 1)) {
+          delta.set(candidateCells[i]);
+        }
+      }
+    }
+    return deltas;
+  }
+
+  //-------------------------------------------------------------------------
+  private Map<Pair<String, ValueProperties>, ComputedValueResult> getRowValues(final ComputationTargetSpecification target) {
+    final int rowIndex = _targetIndex.getInt(target);
+    if (rowIndex < 0) {
+      return null;
+    }
+    final Row row = _targetRows.get(rowIndex);
+    Map<Pair<String, ValueProperties>, ComputedValueResult> values = row._values;
+    if (values == null) {
+      final int size = row._cells.size();
+      values = new HashMap<Pair<String, ValueProperties>, ComputedValueResult>();
+      for (int i = 0; i < size; i += 2) {
+        final int column = row._cells.getInt(i);
+        values.put(_columnKeys.get(column), _columns.get(column)._results[row._cells.getInt(i + 1)]);
+      }
+      values = Collections.unmodifiableMap(values);
+      row._values = values;
+    }
+    return values;
+  }
+
   @Override
   public Map<Pair<String, ValueProperties>, ComputedValueResult> getValues(final ComputationTargetSpecification target) {
-    return super.getValuesByName(target);
+    return getRowValues(target);
   }
-  
+
   @Override
   public Collection<ComputedValueResult> getAllValues(final ComputationTargetSpecification target) {
-    return super.getAllValues(target);
+    final Map<Pair<String, ValueProperties>, ComputedValueResult> values = getRowValues(target);
+    return (values != null) ? values.values() : null;
   }
 
   @Override
   public Collection<ComputationTargetSpecification> getAllTargets() {
-    return getKeys();
+    return Collections.unmodifiableList(_targets);
   }
 
 }
@@ -35,6 +35,7 @@ import com.opengamma.engine.view.calc.ViewCycleMetadata;
 import com.opengamma.engine.view.client.ViewDeltaResultCalculator;
 import com.opengamma.engine.view.compilation.CompiledViewDefinitionWithGraphsImpl;
 import com.opengamma.engine.view.execution.ViewCycleExecutionOptions;
+import com.opengamma.engine.view.execution.ViewExecutionFlags;
 import com.opengamma.engine.view.execution.ViewExecutionOptions;
 import com.opengamma.engine.view.listener.ViewResultListener;
 import com.opengamma.engine.view.permission.ViewPermissionProvider;
@@ -52,6 +53,12 @@ public class ViewProcessImpl implements ViewProcessInternal, ExecutionLogModeSou
 
   private static final Logger s_logger = LoggerFactory.getLogger(ViewProcess.class);
 
+  /**
+   * The default number of cycles whose results may be awaiting delivery while another executes, when cycles are
+   * pipelined.
+   */
+  public static final int DEFAULT_CYCLE_PIPELINE_DEPTH = 2;
+
   private final UniqueId _viewProcessId;
   private final UniqueId _viewDefinitionId;
   private final ViewExecutionOptions _executionOptions;
@@ -74,6 +81,7 @@ public class ViewProcessImpl implements ViewProcessInternal, ExecutionLogModeSou
 
   private volatile ViewComputationJob _computationJob;
   private volatile Thread _computationThread;
+  private volatile int _cyclePipelineDepth = DEFAULT_CYCLE_PIPELINE_DEPTH;
   
   private final Map<ValueSpecification, Integer> _elevatedResultSpecs = new ConcurrentHashMap<ValueSpecification, Integer>();
 
@@ -599,6 +607,27 @@ public class ViewProcessImpl implements ViewProcessInternal, ExecutionLogModeSou
     return _executionOptions;
   }
 
+  /**
+   * Gets the number of cycles whose results may be awaiting delivery while another cycle executes. This only applies
+   * if the execution options include {@link ViewExecutionFlags#PIPELINE_CYCLES}.
+   * 
+   * @return the pipeline depth
+   */
+  public int getCyclePipelineDepth() {
+    return _cyclePipelineDepth;
+  }
+
+  /**
+   * Sets the number of cycles whose results may be awaiting delivery while another cycle executes. The new value is
+   * used by the next computation job started.
+   * 
+   * @param cyclePipelineDepth  the pipeline depth, zero to deliver the results of each cycle before starting the next
+   */
+  public void setCyclePipelineDepth(int cyclePipelineDepth) {
+    ArgumentChecker.isTrue(cyclePipelineDepth >= 0, "cyclePipelineDepth must not be negative");
+    _cyclePipelineDepth = cyclePipelineDepth;
+  }
+
   private void startComputationJobImpl() {
     // Caller MUST hold the semaphore
     try {
@@ -15,6 +15,7 @@ import java.util.Timer;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
@@ -46,6 +47,7 @@ import com.opengamma.engine.view.calcnode.JobDispatcher;
 import com.opengamma.engine.view.calcnode.ViewProcessorQueryReceiver;
 import com.opengamma.engine.view.client.ViewClient;
 import com.opengamma.engine.view.client.ViewClientImpl;
+import com.opengamma.engine.view.client.merging.SharedResultFanOut;
 import com.opengamma.engine.view.event.ViewProcessorEventListenerRegistry;
 import com.opengamma.engine.view.execution.ViewExecutionFlags;
 import com.opengamma.engine.view.execution.ViewExecutionOptions;
@@ -56,6 +58,7 @@ import com.opengamma.id.UniqueId;
 import com.opengamma.id.VersionCorrection;
 import com.opengamma.livedata.UserPrincipal;
 import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.NamedThreadPoolFactory;
 import com.opengamma.util.monitor.OperationTimer;
 import com.opengamma.util.tuple.Pair;
 
@@ -74,8 +77,10 @@ public class ViewProcessorImpl implements ViewProcessorInternal {
   private final AtomicLong _clientIdSource = new AtomicLong();
   private final ReentrantLock _lifecycleLock = new ReentrantLock();
   private final Timer _clientResultTimer = new Timer("Shared ViewClient result timer");
+  private volatile ExecutorService _clientResultExecutor = createClientResultExecutor();
 
   private final EngineResourceManagerInternal<SingleComputationCycle> _cycleManager = new EngineResourceManagerImpl<SingleComputationCycle>();
+  private volatile int _cyclePipelineDepth = ViewProcessImpl.DEFAULT_CYCLE_PIPELINE_DEPTH;
 
   private final ReentrantLock _processLock = new ReentrantLock();
 
@@ -107,6 +112,10 @@ public class ViewProcessorImpl implements ViewProcessorInternal {
   private final ConcurrentMap<UniqueId, ViewClientImpl> _allClientsById = new ConcurrentHashMap<UniqueId, ViewClientImpl>();
 
   private final Map<UniqueId, Pair<ViewProcessImpl, ViewResultListener>> _clientToProcess = new HashMap<UniqueId, Pair<ViewProcessImpl, ViewResultListener>>();
+  
+  // Guarded by _resultFanOutLock
+  private final ReentrantLock _resultFanOutLock = new ReentrantLock();
+  private final Map<Pair<UniqueId, Long>, SharedResultFanOut> _resultFanOuts = new HashMap<Pair<UniqueId, Long>, SharedResultFanOut>();
 
   /**
    * The view processor event listener registry
@@ -168,6 +177,27 @@ public class ViewProcessorImpl implements ViewProcessorInternal {
   public NamedMarketDataSpecificationRepository getNamedMarketDataSpecificationRepository() {
     return _namedMarketDataSpecificationRepository;
   }
+
+  /**
+   * Gets the number of cycles whose results may be awaiting delivery while another executes, for view processes
+   * with {@link ViewExecutionFlags#PIPELINE_CYCLES} set.
+   * 
+   * @return the pipeline depth
+   */
+  public int getCyclePipelineDepth() {
+    return _cyclePipelineDepth;
+  }
+
+  /**
+   * Sets the number of cycles whose results may be awaiting delivery while another executes. This applies to view
+   * processes created after the call.
+   * 
+   * @param cyclePipelineDepth  the pipeline depth, zero to disable pipelining
+   */
+  public void setCyclePipelineDepth(int cyclePipelineDepth) {
+    ArgumentChecker.isTrue(cyclePipelineDepth >= 0, "cyclePipelineDepth must not be negative");
+    _cyclePipelineDepth = cyclePipelineDepth;
+  }
   
   //-------------------------------------------------------------------------
   @Override
@@ -342,6 +372,7 @@ public class ViewProcessorImpl implements ViewProcessorInternal {
       ObjectId cycleObjectId = ObjectId.of(CYCLE_SCHEME, idValue);
       ViewProcessContext viewProcessContext = createViewProcessContext();
       ViewProcessImpl viewProcess = new ViewProcessImpl(viewProcessId, definitionId, executionOptions, viewProcessContext, getViewCycleManager(), cycleObjectId);
+      viewProcess.setCyclePipelineDepth(getCyclePipelineDepth());
 
       // If executing in batch mode then attach a special listener to write incoming results into the batch db
       if (executionOptions.getFlags().contains(ViewExecutionFlags.BATCH)) {
@@ -514,6 +545,79 @@ public class ViewProcessorImpl implements ViewProcessorInternal {
   public EngineResourceManagerInternal<SingleComputationCycle> getViewCycleManager() {
     return _cycleManager;
   }
+
+  /**
+   * Gets the executor shared by view clients which stream results to their listeners.
+   * 
+   * @return the executor, not null
+   */
+  public ExecutorService getClientResultExecutor() {
+    return _clientResultExecutor;
+  }
+
+  private static ExecutorService createClientResultExecutor() {
+    return Executors.newCachedThreadPool(new NamedThreadPoolFactory("ViewClient results", true));
+  }
+
+  /**
+   * Adds a listener to the shared merger of results from a view process at a given update rate, creating the merger
+   * if this is its first listener. Clients attached to the same process with the same update rate use this to avoid
+   * each merging the same results.
+   * 
+   * @param processId  the unique identifier of the view process, not null
+   * @param updatePeriodMillis  the minimum time between results, in milliseconds
+   * @param listener  the listener to receive the merged results, not null
+   * @return the shared merger, not null
+   */
+  public SharedResultFanOut joinResultFanOut(UniqueId processId, long updatePeriodMillis, ViewResultListener listener) {
+    final Pair<UniqueId, Long> key = Pair.of(processId, updatePeriodMillis);
+    _resultFanOutLock.lock();
+    try {
+      SharedResultFanOut fanOut = _resultFanOuts.get(key);
+      if (fanOut == null) {
+        fanOut = new SharedResultFanOut(getViewCycleManager(), _clientResultTimer, updatePeriodMillis);
+        _resultFanOuts.put(key, fanOut);
+      }
+      fanOut.addListener(listener);
+      return fanOut;
+    } finally {
+      _resultFanOutLock.unlock();
+    }
+  }
+
+  /**
+   * Removes a listener from a shared merger of results, discarding the merger if this was its last listener.
+   * 
+   * @param processId  the unique identifier of the view process, not null
+   * @param updatePeriodMillis  the minimum time between results, in milliseconds
+   * @param listener  the listener to remove, not null
+   */
+  public void leaveResultFanOut(UniqueId processId, long updatePeriodMillis, ViewResultListener listener) {
+    final Pair<UniqueId, Long> key = Pair.of(processId, updatePeriodMillis);
+    _resultFanOutLock.lock();
+    try {
+      SharedResultFanOut fanOut = _resultFanOuts.get(key);
+      if ((fanOut != null) && fanOut.removeListener(listener)) {
+        _resultFanOuts.remove(key);
+      }
+    } finally {
+      _resultFanOutLock.unlock();
+    }
+  }
+
+  /**
+   * Gets the shared mergers of results currently in use, for management and testing.
+   * 
+   * @return the shared mergers, not null
+   */
+  public Collection<SharedResultFanOut> getResultFanOuts() {
+    _resultFanOutLock.lock();
+    try {
+      return new ArrayList<SharedResultFanOut>(_resultFanOuts.values());
+    } finally {
+      _resultFanOutLock.unlock();
+    }
+  }
   
   //-------------------------------------------------------------------------
   /**
@@ -667,6 +771,10 @@ public class ViewProcessorImpl implements ViewProcessorInternal {
         viewClient.shutdown();
       }
       _allClientsById.clear();
+
+      // Results already queued for the clients' listeners are still delivered; a fresh executor is ready for a restart
+      _clientResultExecutor.shutdown();
+      _clientResultExecutor = createClientResultExecutor();
       
       _isStarted = false;
       
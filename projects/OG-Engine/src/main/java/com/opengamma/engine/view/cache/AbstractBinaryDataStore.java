@@ -5,8 +5,11 @@
  */
 package com.opengamma.engine.view.cache;
 
-import java.util.Collection;
-import java.util.HashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongCollection;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+
 import java.util.Map;
 
 /**
@@ -14,13 +17,15 @@ import java.util.Map;
  */
 public abstract class AbstractBinaryDataStore implements BinaryDataStore {
 
-  public Map<Long, byte[]> get(final Collection<Long> identifiers) {
+  public Long2ObjectMap<byte[]> get(final LongCollection identifiers) {
     return get(this, identifiers);
   }
 
-  public static Map<Long, byte[]> get(final BinaryDataStore dataStore, final Collection<Long> identifiers) {
-    final Map<Long, byte[]> result = new HashMap<Long, byte[]>();
-    for (Long identifier : identifiers) {
+  public static Long2ObjectMap<byte[]> get(final BinaryDataStore dataStore, final LongCollection identifiers) {
+    final Long2ObjectMap<byte[]> result = new Long2ObjectOpenHashMap<byte[]>(identifiers.size());
+    final LongIterator itr = identifiers.iterator();
+    while (itr.hasNext()) {
+      final long identifier = itr.nextLong();
       final byte[] data = dataStore.get(identifier);
       if (data != null) {
         result.put(identifier, data);
@@ -5,7 +5,9 @@
  */
 package com.opengamma.engine.view.cache;
 
-import java.util.Collection;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.LongCollection;
+
 import java.util.Map;
 
 import org.slf4j.Logger;
@@ -89,7 +91,7 @@ public class BerkeleyDBBinaryDataStore extends AbstractBerkeleyDBComponent imple
   }
 
   @Override
-  public Map<Long, byte[]> get(final Collection<Long> identifiers) {
+  public Long2ObjectMap<byte[]> get(final LongCollection identifiers) {
     return AbstractBinaryDataStore.get(this, identifiers);
   }
 
@@ -5,7 +5,9 @@
  */
 package com.opengamma.engine.view.cache;
 
-import java.util.Collection;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.LongCollection;
+
 import java.util.Map;
 
 import com.opengamma.engine.value.ValueSpecification;
@@ -32,7 +34,7 @@ public interface BinaryDataStore {
    * @param identifiers identifiers to query
    * @return map of results. If there is no data for an identifier it will be missing from the map. 
    */
-  Map<Long, byte[]> get(Collection<Long> identifiers);
+  Long2ObjectMap<byte[]> get(LongCollection identifiers);
 
   /**
    * Provide data for the given identifier for this store.
@@ -5,10 +5,12 @@
  */
 package com.opengamma.engine.view.cache;
 
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.HashMap;
-import java.util.List;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongCollection;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+
 import java.util.Map;
 
 import net.sf.ehcache.Cache;
@@ -83,10 +85,12 @@ public class CachingFudgeMessageStore implements FudgeMessageStore {
   }
 
   @Override
-  public Map<Long, FudgeMsg> get(Collection<Long> identifiers) {
-    final Map<Long, FudgeMsg> result = new HashMap<Long, FudgeMsg>();
-    final List<Long> missing = new ArrayList<Long>(identifiers.size());
-    for (Long identifier : identifiers) {
+  public Long2ObjectMap<FudgeMsg> get(LongCollection identifiers) {
+    final Long2ObjectMap<FudgeMsg> result = new Long2ObjectOpenHashMap<FudgeMsg>(identifiers.size());
+    final LongArrayList missing = new LongArrayList(identifiers.size());
+    final LongIterator itr = identifiers.iterator();
+    while (itr.hasNext()) {
+      final long identifier = itr.nextLong();
       final Element cacheElement = getCache().get(identifier);
       if (cacheElement != null) {
         result.put(identifier, (FudgeMsg) cacheElement.getObjectValue());
@@ -98,15 +102,15 @@ public class CachingFudgeMessageStore implements FudgeMessageStore {
       return result;
     }
     if (missing.size() == 1) {
-      final Long missingIdentifier = missing.get(0);
+      final long missingIdentifier = missing.getLong(0);
       final FudgeMsg data = getUnderlying().get(missingIdentifier);
       result.put(missingIdentifier, data);
       getCache().put(new Element(missingIdentifier, data));
     } else {
-      final Map<Long, FudgeMsg> missingData = getUnderlying().get(missing);
-      for (Map.Entry<Long, FudgeMsg> data : missingData.entrySet()) {
-        result.put(data.getKey(), data.getValue());
-        getCache().put(new Element(data.getKey(), data.getValue()));
+      final Long2ObjectMap<FudgeMsg> missingData = getUnderlying().get(missing);
+      for (Long2ObjectMap.Entry<FudgeMsg> data : missingData.long2ObjectEntrySet()) {
+        result.put(data.getLongKey(), data.getValue());
+        getCache().put(new Element(data.getLongKey(), data.getValue()));
       }
     }
     return result;
@@ -9,13 +9,14 @@ import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
 import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
 import it.unimi.dsi.fastutil.longs.LongArrayList;
 import it.unimi.dsi.fastutil.longs.LongCollection;
+import it.unimi.dsi.fastutil.longs.LongIterator;
 import it.unimi.dsi.fastutil.longs.LongList;
 import it.unimi.dsi.fastutil.objects.Object2LongMap;
 import it.unimi.dsi.fastutil.objects.Object2LongOpenHashMap;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.WeakHashMap;
@@ -119,7 +120,7 @@ public class CachingIdentifierMap implements IdentifierMap {
 
   @Override
   public Object2LongMap<ValueSpecification> getIdentifiers(Collection<ValueSpecification> specs) {
-    final Object2LongMap<ValueSpecification> identifiers = new Object2LongOpenHashMap<ValueSpecification>();
+    final Object2LongMap<ValueSpecification> identifiers = new Object2LongOpenHashMap<ValueSpecification>(specs.size());
     List<ValueSpecification> cacheMisses = null;
     for (ValueSpecification spec : specs) {
       final Key value = _specificationToIdentifier.get(spec);
@@ -127,7 +128,7 @@ public class CachingIdentifierMap implements IdentifierMap {
         identifiers.put(spec, value._identifier);
       } else {
         if (cacheMisses == null) {
-          cacheMisses = new LinkedList<ValueSpecification>();
+          cacheMisses = new ArrayList<ValueSpecification>();
         }
         cacheMisses.add(MemoryUtils.instance(spec));
       }
@@ -169,9 +170,11 @@ public class CachingIdentifierMap implements IdentifierMap {
 
   @Override
   public Long2ObjectMap<ValueSpecification> getValueSpecifications(LongCollection identifiers) {
-    final Long2ObjectMap<ValueSpecification> specifications = new Long2ObjectOpenHashMap<ValueSpecification>();
+    final Long2ObjectMap<ValueSpecification> specifications = new Long2ObjectOpenHashMap<ValueSpecification>(identifiers.size());
     LongList cacheMisses = null;
-    for (long identifier : identifiers) {
+    final LongIterator itr = identifiers.iterator();
+    while (itr.hasNext()) {
+      final long identifier = itr.nextLong();
       final Key key = borrowKey(identifier);
       final ValueSpecification specification = _identifierToSpecification.get(key);
       returnKey(key);
@@ -5,9 +5,11 @@
  */
 package com.opengamma.engine.view.cache;
 
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongCollection;
+
 import java.io.ByteArrayOutputStream;
-import java.util.Collection;
-import java.util.HashMap;
 import java.util.Map;
 
 import org.fudgemsg.FudgeContext;
@@ -53,11 +55,11 @@ public class DefaultFudgeMessageStore implements FudgeMessageStore {
   }
 
   @Override
-  public Map<Long, FudgeMsg> get(Collection<Long> identifiers) {
-    final Map<Long, byte[]> dataValues = getBinaryData().get(identifiers);
-    final Map<Long, FudgeMsg> resultValues = new HashMap<Long, FudgeMsg>();
-    for (Map.Entry<Long, byte[]> data : dataValues.entrySet()) {
-      resultValues.put(data.getKey(), new EncodedFudgeMsg(data.getValue(), getFudgeContext()));
+  public Long2ObjectMap<FudgeMsg> get(LongCollection identifiers) {
+    final Long2ObjectMap<byte[]> dataValues = getBinaryData().get(identifiers);
+    final Long2ObjectMap<FudgeMsg> resultValues = new Long2ObjectOpenHashMap<FudgeMsg>(dataValues.size());
+    for (Long2ObjectMap.Entry<byte[]> data : dataValues.long2ObjectEntrySet()) {
+      resultValues.put(data.getLongKey(), new EncodedFudgeMsg(data.getValue(), getFudgeContext()));
     }
     return resultValues;
   }
@@ -78,7 +80,7 @@ public class DefaultFudgeMessageStore implements FudgeMessageStore {
 
   @Override
   public void put(Map<Long, FudgeMsg> dataMessages) {
-    final Map<Long, byte[]> dataBytes = new HashMap<Long, byte[]>();
+    final Map<Long, byte[]> dataBytes = new Long2ObjectOpenHashMap<byte[]>(dataMessages.size());
     ByteArrayOutputStream baos = null;
     FudgeDataOutputStreamWriter writer = null;
     for (Map.Entry<Long, FudgeMsg> dataMessage : dataMessages.entrySet()) {
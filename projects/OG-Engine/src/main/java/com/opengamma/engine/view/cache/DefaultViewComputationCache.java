@@ -5,11 +5,17 @@
  */
 package com.opengamma.engine.view.cache;
 
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongCollection;
+import it.unimi.dsi.fastutil.longs.LongList;
+import it.unimi.dsi.fastutil.objects.Object2LongMap;
+
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
-import java.util.List;
 import java.util.Map;
 
 import org.fudgemsg.FudgeContext;
@@ -40,7 +46,7 @@ public class DefaultViewComputationCache implements ViewComputationCache,
 
     FudgeMsg findMissingValue(long identifier);
 
-    Map<Long, FudgeMsg> findMissingValues(Collection<Long> identifiers);
+    Long2ObjectMap<FudgeMsg> findMissingValues(LongCollection identifiers);
 
   };
 
@@ -194,16 +200,16 @@ public class DefaultViewComputationCache implements ViewComputationCache,
   @Override
   public Collection<Pair<ValueSpecification, Object>> getValues(final Collection<ValueSpecification> specifications) {
     ArgumentChecker.notNull(specifications, "specifications");
-    final Map<ValueSpecification, Long> identifiers = getIdentifierMap().getIdentifiers(specifications);
+    final Object2LongMap<ValueSpecification> identifiers = getIdentifierMap().getIdentifiers(specifications);
     final Collection<Pair<ValueSpecification, Object>> returnValues = new ArrayList<Pair<ValueSpecification, Object>>(specifications.size());
-    final Collection<Long> identifierValues = identifiers.values();
+    final LongCollection identifierValues = identifiers.values();
     final FudgeDeserializer deserializer = new FudgeDeserializer(getFudgeContext());
-    Map<Long, FudgeMsg> rawValues = getPrivateDataStore().get(identifierValues);
+    Long2ObjectMap<FudgeMsg> rawValues = getPrivateDataStore().get(identifierValues);
     if (!rawValues.isEmpty()) {
-      final Iterator<Map.Entry<ValueSpecification, Long>> identifierIterator = identifiers.entrySet().iterator();
+      final Iterator<Object2LongMap.Entry<ValueSpecification>> identifierIterator = identifiers.object2LongEntrySet().iterator();
       while (identifierIterator.hasNext()) {
-        final Map.Entry<ValueSpecification, Long> identifier = identifierIterator.next();
-        final FudgeMsg data = rawValues.get(identifier.getValue());
+        final Object2LongMap.Entry<ValueSpecification> identifier = identifierIterator.next();
+        final FudgeMsg data = rawValues.get(identifier.getLongValue());
         if (data != null) {
           Object value = deserializeValue(deserializer, data);
           cacheValueSize(identifier.getKey(), data, value);
@@ -217,10 +223,10 @@ public class DefaultViewComputationCache implements ViewComputationCache,
     }
     rawValues = getSharedDataStore().get(identifierValues);
     if (!rawValues.isEmpty()) {
-      final Iterator<Map.Entry<ValueSpecification, Long>> identifierIterator = identifiers.entrySet().iterator();
+      final Iterator<Object2LongMap.Entry<ValueSpecification>> identifierIterator = identifiers.object2LongEntrySet().iterator();
       while (identifierIterator.hasNext()) {
-        final Map.Entry<ValueSpecification, Long> identifier = identifierIterator.next();
-        final FudgeMsg data = rawValues.get(identifier.getValue());
+        final Object2LongMap.Entry<ValueSpecification> identifier = identifierIterator.next();
+        final FudgeMsg data = rawValues.get(identifier.getLongValue());
         if (data != null) {
           Object value = deserializeValue(deserializer, data);
           cacheValueSize(identifier.getKey(), data, value);
@@ -236,10 +242,10 @@ public class DefaultViewComputationCache implements ViewComputationCache,
     if (loader != null) {
       rawValues = loader.findMissingValues(identifierValues);
       if (!rawValues.isEmpty()) {
-        final Iterator<Map.Entry<ValueSpecification, Long>> identifierIterator = identifiers.entrySet().iterator();
+        final Iterator<Object2LongMap.Entry<ValueSpecification>> identifierIterator = identifiers.object2LongEntrySet().iterator();
         while (identifierIterator.hasNext()) {
-          final Map.Entry<ValueSpecification, Long> identifier = identifierIterator.next();
-          final FudgeMsg data = rawValues.get(identifier.getValue());
+          final Object2LongMap.Entry<ValueSpecification> identifier = identifierIterator.next();
+          final FudgeMsg data = rawValues.get(identifier.getLongValue());
           if (data != null) {
             Object value = deserializeValue(deserializer, data);
             cacheValueSize(identifier.getKey(), data, value);
@@ -255,44 +261,44 @@ public class DefaultViewComputationCache implements ViewComputationCache,
   @Override
   public Collection<Pair<ValueSpecification, Object>> getValues(final Collection<ValueSpecification> specifications, final CacheSelectHint filter) {
     ArgumentChecker.notNull(specifications, "specifications");
-    final Map<ValueSpecification, Long> identifiers = getIdentifierMap().getIdentifiers(specifications);
+    final Object2LongMap<ValueSpecification> identifiers = getIdentifierMap().getIdentifiers(specifications);
     final Collection<Pair<ValueSpecification, Object>> returnValues = new ArrayList<Pair<ValueSpecification, Object>>(specifications.size());
-    List<Long> privateIdentifiers = null;
-    List<Long> sharedIdentifiers = null;
+    LongList privateIdentifiers = null;
+    LongList sharedIdentifiers = null;
     for (ValueSpecification specification : specifications) {
       if (filter.isPrivateValue(specification)) {
         if (privateIdentifiers == null) {
-          privateIdentifiers = new ArrayList<Long>(specifications.size());
+          privateIdentifiers = new LongArrayList(specifications.size());
         }
-        privateIdentifiers.add(identifiers.get(specification));
+        privateIdentifiers.add(identifiers.getLong(specification));
       } else {
         if (sharedIdentifiers == null) {
-          sharedIdentifiers = new ArrayList<Long>(specifications.size());
+          sharedIdentifiers = new LongArrayList(specifications.size());
         }
-        sharedIdentifiers.add(identifiers.get(specification));
+        sharedIdentifiers.add(identifiers.getLong(specification));
       }
     }
-    final Map<Long, FudgeMsg> rawValues = new HashMap<Long, FudgeMsg>();
+    final Long2ObjectMap<FudgeMsg> rawValues = new Long2ObjectOpenHashMap<FudgeMsg>(specifications.size());
     // TODO Can we overlay the fetch of shared and private data?
     if (sharedIdentifiers != null) {
       if (sharedIdentifiers.size() == 1) {
-        final FudgeMsg data = getSharedDataStore().get(sharedIdentifiers.get(0));
-        rawValues.put(sharedIdentifiers.get(0), data);
+        final FudgeMsg data = getSharedDataStore().get(sharedIdentifiers.getLong(0));
+        rawValues.put(sharedIdentifiers.getLong(0), data);
       } else {
         rawValues.putAll(getSharedDataStore().get(sharedIdentifiers));
       }
     }
     if (privateIdentifiers != null) {
       if (privateIdentifiers.size() == 1) {
-        final FudgeMsg data = getPrivateDataStore().get(privateIdentifiers.get(0));
-        rawValues.put(privateIdentifiers.get(0), data);
+        final FudgeMsg data = getPrivateDataStore().get(privateIdentifiers.getLong(0));
+        rawValues.put(privateIdentifiers.getLong(0), data);
       } else {
         rawValues.putAll(getPrivateDataStore().get(privateIdentifiers));
       }
     }
     final FudgeDeserializer deserializer = new FudgeDeserializer(getFudgeContext());
-    for (Map.Entry<ValueSpecification, Long> identifier : identifiers.entrySet()) {
-      final FudgeMsg data = rawValues.get(identifier.getValue());
+    for (Object2LongMap.Entry<ValueSpecification> identifier : identifiers.object2LongEntrySet()) {
+      final FudgeMsg data = rawValues.get(identifier.getLongValue());
       if (data != null) {
         Object value = deserializeValue(deserializer, data);
         cacheValueSize(identifier.getKey(), data, value);
@@ -335,14 +341,14 @@ public class DefaultViewComputationCache implements ViewComputationCache,
     for (ComputedValue value : values) {
       specifications.add(value.getSpecification());
     }
-    final Map<ValueSpecification, Long> identifiers = getIdentifierMap().getIdentifiers(specifications);
-    final Map<Long, FudgeMsg> data = new HashMap<Long, FudgeMsg>();
+    final Object2LongMap<ValueSpecification> identifiers = getIdentifierMap().getIdentifiers(specifications);
+    final Long2ObjectMap<FudgeMsg> data = new Long2ObjectOpenHashMap<FudgeMsg>(values.size());
     final FudgeSerializer serializer = new FudgeSerializer(getFudgeContext());
     for (ComputedValue value : values) {
       Object obj = value.getValue();
       final FudgeMsg valueData = serializeValue(serializer, obj);
       cacheValueSize(value.getSpecification(), valueData, obj);
-      data.put(identifiers.get(value.getSpecification()), valueData);
+      data.put(identifiers.getLong(value.getSpecification()), valueData);
     }
     dataStore.put(data);
   }
@@ -364,24 +370,24 @@ public class DefaultViewComputationCache implements ViewComputationCache,
     for (ComputedValue value : values) {
       specifications.add(value.getSpecification());
     }
-    final Map<ValueSpecification, Long> identifiers = getIdentifierMap().getIdentifiers(specifications);
+    final Object2LongMap<ValueSpecification> identifiers = getIdentifierMap().getIdentifiers(specifications);
     final FudgeSerializer serializer = new FudgeSerializer(getFudgeContext());
-    Map<Long, FudgeMsg> privateData = null;
-    Map<Long, FudgeMsg> sharedData = null;
+    Long2ObjectMap<FudgeMsg> privateData = null;
+    Long2ObjectMap<FudgeMsg> sharedData = null;
     for (ComputedValue value : values) {
       Object obj = value.getValue();
       final FudgeMsg valueData = serializeValue(serializer, obj);
       cacheValueSize(value.getSpecification(), valueData, value.getValue());
       if (filter.isPrivateValue(value.getSpecification())) {
         if (privateData == null) {
-          privateData = new HashMap<Long, FudgeMsg>();
+          privateData = new Long2ObjectOpenHashMap<FudgeMsg>();
         }
-        privateData.put(identifiers.get(value.getSpecification()), valueData);
+        privateData.put(identifiers.getLong(value.getSpecification()), valueData);
       } else {
         if (sharedData == null) {
-          sharedData = new HashMap<Long, FudgeMsg>();
+          sharedData = new Long2ObjectOpenHashMap<FudgeMsg>();
         }
-        sharedData.put(identifiers.get(value.getSpecification()), valueData);
+        sharedData.put(identifiers.getLong(value.getSpecification()), valueData);
       }
     }
     // TODO 2010-08-31 Andrew -- can we overlay the shared and private puts ?
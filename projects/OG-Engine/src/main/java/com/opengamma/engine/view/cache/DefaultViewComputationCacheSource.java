@@ -5,7 +5,9 @@
  */
 package com.opengamma.engine.view.cache;
 
-import java.util.Collection;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.LongCollection;
+
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
@@ -45,7 +47,7 @@ public class DefaultViewComputationCacheSource implements ViewComputationCacheSo
 
     FudgeMsg findMissingValue(ViewComputationCacheKey cache, long identifier);
 
-    Map<Long, FudgeMsg> findMissingValues(ViewComputationCacheKey cache, Collection<Long> identifier);
+    Long2ObjectMap<FudgeMsg> findMissingValues(ViewComputationCacheKey cache, LongCollection identifier);
 
   }
 
@@ -155,7 +157,7 @@ public class DefaultViewComputationCacheSource implements ViewComputationCacheSo
             }
 
             @Override
-            public Map<Long, FudgeMsg> findMissingValues(Collection<Long> identifiers) {
+            public Long2ObjectMap<FudgeMsg> findMissingValues(LongCollection identifiers) {
               return loader.findMissingValues(key, identifiers);
             }
 
@@ -0,0 +1,207 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.view.cache;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * An implementation of {@link BinaryDataStore} that holds the data outside of the Java heap.
+ * <p>
+ * Values are appended to an arena of large buffers ("slabs") which are only ever released as a whole when
+ * the store is deleted. As one store is created per cycle and configuration, and deleted when the cache
+ * for that cycle is released, the values for a cycle never become garbage on the heap. Only the index
+ * from identifier to slab position is held on-heap.
+ * <p>
+ * Records are never modified once they have been published in the index, so reads take no lock. A replaced
+ * value is written to a new record and the old one is simply abandoned; the space is reclaimed with the rest of
+ * the arena when the store is deleted. The engine only ever replaces a value with an identical one, which is
+ * detected and skipped without writing anything.
+ * <p>
+ * This base implementation allocates direct buffers. Sub-classes can override {@link #allocateSlab} and
+ * {@link #releaseSlabs} to back the arena with something else, for example {@link MappedFileBinaryDataStore}.
+ * This class is internally synchronized.
+ */
+public class DirectBinaryDataStore extends AbstractBinaryDataStore implements BinaryDataStore {
+
+  /**
+   * The default size of each slab, 1Mb.
+   */
+  public static final int DEFAULT_SLAB_SIZE = 1 << 20;
+
+  /**
+   * Each record starts with the length of the value it holds.
+   */
+  private static final int HEADER_SIZE = 4;
+  private static final ByteBuffer[] NO_SLABS = new ByteBuffer[0];
+
+  private final int _slabSize;
+  /**
+   * Position of each value, the slab index in the upper 32 bits and the offset of the record header in the lower 32 bits.
+   */
+  private final ConcurrentMap<Long, Long> _index = new ConcurrentHashMap<Long, Long>();
+  private volatile ByteBuffer[] _slabs = NO_SLABS;
+  private int _currentSlabRemaining;
+  private int _currentSlabOffset;
+  /**
+   * Set once the store is deleted, guarded by this. The arena is never extended again.
+   */
+  private boolean _deleted;
+
+  public DirectBinaryDataStore() {
+    this(DEFAULT_SLAB_SIZE);
+  }
+
+  public DirectBinaryDataStore(final int slabSize) {
+    ArgumentChecker.isTrue(slabSize > HEADER_SIZE, "slabSize");
+    _slabSize = slabSize;
+  }
+
+  public int getSlabSize() {
+    return _slabSize;
+  }
+
+  /**
+   * Allocates a new slab for the arena. The buffer returned must have a capacity of at least the requested size.
+   *
+   * @param size the minimum size of the slab, in bytes
+   * @return the new slab, not null
+   */
+  protected ByteBuffer allocateSlab(final int size) {
+    return ByteBuffer.allocateDirect(size);
+  }
+
+  /**
+   * Releases any resources associated with the slabs previously returned by {@link #allocateSlab}. This is called
+   * once, from {@link #delete}, after all references to the slabs have been dropped by the store.
+   */
+  protected void releaseSlabs() {
+    // Direct buffers are freed when the buffer objects are collected
+  }
+
+  /**
+   * Reserves space for a record, or run of records, of the given total length.
+   *
+   * @param length the number of bytes required, including record headers
+   * @return the packed slab index and offset of the reserved region, -1 if the store has been deleted
+   */
+  private synchronized long reserve(final int length) {
+    if (_deleted) {
+      return -1;
+    }
+    if (length > _currentSlabRemaining) {
+      final ByteBuffer[] slabs = _slabs;
+      final ByteBuffer[] newSlabs = new ByteBuffer[slabs.length + 1];
+      System.arraycopy(slabs, 0, newSlabs, 0, slabs.length);
+      final ByteBuffer slab = allocateSlab(Math.max(length, getSlabSize()));
+      newSlabs[slabs.length] = slab;
+      _slabs = newSlabs;
+      _currentSlabOffset = 0;
+      _currentSlabRemaining = slab.capacity();
+    }
+    final long position = ((long) (_slabs.length - 1) << 32) | _currentSlabOffset;
+    _currentSlabOffset += length;
+    _currentSlabRemaining -= length;
+    return position;
+  }
+
+  private static ByteBuffer slabAt(final ByteBuffer[] slabs, final long position) {
+    final ByteBuffer buffer = slabs[(int) (position >>> 32)].duplicate();
+    buffer.position((int) position);
+    return buffer;
+  }
+
+  @Override
+  public void delete() {
+    synchronized (this) {
+      if (_deleted) {
+        return;
+      }
+      _deleted = true;
+      _index.clear();
+      _slabs = NO_SLABS;
+      _currentSlabRemaining = 0;
+      _currentSlabOffset = 0;
+    }
+    releaseSlabs();
+  }
+
+  @Override
+  public byte[] get(final long identifier) {
+    final Long position = _index.get(identifier);
+    if (position == null) {
+      return null;
+    }
+    // The slabs are only ever appended to until the store is deleted, so a position beyond the end is one from
+    // before a concurrent delete
+    final ByteBuffer[] slabs = _slabs;
+    if ((int) (position >>> 32) >= slabs.length) {
+      return null;
+    }
+    final ByteBuffer buffer = slabAt(slabs, position);
+    final byte[] data = new byte[buffer.getInt()];
+    buffer.get(data);
+    return data;
+  }
+
+  @Override
+  public synchronized void put(final long identifier, final byte[] data) {
+    ArgumentChecker.notNull(data, "data");
+    if (_deleted) {
+      return;
+    }
+    final Long previous = _index.get(identifier);
+    if (previous != null) {
+      final ByteBuffer buffer = slabAt(_slabs, previous);
+      if ((buffer.getInt() == data.length) && buffer.slice().limit(data.length).equals(ByteBuffer.wrap(data))) {
+        return;
+      }
+    }
+    final long position = reserve(HEADER_SIZE + data.length);
+    final ByteBuffer buffer = slabAt(_slabs, position);
+    buffer.putInt(data.length);
+    buffer.put(data);
+    // Publishing the position after the record is written makes the whole record visible to readers
+    _index.put(identifier, position);
+  }
+
+  @Override
+  public void put(final Map<Long, byte[]> data) {
+    int length = 0;
+    for (byte[] value : data.values()) {
+      length += HEADER_SIZE + value.length;
+    }
+    // Reserve a single region for the whole batch so that the values stay contiguous
+    final long start;
+    final ByteBuffer buffer;
+    synchronized (this) {
+      start = reserve(length);
+      if (start < 0) {
+        return;
+      }
+      buffer = slabAt(_slabs, start);
+    }
+    for (byte[] value : data.values()) {
+      buffer.putInt(value.length);
+      buffer.put(value);
+    }
+    synchronized (this) {
+      if (_deleted) {
+        return;
+      }
+      long position = start;
+      for (Map.Entry<Long, byte[]> value : data.entrySet()) {
+        _index.put(value.getKey(), position);
+        position += HEADER_SIZE + value.getValue().length;
+      }
+    }
+  }
+
+}
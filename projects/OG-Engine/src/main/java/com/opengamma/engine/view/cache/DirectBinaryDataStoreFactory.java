@@ -0,0 +1,60 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.view.cache;
+
+import java.io.File;
+
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Creates {@link DirectBinaryDataStore} objects, or {@link MappedFileBinaryDataStore} objects if a
+ * folder for the backing files is set.
+ */
+public class DirectBinaryDataStoreFactory implements BinaryDataStoreFactory {
+
+  private int _slabSize = DirectBinaryDataStore.DEFAULT_SLAB_SIZE;
+  private File _folder;
+
+  public DirectBinaryDataStoreFactory() {
+  }
+
+  public DirectBinaryDataStoreFactory(final File folder) {
+    setFolder(folder);
+  }
+
+  public void setSlabSize(final int slabSize) {
+    ArgumentChecker.notNegativeOrZero(slabSize, "slabSize");
+    _slabSize = slabSize;
+  }
+
+  public int getSlabSize() {
+    return _slabSize;
+  }
+
+  /**
+   * Sets the folder to hold memory-mapped backing files in. If this is null, the stores will use direct
+   * buffers instead.
+   *
+   * @param folder the folder for backing files, null for direct buffers
+   */
+  public void setFolder(final File folder) {
+    _folder = folder;
+  }
+
+  public File getFolder() {
+    return _folder;
+  }
+
+  @Override
+  public BinaryDataStore createDataStore(ViewComputationCacheKey cacheKey) {
+    if (getFolder() != null) {
+      return new MappedFileBinaryDataStore(getFolder(), cacheKey.getViewCycleId() + "-" + cacheKey.getCalculationConfigurationName() + "-", getSlabSize());
+    } else {
+      return new DirectBinaryDataStore(getSlabSize());
+    }
+  }
+
+}
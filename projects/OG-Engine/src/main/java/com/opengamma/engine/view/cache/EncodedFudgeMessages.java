@@ -0,0 +1,99 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.view.cache;
+
+import java.io.ByteArrayOutputStream;
+
+import org.fudgemsg.FudgeContext;
+import org.fudgemsg.FudgeField;
+import org.fudgemsg.FudgeMsg;
+import org.fudgemsg.MutableFudgeMsg;
+import org.fudgemsg.mapping.FudgeSerializer;
+import org.fudgemsg.wire.EncodedFudgeMsg;
+import org.fudgemsg.wire.FudgeDataOutputStreamWriter;
+import org.fudgemsg.wire.FudgeEncoded;
+import org.fudgemsg.wire.types.FudgeWireType;
+
+/**
+ * Utility methods for passing values between a {@link RemoteFudgeMessageStore} and {@link FudgeMessageStoreServer} in their
+ * encoded form.
+ * <p>
+ * A value is carried as a single byte array field instead of a sub-message. The transport then only copies the array rather
+ * than building the value's field graph, and the receiver holds it as an {@link EncodedFudgeMsg} which is only decoded if the
+ * fields are actually read. A {@link DefaultFudgeMessageStore} will store such a message without re-encoding it, and a value
+ * fetched back out of one is sent on without re-encoding.
+ * <p>
+ * The wrapper is marked with a type header naming this class, which no genuine value can carry, so a value that happens to
+ * hold a single byte array is never mistaken for a wrapped one.
+ */
+public final class EncodedFudgeMessages {
+
+  /**
+   * Ordinal of the field holding the encoded value.
+   */
+  private static final int ENCODED_FIELD_ORDINAL = -2;
+  /**
+   * Type header marking a wrapped value.
+   */
+  private static final String ENCODED_TYPE = EncodedFudgeMessages.class.getName();
+
+  private EncodedFudgeMessages() {
+  }
+
+  /**
+   * Returns the Fudge encoding of a message, using the existing encoding if it has one.
+   *
+   * @param fudgeContext the Fudge context, not null
+   * @param message the message to encode, not null
+   * @return the encoded form
+   */
+  public static byte[] encode(final FudgeContext fudgeContext, final FudgeMsg message) {
+    if (message instanceof FudgeEncoded) {
+      return ((FudgeEncoded) message).getFudgeEncoded();
+    }
+    final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    final FudgeDataOutputStreamWriter writer = new FudgeDataOutputStreamWriter(fudgeContext, baos);
+    writer.writeFields(message);
+    return baos.toByteArray();
+  }
+
+  /**
+   * Wraps a value for transport. Empty messages, used as markers for missing values, are not wrapped.
+   *
+   * @param fudgeContext the Fudge context, not null
+   * @param message the value to wrap, not null
+   * @return the wrapped form
+   */
+  public static FudgeMsg wrap(final FudgeContext fudgeContext, final FudgeMsg message) {
+    if (message.isEmpty()) {
+      return message;
+    }
+    final MutableFudgeMsg wrapper = fudgeContext.newMessage();
+    wrapper.add(null, FudgeSerializer.TYPES_HEADER_ORDINAL, FudgeWireType.STRING, ENCODED_TYPE);
+    wrapper.add(null, ENCODED_FIELD_ORDINAL, FudgeWireType.BYTE_ARRAY, encode(fudgeContext, message));
+    return wrapper;
+  }
+
+  /**
+   * Unwraps a value received from the transport. A message that was not produced by {@link #wrap} is returned unchanged so that
+   * peers using either transport mode can be mixed.
+   *
+   * @param fudgeContext the Fudge context, not null
+   * @param message the received message, not null
+   * @return the value, not null
+   */
+  public static FudgeMsg unwrap(final FudgeContext fudgeContext, final FudgeMsg message) {
+    if ((message.getNumFields() != 2) || !ENCODED_TYPE.equals(message.getString(FudgeSerializer.TYPES_HEADER_ORDINAL))) {
+      return message;
+    }
+    final FudgeField field = message.getByOrdinal(ENCODED_FIELD_ORDINAL);
+    if ((field == null) || !(field.getValue() instanceof byte[])) {
+      return message;
+    }
+    return new EncodedFudgeMsg((byte[]) field.getValue(), fudgeContext);
+  }
+
+}
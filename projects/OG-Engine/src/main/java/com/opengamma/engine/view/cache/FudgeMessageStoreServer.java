@@ -5,6 +5,12 @@
  */
 package com.opengamma.engine.view.cache;
 
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongCollection;
+import it.unimi.dsi.fastutil.longs.LongList;
+
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -94,6 +100,7 @@ public class FudgeMessageStoreServer implements FudgeConnectionReceiver, Release
   private final Map<ViewComputationCacheKey, ValueSearch> _searching = new HashMap<ViewComputationCacheKey, ValueSearch>();
 
   private long _findValueTimeout = 5000L; // 5s default timeout
+  private boolean _encodedTransport;
 
   public FudgeMessageStoreServer(final DefaultViewComputationCacheSource underlying) {
     ArgumentChecker.notNull(underlying, "underlying");
@@ -150,6 +157,20 @@ public class FudgeMessageStoreServer implements FudgeConnectionReceiver, Release
     _findValueTimeout = findValueTimeout;
   }
 
+  public boolean isEncodedTransport() {
+    return _encodedTransport;
+  }
+
+  /**
+   * Sets whether values should be returned to clients in their encoded form. See {@link EncodedFudgeMessages}
+   * for details. Values from clients are accepted in either form.
+   * 
+   * @param encodedTransport true to return encoded values, false to return them as sub-messages
+   */
+  public void setEncodedTransport(final boolean encodedTransport) {
+    _encodedTransport = encodedTransport;
+  }
+
   @Override
   public FudgeMsg findMissingValue(final ViewComputationCacheKey cacheKey, final long identifier) {
     s_logger.debug("findMissing value {}", identifier);
@@ -179,22 +200,19 @@ public class FudgeMessageStoreServer implements FudgeConnectionReceiver, Release
   }
 
   @Override
-  public Map<Long, FudgeMsg> findMissingValues(final ViewComputationCacheKey cache,
-      final Collection<Long> identifiers) {
+  public Long2ObjectMap<FudgeMsg> findMissingValues(final ViewComputationCacheKey cache,
+      final LongCollection identifiers) {
     s_logger.debug("findMissing values {}", identifiers);
     broadcast(new FindMessage(cache.getViewCycleId(), cache.getCalculationConfigurationName(), identifiers));
     final ValueSearch search = getOrCreateValueSearch(cache);
     // We're in the callback so we know the cache must exist
     final FudgeMessageStore store = getUnderlying().findCache(cache).getSharedDataStore();
-    final Long[] identifierArray = new Long[identifiers.size()];
-    int identifierCount = 0;
-    for (Long identifier : identifiers) {
-      identifierArray[identifierCount++] = identifier;
-    }
-    final Map<Long, FudgeMsg> map = new HashMap<Long, FudgeMsg>();
+    final long[] identifierArray = identifiers.toLongArray();
+    int identifierCount = identifierArray.length;
+    final Long2ObjectMap<FudgeMsg> map = new Long2ObjectOpenHashMap<FudgeMsg>(identifierCount);
     try {
       while (identifierCount > 0) {
-        final Long identifier = identifierArray[0];
+        final long identifier = identifierArray[0];
         FudgeMsg data = store.get(identifier);
         if (data != null) {
           s_logger.debug("Value for {} found and transferred to shared data store", identifier);
@@ -271,9 +289,17 @@ public class FudgeMessageStoreServer implements FudgeConnectionReceiver, Release
       return null;
     }
 
+    private FudgeMsg wrap(final FudgeMsg data) {
+      return isEncodedTransport() ? EncodedFudgeMessages.wrap(getUnderlying().getFudgeContext(), data) : data;
+    }
+
+    private FudgeMsg unwrap(final FudgeMsg data) {
+      return EncodedFudgeMessages.unwrap(getUnderlying().getFudgeContext(), data);
+    }
+
     @Override
     protected GetResponse visitGetRequest(final GetRequest request) {
-      final List<Long> identifiers = request.getIdentifier();
+      final LongList identifiers = new LongArrayList(request.getIdentifier());
       final Collection<FudgeMsg> response;
       final DefaultViewComputationCache cache = getUnderlying().findCache(request.getViewCycleId(), request.getCalculationConfigurationName());
       if (cache == null) {
@@ -283,20 +309,20 @@ public class FudgeMessageStoreServer implements FudgeConnectionReceiver, Release
       } else {
         final FudgeMessageStore store = cache.getSharedDataStore();
         if (identifiers.size() == 1) {
-          FudgeMsg data = store.get(identifiers.get(0));
+          FudgeMsg data = store.get(identifiers.getLong(0));
           if (data == null) {
             data = FudgeContext.EMPTY_MESSAGE;
           }
-          response = Collections.singleton(data);
+          response = Collections.singleton(wrap(data));
         } else {
           response = new ArrayList<FudgeMsg>(identifiers.size());
-          final Map<Long, FudgeMsg> data = store.get(identifiers);
-          for (Long identifier : identifiers) {
-            FudgeMsg value = data.get(identifier);
+          final Long2ObjectMap<FudgeMsg> data = store.get(identifiers);
+          for (int i = 0; i < identifiers.size(); i++) {
+            FudgeMsg value = data.get(identifiers.getLong(i));
             if (value == null) {
               value = FudgeContext.EMPTY_MESSAGE;
             }
-            response.add(value);
+            response.add(wrap(value));
           }
         }
       }
@@ -311,13 +337,13 @@ public class FudgeMessageStoreServer implements FudgeConnectionReceiver, Release
       // Review 2010-10-19 Andrew -- This causes cache creation. This is bad if messages were delayed and the cache has already been released.
       final FudgeMessageStore store = getUnderlying().getCache(key).getSharedDataStore();
       if (identifiers.size() == 1) {
-        store.put(identifiers.get(0), data.get(0));
+        store.put(identifiers.get(0), unwrap(data.get(0)));
       } else {
         final Map<Long, FudgeMsg> map = new HashMap<Long, FudgeMsg>();
         final Iterator<Long> i = identifiers.iterator();
         final Iterator<FudgeMsg> j = data.iterator();
         while (i.hasNext()) {
-          map.put(i.next(), j.next());
+          map.put(i.next(), unwrap(j.next()));
         }
         store.put(map);
       }
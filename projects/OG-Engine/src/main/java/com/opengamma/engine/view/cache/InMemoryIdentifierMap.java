@@ -5,9 +5,18 @@
  */
 package com.opengamma.engine.view.cache;
 
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongCollection;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.objects.Object2LongMap;
+import it.unimi.dsi.fastutil.objects.Object2LongOpenHashMap;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.atomic.AtomicLong;
 
 import com.opengamma.engine.value.ValueSpecification;
 import com.opengamma.util.ArgumentChecker;
@@ -16,33 +25,119 @@ import com.opengamma.util.ArgumentChecker;
  * An implementation of {@link IdentifierMap} which is backed by an in-memory
  * {@link ConcurrentMap}. This has no facilities for acting as a cache, or for persistence.
  * It should only be used for development and debugging purposes.
+ * <p>
+ * Lookups of existing values take no locks; only the allocation of new identifiers is
+ * synchronized. As identifiers are allocated sequentially, the reverse mapping is held in
+ * an array indexed by the identifier so no {@link Long} instances are created on any of
+ * the lookup paths.
  */
 public class InMemoryIdentifierMap extends AbstractIdentifierMap implements IdentifierMap {
 
-  private final AtomicLong _nextIdentifier = new AtomicLong(1L);
+  private static final int CHUNK_SHIFT = 12;
+  private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+  private static final int CHUNK_MASK = CHUNK_SIZE - 1;
 
   private final ConcurrentMap<ValueSpecification, Long> _identifiers = new ConcurrentHashMap<ValueSpecification, Long>();
-  private final ConcurrentMap<Long, ValueSpecification> _specifications = new ConcurrentHashMap<Long, ValueSpecification>();
+  /**
+   * Specifications indexed by identifier, in fixed size chunks. Only grown and written to while holding the monitor.
+   */
+  private volatile ValueSpecification[][] _specifications = new ValueSpecification[0][];
+  private long _nextIdentifier = 1L;
+
+  /**
+   * Returns the identifier for a specification, allocating a new one if necessary. The caller must hold the monitor.
+   */
+  private long allocateIdentifier(final ValueSpecification spec) {
+    final Long existing = _identifiers.get(spec);
+    if (existing != null) {
+      return existing;
+    }
+    final long identifier = _nextIdentifier++;
+    final int chunk = (int) (identifier >>> CHUNK_SHIFT);
+    ValueSpecification[][] specifications = _specifications;
+    if (chunk >= specifications.length) {
+      final ValueSpecification[][] newSpecifications = new ValueSpecification[chunk + 1][];
+      System.arraycopy(specifications, 0, newSpecifications, 0, specifications.length);
+      newSpecifications[chunk] = new ValueSpecification[CHUNK_SIZE];
+      _specifications = newSpecifications;
+      specifications = newSpecifications;
+    }
+    specifications[chunk][(int) identifier & CHUNK_MASK] = spec;
+    // Publishing the identifier after the array write makes the specification visible to anyone that has seen it
+    _identifiers.put(spec, identifier);
+    return identifier;
+  }
+
+  private ValueSpecification lookup(final long identifier) {
+    if (identifier <= 0) {
+      return null;
+    }
+    final ValueSpecification[][] specifications = _specifications;
+    final int chunk = (int) (identifier >>> CHUNK_SHIFT);
+    if (chunk >= specifications.length) {
+      return null;
+    }
+    return specifications[chunk][(int) identifier & CHUNK_MASK];
+  }
 
   @Override
-  public long getIdentifier(ValueSpecification spec) {
+  public long getIdentifier(final ValueSpecification spec) {
     ArgumentChecker.notNull(spec, "Value specification");
-    Long result = _identifiers.get(spec);
-    if (result != null) {
-      return result;
+    final Long identifier = _identifiers.get(spec);
+    if (identifier != null) {
+      return identifier;
+    }
+    synchronized (this) {
+      return allocateIdentifier(spec);
     }
-    long freshIdentifier = _nextIdentifier.getAndIncrement();
-    result = _identifiers.putIfAbsent(spec, freshIdentifier);
-    if (result == null) {
-      result = freshIdentifier;
-      _specifications.put(freshIdentifier, spec);
+  }
+
+  @Override
+  public Object2LongMap<ValueSpecification> getIdentifiers(final Collection<ValueSpecification> specs) {
+    final Object2LongMap<ValueSpecification> identifiers = new Object2LongOpenHashMap<ValueSpecification>(specs.size());
+    List<ValueSpecification> missing = null;
+    for (ValueSpecification spec : specs) {
+      final Long identifier = _identifiers.get(spec);
+      if (identifier != null) {
+        identifiers.put(spec, identifier.longValue());
+      } else {
+        if (missing == null) {
+          missing = new ArrayList<ValueSpecification>();
+        }
+        missing.add(spec);
+      }
+    }
+    if (missing != null) {
+      synchronized (this) {
+        for (ValueSpecification spec : missing) {
+          identifiers.put(spec, allocateIdentifier(spec));
+        }
+      }
+    }
+    return identifiers;
+  }
+
+  @Override
+  public ValueSpecification getValueSpecification(final long identifier) {
+    final ValueSpecification spec = lookup(identifier);
+    if (spec != null) {
+      return spec;
+    }
+    // The array write might not be visible yet if the identifier was passed here without a happens-before edge
+    synchronized (this) {
+      return lookup(identifier);
     }
-    return result;
   }
 
   @Override
-  public ValueSpecification getValueSpecification(long identifier) {
-    return _specifications.get(identifier);
+  public Long2ObjectMap<ValueSpecification> getValueSpecifications(final LongCollection identifiers) {
+    final Long2ObjectMap<ValueSpecification> specifications = new Long2ObjectOpenHashMap<ValueSpecification>(identifiers.size());
+    final LongIterator itr = identifiers.iterator();
+    while (itr.hasNext()) {
+      final long identifier = itr.nextLong();
+      specifications.put(identifier, getValueSpecification(identifier));
+    }
+    return specifications;
   }
 
 }
@@ -0,0 +1,77 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.view.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.opengamma.OpenGammaRuntimeException;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * An implementation of {@link BinaryDataStore} which holds its arena in a memory-mapped temporary file. The
+ * operating system can page the values out under memory pressure rather than them contributing to the
+ * Java heap or the process' direct memory limit.
+ * <p>
+ * The file is closed and deleted when the store is deleted. Note that the mapped regions are not unmapped
+ * until the buffers are garbage collected; on some platforms the file cannot be deleted until then.
+ */
+public class MappedFileBinaryDataStore extends DirectBinaryDataStore {
+
+  private static final Logger s_logger = LoggerFactory.getLogger(MappedFileBinaryDataStore.class);
+
+  private final File _file;
+  private final RandomAccessFile _fileHandle;
+  private long _fileLength;
+
+  public MappedFileBinaryDataStore(final File folder, final String name, final int slabSize) {
+    super(slabSize);
+    ArgumentChecker.notNull(folder, "folder");
+    ArgumentChecker.notNull(name, "name");
+    try {
+      folder.mkdirs();
+      _file = File.createTempFile(name, ".dat", folder);
+      _fileHandle = new RandomAccessFile(_file, "rw");
+    } catch (IOException e) {
+      throw new OpenGammaRuntimeException("Couldn't create backing file for " + name + " in " + folder, e);
+    }
+  }
+
+  public File getFile() {
+    return _file;
+  }
+
+  @Override
+  protected ByteBuffer allocateSlab(final int size) {
+    try {
+      final ByteBuffer slab = _fileHandle.getChannel().map(FileChannel.MapMode.READ_WRITE, _fileLength, size);
+      _fileLength += size;
+      return slab;
+    } catch (IOException e) {
+      throw new OpenGammaRuntimeException("Couldn't extend backing file " + _file, e);
+    }
+  }
+
+  @Override
+  protected void releaseSlabs() {
+    try {
+      _fileHandle.close();
+    } catch (IOException e) {
+      s_logger.warn("Couldn't close backing file {}: {}", _file, e.getMessage());
+    }
+    if (!_file.delete()) {
+      s_logger.debug("Couldn't delete backing file {} immediately", _file);
+      _file.deleteOnExit();
+    }
+  }
+
+}
@@ -5,10 +5,14 @@
  */
 package com.opengamma.engine.view.cache;
 
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMaps;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongCollection;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -27,10 +31,23 @@ public class RemoteFudgeMessageStore implements FudgeMessageStore {
 
   private final RemoteCacheClient _client;
   private final ViewComputationCacheKey _cacheKey;
+  private final boolean _encodedTransport;
 
   public RemoteFudgeMessageStore(final RemoteCacheClient client, final ViewComputationCacheKey cacheKey) {
+    this(client, cacheKey, false);
+  }
+
+  /**
+   * Creates a new store.
+   * 
+   * @param client the client to the remote server, not null
+   * @param cacheKey the cache key
+   * @param encodedTransport true to send values in their encoded form, see {@link EncodedFudgeMessages}
+   */
+  public RemoteFudgeMessageStore(final RemoteCacheClient client, final ViewComputationCacheKey cacheKey, final boolean encodedTransport) {
     _client = client;
     _cacheKey = cacheKey;
+    _encodedTransport = encodedTransport;
   }
 
   protected RemoteCacheClient getRemoteCacheClient() {
@@ -41,6 +58,19 @@ public class RemoteFudgeMessageStore implements FudgeMessageStore {
     return _cacheKey;
   }
 
+  protected boolean isEncodedTransport() {
+    return _encodedTransport;
+  }
+
+  protected FudgeMsg wrap(final FudgeMsg data) {
+    return isEncodedTransport() ? EncodedFudgeMessages.wrap(getRemoteCacheClient().getFudgeContext(), data) : data;
+  }
+
+  protected FudgeMsg unwrap(final FudgeMsg data) {
+    // The server may be using either transport mode
+    return EncodedFudgeMessages.unwrap(getRemoteCacheClient().getFudgeContext(), data);
+  }
+
   @Override
   public void delete() {
     // [ENG-256] Don't need the delete messages if we propogate at the releaseCaches level
@@ -54,25 +84,25 @@ public class RemoteFudgeMessageStore implements FudgeMessageStore {
         .getCalculationConfigurationName(), Collections.singleton(identifier));
     final GetResponse response = getRemoteCacheClient().sendGetMessage(request, GetResponse.class);
     final FudgeMsg data = response.getData().get(0);
-    return data.isEmpty() ? null : data;
+    return data.isEmpty() ? null : unwrap(data);
   }
 
   @Override
-  public Map<Long, FudgeMsg> get(Collection<Long> identifiers) {
+  public Long2ObjectMap<FudgeMsg> get(LongCollection identifiers) {
     final GetRequest request = new GetRequest(getCacheKey().getViewCycleId(), getCacheKey()
         .getCalculationConfigurationName(), identifiers);
     final GetResponse response = getRemoteCacheClient().sendGetMessage(request, GetResponse.class);
-    final Map<Long, FudgeMsg> result = new HashMap<Long, FudgeMsg>();
+    final Long2ObjectMap<FudgeMsg> result = new Long2ObjectOpenHashMap<FudgeMsg>(identifiers.size());
     final List<FudgeMsg> values = response.getData();
     if (values.size() != identifiers.size()) {
       // An error at the server end, possibly an invalid cache (gives a result with just one null in)
-      return Collections.emptyMap();
+      return Long2ObjectMaps.emptyMap();
     }
-    int i = 0;
-    for (Long identifier : request.getIdentifier()) {
-      final FudgeMsg value = values.get(i++);
+    final LongIterator identifier = identifiers.iterator();
+    for (FudgeMsg value : values) {
+      final long id = identifier.nextLong();
       if (!value.isEmpty()) {
-        result.put(identifier, value);
+        result.put(id, unwrap(value));
       }
     }
     return result;
@@ -82,7 +112,7 @@ public class RemoteFudgeMessageStore implements FudgeMessageStore {
   public void put(long identifier, FudgeMsg data) {
     final PutRequest request = new PutRequest(getCacheKey().getViewCycleId(), getCacheKey()
         .getCalculationConfigurationName(), Collections.singleton(identifier),
-        Collections.singleton(data));
+        Collections.singleton(wrap(data)));
     getRemoteCacheClient().sendPutMessage(request, CacheMessage.class);
   }
 
@@ -92,7 +122,7 @@ public class RemoteFudgeMessageStore implements FudgeMessageStore {
     final List<FudgeMsg> values = new ArrayList<FudgeMsg>(data.size());
     for (Map.Entry<Long, FudgeMsg> entry : data.entrySet()) {
       identifiers.add(entry.getKey());
-      values.add(entry.getValue());
+      values.add(wrap(entry.getValue()));
     }
     final PutRequest request = new PutRequest(getCacheKey().getViewCycleId(), getCacheKey()
         .getCalculationConfigurationName(), identifiers, values);
@@ -11,6 +11,7 @@ package com.opengamma.engine.view.cache;
 public class RemoteFudgeMessageStoreFactory implements FudgeMessageStoreFactory {
 
   private final RemoteCacheClient _client;
+  private boolean _encodedTransport;
 
   public RemoteFudgeMessageStoreFactory(final RemoteCacheClient client) {
     _client = client;
@@ -20,9 +21,23 @@ public class RemoteFudgeMessageStoreFactory implements FudgeMessageStoreFactory
     return _client;
   }
 
+  public boolean isEncodedTransport() {
+    return _encodedTransport;
+  }
+
+  /**
+   * Sets whether values should be sent to the server in their encoded form. See {@link EncodedFudgeMessages}
+   * for details.
+   * 
+   * @param encodedTransport true to send encoded values, false to send them as sub-messages
+   */
+  public void setEncodedTransport(final boolean encodedTransport) {
+    _encodedTransport = encodedTransport;
+  }
+
   @Override
   public FudgeMessageStore createMessageStore(final ViewComputationCacheKey cacheKey) {
-    return new RemoteFudgeMessageStore(getRemoteCacheClient(), cacheKey);
+    return new RemoteFudgeMessageStore(getRemoteCacheClient(), cacheKey, isEncodedTransport());
   }
 
 }
@@ -5,8 +5,10 @@
  */
 package com.opengamma.engine.view.cache;
 
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+
 import java.util.List;
-import java.util.Map;
 
 import net.sf.ehcache.CacheManager;
 
@@ -85,11 +87,11 @@ public class RemoteViewComputationCacheSource extends DefaultViewComputationCach
             cache.getSharedDataStore().put(identifier, data);
           }
         } else {
-          final Map<Long, FudgeMsg> data = cache.getPrivateDataStore().get(identifiers);
+          final Long2ObjectMap<FudgeMsg> data = cache.getPrivateDataStore().get(new LongArrayList(identifiers));
           if (data.size() == 1) {
             s_logger.debug("Found 1 of {} identifiers in private cache", identifiers.size());
-            final Map.Entry<Long, FudgeMsg> entry = data.entrySet().iterator().next();
-            cache.getSharedDataStore().put(entry.getKey(), entry.getValue());
+            final Long2ObjectMap.Entry<FudgeMsg> entry = data.long2ObjectEntrySet().iterator().next();
+            cache.getSharedDataStore().put(entry.getLongKey(), entry.getValue());
           } else if (data.size() > 1) {
             s_logger.debug("Found {} of {} identifiers in private cache", data.size(), identifiers.size());
             cache.getSharedDataStore().put(data);
@@ -25,7 +25,8 @@ public interface DependencyGraphExecutor<T> {
    * @param graph  a full graph or a subgraph. A subgraph may have some nodes whose child nodes are NOT part of that
    *               graph. The assumption is that such nodes have already been evaluated and their values can already be
    *               found in the shared computation cache.
-   * @param statistics  a callback object to which details about the evaluation should be reported
+   * @param statistics  a callback object to which details about the evaluation should be reported. The graph should be
+   *                    reported as executed once the returned future is done, so that graphs depending on it can be submitted.
    * @param executionResultQueue  a queue in to which the executor should enqueues individual calculation job results
    * @param logModeSource  the source of log mode information for the outputs, not null
    * @return An object you can call get() on to wait for completion
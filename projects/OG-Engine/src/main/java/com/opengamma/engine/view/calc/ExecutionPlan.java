@@ -5,22 +5,34 @@
  */
 package com.opengamma.engine.view.calc;
 
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.Future;
 
+import org.fudgemsg.FudgeContext;
+import org.fudgemsg.FudgeField;
+import org.fudgemsg.FudgeMsg;
+import org.fudgemsg.MutableFudgeMsg;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.collect.Maps;
 import com.opengamma.engine.depgraph.DependencyGraph;
 import com.opengamma.engine.depgraph.DependencyNode;
+import com.opengamma.engine.value.ValueSpecification;
 import com.opengamma.engine.view.cache.CacheSelectHint;
 import com.opengamma.engine.view.calc.ExecutionPlanCache.DependencyNodeKey;
+import com.opengamma.engine.view.calc.ExecutionPlanCache.Fingerprinter;
 import com.opengamma.engine.view.calc.stats.GraphExecutorStatisticsGatherer;
 
 /**
@@ -28,11 +40,24 @@ import com.opengamma.engine.view.calc.stats.GraphExecutorStatisticsGatherer;
  * objects for persistence into a cache to avoid the build cost. A cached plan can be used to
  * construct a set of objects equivalent to the originals and start the execution for a different
  * executor.
+ * <p>
+ * A plan can also be written to a Fudge message, referring to nodes and values by their structural
+ * fingerprints, so that it can be persisted and used for an equivalent graph after a restart.
  */
 /* package */abstract class ExecutionPlan {
 
   private static final Logger s_logger = LoggerFactory.getLogger(ExecutionPlan.class);
 
+  private static final String NODES_FIELD = "nodes";
+  private static final String HINT_FIELD = "hint";
+  private static final String PRIVATE_FIELD = "private";
+  private static final String VALUES_FIELD = "values";
+  private static final String FRAGMENT_FIELD = "fragment";
+  private static final String IDENTIFIER_FIELD = "id";
+  private static final String INPUTS_FIELD = "inputs";
+  private static final String OUTPUTS_FIELD = "outputs";
+  private static final String TAIL_FIELD = "tail";
+
   private static Collection<DependencyNode> mapNodes(final Collection<DependencyNode> from, final Map<DependencyNodeKey, DependencyNode> to) {
     final Collection<DependencyNode> nodes = new ArrayList<DependencyNode>(from.size());
     for (DependencyNode node : from) {
@@ -49,6 +74,77 @@ import com.opengamma.engine.view.calc.stats.GraphExecutorStatisticsGatherer;
     return nodes;
   }
 
+  private static void nodesToFudgeMsg(final MutableFudgeMsg msg, final Collection<DependencyNode> nodes, final Fingerprinter fingerprinter) {
+    final long[] fingerprints = new long[nodes.size()];
+    int i = 0;
+    for (DependencyNode node : nodes) {
+      fingerprints[i++] = fingerprinter.getNodeFingerprint(node);
+    }
+    msg.add(NODES_FIELD, fingerprints);
+  }
+
+  /**
+   * Resolves the node fingerprints in a message.
+   * 
+   * @return the nodes, or null if a fingerprint is not in the graph or a node has already been used
+   */
+  private static Collection<DependencyNode> nodesFromFudgeMsg(final FudgeMsg msg, final Long2ObjectMap<DependencyNode> nodes, final LongSet used) {
+    final long[] fingerprints = msg.getValue(long[].class, NODES_FIELD);
+    if (fingerprints == null) {
+      return null;
+    }
+    final Collection<DependencyNode> result = new ArrayList<DependencyNode>(fingerprints.length);
+    for (long fingerprint : fingerprints) {
+      final DependencyNode node = nodes.get(fingerprint);
+      if ((node == null) || !used.add(fingerprint)) {
+        return null;
+      }
+      result.add(node);
+    }
+    return result;
+  }
+
+  private static void hintToFudgeMsg(final FudgeContext context, final MutableFudgeMsg msg, final CacheSelectHint hint, final Fingerprinter fingerprinter) {
+    if (hint != null) {
+      final Set<ValueSpecification> values = new HashSet<ValueSpecification>();
+      hint.collectValueSpecifications(values);
+      final long[] fingerprints = new long[values.size()];
+      int i = 0;
+      for (ValueSpecification value : values) {
+        fingerprints[i++] = fingerprinter.getValueFingerprint(value);
+      }
+      final MutableFudgeMsg hintMsg = context.newMessage();
+      hintMsg.add(PRIVATE_FIELD, hint.isPrivate());
+      hintMsg.add(VALUES_FIELD, fingerprints);
+      msg.add(HINT_FIELD, hintMsg);
+    }
+  }
+
+  /**
+   * Resolves the value fingerprints of a cache hint.
+   * 
+   * @return the hint, or null if a fingerprint is not in the graph
+   */
+  private static CacheSelectHint hintFromFudgeMsg(final FudgeMsg msg, final Long2ObjectMap<ValueSpecification> values) {
+    final long[] fingerprints = msg.getValue(long[].class, VALUES_FIELD);
+    if (fingerprints == null) {
+      return null;
+    }
+    final Collection<ValueSpecification> result = new ArrayList<ValueSpecification>(fingerprints.length);
+    for (long fingerprint : fingerprints) {
+      final ValueSpecification value = values.get(fingerprint);
+      if (value == null) {
+        return null;
+      }
+      result.add(value);
+    }
+    if (msg.getBoolean(PRIVATE_FIELD)) {
+      return CacheSelectHint.privateValues(result);
+    } else {
+      return CacheSelectHint.sharedValues(result);
+    }
+  }
+
   private static final class SingleFragment extends ExecutionPlan {
 
     private final Collection<DependencyNode> _nodes;
@@ -75,6 +171,14 @@ import com.opengamma.engine.view.calc.stats.GraphExecutorStatisticsGatherer;
       return new SingleFragment(mapNodes(_nodes, nodes), _cacheSelectHint);
     }
 
+    @Override
+    public MutableFudgeMsg toFudgeMsg(final FudgeContext context, final Fingerprinter fingerprinter) {
+      final MutableFudgeMsg msg = context.newMessage();
+      nodesToFudgeMsg(msg, _nodes, fingerprinter);
+      hintToFudgeMsg(context, msg, _cacheSelectHint, fingerprinter);
+      return msg;
+    }
+
   }
 
   private static final class MultipleFragment extends ExecutionPlan {
@@ -125,6 +229,14 @@ import com.opengamma.engine.view.calc.stats.GraphExecutorStatisticsGatherer;
         }
       }
 
+      private FragmentDescriptor(final Collection<DependencyNode> nodes, final CacheSelectHint cacheSelectHint, final int[] inputs, final int[] outputs, final int[] tail) {
+        _nodes = nodes;
+        _cacheSelectHint = cacheSelectHint;
+        _inputs = inputs;
+        _outputs = outputs;
+        _tail = tail;
+      }
+
       private FragmentDescriptor(final FragmentDescriptor copyFrom, final Map<DependencyNodeKey, DependencyNode> withNodes) {
         _nodes = mapNodes(copyFrom.getNodes(), withNodes);
         _cacheSelectHint = copyFrom.getCacheSelectHint();
@@ -232,6 +344,52 @@ import com.opengamma.engine.view.calc.stats.GraphExecutorStatisticsGatherer;
       return new MultipleFragment(fragments);
     }
 
+    @Override
+    public MutableFudgeMsg toFudgeMsg(final FudgeContext context, final Fingerprinter fingerprinter) {
+      final MutableFudgeMsg msg = context.newMessage();
+      for (Map.Entry<Integer, FragmentDescriptor> fragment : _fragments.entrySet()) {
+        final FragmentDescriptor descriptor = fragment.getValue();
+        final MutableFudgeMsg fragmentMsg = context.newMessage();
+        fragmentMsg.add(IDENTIFIER_FIELD, fragment.getKey());
+        nodesToFudgeMsg(fragmentMsg, descriptor.getNodes(), fingerprinter);
+        hintToFudgeMsg(context, fragmentMsg, descriptor.getCacheSelectHint(), fingerprinter);
+        if (descriptor.getInputs() != null) {
+          fragmentMsg.add(INPUTS_FIELD, descriptor.getInputs());
+        }
+        if (descriptor.getOutputs() != null) {
+          fragmentMsg.add(OUTPUTS_FIELD, descriptor.getOutputs());
+        }
+        if (descriptor.getTail() != null) {
+          fragmentMsg.add(TAIL_FIELD, descriptor.getTail());
+        }
+        msg.add(FRAGMENT_FIELD, fragmentMsg);
+      }
+      return msg;
+    }
+
+    public static MultipleFragment fromFragmentMsgs(final FudgeMsg msg, final Long2ObjectMap<DependencyNode> nodes, final Long2ObjectMap<ValueSpecification> values,
+        final LongSet used) {
+      final Map<Integer, FragmentDescriptor> fragments = new HashMap<Integer, FragmentDescriptor>();
+      for (FudgeField field : msg.getAllByName(FRAGMENT_FIELD)) {
+        final FudgeMsg fragmentMsg = (FudgeMsg) field.getValue();
+        final Collection<DependencyNode> fragmentNodes = nodesFromFudgeMsg(fragmentMsg, nodes, used);
+        if (fragmentNodes == null) {
+          return null;
+        }
+        CacheSelectHint hint = null;
+        final FudgeMsg hintMsg = fragmentMsg.getMessage(HINT_FIELD);
+        if (hintMsg != null) {
+          hint = hintFromFudgeMsg(hintMsg, values);
+          if (hint == null) {
+            return null;
+          }
+        }
+        fragments.put(fragmentMsg.getInt(IDENTIFIER_FIELD), new FragmentDescriptor(fragmentNodes, hint, fragmentMsg.getValue(int[].class, INPUTS_FIELD),
+            fragmentMsg.getValue(int[].class, OUTPUTS_FIELD), fragmentMsg.getValue(int[].class, TAIL_FIELD)));
+      }
+      return new MultipleFragment(fragments);
+    }
+
   }
 
   /**
@@ -254,4 +412,51 @@ import com.opengamma.engine.view.calc.stats.GraphExecutorStatisticsGatherer;
 
   public abstract ExecutionPlan withNodes(final Map<DependencyNodeKey, DependencyNode> nodes);
 
+  /**
+   * Writes the plan to a Fudge message, referring to nodes and values by their fingerprints.
+   * 
+   * @param context  the Fudge context, not null
+   * @param fingerprinter  the fingerprinter to use, not null
+   * @return the message, not null
+   */
+  public abstract MutableFudgeMsg toFudgeMsg(final FudgeContext context, final Fingerprinter fingerprinter);
+
+  /**
+   * Reads a plan written by {@link #toFudgeMsg}. The plan will only be returned if all of the fingerprints are
+   * resolved and every node is used exactly once.
+   * 
+   * @param msg  the message, not null
+   * @param nodes  the nodes of the graph keyed by fingerprint, not null
+   * @param values  the values produced by nodes of the graph keyed by fingerprint, not null
+   * @return the plan, or null if it does not match the graph
+   */
+  public static ExecutionPlan fromFudgeMsg(final FudgeMsg msg, final Long2ObjectMap<DependencyNode> nodes, final Long2ObjectMap<ValueSpecification> values) {
+    final LongSet used = new LongOpenHashSet(nodes.size());
+    final ExecutionPlan plan;
+    if (msg.getByName(NODES_FIELD) != null) {
+      final Collection<DependencyNode> planNodes = nodesFromFudgeMsg(msg, nodes, used);
+      if (planNodes == null) {
+        return null;
+      }
+      CacheSelectHint hint = null;
+      final FudgeMsg hintMsg = msg.getMessage(HINT_FIELD);
+      if (hintMsg != null) {
+        hint = hintFromFudgeMsg(hintMsg, values);
+        if (hint == null) {
+          return null;
+        }
+      }
+      plan = new SingleFragment(planNodes, hint);
+    } else {
+      plan = MultipleFragment.fromFragmentMsgs(msg, nodes, values, used);
+      if (plan == null) {
+        return null;
+      }
+    }
+    if (used.size() != nodes.size()) {
+      return null;
+    }
+    return plan;
+  }
+
 }
@@ -5,14 +5,44 @@
  */
 package com.opengamma.engine.view.calc;
 
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2LongMap;
+import it.unimi.dsi.fastutil.objects.Object2LongOpenHashMap;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import net.sf.ehcache.Cache;
 import net.sf.ehcache.CacheManager;
 import net.sf.ehcache.Element;
 
+import org.apache.commons.io.IOUtils;
+import org.fudgemsg.FudgeContext;
+import org.fudgemsg.FudgeField;
+import org.fudgemsg.FudgeMsg;
+import org.fudgemsg.FudgeMsgReader;
+import org.fudgemsg.FudgeMsgWriter;
+import org.fudgemsg.MutableFudgeMsg;
+import org.fudgemsg.mapping.FudgeSerializer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -22,12 +52,24 @@ import com.opengamma.engine.ComputationTargetSpecification;
 import com.opengamma.engine.depgraph.DependencyGraph;
 import com.opengamma.engine.depgraph.DependencyNode;
 import com.opengamma.engine.function.FunctionParameters;
+import com.opengamma.engine.value.ValueProperties;
 import com.opengamma.engine.value.ValueSpecification;
+import com.opengamma.id.UniqueId;
+import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.NamedThreadPoolFactory;
 import com.opengamma.util.ehcache.EHCacheUtils;
+import com.opengamma.util.fudgemsg.OpenGammaFudgeContext;
 
 /**
  * Caches meta data taken from a graph fragment graph sufficient to construct a fragment
  * graph quickly for a recently processed graph.
+ * <p>
+ * If a folder is given, plans are also written to local disk keyed by a structural fingerprint
+ * of the graph so that a restarted view processor can reuse the plans for any unchanged graphs.
+ * The fingerprint does not include the function initialization identifier as that will be
+ * different after a restart. Plans are written to disk by a background thread so that the
+ * cycle which produced them is not held up. The least recently used plans are deleted from
+ * the folder when it holds more than the maximum number.
  */
 /* package */class ExecutionPlanCache {
 
@@ -47,6 +89,7 @@ import com.opengamma.util.ehcache.EHCacheUtils;
     private final FunctionParameters _functionParameters;
     private final Set<ValueSpecification> _inputs;
     private final Set<ValueSpecification> _outputs;
+    private final int _hashCode;
 
     public DependencyNodeKey(final DependencyNode node) {
       _target = node.getComputationTarget();
@@ -54,16 +97,18 @@ import com.opengamma.util.ehcache.EHCacheUtils;
       _functionParameters = node.getFunction().getParameters();
       _inputs = node.getInputValues();
       _outputs = node.getOutputValues();
-    }
-
-    @Override
-    public int hashCode() {
+      // The input and output sets are only walked once; the hash is needed for every map operation
       int hc = _target.hashCode();
       hc += (hc << 4) + _functionId.hashCode();
       hc += (hc << 4) + _functionParameters.hashCode();
       hc += (hc << 4) + _inputs.hashCode();
       hc += (hc << 4) + _outputs.hashCode();
-      return hc;
+      _hashCode = hc;
+    }
+
+    @Override
+    public int hashCode() {
+      return _hashCode;
     }
 
     @Override
@@ -75,7 +120,8 @@ import com.opengamma.util.ehcache.EHCacheUtils;
         return false;
       }
       final DependencyNodeKey other = (DependencyNodeKey) o;
-      return _target.equals(other._target)
+      return (_hashCode == other._hashCode)
+          && _target.equals(other._target)
           && _functionId.equals(other._functionId)
           && _functionParameters.equals(other._functionParameters)
           && _inputs.equals(other._inputs)
@@ -94,6 +140,9 @@ import com.opengamma.util.ehcache.EHCacheUtils;
     private final long _functionInitId;
     private final Set<ValueSpecification> _terminals;
     private final Map<DependencyNodeKey, DependencyNode> _nodes;
+    private final int _hashCode;
+    private long _fingerprint;
+    private Object2LongMap<DependencyNode> _nodeFingerprints;
 
     public DependencyGraphKey(final DependencyGraph graph, final long functionInitId) {
       _functionInitId = functionInitId;
@@ -103,6 +152,11 @@ import com.opengamma.util.ehcache.EHCacheUtils;
       for (DependencyNode node : nodes) {
         _nodes.put(new DependencyNodeKey(node), node);
       }
+      int hc = 0;
+      hc += (hc << 4) + (int) (_functionInitId ^ (_functionInitId >>> 32));
+      hc += (hc << 4) + _terminals.hashCode();
+      hc += (hc << 4) + _nodes.keySet().hashCode();
+      _hashCode = hc;
     }
 
     @Override
@@ -114,7 +168,7 @@ import com.opengamma.util.ehcache.EHCacheUtils;
         return false;
       }
       final DependencyGraphKey key = (DependencyGraphKey) o;
-      if (_functionInitId != key._functionInitId) {
+      if ((_hashCode != key._hashCode) || (_functionInitId != key._functionInitId)) {
         return false;
       }
       if (!_terminals.equals(key._terminals)) {
@@ -125,21 +179,262 @@ import com.opengamma.util.ehcache.EHCacheUtils;
 
     @Override
     public int hashCode() {
-      int hc = 0;
-      hc += (hc << 4) + (int) (_functionInitId ^ (_functionInitId >>> 32));
-      hc += (hc << 4) + _terminals.hashCode();
-      hc += (hc << 4) + _nodes.keySet().hashCode();
-      return hc;
+      return _hashCode;
     }
 
     public Map<DependencyNodeKey, DependencyNode> getNodes() {
       return _nodes;
     }
 
+    private synchronized void calculateFingerprint() {
+      if (_nodeFingerprints == null) {
+        final Fingerprinter fingerprinter = new Fingerprinter();
+        _fingerprint = fingerprinter.getGraphFingerprint(_terminals, _nodes.values());
+        _nodeFingerprints = fingerprinter.getNodeFingerprints();
+      }
+    }
+
+    /**
+     * Returns the structural fingerprint of the graph. This is calculated on first use and then held with the key.
+     * 
+     * @return the fingerprint
+     */
+    public long getFingerprint() {
+      calculateFingerprint();
+      return _fingerprint;
+    }
+
+    /**
+     * Returns the structural fingerprints of the graph's nodes. This is calculated on first use and then held
+     * with the key.
+     * 
+     * @return the node fingerprints, not null
+     */
+    public Object2LongMap<DependencyNode> getNodeFingerprints() {
+      calculateFingerprint();
+      return _nodeFingerprints;
+    }
+
+  }
+
+  /**
+   * Calculates 64-bit structural fingerprints of dependency graph elements that can be compared between
+   * processes. Only strings and primitive values are used in their construction as, for example, the
+   * {@code hashCode} of an enum is different each time the JVM starts. Function parameters are fingerprinted
+   * from their Fudge encoding for the same reason. Sets, and the fields of messages, are combined in an order
+   * independent way. Value specification and node fingerprints are memoized as the same values are the
+   * inputs and outputs of many nodes.
+   * <p>
+   * A fingerprint is not a proof of equality. A plan retrieved by fingerprint is only used if it refers to
+   * exactly the nodes of the graph it is being used for.
+   */
+  protected static final class Fingerprinter {
+
+    private static final long SEED = 0xCBF29CE484222325L;
+    private static final long PRIME = 0x100000001B3L;
+
+    private final Object2LongOpenHashMap<ValueSpecification> _values = new Object2LongOpenHashMap<ValueSpecification>();
+    private final Object2LongOpenHashMap<FunctionParameters> _parameters = new Object2LongOpenHashMap<FunctionParameters>();
+    private final Object2LongOpenHashMap<DependencyNode> _nodes;
+
+    public Fingerprinter() {
+      _nodes = new Object2LongOpenHashMap<DependencyNode>();
+    }
+
+    /**
+     * Creates a fingerprinter that already knows the fingerprints of some nodes.
+     * 
+     * @param nodes the node fingerprints, not null
+     */
+    public Fingerprinter(final Object2LongMap<DependencyNode> nodes) {
+      _nodes = new Object2LongOpenHashMap<DependencyNode>(nodes);
+    }
+
+    private static long mix(long hash) {
+      hash ^= hash >>> 33;
+      hash *= 0xFF51AFD7ED558CCDL;
+      hash ^= hash >>> 33;
+      hash *= 0xC4CEB9FE1A85EC53L;
+      hash ^= hash >>> 33;
+      return hash;
+    }
+
+    private static long add(final long hash, final long value) {
+      return (hash ^ value) * PRIME;
+    }
+
+    private static long add(long hash, final String value) {
+      if (value == null) {
+        return add(hash, -1L);
+      }
+      final int length = value.length();
+      for (int i = 0; i < length; i++) {
+        hash = add(hash, value.charAt(i));
+      }
+      return add(hash, length);
+    }
+
+    /**
+     * Returns the fingerprint of an arbitrary string.
+     * 
+     * @param value the string, may be null
+     * @return the fingerprint
+     */
+    public static long getStringFingerprint(final String value) {
+      return mix(add(SEED, value));
+    }
+
+    private static long add(long hash, final ComputationTargetSpecification target) {
+      hash = add(hash, target.getType().name());
+      final UniqueId uid = target.getUniqueId();
+      if (uid != null) {
+        hash = add(hash, uid.getScheme());
+        hash = add(hash, uid.getValue());
+        hash = add(hash, uid.getVersion());
+      } else {
+        hash = add(hash, -1L);
+      }
+      return hash;
+    }
+
+    private static long add(final long hash, final ValueProperties properties) {
+      final Set<String> names = properties.getProperties();
+      if ((names == null) || names.isEmpty()) {
+        return add(hash, properties.toString());
+      }
+      long sum = 0;
+      for (String name : names) {
+        long property = add(SEED, name);
+        if (properties.isOptional(name)) {
+          property = add(property, 1L);
+        }
+        final Set<String> values = properties.getValues(name);
+        long valueSum = 0;
+        for (String value : values) {
+          valueSum += mix(add(SEED, value));
+        }
+        property = add(property, valueSum);
+        property = add(property, values.size());
+        sum += mix(property);
+      }
+      return add(add(hash, sum), names.size());
+    }
+
+    private static long add(long hash, final byte[] value) {
+      for (byte b : value) {
+        hash = add(hash, b);
+      }
+      return add(hash, value.length);
+    }
+
+    private static long getMessageFingerprint(final FudgeContext context, final FudgeMsg message) {
+      long sum = 0;
+      for (FudgeField field : message) {
+        long fingerprint = add(SEED, field.getName());
+        fingerprint = add(fingerprint, (field.getOrdinal() != null) ? field.getOrdinal() : -1L);
+        if (field.getValue() instanceof FudgeMsg) {
+          fingerprint = add(fingerprint, getMessageFingerprint(context, (FudgeMsg) field.getValue()));
+        } else {
+          final MutableFudgeMsg value = context.newMessage();
+          value.add(null, null, field.getType(), field.getValue());
+          fingerprint = add(fingerprint, context.toByteArray(value));
+        }
+        sum += mix(fingerprint);
+      }
+      return add(sum, message.getNumFields());
+    }
+
+    private long getParametersFingerprint(final FunctionParameters parameters) {
+      long fingerprint = _parameters.getLong(parameters);
+      if ((fingerprint == 0) && !_parameters.containsKey(parameters)) {
+        final FudgeContext context = OpenGammaFudgeContext.getInstance();
+        fingerprint = add(SEED, parameters.getClass().getName());
+        fingerprint = add(fingerprint, getMessageFingerprint(context, new FudgeSerializer(context).objectToFudgeMsg(parameters)));
+        fingerprint = mix(fingerprint);
+        _parameters.put(parameters, fingerprint);
+      }
+      return fingerprint;
+    }
+
+    public long getValueFingerprint(final ValueSpecification value) {
+      long fingerprint = _values.getLong(value);
+      if ((fingerprint == 0) && !_values.containsKey(value)) {
+        fingerprint = add(SEED, value.getValueName());
+        fingerprint = add(fingerprint, value.getTargetSpecification());
+        fingerprint = add(fingerprint, value.getProperties());
+        fingerprint = mix(fingerprint);
+        _values.put(value, fingerprint);
+      }
+      return fingerprint;
+    }
+
+    private long getValuesFingerprint(final Collection<ValueSpecification> values) {
+      long sum = 0;
+      for (ValueSpecification value : values) {
+        sum += getValueFingerprint(value);
+      }
+      return add(sum, values.size());
+    }
+
+    public long getNodeFingerprint(final DependencyNode node) {
+      long fingerprint = _nodes.getLong(node);
+      if ((fingerprint == 0) && !_nodes.containsKey(node)) {
+        fingerprint = add(SEED, node.getComputationTarget());
+        fingerprint = add(fingerprint, node.getFunction().getFunction().getFunctionDefinition().getUniqueId());
+        fingerprint = add(fingerprint, getParametersFingerprint(node.getFunction().getParameters()));
+        fingerprint = add(fingerprint, getValuesFingerprint(node.getInputValues()));
+        fingerprint = add(fingerprint, getValuesFingerprint(node.getOutputValues()));
+        fingerprint = mix(fingerprint);
+        _nodes.put(node, fingerprint);
+      }
+      return fingerprint;
+    }
+
+    public long getGraphFingerprint(final Collection<ValueSpecification> terminals, final Collection<DependencyNode> nodes) {
+      long sum = 0;
+      for (DependencyNode node : nodes) {
+        sum += getNodeFingerprint(node);
+      }
+      return mix(add(add(add(SEED, getValuesFingerprint(terminals)), sum), nodes.size()));
+    }
+
+    public Object2LongMap<DependencyNode> getNodeFingerprints() {
+      return _nodes;
+    }
+
   }
 
+  /**
+   * The default maximum number of plans kept in the folder.
+   */
+  public static final int DEFAULT_MAX_PERSISTED_PLANS = 1000;
+
+  private static final String PLAN_FILE_SUFFIX = ".plan";
+  private static final String TEMP_FILE_PREFIX = "plan";
+  private static final String TEMP_FILE_SUFFIX = ".tmp";
+  private static final String FINGERPRINT_FIELD = "fingerprint";
+  private static final String NODE_COUNT_FIELD = "nodeCount";
+
   private final Cache _cache;
 
+  private final File _folder;
+
+  private final FudgeContext _fudgeContext = OpenGammaFudgeContext.getInstance();
+
+  /**
+   * Writes plans to the folder, null if there is no folder. The single thread keeps the writes in order.
+   */
+  private final ExecutorService _writer;
+
+  private volatile int _maxPersistedPlans = DEFAULT_MAX_PERSISTED_PLANS;
+
+  /**
+   * Fingerprint of the parameters used to construct the plans. This is combined with the graph fingerprint for the
+   * persisted plans so that a restart with different parameters will not use plans that were constructed with the
+   * previous ones.
+   */
+  private volatile long _parametersFingerprint;
+
   /**
    * Building the "key" object can be costly. If the graph is still in memory, then we can keep a previous key
    * around. The current behavior of view processes and executors is that graphs do not get modified once they
@@ -154,14 +449,74 @@ import com.opengamma.util.ehcache.EHCacheUtils;
    * @param manager  the cache manager from which to obtain the execution plan cache, null not to use caching.
    */
   public ExecutionPlanCache(final CacheManager manager) {
+    this(manager, null);
+  }
+
+  /**
+   * Constructs an instance.
+   * 
+   * @param manager  the cache manager from which to obtain the execution plan cache, null not to use caching.
+   * @param folder  the folder to persist plans to, null not to persist plans.
+   */
+  public ExecutionPlanCache(final CacheManager manager, final File folder) {
     if (manager == null) {
       _cache = null;
     } else {
       EHCacheUtils.addCache(manager, CACHE_NAME);
       _cache = EHCacheUtils.getCacheFromManager(manager, CACHE_NAME);
     }
+    if ((folder != null) && !folder.isDirectory() && !folder.mkdirs()) {
+      s_logger.warn("Couldn't create execution plan folder {} - plans will not be persisted", folder);
+      _folder = null;
+    } else {
+      _folder = folder;
+    }
+    if (_folder != null) {
+      final ThreadPoolExecutor writer = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+          new NamedThreadPoolFactory("ExecutionPlanWriter", true));
+      writer.allowCoreThreadTimeOut(true);
+      _writer = writer;
+      _writer.execute(new Runnable() {
+        @Override
+        public void run() {
+          deleteTempFiles();
+          prunePlans();
+        }
+      });
+    } else {
+      _writer = null;
+    }
+  }
+
+  /**
+   * Sets a description of the parameters the plans are constructed with. Plans persisted under different
+   * parameters will not be used.
+   * 
+   * @param parameters  the parameter description, not null
+   */
+  public void setPlanParameters(final String parameters) {
+    _parametersFingerprint = Fingerprinter.getStringFingerprint(parameters);
+  }
+
+  /**
+   * Sets the maximum number of plans to keep in the folder. When more have been written, the least recently used are
+   * deleted.
+   * 
+   * @param maxPersistedPlans  the maximum number of plans, at least one
+   */
+  public void setMaxPersistedPlans(final int maxPersistedPlans) {
+    ArgumentChecker.isTrue(maxPersistedPlans > 0, "maxPersistedPlans must be positive");
+    _maxPersistedPlans = maxPersistedPlans;
+  }
+
+  public int getMaxPersistedPlans() {
+    return _maxPersistedPlans;
   }
 
+  /**
+   * Discards the plans held in memory. Persisted plans are kept as they are keyed by the plan parameters, so will
+   * only be used again if the same parameters are set.
+   */
   public synchronized void clear() {
     if (_cache != null) {
       s_logger.info("Clearing execution plan cache of {} items", _cache.getSize());
@@ -169,41 +524,239 @@ import com.opengamma.util.ehcache.EHCacheUtils;
     }
   }
 
+  /**
+   * Waits for any plans queued for writing to the folder to be written.
+   */
+  /* package */void waitForPendingWrites() {
+    if (_writer != null) {
+      try {
+        _writer.submit(new Runnable() {
+          @Override
+          public void run() {
+            // No-op; completes after all earlier writes
+          }
+        }).get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } catch (ExecutionException e) {
+        s_logger.warn("Couldn't wait for pending writes", e.getCause());
+      }
+    }
+  }
+
+  private DependencyGraphKey getKey(final DependencyGraph graph, final long functionInitId) {
+    DependencyGraphKey key = _identityLookup.get(graph);
+    if ((key == null) || (key._functionInitId != functionInitId)) {
+      s_logger.debug("Identity lookup miss");
+      key = new DependencyGraphKey(graph, functionInitId);
+      _identityLookup.put(graph, key);
+    }
+    return key;
+  }
+
   public ExecutionPlan getCachedPlan(final DependencyGraph graph, final long functionInitId) {
-    if (_cache != null) {
+    if ((_cache != null) || (_folder != null)) {
       s_logger.debug("Searching for cached execution plan for {}/{}", graph, functionInitId);
-      DependencyGraphKey key = _identityLookup.get(graph);
-      if ((key == null) || (key._functionInitId != functionInitId)) {
-        s_logger.debug("Identity lookup miss");
-        key = new DependencyGraphKey(graph, functionInitId);
-        _identityLookup.put(graph, key);
-      }
-      final Element element = _cache.get(key);
-      if (element != null) {
-        s_logger.debug("Cache hit");
-        return ((ExecutionPlan) element.getObjectValue()).withNodes(key.getNodes());
-      } else {
-        s_logger.debug("Cache miss");
-        return null;
+      final DependencyGraphKey key = getKey(graph, functionInitId);
+      if (_cache != null) {
+        final Element element = _cache.get(key);
+        if (element != null) {
+          s_logger.debug("Cache hit");
+          return ((ExecutionPlan) element.getObjectValue()).withNodes(key.getNodes());
+        }
       }
-    } else {
-      return null;
+      if (_folder != null) {
+        final ExecutionPlan plan = loadPlan(key);
+        if (plan != null) {
+          s_logger.info("Loaded persisted execution plan for {}/{}", graph, functionInitId);
+          if (_cache != null) {
+            _cache.put(new Element(key, plan));
+          }
+          return plan;
+        }
+      }
+      s_logger.debug("Cache miss");
     }
+    return null;
   }
 
   public void cachePlan(final DependencyGraph graph, final long functionInitId, final ExecutionPlan plan) {
-    if (_cache != null) {
+    if ((_cache != null) || (_folder != null)) {
       s_logger.info("Caching execution plan for {}/{}", graph, functionInitId);
-      DependencyGraphKey key = _identityLookup.get(graph);
-      if ((key == null) || (key._functionInitId != functionInitId)) {
-        s_logger.debug("Identity lookup miss");
-        key = new DependencyGraphKey(graph, functionInitId);
-        _identityLookup.put(graph, key);
+      final DependencyGraphKey key = getKey(graph, functionInitId);
+      if (_cache != null) {
+        _cache.put(new Element(key, plan));
+      }
+      if (_writer != null) {
+        // The parameters are captured now as they might change before the plan is written
+        final long parametersFingerprint = _parametersFingerprint;
+        _writer.execute(new Runnable() {
+          @Override
+          public void run() {
+            savePlan(key, key.getFingerprint() ^ parametersFingerprint, plan);
+          }
+        });
       }
-      _cache.put(new Element(key, plan));
     }
   }
 
+  private long getFingerprint(final DependencyGraphKey key) {
+    return key.getFingerprint() ^ _parametersFingerprint;
+  }
+
+  private File getFile(final long fingerprint) {
+    return new File(_folder, String.format("%016x", fingerprint) + PLAN_FILE_SUFFIX);
+  }
+
+  private void savePlan(final DependencyGraphKey key, final long fingerprint, final ExecutionPlan plan) {
+    final MutableFudgeMsg msg = plan.toFudgeMsg(_fudgeContext, new Fingerprinter(key.getNodeFingerprints()));
+    msg.add(FINGERPRINT_FIELD, fingerprint);
+    msg.add(NODE_COUNT_FIELD, key.getNodes().size());
+    File temp = null;
+    OutputStream out = null;
+    try {
+      // Write to a temporary file and rename so that a partially written plan is never visible
+      temp = File.createTempFile(TEMP_FILE_PREFIX, TEMP_FILE_SUFFIX, _folder);
+      out = new BufferedOutputStream(new FileOutputStream(temp));
+      final FudgeMsgWriter writer = _fudgeContext.createMessageWriter(out);
+      writer.writeMessage(msg);
+      writer.flush();
+      out.close();
+      out = null;
+      final File file = getFile(fingerprint);
+      if (file.exists() && !file.delete()) {
+        s_logger.warn("Couldn't replace persisted execution plan {}", file);
+      } else if (temp.renameTo(file)) {
+        s_logger.debug("Persisted execution plan to {}", file);
+        temp = null;
+        prunePlans();
+      } else {
+        s_logger.warn("Couldn't persist execution plan to {}", file);
+      }
+    } catch (IOException e) {
+      s_logger.warn("Couldn't persist execution plan", e);
+    } finally {
+      IOUtils.closeQuietly(out);
+      if (temp != null) {
+        temp.delete();
+      }
+    }
+  }
+
+  /**
+   * Deletes the least recently used plans from the folder if it holds more than the maximum number. Loading a plan
+   * updates its modification time so that plans which are still in use are kept.
+   */
+  private void prunePlans() {
+    final File[] files = _folder.listFiles(new FilenameFilter() {
+      @Override
+      public boolean accept(final File dir, final String name) {
+        return name.endsWith(PLAN_FILE_SUFFIX);
+      }
+    });
+    final int maxPersistedPlans = _maxPersistedPlans;
+    if ((files == null) || (files.length <= maxPersistedPlans)) {
+      return;
+    }
+    final Map<File, Long> lastModified = Maps.newHashMapWithExpectedSize(files.length);
+    for (File file : files) {
+      lastModified.put(file, file.lastModified());
+    }
+    Arrays.sort(files, new Comparator<File>() {
+      @Override
+      public int compare(final File o1, final File o2) {
+        return lastModified.get(o1).compareTo(lastModified.get(o2));
+      }
+    });
+    final int excess = files.length - maxPersistedPlans;
+    s_logger.info("Deleting {} least recently used execution plans from {}", excess, _folder);
+    for (int i = 0; i < excess; i++) {
+      if (!files[i].delete()) {
+        s_logger.warn("Couldn't delete persisted execution plan {}", files[i]);
+      }
+    }
+  }
+
+  /**
+   * Deletes any temporary files left by writes that were interrupted, for example by the process stopping.
+   */
+  private void deleteTempFiles() {
+    final File[] files = _folder.listFiles(new FilenameFilter() {
+      @Override
+      public boolean accept(final File dir, final String name) {
+        return name.startsWith(TEMP_FILE_PREFIX) && name.endsWith(TEMP_FILE_SUFFIX);
+      }
+    });
+    if (files != null) {
+      for (File file : files) {
+        file.delete();
+      }
+    }
+  }
+
+  private ExecutionPlan loadPlan(final DependencyGraphKey key) {
+    final long fingerprint = getFingerprint(key);
+    final File file = getFile(fingerprint);
+    if (!file.exists()) {
+      return null;
+    }
+    final FudgeMsg msg;
+    InputStream in = null;
+    try {
+      in = new BufferedInputStream(new FileInputStream(file));
+      final FudgeMsgReader reader = _fudgeContext.createMessageReader(in);
+      msg = reader.nextMessage();
+    } catch (IOException e) {
+      s_logger.warn("Couldn't read persisted execution plan {}", file);
+      s_logger.debug("Caught exception", e);
+      return null;
+    } catch (RuntimeException e) {
+      s_logger.warn("Couldn't read persisted execution plan {} - deleting", file);
+      s_logger.debug("Caught exception", e);
+      IOUtils.closeQuietly(in);
+      in = null;
+      file.delete();
+      return null;
+    } finally {
+      IOUtils.closeQuietly(in);
+    }
+    final Long storedFingerprint = msg.getLong(FINGERPRINT_FIELD);
+    final Integer storedNodeCount = msg.getInt(NODE_COUNT_FIELD);
+    if ((storedFingerprint == null) || (storedFingerprint != fingerprint) || (storedNodeCount == null) || (storedNodeCount != key.getNodes().size())) {
+      s_logger.info("Persisted execution plan {} is not for this graph", file);
+      return null;
+    }
+    final Object2LongMap<DependencyNode> nodeFingerprints = key.getNodeFingerprints();
+    final Long2ObjectMap<DependencyNode> nodes = new Long2ObjectOpenHashMap<DependencyNode>(nodeFingerprints.size());
+    final Fingerprinter fingerprinter = new Fingerprinter(nodeFingerprints);
+    final Long2ObjectMap<ValueSpecification> values = new Long2ObjectOpenHashMap<ValueSpecification>();
+    for (Object2LongMap.Entry<DependencyNode> node : nodeFingerprints.object2LongEntrySet()) {
+      nodes.put(node.getLongValue(), node.getKey());
+      for (ValueSpecification output : node.getKey().getOutputValues()) {
+        values.put(fingerprinter.getValueFingerprint(output), output);
+      }
+    }
+    if (nodes.size() != nodeFingerprints.size()) {
+      s_logger.info("Graph contains nodes with the same fingerprint; not using persisted execution plan {}", file);
+      return null;
+    }
+    final ExecutionPlan plan;
+    try {
+      plan = ExecutionPlan.fromFudgeMsg(msg, nodes, values);
+    } catch (RuntimeException e) {
+      s_logger.warn("Invalid persisted execution plan {}", file);
+      s_logger.debug("Caught exception", e);
+      return null;
+    }
+    if (plan == null) {
+      s_logger.info("Persisted execution plan {} does not match the graph", file);
+    } else {
+      // Mark the plan as recently used so that it is not pruned
+      file.setLastModified(System.currentTimeMillis());
+    }
+    return plan;
+  }
+
   // TODO [ENG-269] If the function costs change significantly, invalidate the execution plan cache.
 
 }
@@ -5,15 +5,20 @@
  */
 package com.opengamma.engine.view.calc;
 
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.apache.commons.lang.ObjectUtils;
 
+import com.opengamma.engine.depgraph.CompiledDependencyGraph;
 import com.opengamma.engine.depgraph.DependencyGraph;
 import com.opengamma.engine.depgraph.DependencyNode;
-import com.opengamma.engine.value.ValueRequirement;
 import com.opengamma.engine.value.ValueSpecification;
 import com.opengamma.engine.view.cache.CacheSelectHint;
 import com.opengamma.engine.view.cache.ViewComputationCache;
@@ -24,15 +29,23 @@ import com.opengamma.util.tuple.Pair;
  * Determines which nodes in a graph have changed. A node has 'changed' if and only 
  * if its subtree contains a node for which PreviousLiveDataInput != CurrentLiveDataInput.
  * Note that this excludes changes due to passage of the system clock. 
+ * <p>
+ * The calculation is made against the {@link CompiledDependencyGraph} form of the graph. The market data values are
+ * fetched from the two caches in bulk and compared in one pass. The nodes whose market data changed are then marked in a
+ * bit set and the change propagated forward to their dependents in execution order, so only the changed part of the graph
+ * is visited.
+ * <p>
+ * An instance is not thread-safe but calculators for different graphs may run concurrently.
  */
 public class LiveDataDeltaCalculator {
 
-  private final DependencyGraph _graph;
+  private final CompiledDependencyGraph _graph;
   private final ViewComputationCache _cache;
   private final ViewComputationCache _previousCache;
 
-  private final Set<DependencyNode> _changedNodes = new HashSet<DependencyNode>();
-  private final Set<DependencyNode> _unchangedNodes = new HashSet<DependencyNode>();
+  private final BitSet _changed = new BitSet();
+  private Set<DependencyNode> _changedNodes;
+  private Set<DependencyNode> _unchangedNodes;
 
   private boolean _done; // = false
 
@@ -47,6 +60,18 @@ public class LiveDataDeltaCalculator {
    * @param previousCache Contains PreviousLiveDataInputs (for the given graph)
    */
   public LiveDataDeltaCalculator(DependencyGraph graph, ViewComputationCache cache, ViewComputationCache previousCache) {
+    this(compile(graph), cache, previousCache);
+  }
+
+  /**
+   * For the delta calculation to be meaningful, the caches should be populated with LiveData 
+   * inputs required to compute the given dependency graph. 
+   * 
+   * @param graph Compiled dependency graph
+   * @param cache Contains CurrentLiveDataInputs (for the given graph)
+   * @param previousCache Contains PreviousLiveDataInputs (for the given graph)
+   */
+  public LiveDataDeltaCalculator(CompiledDependencyGraph graph, ViewComputationCache cache, ViewComputationCache previousCache) {
     ArgumentChecker.notNull(graph, "Graph");
     ArgumentChecker.notNull(cache, "Cache");
     ArgumentChecker.notNull(previousCache, "Previous cache");
@@ -55,11 +80,18 @@ public class LiveDataDeltaCalculator {
     _previousCache = previousCache;
   }
 
+  private static CompiledDependencyGraph compile(final DependencyGraph graph) {
+    ArgumentChecker.notNull(graph, "Graph");
+    return new CompiledDependencyGraph(graph);
+  }
+
   public Set<DependencyNode> getChangedNodes() {
     if (!_done) {
       throw new IllegalStateException("Call computeDelta() first");
     }
-
+    if (_changedNodes == null) {
+      createNodeSets();
+    }
     return Collections.unmodifiableSet(_changedNodes);
   }
 
@@ -67,56 +99,116 @@ public class LiveDataDeltaCalculator {
     if (!_done) {
       throw new IllegalStateException("Call computeDelta() first");
     }
-
+    if (_unchangedNodes == null) {
+      createNodeSets();
+    }
     return Collections.unmodifiableSet(_unchangedNodes);
   }
 
+  /**
+   * Returns the number of nodes that have changed.
+   * 
+   * @return the number of changed nodes
+   */
+  public int getChangedNodeCount() {
+    if (!_done) {
+      throw new IllegalStateException("Call computeDelta() first");
+    }
+    return _changed.cardinality();
+  }
+
+  /**
+   * Tests whether a node has changed.
+   * 
+   * @param node the node identifier within the compiled graph
+   * @return true if the node has changed, false otherwise
+   */
+  public boolean isChanged(final int node) {
+    if (!_done) {
+      throw new IllegalStateException("Call computeDelta() first");
+    }
+    return _changed.get(node);
+  }
+
+  private void createNodeSets() {
+    final int size = _graph.getSize();
+    final int changed = _changed.cardinality();
+    _changedNodes = new HashSet<DependencyNode>(changed * 4 / 3 + 1);
+    _unchangedNodes = new HashSet<DependencyNode>((size - changed) * 4 / 3 + 1);
+    for (int i = 0; i < size; i++) {
+      if (_changed.get(i)) {
+        _changedNodes.add(_graph.getNode(i));
+      } else {
+        _unchangedNodes.add(_graph.getNode(i));
+      }
+    }
+  }
+
   public void computeDelta() {
     if (_done) {
       throw new IllegalStateException("Cannot determine delta twice");
     }
-
-    for (DependencyNode rootNode : _graph.getRootNodes()) {
-      computeDelta(rootNode);
+    final BitSet changedMarketData = getChangedMarketData();
+    if (!changedMarketData.isEmpty()) {
+      final int marketDataNodes = _graph.getMarketDataNodeCount();
+      for (int i = 0; i < marketDataNodes; i++) {
+        final int node = _graph.getMarketDataNode(i);
+        if (changedMarketData.get(_graph.getMarketData(node))) {
+          _changed.set(node);
+        }
+      }
+      // Dependents always have a higher identifier so will be visited after being marked
+      for (int node = _changed.nextSetBit(0); node >= 0; node = _changed.nextSetBit(node + 1)) {
+        final int dependents = _graph.getDependentCount(node);
+        for (int j = 0; j < dependents; j++) {
+          _changed.set(_graph.getDependent(node, j));
+        }
+      }
     }
-
     _done = true;
   }
 
-  private boolean computeDelta(DependencyNode node) {
-    if (_changedNodes.contains(node)) {
-      return true;
+  /**
+   * Fetches the market data values required by the graph from both caches, returning the identifiers of those that differ.
+   */
+  private BitSet getChangedMarketData() {
+    final int marketDataNodes = _graph.getMarketDataNodeCount();
+    final List<ValueSpecification> marketData = new ArrayList<ValueSpecification>(marketDataNodes);
+    final BitSet requested = new BitSet();
+    for (int i = 0; i < marketDataNodes; i++) {
+      final int value = _graph.getMarketData(_graph.getMarketDataNode(i));
+      if (!requested.get(value)) {
+        requested.set(value);
+        marketData.add(_graph.getValue(value));
+      }
     }
-    if (_unchangedNodes.contains(node)) {
-      return false;
+    final BitSet changed = new BitSet();
+    if (marketData.isEmpty()) {
+      return changed;
     }
-
-    boolean hasChanged = false;
-    for (DependencyNode inputNode : node.getInputNodes()) {
-      // if any children changed, this node automatically requires recomputation.
-      hasChanged |= computeDelta(inputNode);
+    // Market data is always in the shared cache
+    final Map<ValueSpecification, Object> previousValues = new HashMap<ValueSpecification, Object>(marketData.size() * 4 / 3 + 1);
+    for (Pair<ValueSpecification, Object> value : _previousCache.getValues(marketData, CacheSelectHint.allShared())) {
+      previousValues.put(value.getFirst(), value.getSecond());
     }
-
-    if (!hasChanged) {
-      // if no children changed, the node may still require recomputation
-      // due to market data changes affecting the function of the node.
-      Pair<ValueRequirement, ValueSpecification> liveData = node.getRequiredMarketData();
-      if (liveData != null) {
-        // Market data is always in the shared cache
-        Object oldValue = _previousCache.getValue(liveData.getSecond(), CacheSelectHint.allShared());
-        Object newValue = _cache.getValue(liveData.getSecond(), CacheSelectHint.allShared());
-        if (!ObjectUtils.equals(oldValue, newValue)) {
-          hasChanged = true;
-        }
+    final BitSet found = new BitSet();
+    for (Pair<ValueSpecification, Object> value : _cache.getValues(marketData, CacheSelectHint.allShared())) {
+      final int id = _graph.getValueId(value.getFirst());
+      found.set(id);
+      if (!ObjectUtils.equals(previousValues.get(value.getFirst()), value.getSecond())) {
+        changed.set(id);
       }
     }
-
-    if (hasChanged) {
-      _changedNodes.add(node);
-    } else {
-      _unchangedNodes.add(node);
+    // A value missing from the current cache has changed if it was present in the previous one
+    for (Map.Entry<ValueSpecification, Object> previousValue : previousValues.entrySet()) {
+      if (previousValue.getValue() != null) {
+        final int id = _graph.getValueId(previousValue.getKey());
+        if (!found.get(id)) {
+          changed.set(id);
+        }
+      }
     }
-
-    return hasChanged;
+    return changed;
   }
+
 }
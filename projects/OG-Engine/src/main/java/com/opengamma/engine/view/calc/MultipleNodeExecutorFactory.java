@@ -5,6 +5,8 @@
  */
 package com.opengamma.engine.view.calc;
 
+import java.io.File;
+
 import net.sf.ehcache.CacheManager;
 
 import org.springframework.beans.factory.InitializingBean;
@@ -20,6 +22,8 @@ public class MultipleNodeExecutorFactory implements DependencyGraphExecutorFacto
 
   private CacheManager _cacheManager;
   private ExecutionPlanCache _executionPlanCache;
+  private File _executionPlanFolder;
+  private int _maximumPersistedPlans = ExecutionPlanCache.DEFAULT_MAX_PERSISTED_PLANS;
   private int _minimumJobItems = 1;
   private int _maximumJobItems = Integer.MAX_VALUE;
   private long _minimumJobCost = 1;
@@ -35,6 +39,38 @@ public class MultipleNodeExecutorFactory implements DependencyGraphExecutorFacto
     return _cacheManager;
   }
   
+  /**
+   * Sets a folder to persist execution plans to. Plans in this folder will be used after a restart for any graphs
+   * that have not changed.
+   * 
+   * @param executionPlanFolder the folder to persist plans to, null not to persist them
+   */
+  public void setExecutionPlanFolder(final File executionPlanFolder) {
+    _executionPlanFolder = executionPlanFolder;
+  }
+
+  public File getExecutionPlanFolder() {
+    return _executionPlanFolder;
+  }
+
+  /**
+   * Sets the maximum number of plans to keep in the execution plan folder. The least recently used plans are deleted
+   * when there are more.
+   * 
+   * @param maximumPersistedPlans the maximum number of plans, at least one
+   */
+  public void setMaximumPersistedPlans(final int maximumPersistedPlans) {
+    ArgumentChecker.isTrue(maximumPersistedPlans > 0, "maximumPersistedPlans must be positive");
+    _maximumPersistedPlans = maximumPersistedPlans;
+    if (_executionPlanCache != null) {
+      _executionPlanCache.setMaxPersistedPlans(maximumPersistedPlans);
+    }
+  }
+
+  public int getMaximumPersistedPlans() {
+    return _maximumPersistedPlans;
+  }
+
   protected ExecutionPlanCache getExecutionPlanCache() {
     return _executionPlanCache;
   }
@@ -75,6 +111,23 @@ public class MultipleNodeExecutorFactory implements DependencyGraphExecutorFacto
     return _maximumJobCost;
   }
 
+  /**
+   * Sets the job size and cost limits together, invalidating the cached execution plans once rather than for each
+   * parameter.
+   * 
+   * @param minimumJobItems the minimum number of items in a job
+   * @param maximumJobItems the maximum number of items in a job
+   * @param minimumJobCost the minimum cost of a job
+   * @param maximumJobCost the maximum cost of a job
+   */
+  public void setJobSize(final int minimumJobItems, final int maximumJobItems, final long minimumJobCost, final long maximumJobCost) {
+    _minimumJobItems = minimumJobItems;
+    _maximumJobItems = maximumJobItems;
+    _minimumJobCost = minimumJobCost;
+    _maximumJobCost = maximumJobCost;
+    invalidateExecutionPlanCache();
+  }
+
   /**
    * Sets the concurrency limit for job tails that are streamed to a single node host.
    * 
@@ -110,9 +163,19 @@ public class MultipleNodeExecutorFactory implements DependencyGraphExecutorFacto
     return getClass().getSimpleName();
   }
 
+  /**
+   * Returns a description of the parameters used to construct execution plans.
+   * 
+   * @return the description, not null
+   */
+  protected String getPlanParameters() {
+    return getMinimumJobItems() + "/" + getMaximumJobItems() + "/" + getMinimumJobCost() + "/" + getMaximumJobCost() + "/" + getMaximumConcurrency();
+  }
+
   protected void invalidateExecutionPlanCache() {
     if (_executionPlanCache != null) {
       _executionPlanCache.clear();
+      _executionPlanCache.setPlanParameters(getPlanParameters());
     }
   }
 
@@ -121,7 +184,9 @@ public class MultipleNodeExecutorFactory implements DependencyGraphExecutorFacto
     if (getFunctionCosts() == null) {
       setFunctionCosts(new FunctionCosts());
     }
-    _executionPlanCache = new ExecutionPlanCache(getCacheManager());
+    _executionPlanCache = new ExecutionPlanCache(getCacheManager(), getExecutionPlanFolder());
+    _executionPlanCache.setMaxPersistedPlans(getMaximumPersistedPlans());
+    _executionPlanCache.setPlanParameters(getPlanParameters());
   }
 
 }
@@ -6,6 +6,7 @@
 package com.opengamma.engine.view.calc;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 
 import javax.time.Instant;
@@ -22,6 +23,8 @@ import com.opengamma.engine.view.calcnode.Capability;
 import com.opengamma.engine.view.calcnode.JobDispatcher;
 import com.opengamma.engine.view.calcnode.PlatformCapabilities;
 import com.opengamma.engine.view.calcnode.stats.CalculationNodeStatistics;
+import com.opengamma.engine.view.calcnode.stats.FunctionCosts;
+import com.opengamma.engine.view.calcnode.stats.FunctionInvocationStatistics;
 import com.opengamma.engine.view.calcnode.stats.TotallingNodeStatisticsGatherer;
 import com.opengamma.util.ArgumentChecker;
 
@@ -34,7 +37,13 @@ import com.opengamma.util.ArgumentChecker;
  * 
  * <p>Set maximum concurrency to the average node count of the job invokers. Requires a {@link JobDispatcher}.</p>
  * 
- * <p>TODO: [ENG-200] Tuning of job size and cost parameters</p>
+ * <p>Set the job size and cost parameters from the function invocation statistics so that jobs take approximately
+ * the target duration. Requires a target job duration to be set. The mean cost of a job item is taken from the
+ * {@link FunctionCosts}, weighted by the number of invocations of each function; the maximum job cost is the target
+ * duration and the maximum item count the number of mean items that fit within it. If data movement is more than the
+ * allowed fraction of an item's cost the jobs are made proportionally larger so that more intermediate values stay
+ * within a single node. The minimum values are a fixed fraction of the maximums. Changes smaller than the change
+ * threshold are ignored as each change invalidates the cached execution plans.</p>
  */
 public class MultipleNodeExecutorTuner implements Runnable {
   
@@ -51,6 +60,15 @@ public class MultipleNodeExecutorTuner implements Runnable {
   private TotallingNodeStatisticsGatherer _jobDispatchStatistics;
   private double _statisticDecayRate = 0.1; // 10% decay every schedule
   private int _statisticsKeepAlive = 300; // keep for 5 minutes
+  private FunctionCosts _functionCosts;
+  private long _targetJobDuration; // nanoseconds, 0 to not tune the job size
+  private double _maximumDataFraction = 0.5;
+  private double _maximumDataScale = 4;
+  private double _minimumJobFraction = 0.1;
+  private double _changeThreshold = 0.1;
+  private volatile double _meanInvocationCost = Double.NaN;
+  private volatile double _meanDataInputCost = Double.NaN;
+  private volatile double _meanDataOutputCost = Double.NaN;
 
   /**
    * @param factory The factory to tune
@@ -60,7 +78,7 @@ public class MultipleNodeExecutorTuner implements Runnable {
     _factory = factory;
   }
 
-  protected MultipleNodeExecutorFactory getFactory() {
+  public MultipleNodeExecutorFactory getFactory() {
     return _factory;
   }
 
@@ -104,6 +122,190 @@ public class MultipleNodeExecutorTuner implements Runnable {
     return _statisticDecayRate;
   }
 
+  /**
+   * Sets the function costs to tune the job size from. If not set, those of the factory are used.
+   * 
+   * @param functionCosts the function costs, null to use the factory's
+   */
+  public void setFunctionCosts(final FunctionCosts functionCosts) {
+    _functionCosts = functionCosts;
+  }
+
+  protected FunctionCosts getFunctionCosts() {
+    if (_functionCosts != null) {
+      return _functionCosts;
+    }
+    return getFactory().getFunctionCosts();
+  }
+
+  /**
+   * Sets the duration that each job should take to execute. Job sizes are not tuned unless this is set.
+   * 
+   * @param nanos the target duration in nanoseconds, 0 to not tune the job size
+   */
+  public void setTargetJobDuration(final long nanos) {
+    ArgumentChecker.isTrue(nanos >= 0, "nanos");
+    _targetJobDuration = nanos;
+  }
+
+  public long getTargetJobDuration() {
+    return _targetJobDuration;
+  }
+
+  /**
+   * Sets the fraction of a job item's cost that may be data movement before jobs are enlarged to keep more data local.
+   * 
+   * @param maximumDataFraction the fraction, between 0 and 1
+   */
+  public void setMaximumDataFraction(final double maximumDataFraction) {
+    ArgumentChecker.isTrue((maximumDataFraction > 0) && (maximumDataFraction <= 1), "maximumDataFraction");
+    _maximumDataFraction = maximumDataFraction;
+  }
+
+  public double getMaximumDataFraction() {
+    return _maximumDataFraction;
+  }
+
+  /**
+   * Sets the largest factor by which jobs may be enlarged beyond the target duration to limit data movement.
+   * 
+   * @param maximumDataScale the factor, at least 1
+   */
+  public void setMaximumDataScale(final double maximumDataScale) {
+    ArgumentChecker.isTrue(maximumDataScale >= 1, "maximumDataScale");
+    _maximumDataScale = maximumDataScale;
+  }
+
+  public double getMaximumDataScale() {
+    return _maximumDataScale;
+  }
+
+  /**
+   * Sets the minimum job size and cost as a fraction of the maximum.
+   * 
+   * @param minimumJobFraction the fraction, between 0 and 1
+   */
+  public void setMinimumJobFraction(final double minimumJobFraction) {
+    ArgumentChecker.isTrue((minimumJobFraction > 0) && (minimumJobFraction <= 1), "minimumJobFraction");
+    _minimumJobFraction = minimumJobFraction;
+  }
+
+  public double getMinimumJobFraction() {
+    return _minimumJobFraction;
+  }
+
+  /**
+   * Sets the relative change in a parameter below which it is left unchanged.
+   * 
+   * @param changeThreshold the threshold, for example 0.1 for 10%
+   */
+  public void setChangeThreshold(final double changeThreshold) {
+    ArgumentChecker.isTrue(changeThreshold >= 0, "changeThreshold");
+    _changeThreshold = changeThreshold;
+  }
+
+  public double getChangeThreshold() {
+    return _changeThreshold;
+  }
+
+  /**
+   * Returns the mean invocation cost of a job item, in nanoseconds, as used by the last tuning adjustment.
+   * 
+   * @return the cost, or NaN if the job size has not been tuned
+   */
+  public double getMeanInvocationCost() {
+    return _meanInvocationCost;
+  }
+
+  /**
+   * Returns the mean data input cost of a job item, in bytes, as used by the last tuning adjustment.
+   * 
+   * @return the cost, or NaN if the job size has not been tuned
+   */
+  public double getMeanDataInputCost() {
+    return _meanDataInputCost;
+  }
+
+  /**
+   * Returns the mean data output cost of a job item, in bytes, as used by the last tuning adjustment.
+   * 
+   * @return the cost, or NaN if the job size has not been tuned
+   */
+  public double getMeanDataOutputCost() {
+    return _meanDataOutputCost;
+  }
+
+  private boolean isSignificantChange(final double current, final double proposed) {
+    return Math.abs(proposed - current) > current * getChangeThreshold();
+  }
+
+  /**
+   * Sets the job size and cost parameters on the factory from the function invocation statistics.
+   */
+  protected void tuneJobSize() {
+    final FunctionCosts functionCosts = getFunctionCosts();
+    if (functionCosts == null) {
+      return;
+    }
+    final List<FunctionInvocationStatistics> allStatistics = functionCosts.getAllStatistics();
+    if (allStatistics.isEmpty()) {
+      s_logger.debug("No function statistics to tune job size from");
+      return;
+    }
+    // Weight each function by how often it is invoked so that the means are those of a typical job item
+    double invocationCost = 0;
+    double dataInputCost = 0;
+    double dataOutputCost = 0;
+    double invocations = 0;
+    for (FunctionInvocationStatistics statistics : allStatistics) {
+      final double count = statistics.getInvocationCount();
+      invocationCost += statistics.getInvocationCost() * count;
+      dataInputCost += statistics.getDataInputCost() * count;
+      dataOutputCost += statistics.getDataOutputCost() * count;
+      invocations += count;
+    }
+    if (!(invocations > 0)) {
+      // Costs loaded from the persistent store have no invocation counts
+      invocationCost = 0;
+      dataInputCost = 0;
+      dataOutputCost = 0;
+      for (FunctionInvocationStatistics statistics : allStatistics) {
+        invocationCost += statistics.getInvocationCost();
+        dataInputCost += statistics.getDataInputCost();
+        dataOutputCost += statistics.getDataOutputCost();
+      }
+      invocations = allStatistics.size();
+    }
+    invocationCost /= invocations;
+    dataInputCost /= invocations;
+    dataOutputCost /= invocations;
+    _meanInvocationCost = invocationCost;
+    _meanDataInputCost = dataInputCost;
+    _meanDataOutputCost = dataOutputCost;
+    final double itemCost = invocationCost + dataInputCost + dataOutputCost;
+    if (!(itemCost > 0)) {
+      return;
+    }
+    double scale = 1;
+    final double dataFraction = (dataInputCost + dataOutputCost) / itemCost;
+    if (dataFraction > getMaximumDataFraction()) {
+      scale = Math.min(dataFraction / getMaximumDataFraction(), getMaximumDataScale());
+    }
+    final long maximumJobCost = Math.max(1L, (long) (getTargetJobDuration() * scale));
+    final long minimumJobCost = Math.max(1L, (long) (maximumJobCost * getMinimumJobFraction()));
+    final int maximumJobItems = (int) Math.max(1d,
+        Math.min((double) Integer.MAX_VALUE, Math.floor(maximumJobCost / itemCost)));
+    final int minimumJobItems = Math.max(1, (int) (maximumJobItems * getMinimumJobFraction()));
+    final MultipleNodeExecutorFactory factory = getFactory();
+    if (isSignificantChange(factory.getMaximumJobCost(), maximumJobCost)
+        || isSignificantChange(factory.getMaximumJobItems(), maximumJobItems)) {
+      s_logger.info("Changing job size to {}-{} items, cost {}-{}",
+          new Object[] {minimumJobItems, maximumJobItems, minimumJobCost, maximumJobCost });
+      // One call so the cached execution plans are invalidated once
+      factory.setJobSize(minimumJobItems, maximumJobItems, minimumJobCost, maximumJobCost);
+    }
+  }
+
   /**
    * Makes one tuning adjustment.
    */
@@ -148,6 +350,10 @@ public class MultipleNodeExecutorTuner implements Runnable {
       }
       getJobDispatchStatistics().dropStatisticsBefore(Instant.now().minusSeconds(getStatisticsKeepAlive()));
     }
+    if (getTargetJobDuration() > 0) {
+      s_logger.debug("Processing function statistics");
+      tuneJobSize();
+    }
   }
 
   private FudgeMsg dumpCapabilities(final FudgeSerializer serializer, final String invokerId, final Collection<Capability> capabilities) {
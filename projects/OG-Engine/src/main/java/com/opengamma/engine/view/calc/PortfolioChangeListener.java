@@ -0,0 +1,79 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.view.calc;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import com.opengamma.core.change.ChangeEvent;
+import com.opengamma.core.change.ChangeListener;
+import com.opengamma.core.position.Portfolio;
+import com.opengamma.core.position.PortfolioNode;
+import com.opengamma.core.position.Position;
+import com.opengamma.core.position.Trade;
+import com.opengamma.core.position.impl.AbstractPortfolioNodeTraversalCallback;
+import com.opengamma.core.position.impl.PortfolioNodeTraverser;
+import com.opengamma.id.ObjectId;
+
+/**
+ * Change listener for the portfolio used by a view which notifies a computation job when the portfolio, or any
+ * node, position or trade within it, changes.
+ * <p>
+ * A position added to the portfolio is noticed by the change to the portfolio itself that references it.
+ */
+public class PortfolioChangeListener implements ChangeListener {
+
+  private final ViewComputationJob _computationJob;
+  private volatile Set<ObjectId> _objectIds = Collections.emptySet();
+
+  public PortfolioChangeListener(final ViewComputationJob computationJob) {
+    _computationJob = computationJob;
+  }
+
+  /**
+   * Sets the portfolio, as most recently compiled, that changes are to be watched for.
+   *
+   * @param portfolio the portfolio, or null for none
+   */
+  public void setPortfolio(final Portfolio portfolio) {
+    if (portfolio == null) {
+      _objectIds = Collections.emptySet();
+      return;
+    }
+    final Set<ObjectId> objectIds = new HashSet<ObjectId>();
+    objectIds.add(portfolio.getUniqueId().getObjectId());
+    PortfolioNodeTraverser.depthFirst(new AbstractPortfolioNodeTraversalCallback() {
+
+      @Override
+      public void preOrderOperation(final PortfolioNode portfolioNode) {
+        objectIds.add(portfolioNode.getUniqueId().getObjectId());
+      }
+
+      @Override
+      public void preOrderOperation(final Position position) {
+        objectIds.add(position.getUniqueId().getObjectId());
+        for (Trade trade : position.getTrades()) {
+          objectIds.add(trade.getUniqueId().getObjectId());
+        }
+      }
+
+    }).traverse(portfolio.getRootNode());
+    _objectIds = objectIds;
+  }
+
+  @Override
+  public void entityChanged(final ChangeEvent event) {
+    if ((event.getObjectId() != null) && _objectIds.contains(event.getObjectId())) {
+      getViewComputationJob().dirtyPortfolio();
+    }
+  }
+
+  private ViewComputationJob getViewComputationJob() {
+    return _computationJob;
+  }
+
+}
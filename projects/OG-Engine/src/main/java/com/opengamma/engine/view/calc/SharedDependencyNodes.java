@@ -0,0 +1,188 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.view.calc;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.opengamma.engine.depgraph.CompiledDependencyGraph;
+import com.opengamma.engine.depgraph.DependencyGraph;
+import com.opengamma.engine.depgraph.DependencyNode;
+import com.opengamma.engine.function.MarketDataSourcingFunction;
+import com.opengamma.engine.view.ViewCalculationConfiguration;
+import com.opengamma.engine.view.calc.ExecutionPlanCache.DependencyNodeKey;
+import com.opengamma.engine.view.compilation.CompiledViewDefinitionWithGraphsImpl;
+import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.tuple.Pair;
+
+/**
+ * Identifies the dependency nodes which are identical in more than one calculation configuration of a compiled view
+ * definition, so that a cycle need only execute them once.
+ * <p>
+ * Two nodes are identical if they apply the same parameterized function to the same target, consuming and producing
+ * the same values, and each of their inputs is produced by identical nodes. Market data nodes are identical if the
+ * configurations apply the same {@link SingleComputationCycle#MARKET_DATA_SHIFT_PROPERTY} shift, so nothing which
+ * depends on shifted market data is ever shared with a configuration that shifts it differently. The configuration
+ * first in name order to contain a node owns it; the others alias it, taking copies of the owner's values.
+ * <p>
+ * The analysis is made once for each compiled view definition and held by it, see
+ * {@link CompiledViewDefinitionWithGraphsImpl#getSharedDependencyNodes}.
+ */
+public final class SharedDependencyNodes {
+
+  private static final Logger s_logger = LoggerFactory.getLogger(SharedDependencyNodes.class);
+
+  /**
+   * The shared nodes executed by each owning configuration.
+   */
+  private final Map<String, Set<DependencyNode>> _ownedNodes = new HashMap<String, Set<DependencyNode>>();
+
+  /**
+   * The aliases of each shared node, as calculation configuration name and node pairs.
+   */
+  private final Map<DependencyNode, Collection<Pair<String, DependencyNode>>> _aliases = new HashMap<DependencyNode, Collection<Pair<String, DependencyNode>>>();
+
+  /**
+   * The owning configurations of the nodes aliased by each configuration.
+   */
+  private final Map<String, Set<String>> _aliasedConfigurations = new HashMap<String, Set<String>>();
+
+  /**
+   * Analyses a compiled view definition.
+   *
+   * @param compiledViewDefinition  the compiled view definition, not null
+   */
+  public SharedDependencyNodes(final CompiledViewDefinitionWithGraphsImpl compiledViewDefinition) {
+    ArgumentChecker.notNull(compiledViewDefinition, "compiledViewDefinition");
+    final Map<Object, Pair<String, DependencyNode>> owners = new HashMap<Object, Pair<String, DependencyNode>>();
+    final Map<DependencyNode, DependencyNode> representatives = new HashMap<DependencyNode, DependencyNode>();
+    final List<String> calcConfigNames = new ArrayList<String>(compiledViewDefinition.getViewDefinition().getAllCalculationConfigurationNames());
+    Collections.sort(calcConfigNames);
+    for (String calcConfigName : calcConfigNames) {
+      final DependencyGraph graph = compiledViewDefinition.getDependencyGraph(calcConfigName);
+      if (graph == null) {
+        continue;
+      }
+      final Set<String> marketDataShift = getMarketDataShift(compiledViewDefinition.getViewDefinition().getCalculationConfiguration(calcConfigName));
+      int aliasCount = 0;
+      // The execution order visits inputs first, so the representatives of a node's inputs are always known
+      for (DependencyNode node : CompiledDependencyGraph.getExecutionOrder(graph)) {
+        final boolean isMarketData = node.getFunction().getFunction() instanceof MarketDataSourcingFunction;
+        final Object key;
+        if (isMarketData) {
+          key = Pair.of(new DependencyNodeKey(node), marketDataShift);
+        } else {
+          final Set<DependencyNode> inputs = new HashSet<DependencyNode>();
+          for (DependencyNode input : node.getInputNodes()) {
+            inputs.add(representatives.get(input));
+          }
+          key = Pair.of(new DependencyNodeKey(node), inputs);
+        }
+        Pair<String, DependencyNode> owner = owners.get(key);
+        if (owner == null) {
+          owner = Pair.of(calcConfigName, node);
+          owners.put(key, owner);
+        }
+        representatives.put(node, owner.getSecond());
+        if (isMarketData || calcConfigName.equals(owner.getFirst())) {
+          // Market data is put into every cache before execution so there is nothing to share
+          continue;
+        }
+        Set<DependencyNode> owned = _ownedNodes.get(owner.getFirst());
+        if (owned == null) {
+          owned = new HashSet<DependencyNode>();
+          _ownedNodes.put(owner.getFirst(), owned);
+        }
+        owned.add(owner.getSecond());
+        Collection<Pair<String, DependencyNode>> aliases = _aliases.get(owner.getSecond());
+        if (aliases == null) {
+          aliases = new ArrayList<Pair<String, DependencyNode>>();
+          _aliases.put(owner.getSecond(), aliases);
+        }
+        aliases.add(Pair.of(calcConfigName, node));
+        Set<String> aliasedConfigurations = _aliasedConfigurations.get(calcConfigName);
+        if (aliasedConfigurations == null) {
+          aliasedConfigurations = new HashSet<String>();
+          _aliasedConfigurations.put(calcConfigName, aliasedConfigurations);
+        }
+        aliasedConfigurations.add(owner.getFirst());
+        aliasCount++;
+      }
+      if (aliasCount > 0) {
+        s_logger.info("{} nodes out of {} in calculation configuration '{}' are shared with other configurations", new Object[] {aliasCount, graph.getSize(), calcConfigName });
+      }
+    }
+  }
+
+  private static Set<String> getMarketDataShift(final ViewCalculationConfiguration calcConfig) {
+    if (calcConfig == null) {
+      return null;
+    }
+    return calcConfig.getDefaultProperties().getValues(SingleComputationCycle.MARKET_DATA_SHIFT_PROPERTY);
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Tests whether any nodes are shared between calculation configurations.
+   *
+   * @return true if there are no shared nodes
+   */
+  public boolean isEmpty() {
+    return _aliases.isEmpty();
+  }
+
+  /**
+   * Gets the names of the calculation configurations which own shared nodes.
+   *
+   * @return the configuration names, not null
+   */
+  public Set<String> getOwningConfigurations() {
+    return Collections.unmodifiableSet(_ownedNodes.keySet());
+  }
+
+  /**
+   * Gets the shared nodes owned by a calculation configuration.
+   *
+   * @param calcConfigName  the calculation configuration name
+   * @return the nodes, not null
+   */
+  public Set<DependencyNode> getOwnedNodes(final String calcConfigName) {
+    final Set<DependencyNode> nodes = _ownedNodes.get(calcConfigName);
+    return (nodes != null) ? Collections.unmodifiableSet(nodes) : Collections.<DependencyNode>emptySet();
+  }
+
+  /**
+   * Gets the names of the calculation configurations which own nodes aliased by a configuration. These are all earlier
+   * in name order than the configuration.
+   *
+   * @param calcConfigName  the calculation configuration name
+   * @return the owning configuration names, not null
+   */
+  public Set<String> getAliasedConfigurations(final String calcConfigName) {
+    final Set<String> owners = _aliasedConfigurations.get(calcConfigName);
+    return (owners != null) ? Collections.unmodifiableSet(owners) : Collections.<String>emptySet();
+  }
+
+  /**
+   * Gets the aliases of a shared node.
+   *
+   * @param node  the node owned by one configuration
+   * @return the calculation configuration names and nodes which alias it, null if the node is not shared
+   */
+  public Collection<Pair<String, DependencyNode>> getAliases(final DependencyNode node) {
+    return _aliases.get(node);
+  }
+
+}
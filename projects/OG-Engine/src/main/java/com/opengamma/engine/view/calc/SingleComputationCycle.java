@@ -23,12 +23,13 @@ import java.util.Set;
 import java.util.TreeMap;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
 
 import javax.time.Duration;
 import javax.time.Instant;
@@ -39,6 +40,7 @@ import org.slf4j.LoggerFactory;
 import com.opengamma.DataNotFoundException;
 import com.opengamma.OpenGammaRuntimeException;
 import com.opengamma.engine.ComputationTargetType;
+import com.opengamma.engine.depgraph.CompiledDependencyGraph;
 import com.opengamma.engine.depgraph.DependencyGraph;
 import com.opengamma.engine.depgraph.DependencyNode;
 import com.opengamma.engine.depgraph.DependencyNodeFilter;
@@ -123,9 +125,14 @@ public class SingleComputationCycle implements ViewCycle, EngineResource {
   private volatile Instant _startTime;
   private volatile Instant _endTime;
 
-  private final Map<DependencyNode, NodeStateFlag> _nodeStates = new ConcurrentHashMap<DependencyNode, NodeStateFlag>();
+  private final ConcurrentMap<DependencyNode, NodeStateFlag> _nodeStates = new ConcurrentHashMap<DependencyNode, NodeStateFlag>();
+  private final Map<DependencyNode, Collection<Pair<String, DependencyNode>>> _sharedNodeAliases = new ConcurrentHashMap<DependencyNode, Collection<Pair<String, DependencyNode>>>();
   private final Map<String, DependencyNodeJobExecutionResultCache> _jobResultCachesByCalculationConfiguration = new ConcurrentHashMap<String, DependencyNodeJobExecutionResultCache>();
   private final Map<String, ViewComputationCache> _cachesByCalculationConfiguration = new HashMap<String, ViewComputationCache>();
+  /**
+   * The compiled forms of the dependency graphs, built when first needed and released once the cycle has executed.
+   */
+  private final ConcurrentMap<String, CompiledDependencyGraph> _compiledGraphsByCalculationConfiguration = new ConcurrentHashMap<String, CompiledDependencyGraph>();
 
   // Output
   private final InMemoryViewComputationResultModel _resultModel;
@@ -347,43 +354,12 @@ public class SingleComputationCycle implements ViewCycle, EngineResource {
     try {
       resultStreamConsumerJobInProgress = calcJobResultExecutorService.submit(calculationJobResultStreamConsumer);
 
-      LinkedList<Future<?>> futures = new LinkedList<Future<?>>();
-
-      for (String calcConfigurationName : getAllCalculationConfigurationNames()) {
-        s_logger.info("Executing plans for calculation configuration {}", calcConfigurationName);
-        final DependencyGraph depGraph = createExecutableDependencyGraph(calcConfigurationName);
-        s_logger.info("Submitting {} for execution by {}", depGraph, getDependencyGraphExecutor());
-        final Future<?> future = getDependencyGraphExecutor().execute(depGraph, calcJobResultQueue, _statisticsGatherer, getLogModeSource());
-        futures.add(future);
-      }
-
-      while (!futures.isEmpty()) {
-        Future<?> future = futures.poll();
-        try {
-          future.get(5, TimeUnit.SECONDS);
-        } catch (TimeoutException e) {
-          s_logger.info("Waiting for " + future);
-          futures.add(future);
-        } catch (InterruptedException e) {
-          Thread.interrupted();
-          // Cancel all outstanding jobs to free up resources
-          future.cancel(true);
-          for (Future<?> incompleteFuture : futures) {
-            incompleteFuture.cancel(true);
-          }
-          _state = ViewCycleState.EXECUTION_INTERRUPTED;
-          s_logger.info("Execution interrupted before completion.");
-          throw e;
-        } catch (ExecutionException e) {
-          s_logger.error("Unable to execute dependency graph", e);
-          // Should we be swallowing this or not?
-          throw new OpenGammaRuntimeException("Unable to execute dependency graph", e);
-        }
-      }
+      executeGraphs(calcJobResultQueue);
 
       _endTime = Instant.now();
     } finally {
       calculationJobResultStreamConsumer.terminate();
+      _compiledGraphsByCalculationConfiguration.clear();
     }
 
     // Wait for calculationJobResultStreamConsumer to finish
@@ -399,6 +375,330 @@ public class SingleComputationCycle implements ViewCycle, EngineResource {
     _state = ViewCycleState.EXECUTED;
   }
 
+  /**
+   * A dependency graph to be executed by the cycle once the stages it depends on have completed.
+   */
+  private abstract static class ExecutionStage {
+
+    private final Collection<ExecutionStage> _dependents = new ArrayList<ExecutionStage>();
+    private int _prerequisites;
+
+    public void addDependent(final ExecutionStage dependent) {
+      _dependents.add(dependent);
+      dependent._prerequisites++;
+    }
+
+    /**
+     * Creates the graph to execute, called once all prerequisite stages have completed.
+     * 
+     * @return the graph, or null if there is nothing to execute
+     */
+    public abstract DependencyGraph createGraph();
+
+    /**
+     * Called once the graph has been executed, or straight after {@link #createGraph} if there was nothing to execute.
+     */
+    public void completed() {
+    }
+
+  }
+
+  /**
+   * Executes the dependency graphs of every calculation configuration.
+   * <p>
+   * The nodes which are identical in more than one configuration are executed once, on behalf of the configuration
+   * which owns them, and their values are copied to the configurations which alias them; see
+   * {@link SharedDependencyNodes}. Each owning configuration's shared nodes form a separate stage, submitted together
+   * with the graphs of the configurations that don't depend on it. A configuration's graph is only submitted when the
+   * shared stages of the configurations owning its aliases, and its own shared stage, have completed; at that point the
+   * aliased nodes have been marked as executed so are not part of the graph. An owning configuration may itself alias
+   * nodes owned by a configuration earlier in name order, so its shared stage also waits for that configuration's.
+   * 
+   * @param calcJobResultQueue the queue to receive the execution results, not null
+   * @throws InterruptedException if the thread is interrupted while waiting for the graphs to execute
+   */
+  private void executeGraphs(final BlockingQueue<ExecutionResult> calcJobResultQueue) throws InterruptedException {
+    final SharedDependencyNodes sharedNodes = getCompiledViewDefinition().getSharedDependencyNodes();
+    final Map<String, Integer> aliasCounts = new HashMap<String, Integer>();
+    final Map<String, ExecutionStage> sharedStages = new HashMap<String, ExecutionStage>();
+    for (String calcConfigurationName : sharedNodes.getOwningConfigurations()) {
+      sharedStages.put(calcConfigurationName, new SharedNodeExecutionStage(calcConfigurationName, sharedNodes, aliasCounts));
+    }
+    final List<ExecutionStage> stages = new ArrayList<ExecutionStage>(sharedStages.values());
+    for (Map.Entry<String, ExecutionStage> sharedStage : sharedStages.entrySet()) {
+      for (String owner : sharedNodes.getAliasedConfigurations(sharedStage.getKey())) {
+        sharedStages.get(owner).addDependent(sharedStage.getValue());
+      }
+    }
+    for (final String calcConfigurationName : getAllCalculationConfigurationNames()) {
+      final ExecutionStage stage = new ExecutionStage() {
+        @Override
+        public DependencyGraph createGraph() {
+          s_logger.info("Executing plans for calculation configuration {}", calcConfigurationName);
+          return createExecutableDependencyGraph(calcConfigurationName);
+        }
+      };
+      final ExecutionStage ownStage = sharedStages.get(calcConfigurationName);
+      if (ownStage != null) {
+        ownStage.addDependent(stage);
+      }
+      for (String owner : sharedNodes.getAliasedConfigurations(calcConfigurationName)) {
+        sharedStages.get(owner).addDependent(stage);
+      }
+      stages.add(stage);
+    }
+    executeStages(stages, calcJobResultQueue);
+    for (Map.Entry<String, Integer> aliasCount : aliasCounts.entrySet()) {
+      s_logger.info("Copied {} nodes to calculation configuration {} rather than executing them", aliasCount.getValue(), aliasCount.getKey());
+      _statisticsGatherer.graphShared(aliasCount.getKey(), aliasCount.getValue());
+    }
+  }
+
+  /**
+   * Submits each stage as soon as its prerequisites have completed and waits for them all to complete. If the thread is
+   * interrupted, the outstanding executions are cancelled.
+   * 
+   * @param stages the stages, not null
+   * @param calcJobResultQueue the queue to receive the execution results, not null
+   * @throws InterruptedException if the thread is interrupted while waiting
+   */
+  private void executeStages(final Collection<ExecutionStage> stages, final BlockingQueue<ExecutionResult> calcJobResultQueue) throws InterruptedException {
+    final LinkedList<ExecutionStage> ready = new LinkedList<ExecutionStage>();
+    for (ExecutionStage stage : stages) {
+      if (stage._prerequisites == 0) {
+        ready.add(stage);
+      }
+    }
+    final LinkedList<Pair<Future<?>, ExecutionStage>> running = new LinkedList<Pair<Future<?>, ExecutionStage>>();
+    final Semaphore executed = new Semaphore(0);
+    final GraphExecutorStatisticsGatherer statistics = new StageStatisticsGatherer(_statisticsGatherer, executed);
+    do {
+      while (!ready.isEmpty()) {
+        final ExecutionStage stage = ready.poll();
+        final DependencyGraph depGraph = stage.createGraph();
+        if ((depGraph == null) || (depGraph.getSize() == 0)) {
+          stageCompleted(stage, ready);
+        } else {
+          s_logger.info("Submitting {} for execution by {}", depGraph, getDependencyGraphExecutor());
+          running.add(Pair.<Future<?>, ExecutionStage>of(getDependencyGraphExecutor().execute(depGraph, calcJobResultQueue, statistics, getLogModeSource()), stage));
+        }
+      }
+      if (!running.isEmpty()) {
+        waitForExecution(running, ready, executed);
+      }
+    } while (!ready.isEmpty() || !running.isEmpty());
+  }
+
+  /**
+   * Waits for at least one of the running graphs to complete, and completes the stages of all graphs that have
+   * finished. The wait is woken by the executor reporting a graph executed; an executor which doesn't report is only
+   * noticed when the wait times out.
+   */
+  private void waitForExecution(final LinkedList<Pair<Future<?>, ExecutionStage>> running, final LinkedList<ExecutionStage> ready, final Semaphore executed)
+      throws InterruptedException {
+    try {
+      if (!completeExecutions(running, ready)) {
+        if (executed.tryAcquire(5000L, TimeUnit.MILLISECONDS)) {
+          executed.drainPermits();
+          completeExecutions(running, ready);
+        } else {
+          s_logger.info("Waiting for {}", running.getFirst().getFirst());
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.interrupted();
+      // Cancel all outstanding jobs to free up resources
+      for (Pair<Future<?>, ExecutionStage> execution : running) {
+        execution.getFirst().cancel(true);
+      }
+      _state = ViewCycleState.EXECUTION_INTERRUPTED;
+      s_logger.info("Execution interrupted before completion.");
+      throw e;
+    } catch (ExecutionException e) {
+      s_logger.error("Unable to execute dependency graph", e);
+      for (Pair<Future<?>, ExecutionStage> execution : running) {
+        execution.getFirst().cancel(true);
+      }
+      throw new OpenGammaRuntimeException("Unable to execute dependency graph", e);
+    }
+  }
+
+  /**
+   * Completes the stages of the running graphs that have finished.
+   * 
+   * @return true if any graph had finished, false otherwise
+   */
+  private static boolean completeExecutions(final LinkedList<Pair<Future<?>, ExecutionStage>> running, final LinkedList<ExecutionStage> ready)
+      throws InterruptedException, ExecutionException {
+    boolean completed = false;
+    final Iterator<Pair<Future<?>, ExecutionStage>> itr = running.iterator();
+    while (itr.hasNext()) {
+      final Pair<Future<?>, ExecutionStage> execution = itr.next();
+      if (execution.getFirst().isDone()) {
+        execution.getFirst().get();
+        itr.remove();
+        stageCompleted(execution.getSecond(), ready);
+        completed = true;
+      }
+    }
+    return completed;
+  }
+
+  private static void stageCompleted(final ExecutionStage stage, final LinkedList<ExecutionStage> ready) {
+    stage.completed();
+    for (ExecutionStage dependent : stage._dependents) {
+      if (--dependent._prerequisites == 0) {
+        ready.add(dependent);
+      }
+    }
+  }
+
+  /**
+   * Passes statistics to the cycle's gatherer, waking the stage scheduler when a graph has been executed.
+   */
+  private static final class StageStatisticsGatherer implements GraphExecutorStatisticsGatherer {
+
+    private final GraphExecutorStatisticsGatherer _underlying;
+    private final Semaphore _executed;
+
+    public StageStatisticsGatherer(final GraphExecutorStatisticsGatherer underlying, final Semaphore executed) {
+      _underlying = underlying;
+      _executed = executed;
+    }
+
+    @Override
+    public void graphProcessed(final String calcConfig, final int totalJobs, final double meanJobSize, final double meanJobCycleCost, final double meanJobIOCost) {
+      _underlying.graphProcessed(calcConfig, totalJobs, meanJobSize, meanJobCycleCost, meanJobIOCost);
+    }
+
+    @Override
+    public void graphExecuted(final String calcConfig, final int nodeCount, final long executionTime, final long duration) {
+      try {
+        _underlying.graphExecuted(calcConfig, nodeCount, executionTime, duration);
+      } finally {
+        _executed.release();
+      }
+    }
+
+    @Override
+    public void graphShared(final String calcConfig, final int nodeCount) {
+      _underlying.graphShared(calcConfig, nodeCount);
+    }
+
+  }
+
+  /**
+   * The execution of the nodes owned by a calculation configuration that are shared with others.
+   */
+  private final class SharedNodeExecutionStage extends ExecutionStage {
+
+    private final String _calcConfigurationName;
+    private final SharedDependencyNodes _sharedNodes;
+    private final Map<String, Integer> _aliasCounts;
+
+    public SharedNodeExecutionStage(final String calcConfigurationName, final SharedDependencyNodes sharedNodes, final Map<String, Integer> aliasCounts) {
+      _calcConfigurationName = calcConfigurationName;
+      _sharedNodes = sharedNodes;
+      _aliasCounts = aliasCounts;
+    }
+
+    /**
+     * Creates a graph of the shared nodes which have not been satisfied from the previous cycle. Aliases satisfied from
+     * the previous cycle are left alone, as are aliases whose owner could not be satisfied; these are executed with the
+     * rest of their configuration's graph.
+     */
+    @Override
+    public DependencyGraph createGraph() {
+      final Set<DependencyNode> executableNodes = new HashSet<DependencyNode>();
+      for (DependencyNode node : _sharedNodes.getOwnedNodes(_calcConfigurationName)) {
+        if (getNodeState(node) != null) {
+          continue;
+        }
+        executableNodes.add(node);
+        // The aliases must be known before any results arrive from the execution
+        final Collection<Pair<String, DependencyNode>> aliases = new ArrayList<Pair<String, DependencyNode>>();
+        for (Pair<String, DependencyNode> alias : _sharedNodes.getAliases(node)) {
+          if (getNodeState(alias.getSecond()) == null) {
+            aliases.add(alias);
+          }
+        }
+        if (!aliases.isEmpty()) {
+          _sharedNodeAliases.put(node, aliases);
+        }
+      }
+      if (executableNodes.isEmpty()) {
+        return null;
+      }
+      s_logger.info("Executing nodes of calculation configuration {} shared with other configurations", _calcConfigurationName);
+      return new SharedNodeDependencyGraph(createExecutableDependencyGraph(_calcConfigurationName, executableNodes));
+    }
+
+    @Override
+    public void completed() {
+      final InMemoryViewComputationResultModel fragmentResultModel = constructTemplateResultModel();
+      copySharedNodeValues(_calcConfigurationName, _sharedNodes.getOwnedNodes(_calcConfigurationName), _sharedNodes, fragmentResultModel, _aliasCounts);
+      if (!fragmentResultModel.getAllResults().isEmpty()) {
+        notifyFragmentCompleted(fragmentResultModel);
+      }
+    }
+
+  }
+
+  /**
+   * Copies the state and values of the shared nodes owned by a calculation configuration to any unsatisfied aliases.
+   * Results of the nodes executed by this cycle are added to the result model as they are received, see
+   * {@link #processExecutionResult}; results of nodes copied from the previous cycle are added here.
+   */
+  private void copySharedNodeValues(final String calcConfigurationName, final Set<DependencyNode> ownedNodes, final SharedDependencyNodes sharedNodes,
+      final InMemoryViewComputationResultModel fragmentResultModel, final Map<String, Integer> aliasCounts) {
+    final ViewComputationCache ownerCache = getComputationCache(calcConfigurationName);
+    final DependencyNodeJobExecutionResultCache ownerJobExecutionResultCache = getJobExecutionResultCache(calcConfigurationName);
+    final Map<String, Collection<ComputedValue>> copies = new HashMap<String, Collection<ComputedValue>>();
+    for (DependencyNode node : ownedNodes) {
+      final Collection<Pair<String, DependencyNode>> executedAliases = _sharedNodeAliases.get(node);
+      final NodeStateFlag state = getNodeState(node);
+      if ((executedAliases == null) && (state == null)) {
+        continue;
+      }
+      final Collection<Pair<String, DependencyNode>> aliases = (executedAliases != null) ? executedAliases : sharedNodes.getAliases(node);
+      Collection<Pair<ValueSpecification, Object>> values = null;
+      for (Pair<String, DependencyNode> alias : aliases) {
+        // The graph executor may deliver a result before marking the node, so assume success; the result will correct it
+        if (_nodeStates.putIfAbsent(alias.getSecond(), (state != null) ? state : NodeStateFlag.EXECUTED) != null) {
+          if (executedAliases == null) {
+            // Satisfied from the previous cycle
+            continue;
+          }
+        }
+        if (values == null) {
+          values = ownerCache.getValues(node.getOutputValues(), CacheSelectHint.allShared());
+        }
+        Collection<ComputedValue> aliasCopies = copies.get(alias.getFirst());
+        if (aliasCopies == null) {
+          aliasCopies = new ArrayList<ComputedValue>();
+          copies.put(alias.getFirst(), aliasCopies);
+        }
+        for (Pair<ValueSpecification, Object> value : values) {
+          if (value.getSecond() != null) {
+            aliasCopies.add(new ComputedValue(value.getFirst(), value.getSecond()));
+          }
+        }
+        final Integer aliasCount = aliasCounts.get(alias.getFirst());
+        aliasCounts.put(alias.getFirst(), (aliasCount != null) ? aliasCount + 1 : 1);
+        if ((executedAliases == null) && (state == NodeStateFlag.EXECUTED)) {
+          final DependencyNodeJobExecutionResult jobExecutionResult = ownerJobExecutionResultCache.find(node.getOutputValues());
+          if (jobExecutionResult != null) {
+            processDependencyNodeResult(jobExecutionResult, getDependencyGraph(alias.getFirst()), alias.getSecond(), ownerCache,
+                fragmentResultModel, getResultModel(), getJobExecutionResultCache(alias.getFirst()));
+          }
+        }
+      }
+    }
+    for (Map.Entry<String, Collection<ComputedValue>> aliasCopies : copies.entrySet()) {
+      getComputationCache(aliasCopies.getKey()).putSharedValues(aliasCopies.getValue());
+    }
+  }
+
   /**
    * Creates a map containing the "shift" operations to apply to market data or each calculation configuration. If there is no operation to apply, the map contains null for that configuration.
    * 
@@ -530,26 +830,31 @@ public class SingleComputationCycle implements ViewCycle, EngineResource {
    * </ul>
    * 
    * @param previousCycle Previous iteration. It must not have been cleaned yet ({@link #releaseResources()}).
+   * @throws InterruptedException if the thread is interrupted while waiting for the deltas to be computed
    */
-  private void computeDelta(SingleComputationCycle previousCycle) {
+  private void computeDelta(SingleComputationCycle previousCycle) throws InterruptedException {
     if (previousCycle.getState() != ViewCycleState.EXECUTED) {
       throw new IllegalArgumentException("State of previous cycle must be " + ViewCycleState.EXECUTED);
     }
     final InMemoryViewComputationResultModel fragmentResultModel = constructTemplateResultModel();
     final InMemoryViewComputationResultModel fullResultModel = getResultModel();
+    final Map<String, LiveDataDeltaCalculator> deltaCalculators = computeDeltas(previousCycle);
     for (String calcConfigurationName : getAllCalculationConfigurationNames()) {
-      final DependencyGraph depGraph = getCompiledViewDefinition().getDependencyGraph(calcConfigurationName);
+      final CompiledDependencyGraph compiledGraph = getCompiledDependencyGraph(calcConfigurationName);
+      final DependencyGraph depGraph = compiledGraph.getDependencyGraph();
       final ViewComputationCache cache = getComputationCache(calcConfigurationName);
-      final ViewComputationCache previousCache = previousCycle.getComputationCache(calcConfigurationName);
       final DependencyNodeJobExecutionResultCache jobExecutionResultCache = getJobExecutionResultCache(calcConfigurationName);
       final DependencyNodeJobExecutionResultCache previousJobExecutionResultCache = previousCycle.getJobExecutionResultCache(calcConfigurationName);
-      final LiveDataDeltaCalculator deltaCalculator = new LiveDataDeltaCalculator(depGraph, cache, previousCache);
-      deltaCalculator.computeDelta();
+      final LiveDataDeltaCalculator deltaCalculator = deltaCalculators.get(calcConfigurationName);
       s_logger.info("Computed delta for calculation configuration '{}'. {} nodes out of {} require recomputation.",
-          new Object[] {calcConfigurationName, deltaCalculator.getChangedNodes().size(), depGraph.getSize() });
+          new Object[] {calcConfigurationName, deltaCalculator.getChangedNodeCount(), compiledGraph.getSize() });
       final Collection<ValueSpecification> specsToCopy = new LinkedList<ValueSpecification>();
       final Collection<ComputedValue> errors = new LinkedList<ComputedValue>();
-      for (DependencyNode unchangedNode : deltaCalculator.getUnchangedNodes()) {
+      for (int i = 0; i < compiledGraph.getSize(); i++) {
+        if (deltaCalculator.isChanged(i)) {
+          continue;
+        }
+        final DependencyNode unchangedNode = compiledGraph.getNode(i);
         final DependencyNodeJobExecutionResult previousExecutionResult = previousJobExecutionResultCache.find(unchangedNode.getOutputValues());
         if (getLogModeSource().getLogMode(unchangedNode.getOutputValues()) == ExecutionLogMode.FULL
             && (previousExecutionResult == null || previousExecutionResult.getJobResultItem().getExecutionLog().getEvents() == null)) {
@@ -597,6 +902,51 @@ public class SingleComputationCycle implements ViewCycle, EngineResource {
     }
   }
 
+  /**
+   * Runs the live data delta calculations for every calculation configuration. The configurations are independent so are
+   * calculated concurrently, using the function compilation executor, with one on the calling thread.
+   * 
+   * @param previousCycle Previous iteration. It must not have been cleaned yet.
+   * @return the completed delta calculators, keyed by calculation configuration name
+   * @throws InterruptedException if the thread is interrupted while waiting for the deltas to be computed
+   */
+  private Map<String, LiveDataDeltaCalculator> computeDeltas(final SingleComputationCycle previousCycle) throws InterruptedException {
+    final Map<String, LiveDataDeltaCalculator> deltaCalculators = new HashMap<String, LiveDataDeltaCalculator>();
+    for (String calcConfigurationName : getAllCalculationConfigurationNames()) {
+      deltaCalculators.put(calcConfigurationName, new LiveDataDeltaCalculator(getCompiledDependencyGraph(calcConfigurationName),
+          getComputationCache(calcConfigurationName), previousCycle.getComputationCache(calcConfigurationName)));
+    }
+    final List<Future<?>> futures = new ArrayList<Future<?>>(deltaCalculators.size());
+    LiveDataDeltaCalculator localCalculator = null;
+    for (final LiveDataDeltaCalculator deltaCalculator : deltaCalculators.values()) {
+      if (localCalculator == null) {
+        localCalculator = deltaCalculator;
+      } else {
+        futures.add(getViewProcessContext().getFunctionCompilationService().getExecutorService().submit(new Runnable() {
+          @Override
+          public void run() {
+            deltaCalculator.computeDelta();
+          }
+        }));
+      }
+    }
+    try {
+      if (localCalculator != null) {
+        localCalculator.computeDelta();
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } catch (ExecutionException e) {
+      throw new OpenGammaRuntimeException("Unable to compute delta from previous cycle", e.getCause());
+    } finally {
+      for (Future<?> future : futures) {
+        future.cancel(true);
+      }
+    }
+    return deltaCalculators;
+  }
+
   private void completeResultModel() {
     getResultModel().setCalculationTime(Instant.now());
     getResultModel().setCalculationDuration(getDuration());
@@ -652,6 +1002,15 @@ public class SingleComputationCycle implements ViewCycle, EngineResource {
       String computeNodeId = executionResult.getResult().getComputeNodeId();
       DependencyNodeJobExecutionResult jobExecutionResult = new DependencyNodeJobExecutionResult(computeNodeId, jobResultItem);
       processDependencyNodeResult(jobExecutionResult, depGraph, node, computationCache, fragmentResultModel, fullResultModel, jobExecutionResultCache);
+      final Collection<Pair<String, DependencyNode>> aliases = _sharedNodeAliases.get(node);
+      if (aliases != null) {
+        // The values were copied to the aliases' caches, but reading them from the owner's cache avoids waiting for that
+        for (Pair<String, DependencyNode> alias : aliases) {
+          setNodeState(alias.getSecond(), jobResultItem.isFailed() ? NodeStateFlag.FAILED : NodeStateFlag.EXECUTED);
+          processDependencyNodeResult(jobExecutionResult, getCompiledViewDefinition().getDependencyGraph(alias.getFirst()), alias.getSecond(), computationCache,
+              fragmentResultModel, fullResultModel, getJobExecutionResultCache(alias.getFirst()));
+        }
+      }
     }
   }
 
@@ -693,6 +1052,25 @@ public class SingleComputationCycle implements ViewCycle, EngineResource {
     return getCompiledViewDefinition().getDependencyGraph(calcConfName);
   }
 
+  /**
+   * Returns the compiled form of the dependency graph used by this cycle for the given calculation configuration. This is
+   * built when first requested and only held while the cycle executes.
+   * 
+   * @param calcConfName calculation configuration name
+   * @return the compiled dependency graph
+   */
+  protected CompiledDependencyGraph getCompiledDependencyGraph(String calcConfName) {
+    CompiledDependencyGraph compiled = _compiledGraphsByCalculationConfiguration.get(calcConfName);
+    if (compiled == null) {
+      compiled = new CompiledDependencyGraph(getDependencyGraph(calcConfName));
+      final CompiledDependencyGraph existing = _compiledGraphsByCalculationConfiguration.putIfAbsent(calcConfName, compiled);
+      if (existing != null) {
+        compiled = existing;
+      }
+    }
+    return compiled;
+  }
+
   /**
    * Creates a subset of the dependency graph for execution. This will only include nodes that do are not dummy ones to source market data, have been considered executed by a delta from the previous
    * cycle, or are being suppressed by the execution blacklist. Note that this will update the cache with synthetic output values from suppressed nodes and alter the execution state of any nodes not
@@ -702,9 +1080,24 @@ public class SingleComputationCycle implements ViewCycle, EngineResource {
    * @return a dependency graph with any nodes which have already been satisfied filtered out, not null See {@link #computeDelta} and how it calls {@link #markExecuted}.
    */
   private DependencyGraph createExecutableDependencyGraph(final String calcConfName) {
+    return createExecutableDependencyGraph(calcConfName, null);
+  }
+
+  /**
+   * Creates a subset of the dependency graph for execution, as {@link #createExecutableDependencyGraph(String)}, which
+   * may be further restricted to a set of nodes.
+   * 
+   * @param calcConfName calculation configuration name
+   * @param nodes the nodes to consider for execution, null for all nodes in the graph
+   * @return a dependency graph with any nodes which have already been satisfied filtered out, not null
+   */
+  private DependencyGraph createExecutableDependencyGraph(final String calcConfName, final Set<DependencyNode> nodes) {
     final FunctionBlacklistQuery blacklist = getViewProcessContext().getFunctionCompilationService().getFunctionCompilationContext().getGraphExecutionBlacklist();
-    return getDependencyGraph(calcConfName).subGraph(new DependencyNodeFilter() {
+    return getCompiledDependencyGraph(calcConfName).subGraph(new DependencyNodeFilter() {
       public boolean accept(final DependencyNode node) {
+        if ((nodes != null) && !nodes.contains(node)) {
+          return false;
+        }
         // Market data functions must not be executed
         if (node.getFunction().getFunction() instanceof MarketDataSourcingFunction) {
           markExecuted(node);
@@ -736,6 +1129,28 @@ public class SingleComputationCycle implements ViewCycle, EngineResource {
     });
   }
 
+  /**
+   * Dependency graph for the execution of nodes shared between calculation configurations. Every output is reported as
+   * terminal so that the graph executors write them all to the shared cache, from where they are copied to the
+   * configurations that alias the nodes. The nodes themselves are not altered, so this does not change which values are
+   * considered terminal by the result model.
+   */
+  private static final class SharedNodeDependencyGraph extends DependencyGraph {
+
+    public SharedNodeDependencyGraph(final DependencyGraph graph) {
+      super(graph.getCalculationConfigurationName());
+      for (DependencyNode node : graph.getExecutionOrder()) {
+        addDependencyNode(node);
+      }
+    }
+
+    @Override
+    public Set<ValueSpecification> getTerminalOutputSpecifications() {
+      return getOutputSpecifications();
+    }
+
+  }
+
   //--------------------------------------------------------------------------
   @Override
   public void release() {
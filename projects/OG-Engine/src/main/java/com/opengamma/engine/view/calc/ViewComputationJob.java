@@ -19,6 +19,8 @@ import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 
 import javax.time.Duration;
@@ -31,9 +33,11 @@ import com.google.common.collect.Sets;
 import com.opengamma.DataNotFoundException;
 import com.opengamma.OpenGammaRuntimeException;
 import com.opengamma.core.change.ChangeListener;
+import com.opengamma.core.position.PositionSource;
 import com.opengamma.engine.ComputationTargetSpecification;
 import com.opengamma.engine.depgraph.DependencyGraph;
 import com.opengamma.engine.marketdata.MarketDataListener;
+import com.opengamma.engine.marketdata.MarketDataPermissionProvider;
 import com.opengamma.engine.marketdata.MarketDataSnapshot;
 import com.opengamma.engine.marketdata.availability.MarketDataAvailabilityProvider;
 import com.opengamma.engine.marketdata.spec.MarketDataSpecification;
@@ -53,6 +57,7 @@ import com.opengamma.engine.view.calc.trigger.ViewCycleTrigger;
 import com.opengamma.engine.view.calc.trigger.ViewCycleTriggerResult;
 import com.opengamma.engine.view.calc.trigger.ViewCycleType;
 import com.opengamma.engine.view.compilation.CompiledViewDefinitionWithGraphsImpl;
+import com.opengamma.engine.view.compilation.ViewCompilationContext;
 import com.opengamma.engine.view.compilation.ViewCompilationServices;
 import com.opengamma.engine.view.compilation.ViewDefinitionCompiler;
 import com.opengamma.engine.view.execution.ViewCycleExecutionOptions;
@@ -73,6 +78,7 @@ public class ViewComputationJob extends TerminatableJob implements MarketDataLis
 
   private static final long NANOS_PER_MILLISECOND = 1000000;
   private static final long MARKET_DATA_TIMEOUT_MILLIS = 10000;
+  private static final long PIPELINE_POLL_MILLIS = 1000;
 
   private final ViewProcessImpl _viewProcess;
   private final ViewExecutionOptions _executionOptions;
@@ -83,6 +89,15 @@ public class ViewComputationJob extends TerminatableJob implements MarketDataLis
   private final boolean _executeCycles;
   private final ExecutorService _calcJobResultExecutor = Executors.newSingleThreadExecutor();
 
+  /**
+   * Delivers notifications to the view process when cycles are pipelined, null otherwise.
+   */
+  private final ExecutorService _notificationExecutor;
+  /**
+   * The cycles that may be awaiting delivery of their results when cycles are pipelined, null otherwise.
+   */
+  private final Semaphore _pipelineSlots;
+
   private int _cycleCount;
   private EngineResourceReference<SingleComputationCycle> _previousCycleReference;
 
@@ -93,13 +108,18 @@ public class ViewComputationJob extends TerminatableJob implements MarketDataLis
   private CountDownLatch _pendingSubscriptionLatch;
 
   private ChangeListener _viewDefinitionChangeListener;
+  private PortfolioChangeListener _portfolioChangeListener;
+  private PositionSource _portfolioChangeSource;
+  private ViewCompilationContext _incrementalCompilationContext;
 
   private volatile boolean _wakeOnMarketDataChanged;
   private volatile boolean _marketDataChanged = true;
   private volatile boolean _forceTriggerCycle;
   private volatile boolean _viewDefinitionDirty = true;
   private volatile boolean _compilationDirty;
+  private volatile boolean _portfolioDirty;
   private volatile Future<CompiledViewDefinitionWithGraphsImpl> _compilationTask;
+  private volatile boolean _processCompleted;
 
   /**
    * Nanoseconds
@@ -124,8 +144,19 @@ public class ViewComputationJob extends TerminatableJob implements MarketDataLis
     _compilationExpiryCycleTrigger = new FixedTimeTrigger();
     _masterCycleTrigger = createViewCycleTrigger(executionOptions);
     _executeCycles = !getExecutionOptions().getFlags().contains(ViewExecutionFlags.COMPILE_ONLY);
+    final int pipelineDepth = viewProcess.getCyclePipelineDepth();
+    if (executionOptions.getFlags().contains(ViewExecutionFlags.PIPELINE_CYCLES) && (pipelineDepth > 0)) {
+      _notificationExecutor = Executors.newSingleThreadExecutor();
+      _pipelineSlots = new Semaphore(pipelineDepth);
+    } else {
+      _notificationExecutor = null;
+      _pipelineSlots = null;
+    }
     updateViewDefinitionIfRequired();
     subscribeToViewDefinition();
+    if (executionOptions.getFlags().contains(ViewExecutionFlags.INCREMENTAL_COMPILATION)) {
+      subscribeToPortfolio();
+    }
   }
 
   private ViewCycleTrigger createViewCycleTrigger(final ViewExecutionOptions executionOptions) {
@@ -326,7 +357,10 @@ public class ViewComputationJob extends TerminatableJob implements MarketDataLis
     }
 
     if (_executeCycles) {
-      cycleCompleted(cycleReference.get());
+      if (!cycleCompleted(cycleReference)) {
+        cycleReference.release();
+        return;
+      }
     }
 
     if (getExecutionOptions().getExecutionSequence().isEmpty()) {
@@ -341,53 +375,156 @@ public class ViewComputationJob extends TerminatableJob implements MarketDataLis
     }
   }
 
-  private void cycleCompleted(final ViewCycle cycle) {
+  /**
+   * Passes a notification to the view process. When cycles are pipelined, notifications are delivered in order on a
+   * separate thread so that the next cycle can execute while the view process, and its listeners, handle the results
+   * of earlier ones. Otherwise the notification is delivered immediately.
+   *
+   * @param notification  the notification, not null
+   */
+  private void notifyViewProcess(final Runnable notification) {
+    if (_notificationExecutor == null) {
+      notification.run();
+      return;
+    }
     try {
-      getViewProcess().cycleCompleted(cycle);
-    } catch (final Exception e) {
-      s_logger.error("Error notifying view process " + getViewProcess() + " of view cycle completion", e);
+      _notificationExecutor.execute(notification);
+    } catch (final RejectedExecutionException e) {
+      s_logger.debug("Discarding notification to view process {} after job termination", getViewProcess());
     }
   }
 
-  private void cycleStarted(final ViewCycleMetadata cycleMetadata) {
+  /**
+   * Notifies the view process of a completed cycle. When cycles are pipelined this waits for one of the pipeline slots
+   * to become available, so that the number of cycles awaiting delivery stays bounded, and takes a reference to the
+   * cycle that is held until its results have been delivered.
+   *
+   * @param cycleReference  the cycle, not null
+   * @return false if the job was terminated while waiting, true otherwise
+   */
+  private boolean cycleCompleted(final EngineResourceReference<SingleComputationCycle> cycleReference) {
+    if (_pipelineSlots == null) {
+      cycleCompleted(cycleReference.get());
+      return true;
+    }
     try {
-      getViewProcess().cycleStarted(cycleMetadata);
-    } catch (final Exception e) {
-      s_logger.error("Error notifying view process " + getViewProcess() + " of view cycle starting", e);
+      while (!_pipelineSlots.tryAcquire(PIPELINE_POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+        s_logger.debug("Waiting for results of earlier cycles to be delivered for view process {}", getViewProcess());
+        if (isTerminated()) {
+          return false;
+        }
+      }
+    } catch (final InterruptedException e) {
+      s_logger.info("Interrupted while waiting for results of earlier cycles to be delivered");
+      return false;
     }
+    final EngineResourceReference<SingleComputationCycle> deliveryReference = getCycleManager().createReference(cycleReference.get().getUniqueId());
+    notifyViewProcess(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          if (isCycleDeliverable()) {
+            cycleCompleted(deliveryReference.get());
+          }
+        } finally {
+          deliveryReference.release();
+          _pipelineSlots.release();
+        }
+      }
+    });
+    return true;
   }
 
-  private void cycleFragmentCompleted(final ViewComputationResultModel result) {
+  /**
+   * Tests whether a queued cycle notification should still be delivered. After the job is terminated the started,
+   * fragment and completed notifications of cycles still in the pipeline are all dropped, so a listener never sees
+   * part of a cycle. A job terminating because its execution sequence is exhausted still delivers its queued results.
+   *
+   * @return true to deliver the notification, false to drop it
+   */
+  private boolean isCycleDeliverable() {
+    return !isTerminated() || _processCompleted;
+  }
 
+  private void cycleCompleted(final ViewCycle cycle) {
     try {
-      getViewProcess().cycleFragmentCompleted(result, _viewDefinition);
+      getViewProcess().cycleCompleted(cycle);
     } catch (final Exception e) {
-      s_logger.error("Error notifying view process " + getViewProcess() + " of cycle fragment completion", e);
+      s_logger.error("Error notifying view process " + getViewProcess() + " of view cycle completion", e);
     }
   }
 
+  private void cycleStarted(final ViewCycleMetadata cycleMetadata) {
+    notifyViewProcess(new Runnable() {
+      @Override
+      public void run() {
+        if (!isCycleDeliverable()) {
+          return;
+        }
+        try {
+          getViewProcess().cycleStarted(cycleMetadata);
+        } catch (final Exception e) {
+          s_logger.error("Error notifying view process " + getViewProcess() + " of view cycle starting", e);
+        }
+      }
+    });
+  }
+
+  private void cycleFragmentCompleted(final ViewComputationResultModel result) {
+    final ViewDefinition viewDefinition = _viewDefinition;
+    notifyViewProcess(new Runnable() {
+      @Override
+      public void run() {
+        if (!isCycleDeliverable()) {
+          return;
+        }
+        try {
+          getViewProcess().cycleFragmentCompleted(result, viewDefinition);
+        } catch (final Exception e) {
+          s_logger.error("Error notifying view process " + getViewProcess() + " of cycle fragment completion", e);
+        }
+      }
+    });
+  }
+
   private void cycleExecutionFailed(final ViewCycleExecutionOptions executionOptions, final Exception exception) {
-    try {
-      getViewProcess().cycleExecutionFailed(executionOptions, exception);
-    } catch (final Exception vpe) {
-      s_logger.error("Error notifying the view process " + getViewProcess() + " of the cycle execution error", vpe);
-    }
+    notifyViewProcess(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          getViewProcess().cycleExecutionFailed(executionOptions, exception);
+        } catch (final Exception vpe) {
+          s_logger.error("Error notifying the view process " + getViewProcess() + " of the cycle execution error", vpe);
+        }
+      }
+    });
   }
 
   private void viewDefinitionCompiled(final CompiledViewDefinitionWithGraphsImpl compiledViewDefinition) {
-    try {
-      getViewProcess().viewDefinitionCompiled(compiledViewDefinition, _marketDataProvider.getPermissionProvider());
-    } catch (final Exception vpe) {
-      s_logger.error("Error notifying view process " + getViewProcess() + " of view definition compilation");
-    }
+    final MarketDataPermissionProvider permissionProvider = _marketDataProvider.getPermissionProvider();
+    notifyViewProcess(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          getViewProcess().viewDefinitionCompiled(compiledViewDefinition, permissionProvider);
+        } catch (final Exception vpe) {
+          s_logger.error("Error notifying view process " + getViewProcess() + " of view definition compilation");
+        }
+      }
+    });
   }
 
   private void viewDefinitionCompilationFailed(final Instant compilationTime, final Exception e) {
-    try {
-      getViewProcess().viewDefinitionCompilationFailed(compilationTime, e);
-    } catch (final Exception vpe) {
-      s_logger.error("Error notifying the view process " + getViewProcess() + " of the view definition compilation failure", vpe);
-    }
+    notifyViewProcess(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          getViewProcess().viewDefinitionCompilationFailed(compilationTime, e);
+        } catch (final Exception vpe) {
+          s_logger.error("Error notifying the view process " + getViewProcess() + " of the view definition compilation failure", vpe);
+        }
+      }
+    });
   }
 
   private synchronized ViewCycleType waitForNextCycle() throws InterruptedException {
@@ -489,8 +626,13 @@ public class ViewComputationJob extends TerminatableJob implements MarketDataLis
       _previousCycleReference.release();
     }
     unsubscribeFromViewDefinition();
+    unsubscribeFromPortfolio();
     removeMarketDataProvider();
     invalidateCachedCompiledViewDefinition();
+    if (_notificationExecutor != null) {
+      // Any notifications still queued are delivered before the thread exits
+      _notificationExecutor.shutdown();
+    }
   }
 
   @Override
@@ -504,11 +646,17 @@ public class ViewComputationJob extends TerminatableJob implements MarketDataLis
 
   private void processCompleted() {
     s_logger.info("Computation job completed for view process {}", getViewProcess());
-    try {
-      getViewProcess().processCompleted();
-    } catch (final Exception e) {
-      s_logger.error("Error notifying view process " + getViewProcess() + " of computation job completion", e);
-    }
+    _processCompleted = true;
+    notifyViewProcess(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          getViewProcess().processCompleted();
+        } catch (final Exception e) {
+          s_logger.error("Error notifying view process " + getViewProcess() + " of computation job completion", e);
+        }
+      }
+    });
     terminate();
   }
 
@@ -529,6 +677,16 @@ public class ViewComputationJob extends TerminatableJob implements MarketDataLis
     _compilationDirty = true;
   }
 
+  /**
+   * Indicates that the portfolio has changed. If the job is using incremental compilation, the graphs will be updated to reflect
+   * the change before the next cycle which is triggered immediately.
+   */
+  public void dirtyPortfolio() {
+    s_logger.info("Marking portfolio as dirty for view process {}", getViewProcess());
+    _portfolioDirty = true;
+    triggerCycle();
+  }
+
   public synchronized void triggerCycle() {
     s_logger.debug("Cycle triggered manually");
     _forceTriggerCycle = true;
@@ -589,15 +747,30 @@ public class ViewComputationJob extends TerminatableJob implements MarketDataLis
     } else {
       compiledViewDefinition = getCachedCompiledViewDefinition();
     }
+    final boolean portfolioDirty = _portfolioDirty;
+    _portfolioDirty = false;
+    ViewCompilationContext incrementalContext = null;
     if (compiledViewDefinition != null && compiledViewDefinition.isValidFor(valuationTime) && functionInitId == compiledViewDefinition.getFunctionInitId()) {
-      // Existing cached model is valid (an optimisation for the common case of similar, increasing valuation times)
-      return compiledViewDefinition;
+      if (!portfolioDirty) {
+        // Existing cached model is valid (an optimisation for the common case of similar, increasing valuation times)
+        return compiledViewDefinition;
+      }
+      // Only the portfolio has changed so the existing graph building state can be reused
+      incrementalContext = _incrementalCompilationContext;
     }
 
     try {
       final MarketDataAvailabilityProvider availabilityProvider = _marketDataProvider.getAvailabilityProvider();
       final ViewCompilationServices compilationServices = getProcessContext().asCompilationServices(availabilityProvider);
-      _compilationTask = ViewDefinitionCompiler.compileTask(_viewDefinition, compilationServices, valuationTime, versionCorrection);
+      if (_portfolioChangeListener != null) {
+        if (incrementalContext == null) {
+          incrementalContext = ViewDefinitionCompiler.createIncrementalContext(_viewDefinition, compilationServices, valuationTime);
+        }
+        _incrementalCompilationContext = incrementalContext;
+        _compilationTask = ViewDefinitionCompiler.compileTask(incrementalContext, versionCorrection);
+      } else {
+        _compilationTask = ViewDefinitionCompiler.compileTask(_viewDefinition, compilationServices, valuationTime, versionCorrection);
+      }
       try {
         if (!isTerminated()) {
           compiledViewDefinition = _compilationTask.get();
@@ -608,11 +781,20 @@ public class ViewComputationJob extends TerminatableJob implements MarketDataLis
         _compilationTask = null;
       }
     } catch (final Exception e) {
+      // The graph building state may be incomplete, or the builders cancelled
+      _incrementalCompilationContext = null;
       final String message = MessageFormat.format("Error compiling view definition {0} for time {1}", getViewProcess().getDefinitionId(), valuationTime);
       viewDefinitionCompilationFailed(valuationTime, new OpenGammaRuntimeException(message, e));
       throw new OpenGammaRuntimeException(message, e);
     }
     setCachedCompiledViewDefinition(compiledViewDefinition);
+    if (_portfolioChangeListener != null) {
+      if ((_incrementalCompilationContext != null) && _incrementalCompilationContext.isExcessiveState()) {
+        // Mostly holding state for targets no longer in the portfolio; start again at the next change
+        _incrementalCompilationContext = null;
+      }
+      _portfolioChangeListener.setPortfolio(compiledViewDefinition.getPortfolio());
+    }
     // [PLAT-984]
     // Assume that valuation times are increasing in real-time towards the expiry of the view definition, so that we
     // can predict the time to expiry. If this assumption is wrong then the worst we do is trigger an unnecessary
@@ -654,6 +836,7 @@ public class ViewComputationJob extends TerminatableJob implements MarketDataLis
 
   private void invalidateCachedCompiledViewDefinition() {
     _latestCompiledViewDefinition = null;
+    _incrementalCompilationContext = null;
   }
 
   /**
@@ -703,6 +886,29 @@ public class ViewComputationJob extends TerminatableJob implements MarketDataLis
     _viewDefinitionChangeListener = null;
   }
 
+  private void subscribeToPortfolio() {
+    if (_portfolioChangeListener != null) {
+      return;
+    }
+    final PositionSource positionSource = getProcessContext().getComputationTargetResolver().getPositionSource();
+    if (positionSource == null) {
+      s_logger.warn("No position source available for incremental compilation of view process {}", getViewProcess());
+      return;
+    }
+    _portfolioChangeListener = new PortfolioChangeListener(this);
+    _portfolioChangeSource = positionSource;
+    positionSource.changeManager().addChangeListener(_portfolioChangeListener);
+  }
+
+  private void unsubscribeFromPortfolio() {
+    if (_portfolioChangeListener == null) {
+      return;
+    }
+    _portfolioChangeSource.changeManager().removeChangeListener(_portfolioChangeListener);
+    _portfolioChangeListener = null;
+    _portfolioChangeSource = null;
+  }
+
   //-------------------------------------------------------------------------
   private void replaceMarketDataProvider(final List<MarketDataSpecification> marketDataSpecs) {
     removeMarketDataProvider();
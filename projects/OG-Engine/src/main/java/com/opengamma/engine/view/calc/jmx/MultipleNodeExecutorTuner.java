@@ -0,0 +1,110 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ * 
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.view.calc.jmx;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * MultipleNodeExecutorTunerMBean implementation.
+ */
+public final class MultipleNodeExecutorTuner implements MultipleNodeExecutorTunerMBean {
+
+  private static final Logger s_logger = LoggerFactory.getLogger(MultipleNodeExecutorTuner.class);
+
+  private final com.opengamma.engine.view.calc.MultipleNodeExecutorTuner _underlying;
+
+  private MultipleNodeExecutorTuner(final com.opengamma.engine.view.calc.MultipleNodeExecutorTuner underlying) {
+    _underlying = underlying;
+  }
+
+  private com.opengamma.engine.view.calc.MultipleNodeExecutorTuner getUnderlying() {
+    return _underlying;
+  }
+
+  public static void registerMBeans(final com.opengamma.engine.view.calc.MultipleNodeExecutorTuner tuner, final MBeanServer server) throws JMException {
+    final ObjectName name = new ObjectName("com.opengamma:type=MultipleNodeExecutorTuner,name=" + tuner.getFactory().toString());
+    final MultipleNodeExecutorTuner instance = new MultipleNodeExecutorTuner(tuner);
+    try {
+      server.registerMBean(instance, name);
+    } catch (InstanceAlreadyExistsException e) {
+      s_logger.warn("JMX MBean {} already exists - replacing", name);
+      server.unregisterMBean(name);
+      server.registerMBean(instance, name);
+    }
+  }
+
+  @Override
+  public void setTargetJobDuration(final long nanos) {
+    getUnderlying().setTargetJobDuration(nanos);
+  }
+
+  @Override
+  public long getTargetJobDuration() {
+    return getUnderlying().getTargetJobDuration();
+  }
+
+  @Override
+  public void setMaximumDataFraction(final double maximumDataFraction) {
+    getUnderlying().setMaximumDataFraction(maximumDataFraction);
+  }
+
+  @Override
+  public double getMaximumDataFraction() {
+    return getUnderlying().getMaximumDataFraction();
+  }
+
+  @Override
+  public void setMaximumDataScale(final double maximumDataScale) {
+    getUnderlying().setMaximumDataScale(maximumDataScale);
+  }
+
+  @Override
+  public double getMaximumDataScale() {
+    return getUnderlying().getMaximumDataScale();
+  }
+
+  @Override
+  public void setMinimumJobFraction(final double minimumJobFraction) {
+    getUnderlying().setMinimumJobFraction(minimumJobFraction);
+  }
+
+  @Override
+  public double getMinimumJobFraction() {
+    return getUnderlying().getMinimumJobFraction();
+  }
+
+  @Override
+  public void setChangeThreshold(final double changeThreshold) {
+    getUnderlying().setChangeThreshold(changeThreshold);
+  }
+
+  @Override
+  public double getChangeThreshold() {
+    return getUnderlying().getChangeThreshold();
+  }
+
+  @Override
+  public double getMeanInvocationCost() {
+    return getUnderlying().getMeanInvocationCost();
+  }
+
+  @Override
+  public double getMeanDataInputCost() {
+    return getUnderlying().getMeanDataInputCost();
+  }
+
+  @Override
+  public double getMeanDataOutputCost() {
+    return getUnderlying().getMeanDataOutputCost();
+  }
+
+}
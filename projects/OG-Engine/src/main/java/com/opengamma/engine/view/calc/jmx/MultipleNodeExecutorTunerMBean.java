@@ -0,0 +1,27 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ * 
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.view.calc.jmx;
+
+/**
+ * JMX MBean interface for the adaptive job size tuning parameters and the statistics they were last applied from.
+ */
+public interface MultipleNodeExecutorTunerMBean {
+
+  void setTargetJobDuration(long nanos);
+  long getTargetJobDuration();
+  void setMaximumDataFraction(double maximumDataFraction);
+  double getMaximumDataFraction();
+  void setMaximumDataScale(double maximumDataScale);
+  double getMaximumDataScale();
+  void setMinimumJobFraction(double minimumJobFraction);
+  double getMinimumJobFraction();
+  void setChangeThreshold(double changeThreshold);
+  double getChangeThreshold();
+  double getMeanInvocationCost();
+  double getMeanDataInputCost();
+  double getMeanDataOutputCost();
+
+}
@@ -28,6 +28,11 @@ public class DiscardingGraphStatisticsGathererProvider implements GraphExecutorS
       // No action
     }
 
+    @Override
+    public void graphShared(String calcConfig, int nodeCount) {
+      // No action
+    }
+
   };
 
   public GraphExecutorStatisticsGatherer getStatisticsGatherer(final UniqueId viewProcessId) {
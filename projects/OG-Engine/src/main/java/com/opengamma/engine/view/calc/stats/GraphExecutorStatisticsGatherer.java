@@ -35,4 +35,13 @@ public interface GraphExecutorStatisticsGatherer {
    */
   void graphExecuted(String calcConfig, int nodeCount, long executionTime, long duration);
 
+  /**
+   * Reports nodes which were not executed because identical nodes were executed for another calculation configuration
+   * and their values copied.
+   * 
+   * @param calcConfig Calculation configuration name.
+   * @param nodeCount Number of nodes whose values were copied rather than executed.
+   */
+  void graphShared(String calcConfig, int nodeCount);
+
 }
@@ -57,6 +57,11 @@ public class TotallingGraphStatisticsGathererProvider extends PerViewStatisticsG
       getOrCreateConfiguration(calcConfig).recordProcessing(totalJobs, meanJobSize, meanJobCycleCost, meanJobIOCost);
     }
 
+    @Override
+    public void graphShared(String calcConfig, int nodeCount) {
+      getOrCreateConfiguration(calcConfig).recordSharing(nodeCount);
+    }
+
     public List<GraphExecutionStatistics> getExecutionStatistics() {
       return new ArrayList<GraphExecutionStatistics>(_statistics.values());
     }
@@ -9,6 +9,7 @@ import java.util.Set;
 
 import com.google.common.collect.ImmutableSet;
 import com.opengamma.engine.value.ValueSpecification;
+import com.opengamma.engine.view.ExecutionLog;
 import com.opengamma.util.ArgumentChecker;
 
 /**
@@ -65,11 +66,29 @@ public final class CalculationJobResultItemBuilder {
     return this;
   }
   
+  //-------------------------------------------------------------------------
+  /* package */MutableExecutionLog getExecutionLog() {
+    return _executionLog;
+  }
+
+  /**
+   * Clears the missing input and output sets so that the builder can be reused. The execution log is not touched; the caller
+   * must only reuse a builder whose log is empty.
+   */
+  /* package */void reset() {
+    _missingInputs = null;
+    _missingOutputs = null;
+  }
+
   //-------------------------------------------------------------------------
   public CalculationJobResultItem toResultItem() {
+    return toResultItem(_executionLog);
+  }
+
+  /* package */CalculationJobResultItem toResultItem(final ExecutionLog executionLog) {
     Set<ValueSpecification> missingInputs = _missingInputs != null ? _missingInputs : ImmutableSet.<ValueSpecification>of();
     Set<ValueSpecification> missingOutputs = _missingOutputs != null ? _missingOutputs : ImmutableSet.<ValueSpecification>of();
-    return new CalculationJobResultItem(missingInputs, missingOutputs, _executionLog);
+    return new CalculationJobResultItem(missingInputs, missingOutputs, executionLog);
   }
   
 }
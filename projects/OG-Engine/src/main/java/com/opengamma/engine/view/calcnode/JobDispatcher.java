@@ -14,6 +14,8 @@ import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -27,6 +29,14 @@ import com.opengamma.util.async.Cancelable;
 
 /**
  * Manages a set of JobInvokers and dispatches jobs to them for execution.
+ * <p>
+ * Jobs and invoker registrations are added to concurrent queues without blocking. Whichever thread finds no dispatch in
+ * progress then matches pending jobs to invokers on behalf of all callers until no more requests have arrived, so only one
+ * thread touches the invoker ordering at a time and no caller ever waits on another's dispatch.
+ * <p>
+ * A job is offered first to the invoker that produced most of its shared inputs, if that invoker is available, so that
+ * values tend to stay with the node host that holds them rather than passing through the shared cache. Other invokers
+ * are then tried in order.
  */
 public class JobDispatcher implements JobInvokerRegister {
 
@@ -35,10 +45,20 @@ public class JobDispatcher implements JobInvokerRegister {
   /* package */static final int DEFAULT_MAX_JOB_ATTEMPTS = 2;
   /* package */static final long DEFAULT_MAX_JOB_EXECUTION_QUERY_TIMEOUT = 5000;
   /* package */static final String DEFAULT_JOB_FAILURE_NODE_ID = "NOT EXECUTED";
+  /* package */static final int DEFAULT_AFFINITY_CAPACITY = 1000000;
 
-  private final Queue<DispatchableJob> _pending = new LinkedList<DispatchableJob>();
+  private final Queue<DispatchableJob> _pending = new ConcurrentLinkedQueue<DispatchableJob>();
   private final Queue<JobInvoker> _invokers = new ConcurrentLinkedQueue<JobInvoker>();
   private final Map<JobInvoker, Collection<Capability>> _capabilityCache = new ConcurrentHashMap<JobInvoker, Collection<Capability>>();
+  /**
+   * Number of dispatch requests not yet serviced. The thread that increments this from zero performs the dispatch.
+   */
+  private final AtomicInteger _dispatchRequests = new AtomicInteger();
+  private final AtomicInteger _pendingJobCount = new AtomicInteger();
+  private final AtomicLong _dispatchedJobCount = new AtomicLong();
+  private final AtomicLong _refusedInvocationCount = new AtomicLong();
+  private final AtomicLong _dispatchPassCount = new AtomicLong();
+  private final AtomicLong _deferredDispatchRequestCount = new AtomicLong();
 
   /**
    * Maximum number of times a job will be submitted in its entirety to remote nodes before it gets partitioned to isolate an individual failure.
@@ -57,6 +77,7 @@ public class JobDispatcher implements JobInvokerRegister {
   private ScheduledThreadPoolExecutor _jobTimeoutExecutor;
   private CalculationNodeStatisticsGatherer _statisticsGatherer = new DiscardingNodeStatisticsGatherer();
   private FunctionBlacklistMaintainer _blacklistUpdate = new DummyFunctionBlacklistMaintainer();
+  private volatile JobInvokerAffinity _affinity = new JobInvokerAffinity(DEFAULT_AFFINITY_CAPACITY);
 
   public JobDispatcher() {
   }
@@ -149,6 +170,22 @@ public class JobDispatcher implements JobInvokerRegister {
     return _capabilityRequirementsProvider;
   }
 
+  /**
+   * Sets the number of value producers to track for placing jobs with the invoker holding their inputs. Up to twice this
+   * number may be held. The previous tracking is discarded.
+   * 
+   * @param capacity the number of values, 0 to disable affinity
+   */
+  public void setAffinityCapacity(final int capacity) {
+    ArgumentChecker.notNegative(capacity, "capacity");
+    _affinity = (capacity > 0) ? new JobInvokerAffinity(capacity) : null;
+  }
+
+  public int getAffinityCapacity() {
+    final JobInvokerAffinity affinity = _affinity;
+    return (affinity != null) ? affinity.getCapacity() : 0;
+  }
+
   protected Queue<DispatchableJob> getPending() {
     return _pending;
   }
@@ -161,25 +198,120 @@ public class JobDispatcher implements JobInvokerRegister {
     return _capabilityCache;
   }
 
+  /**
+   * Returns the number of jobs waiting for an invoker.
+   * 
+   * @return the number of pending jobs
+   */
+  public int getPendingJobCount() {
+    return _pendingJobCount.get();
+  }
+
+  /**
+   * Returns the number of invokers currently available to receive jobs.
+   * 
+   * @return the number of invokers
+   */
+  public int getInvokerCount() {
+    return getInvokers().size();
+  }
+
+  /**
+   * Returns the total number of jobs accepted by invokers.
+   * 
+   * @return the number of dispatched jobs
+   */
+  public long getDispatchedJobCount() {
+    return _dispatchedJobCount.get();
+  }
+
+  /**
+   * Returns the total number of times an invoker has refused a job because of capacity.
+   * 
+   * @return the number of refused invocations
+   */
+  public long getRefusedInvocationCount() {
+    return _refusedInvocationCount.get();
+  }
+
+  /**
+   * Returns the total number of passes made over the pending jobs.
+   * 
+   * @return the number of dispatch passes
+   */
+  public long getDispatchPassCount() {
+    return _dispatchPassCount.get();
+  }
+
+  /**
+   * Returns the total number of dispatch requests that were handed to a thread already dispatching rather than
+   * being handled by the calling thread.
+   * 
+   * @return the number of deferred dispatch requests
+   */
+  public long getDeferredDispatchRequestCount() {
+    return _deferredDispatchRequestCount.get();
+  }
+
+  /**
+   * Returns the number of shared job inputs that were produced by the same invoker the job was dispatched to. Together
+   * with {@link #getRemoteInputCount} this shows how much data was kept local by placing jobs with their inputs.
+   * 
+   * @return the number of local inputs
+   */
+  public long getLocalInputCount() {
+    final JobInvokerAffinity affinity = _affinity;
+    return (affinity != null) ? affinity.getLocalInputCount() : 0;
+  }
+
+  /**
+   * Returns the number of shared job inputs that were produced by a different invoker to the one the job was dispatched
+   * to, and so must pass between node hosts through the shared cache.
+   * 
+   * @return the number of remote inputs
+   */
+  public long getRemoteInputCount() {
+    final JobInvokerAffinity affinity = _affinity;
+    return (affinity != null) ? affinity.getRemoteInputCount() : 0;
+  }
+
   @Override
-  public synchronized void registerJobInvoker(final JobInvoker invoker) {
+  public void registerJobInvoker(final JobInvoker invoker) {
     ArgumentChecker.notNull(invoker, "invoker");
     s_logger.debug("Registering job invoker {}", invoker);
-    getInvokers().add(invoker);
     getCapabilityCache().put(invoker, invoker.getCapabilities());
+    getInvokers().add(invoker);
     if (!getPending().isEmpty()) {
-      retryPending(0L);
+      dispatchPending();
+    }
+  }
+
+  /**
+   * Attempts to dispatch the pending jobs. If another thread is already doing so, it will make a further pass on
+   * behalf of this caller and this method returns immediately.
+   */
+  private void dispatchPending() {
+    if (_dispatchRequests.getAndIncrement() != 0) {
+      _deferredDispatchRequestCount.incrementAndGet();
+      return;
     }
+    int requests = 1;
+    do {
+      retryPending(0L);
+      requests = _dispatchRequests.addAndGet(-requests);
+    } while (requests != 0);
   }
 
-  // caller must already own monitor
+  // caller must be the dispatching thread
   private void retryPending(final long failJobsBefore) {
     s_logger.debug("Retrying pending operations");
+    _dispatchPassCount.incrementAndGet();
     final Iterator<DispatchableJob> iterator = getPending().iterator();
     while (iterator.hasNext()) {
       final DispatchableJob job = iterator.next();
       if (invoke(job)) {
         iterator.remove();
+        _pendingJobCount.decrementAndGet();
       } else {
         if (failJobsBefore <= 0) {
           if (getInvokers().isEmpty()) {
@@ -188,6 +320,7 @@ public class JobDispatcher implements JobInvokerRegister {
           }
         } else if (job.getJobCreationTime() < failJobsBefore) {
           iterator.remove();
+          _pendingJobCount.decrementAndGet();
           job.abort(null, "no invokers available after timeout");
         }
       }
@@ -198,12 +331,30 @@ public class JobDispatcher implements JobInvokerRegister {
   // TODO [ENG-42] the invoker selection logic is inefficient; it's likely that capability requirements objects won't vary much so comparison against the capabilities of invokers should be cached
   // TODO [ENG-42] job dispatch should not be O(n) on number of invokers; the caching of capabilities should allow a nearer O(1) selection
 
-  // caller must already own monitor
+  // caller must be the dispatching thread
   private boolean invoke(final DispatchableJob job) {
     if (job.isCompleted()) {
       s_logger.info("Job {} cancelled", job);
       return true;
     }
+    final JobInvokerAffinity affinity = _affinity;
+    if (affinity != null) {
+      final JobInvoker preferred = affinity.getPreferredInvoker(job.getJob());
+      if ((preferred != null) && getInvokers().remove(preferred)) {
+        if (job.canRunOn(preferred)) {
+          if (job.runOn(preferred)) {
+            jobAccepted(job, preferred, affinity);
+            getInvokers().add(preferred);
+            return true;
+          }
+          if (jobRefused(job, preferred)) {
+            getInvokers().add(preferred);
+          }
+        } else {
+          getInvokers().add(preferred);
+        }
+      }
+    }
     Collection<JobInvoker> retry = null;
     do {
       final Iterator<JobInvoker> iterator = getInvokers().iterator();
@@ -211,16 +362,14 @@ public class JobDispatcher implements JobInvokerRegister {
         final JobInvoker jobInvoker = iterator.next();
         if (job.canRunOn(jobInvoker)) {
           if (job.runOn(jobInvoker)) {
-            s_logger.debug("Invoker {} accepted job {}", jobInvoker, job);
+            jobAccepted(job, jobInvoker, affinity);
             // put invoker to the end of the list
             iterator.remove();
             getInvokers().add(jobInvoker);
             return true;
           } else {
-            s_logger.debug("Invoker {} refused to execute job {}", jobInvoker, job);
             iterator.remove();
-            if (jobInvoker.notifyWhenAvailable(this)) {
-              s_logger.info("Invoker {} requested immediate retry", jobInvoker);
+            if (jobRefused(job, jobInvoker)) {
               if (retry == null) {
                 retry = new LinkedList<JobInvoker>();
               }
@@ -240,16 +389,38 @@ public class JobDispatcher implements JobInvokerRegister {
     return false;
   }
 
-  protected synchronized void dispatchJobImpl(final DispatchableJob job) {
-    if (!invoke(job)) {
-      s_logger.debug("Adding job to pending set");
-      getPending().add(job);
-      if (getInvokers() != null) {
-        retryPending(0L);
-      }
+  // caller must be the dispatching thread
+  private void jobAccepted(final DispatchableJob job, final JobInvoker jobInvoker, final JobInvokerAffinity affinity) {
+    s_logger.debug("Invoker {} accepted job {}", jobInvoker, job);
+    _dispatchedJobCount.incrementAndGet();
+    if (affinity != null) {
+      affinity.jobDispatched(job.getJob(), jobInvoker);
     }
   }
 
+  /**
+   * Handles an invoker refusing a job. The invoker must have been removed from the available set.
+   * 
+   * @return true if the invoker should be retried immediately, false if it will re-register when available
+   */
+  // caller must be the dispatching thread
+  private boolean jobRefused(final DispatchableJob job, final JobInvoker jobInvoker) {
+    s_logger.debug("Invoker {} refused to execute job {}", jobInvoker, job);
+    _refusedInvocationCount.incrementAndGet();
+    if (jobInvoker.notifyWhenAvailable(this)) {
+      s_logger.info("Invoker {} requested immediate retry", jobInvoker);
+      return true;
+    }
+    return false;
+  }
+
+  protected void dispatchJobImpl(final DispatchableJob job) {
+    s_logger.debug("Adding job to pending set");
+    _pendingJobCount.incrementAndGet();
+    getPending().add(job);
+    dispatchPending();
+  }
+
   /**
    * Puts the job into the ready queue, sent to an invoker as soon as one is available. Completion (or timeout)
    * of the job will result in one or more callbacks to the result receiver. There is always the callback for the
@@ -0,0 +1,158 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.view.calcnode;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.opengamma.engine.value.ValueSpecification;
+import com.opengamma.engine.view.cache.CacheSelectHint;
+
+/**
+ * Tracks which invoker produced each shared value so that jobs can be placed with the invoker that already holds most of
+ * their inputs, reducing the traffic through the shared value cache.
+ * <p>
+ * Producers are held in two generations. When the current generation reaches its capacity it becomes the previous one
+ * and the oldest is discarded, so that the values from the current and recent cycles are known without the tracking
+ * growing without bound.
+ * <p>
+ * This is not thread-safe; it must only be used by the dispatching thread. The statistics may be read from any thread.
+ */
+/* package */final class JobInvokerAffinity {
+
+  private final int _capacity;
+  private Map<ValueSpecification, JobInvoker> _current = new HashMap<ValueSpecification, JobInvoker>();
+  private Map<ValueSpecification, JobInvoker> _previous = Collections.emptyMap();
+  private final Map<JobInvoker, int[]> _score = new HashMap<JobInvoker, int[]>();
+  private final AtomicLong _localInputCount = new AtomicLong();
+  private final AtomicLong _remoteInputCount = new AtomicLong();
+
+  public JobInvokerAffinity(final int capacity) {
+    _capacity = capacity;
+  }
+
+  public int getCapacity() {
+    return _capacity;
+  }
+
+  /**
+   * Returns the number of shared job inputs that were produced by the invoker the job was dispatched to.
+   *
+   * @return the count
+   */
+  public long getLocalInputCount() {
+    return _localInputCount.get();
+  }
+
+  /**
+   * Returns the number of shared job inputs that were produced by a different invoker to the one the job was dispatched
+   * to, and so had to be fetched from the shared cache.
+   *
+   * @return the count
+   */
+  public long getRemoteInputCount() {
+    return _remoteInputCount.get();
+  }
+
+  private JobInvoker getProducer(final ValueSpecification value) {
+    final JobInvoker invoker = _current.get(value);
+    if (invoker != null) {
+      return invoker;
+    }
+    return _previous.get(value);
+  }
+
+  /**
+   * Returns the invoker that produced the most of the job's shared inputs.
+   *
+   * @param job the job to place, not null
+   * @return the invoker, or null if none of the inputs have a known producer
+   */
+  public JobInvoker getPreferredInvoker(final CalculationJob job) {
+    final CacheSelectHint hint = job.getCacheSelectHint();
+    JobInvoker preferred = null;
+    int preferredScore = 0;
+    for (CalculationJobItem item : job.getJobItems()) {
+      for (ValueSpecification input : item.getInputs()) {
+        if (hint.isPrivateValue(input)) {
+          continue;
+        }
+        final JobInvoker producer = getProducer(input);
+        if (producer != null) {
+          int[] score = _score.get(producer);
+          if (score == null) {
+            score = new int[1];
+            _score.put(producer, score);
+          }
+          if (++score[0] > preferredScore) {
+            preferredScore = score[0];
+            preferred = producer;
+          }
+        }
+      }
+    }
+    _score.clear();
+    return preferred;
+  }
+
+  /**
+   * Notes the placement of a job, counting whether its shared inputs were local to the invoker and recording the invoker
+   * as the producer of its shared outputs and those of its tails.
+   *
+   * @param job the job, not null
+   * @param invoker the invoker it was dispatched to, not null
+   */
+  public void jobDispatched(final CalculationJob job, final JobInvoker invoker) {
+    final CacheSelectHint hint = job.getCacheSelectHint();
+    int local = 0;
+    int remote = 0;
+    for (CalculationJobItem item : job.getJobItems()) {
+      for (ValueSpecification input : item.getInputs()) {
+        if (hint.isPrivateValue(input)) {
+          continue;
+        }
+        final JobInvoker producer = getProducer(input);
+        if (producer == invoker) {
+          local++;
+        } else if (producer != null) {
+          remote++;
+        }
+      }
+    }
+    if (local > 0) {
+      _localInputCount.addAndGet(local);
+    }
+    if (remote > 0) {
+      _remoteInputCount.addAndGet(remote);
+    }
+    recordOutputs(job, invoker);
+  }
+
+  private void recordOutputs(final CalculationJob job, final JobInvoker invoker) {
+    final CacheSelectHint hint = job.getCacheSelectHint();
+    for (CalculationJobItem item : job.getJobItems()) {
+      for (ValueSpecification output : item.getOutputs()) {
+        if (!hint.isPrivateValue(output)) {
+          _current.put(output, invoker);
+        }
+      }
+    }
+    if (_current.size() >= _capacity) {
+      _previous = _current;
+      _current = new HashMap<ValueSpecification, JobInvoker>();
+    }
+    final Collection<CalculationJob> tail = job.getTail();
+    if (tail != null) {
+      for (CalculationJob tailJob : tail) {
+        recordOutputs(tailJob, invoker);
+      }
+    }
+  }
+
+}
@@ -71,6 +71,15 @@ public class MutableExecutionLog implements ExecutionLog {
     _exceptionStackTrace = null;
   }
 
+  /**
+   * Tests whether anything has been logged.
+   * 
+   * @return true if there are no log events and no exception, false otherwise
+   */
+  /* package */boolean isEmpty() {
+    return _levels.isEmpty() && (_exceptionClass == null);
+  }
+
   //-------------------------------------------------------------------------
   @Override
   public boolean hasError() {
@@ -25,7 +25,6 @@ import com.opengamma.engine.ComputationTarget;
 import com.opengamma.engine.ComputationTargetResolver;
 import com.opengamma.engine.function.CompiledFunctionService;
 import com.opengamma.engine.function.FunctionExecutionContext;
-import com.opengamma.engine.function.FunctionInputs;
 import com.opengamma.engine.function.FunctionInputsImpl;
 import com.opengamma.engine.function.FunctionInvoker;
 import com.opengamma.engine.function.blacklist.DummyFunctionBlacklistMaintainer;
@@ -93,6 +92,7 @@ public class SimpleCalculationNode extends SimpleCalculationNodeState implements
   private FunctionBlacklistQuery _blacklistQuery = new DummyFunctionBlacklistQuery();
   private FunctionBlacklistMaintainer _blacklistUpdate = new DummyFunctionBlacklistMaintainer();
   private MaximumJobItemExecutionWatchdog _maxJobItemExecution = new MaximumJobItemExecutionWatchdog();
+  private final SimpleCalculationNodeItemState _itemState = new SimpleCalculationNodeItemState();
 
   public SimpleCalculationNode(ViewComputationCacheSource cacheSource, CompiledFunctionService functionCompilationService,
       FunctionExecutionContext functionExecutionContext, ComputationTargetResolver targetResolver, ViewProcessorQuerySender calcNodeQuerySender, String nodeId,
@@ -362,6 +362,10 @@ public class SimpleCalculationNode extends SimpleCalculationNodeState implements
   }
   
   //-------------------------------------------------------------------------
+  private SimpleCalculationNodeItemState getItemState() {
+    return _itemState;
+  }
+
   private void attachLog(MutableExecutionLog log) {
     getLogListener().attach(log);
   }
@@ -378,21 +382,21 @@ public class SimpleCalculationNode extends SimpleCalculationNodeState implements
       }
       final CalculationJobItem jobItem = jobItemItr.next();
       // TODO: start resolving the next target while this item executes -- can we "poll" an iterator?
-      final MutableExecutionLog executionLog = new MutableExecutionLog(jobItem.getLogMode());
-      final CalculationJobResultItemBuilder resultItemBuilder = CalculationJobResultItemBuilder.of(executionLog);
+      final CalculationJobResultItemBuilder resultItemBuilder = getItemState().getResultItemBuilder(jobItem.getLogMode());
       if (getFunctionBlacklistQuery().isBlacklisted(jobItem)) {
         invocationBlacklisted(jobItem, resultItemBuilder);
       } else {
         getMaxJobItemExecution().jobExecutionStarted(jobItem);
         try {
           // Can only use this thread's logs during the synchronous attempt
-          attachLog(executionLog);
+          attachLog(resultItemBuilder.getExecutionLog());
           try {
             invoke(jobItem, new DeferredInvocationStatistics(getFunctionInvocationStatistics(), getConfiguration()), resultItemBuilder);
           } finally {
             detachLog();
           }
         } catch (AsynchronousExecution e) {
+          getItemState().release();
           final AsynchronousHandleOperation<List<CalculationJobResultItem>> async = new AsynchronousHandleOperation<List<CalculationJobResultItem>>();
           e.setResultListener(new ResultListener<Void>() {
             @Override
@@ -421,7 +425,8 @@ public class SimpleCalculationNode extends SimpleCalculationNodeState implements
           getMaxJobItemExecution().jobExecutionStopped();
         }
       }
-      resultItems.add(resultItemBuilder.toResultItem());
+      getItemState().recycle();
+      resultItems.add(getItemState().toResultItem(resultItemBuilder));
     }
     return resultItems;
   }
@@ -485,7 +490,7 @@ public class SimpleCalculationNode extends SimpleCalculationNodeState implements
         newResults.add(new ComputedValue(output, NotCalculatedSentinel.EVALUATION_ERROR));
       }
       results = newResults;
-      resultItemBuilder.withMissingOutputs(missing);
+      resultItemBuilder.withMissingOutputs(new HashSet<ValueSpecification>(missing));
     }
     getCache().putValues(results, getJob().getCacheSelectHint(), statistics);
   }
@@ -516,9 +521,9 @@ public class SimpleCalculationNode extends SimpleCalculationNodeState implements
     }
     // set parameters
     getFunctionExecutionContext().setFunctionParameters(jobItem.getFunctionParameters());
-    // assemble inputs
-    final Collection<ComputedValue> inputs = new HashSet<ComputedValue>();
-    final Set<ValueSpecification> missing = new HashSet<ValueSpecification>();
+    // assemble inputs; the structures are recycled by the node unless the invocation completes asynchronously
+    final FunctionInputsImpl functionInputs = getItemState().getFunctionInputs();
+    final Set<ValueSpecification> missing = getItemState().getMissingInputs();
     int inputBytes = 0;
     int inputSamples = 0;
     final DeferredViewComputationCache cache = getCache();
@@ -527,7 +532,7 @@ public class SimpleCalculationNode extends SimpleCalculationNodeState implements
         missing.add(input.getKey());
       } else {
         final ComputedValue value = new ComputedValue(input.getKey(), input.getValue());
-        inputs.add(value);
+        functionInputs.addValue(value);
         final Integer bytes = cache.estimateValueSize(value);
         if (bytes != null) {
           inputBytes += bytes;
@@ -553,11 +558,10 @@ public class SimpleCalculationNode extends SimpleCalculationNodeState implements
           }
         }
         postEvaluationErrors(jobItem.getOutputs(), NotCalculatedSentinel.MISSING_INPUTS);
-        resultItemBuilder.withMissingInputs(missing);
+        resultItemBuilder.withMissingInputs(new HashSet<ValueSpecification>(missing));
         return;
       }
     }
-    final FunctionInputs functionInputs = new FunctionInputsImpl(inputs, missing);
     if (target == null) {
       try {
         target = targetFuture.get();
@@ -577,6 +581,7 @@ public class SimpleCalculationNode extends SimpleCalculationNodeState implements
     try {
       invokeResult(invoker, statistics, missing, outputs, invoker.execute(getFunctionExecutionContext(), functionInputs, target, plat2290(outputs)), resultItemBuilder);
     } catch (AsynchronousExecution e) {
+      getItemState().release();
       e.setResultListener(new ResultListener<Set<ComputedValue>>() {
         @Override
         public void operationComplete(final AsynchronousResult<Set<ComputedValue>> result) {
@@ -0,0 +1,118 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.view.calcnode;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import com.opengamma.engine.function.FunctionInputsImpl;
+import com.opengamma.engine.value.ComputedValue;
+import com.opengamma.engine.value.ValueSpecification;
+import com.opengamma.engine.view.ExecutionLog;
+import com.opengamma.engine.view.ExecutionLogMode;
+
+/**
+ * The reusable per-item working state for a calculation node.
+ * <p>
+ * A node executes one job item at a time so the structures needed to invoke a function can be recycled from one item
+ * to the next instead of being allocated for each. Anything that escapes, for example to an asynchronous completion or
+ * into a result item that is being returned, must be released so that a fresh instance is created for the next item.
+ * <p>
+ * Only logs in {@link ExecutionLogMode#INDICATORS} mode are recycled; if nothing was logged the result item is given the
+ * shared {@link ExecutionLog#EMPTY} instance and the mutable log kept for the next item.
+ */
+/* package */final class SimpleCalculationNodeItemState {
+
+  private CalculationJobResultItemBuilder _resultItemBuilder;
+  private Set<ValueSpecification> _missingInputs;
+  private FunctionInputsImpl _functionInputs;
+
+  /**
+   * Returns a result item builder, and its execution log, for a job item.
+   *
+   * @param logMode the logging mode of the job item, not null
+   * @return the builder, not null
+   */
+  public CalculationJobResultItemBuilder getResultItemBuilder(final ExecutionLogMode logMode) {
+    if (logMode != ExecutionLogMode.INDICATORS) {
+      return CalculationJobResultItemBuilder.of(new MutableExecutionLog(logMode));
+    }
+    if (_resultItemBuilder == null) {
+      _resultItemBuilder = CalculationJobResultItemBuilder.of(new MutableExecutionLog(logMode));
+    }
+    return _resultItemBuilder;
+  }
+
+  /**
+   * Creates the result item from a builder previously returned by {@link #getResultItemBuilder}. If the builder can be
+   * reused it is reset, otherwise it is released as its execution log is now part of the result.
+   *
+   * @param resultItemBuilder the builder, not null
+   * @return the result item, not null
+   */
+  public CalculationJobResultItem toResultItem(final CalculationJobResultItemBuilder resultItemBuilder) {
+    if (resultItemBuilder != _resultItemBuilder) {
+      return resultItemBuilder.toResultItem();
+    }
+    if (resultItemBuilder.getExecutionLog().isEmpty()) {
+      final CalculationJobResultItem resultItem = resultItemBuilder.toResultItem(ExecutionLog.EMPTY);
+      resultItemBuilder.reset();
+      return resultItem;
+    }
+    _resultItemBuilder = null;
+    return resultItemBuilder.toResultItem();
+  }
+
+  /**
+   * Returns the empty set to collect missing inputs into. This is the set referenced by {@link #getFunctionInputs}.
+   *
+   * @return the set, not null
+   */
+  public Set<ValueSpecification> getMissingInputs() {
+    if (_missingInputs == null) {
+      _missingInputs = new HashSet<ValueSpecification>();
+    }
+    return _missingInputs;
+  }
+
+  /**
+   * Returns the empty function inputs to populate for an invocation. The missing values of the inputs are the set returned
+   * by {@link #getMissingInputs}.
+   *
+   * @return the function inputs, not null
+   */
+  public FunctionInputsImpl getFunctionInputs() {
+    if (_functionInputs == null) {
+      _functionInputs = new FunctionInputsImpl(Collections.<ComputedValue>emptySet(), getMissingInputs());
+    }
+    return _functionInputs;
+  }
+
+  /**
+   * Clears the recycled structures at the end of a job item that completed synchronously so that values are not kept
+   * reachable until the next item.
+   */
+  public void recycle() {
+    if (_functionInputs != null) {
+      _functionInputs.clear();
+    }
+    if (_missingInputs != null) {
+      _missingInputs.clear();
+    }
+  }
+
+  /**
+   * Releases all of the structures as they have escaped to an asynchronous completion. Fresh instances will be created
+   * for the next job item.
+   */
+  public void release() {
+    _resultItemBuilder = null;
+    _functionInputs = null;
+    _missingInputs = null;
+  }
+
+}
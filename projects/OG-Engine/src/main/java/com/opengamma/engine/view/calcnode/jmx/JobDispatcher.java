@@ -0,0 +1,98 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ * 
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.view.calcnode.jmx;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * JMX exposure of a job dispatcher.
+ */
+public class JobDispatcher implements JobDispatcherMBean {
+
+  private static final Logger s_logger = LoggerFactory.getLogger(JobDispatcher.class);
+
+  private final com.opengamma.engine.view.calcnode.JobDispatcher _dispatcher;
+
+  protected JobDispatcher(final com.opengamma.engine.view.calcnode.JobDispatcher dispatcher) {
+    _dispatcher = dispatcher;
+  }
+
+  protected com.opengamma.engine.view.calcnode.JobDispatcher getDispatcher() {
+    return _dispatcher;
+  }
+
+  protected void registerMBean(final MBeanServer server) throws JMException {
+    final ObjectName name = new ObjectName("com.opengamma:type=JobDispatcher,name=" + getDispatcher().toString());
+    try {
+      server.registerMBean(this, name);
+    } catch (InstanceAlreadyExistsException e) {
+      s_logger.warn("JMX MBean {} already exists - replacing", name);
+      server.unregisterMBean(name);
+      server.registerMBean(this, name);
+    }
+  }
+
+  public static void registerMBeans(final com.opengamma.engine.view.calcnode.JobDispatcher dispatcher, final MBeanServer server) throws JMException {
+    new JobDispatcher(dispatcher).registerMBean(server);
+  }
+
+  @Override
+  public int getPendingJobCount() {
+    return getDispatcher().getPendingJobCount();
+  }
+
+  @Override
+  public int getInvokerCount() {
+    return getDispatcher().getInvokerCount();
+  }
+
+  @Override
+  public long getDispatchedJobCount() {
+    return getDispatcher().getDispatchedJobCount();
+  }
+
+  @Override
+  public long getRefusedInvocationCount() {
+    return getDispatcher().getRefusedInvocationCount();
+  }
+
+  @Override
+  public long getDispatchPassCount() {
+    return getDispatcher().getDispatchPassCount();
+  }
+
+  @Override
+  public long getDeferredDispatchRequestCount() {
+    return getDispatcher().getDeferredDispatchRequestCount();
+  }
+
+  @Override
+  public long getLocalInputCount() {
+    return getDispatcher().getLocalInputCount();
+  }
+
+  @Override
+  public long getRemoteInputCount() {
+    return getDispatcher().getRemoteInputCount();
+  }
+
+  @Override
+  public int getAffinityCapacity() {
+    return getDispatcher().getAffinityCapacity();
+  }
+
+  @Override
+  public void setAffinityCapacity(final int capacity) {
+    getDispatcher().setAffinityCapacity(capacity);
+  }
+
+}
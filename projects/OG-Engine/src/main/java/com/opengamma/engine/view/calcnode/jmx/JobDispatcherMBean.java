@@ -0,0 +1,33 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ * 
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.view.calcnode.jmx;
+
+/**
+ * JMX exposure of the job dispatch statistics.
+ */
+public interface JobDispatcherMBean {
+
+  int getPendingJobCount();
+
+  int getInvokerCount();
+
+  long getDispatchedJobCount();
+
+  long getRefusedInvocationCount();
+
+  long getDispatchPassCount();
+
+  long getDeferredDispatchRequestCount();
+
+  long getLocalInputCount();
+
+  long getRemoteInputCount();
+
+  int getAffinityCapacity();
+
+  void setAffinityCapacity(int capacity);
+
+}
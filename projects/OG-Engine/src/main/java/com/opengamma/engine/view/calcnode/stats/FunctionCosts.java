@@ -5,6 +5,8 @@
  */
 package com.opengamma.engine.view.calcnode.stats;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
@@ -128,6 +130,19 @@ public final class FunctionCosts implements FunctionInvocationStatisticsGatherer
     return getStatistics(configurationName).getStatistics(functionId);
   }
 
+  /**
+   * Gets a snapshot of the statistics for all functions in all configurations.
+   * 
+   * @return the statistics, not null
+   */
+  public List<FunctionInvocationStatistics> getAllStatistics() {
+    final List<FunctionInvocationStatistics> result = new ArrayList<FunctionInvocationStatistics>();
+    for (FunctionCostsPerConfiguration configuration : _data.values()) {
+      result.addAll(configuration.getCosts().values());
+    }
+    return result;
+  }
+
   /**
    * Loads the statistics.
    * 
@@ -156,6 +156,16 @@ public class FunctionInvocationStatistics {
     return _dataOutputCost;
   }
 
+  /**
+   * Gets the number of invocations the costs are based on. This decays along with the samples so is weighted towards
+   * the most recent invocations.
+   * 
+   * @return the invocation count, zero if no invocations have been recorded since the costs were loaded
+   */
+  public synchronized double getInvocationCount() {
+    return _invocations;
+  }
+
   /**
    * Gets the {@link System#nanoTime} timestamp of the last time the costs changed.
    * 
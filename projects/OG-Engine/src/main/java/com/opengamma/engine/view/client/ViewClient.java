@@ -176,6 +176,18 @@ public interface ViewClient extends UniqueIdentifiable {
    * @param periodMillis  the minimum time between updates, or 0 to specify unlimited updates.
    */
   void setUpdatePeriod(long periodMillis);
+
+  /**
+   * Sets the number of updates which may be queued for delivery to the listener. When this is greater than 0, updates
+   * are streamed to the listener from a separate thread as they are produced, so a slow listener does not hold up the
+   * view process. If the listener falls far enough behind for the queue to fill, successive cycle fragments are merged
+   * into a single update, and completed cycles are merged into the latest result with the fragments they supersede
+   * dropped, rather than queued separately. Set this to 0, the default, to deliver updates to the listener
+   * on the thread which produced them.
+   * 
+   * @param capacity  the number of updates which may be queued, or 0 to deliver updates directly
+   */
+  void setResultQueueCapacity(int capacity);
   
   /**
    * Gets the result mode for sending full cycle results to the listener. Defaults to {@link ViewResultMode#FULL_ONLY}.
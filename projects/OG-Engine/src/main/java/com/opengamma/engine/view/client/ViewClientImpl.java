@@ -10,11 +10,15 @@ import java.util.Set;
 import java.util.Timer;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.ReentrantLock;
 
+import javax.time.Duration;
 import javax.time.Instant;
 
+import org.apache.commons.lang.ObjectUtils;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -30,6 +34,8 @@ import com.opengamma.engine.view.calc.EngineResourceRetainer;
 import com.opengamma.engine.view.calc.ViewCycle;
 import com.opengamma.engine.view.calc.ViewCycleMetadata;
 import com.opengamma.engine.view.client.merging.RateLimitingMergingViewProcessListener;
+import com.opengamma.engine.view.client.merging.SharedResultFanOut;
+import com.opengamma.engine.view.client.merging.StreamingViewProcessListener;
 import com.opengamma.engine.view.compilation.CompiledViewDefinition;
 import com.opengamma.engine.view.execution.ViewCycleExecutionOptions;
 import com.opengamma.engine.view.execution.ViewExecutionOptions;
@@ -75,8 +81,22 @@ public class ViewClientImpl implements ViewClient {
 
   private final ViewResultListener _mergedViewProcessListener;
   private final RateLimitingMergingViewProcessListener _mergingViewProcessListener;
+  private final ViewResultListener _processListener;
+
+  // Shared merging of results with other clients of the same process; see updateResultFanOut
+  private final ReentrantLock _resultRoutingLock = new ReentrantLock();
+  private volatile SharedResultFanOut _resultFanOut;
+  private UniqueId _resultFanOutProcessId;
+  private long _resultFanOutCyclesMergedBaseline;
+  private long _sharedCyclesMerged;
+  private long _updatePeriodMillis;
+
+  private final AtomicLong _resultLagMillis = new AtomicLong(-1);
+  private final AtomicLong _maxResultLagMillis = new AtomicLong(-1);
 
   private final AtomicReference<ViewResultListener> _userResultListener = new AtomicReference<ViewResultListener>();
+  private ViewResultListener _resultListener;
+  private int _resultQueueCapacity;
   
   private final Set<ValueSpecification> _elevatedLogSpecs = new HashSet<ValueSpecification>();
 
@@ -137,6 +157,7 @@ public class ViewClientImpl implements ViewClient {
       @Override
       public void cycleCompleted(ViewComputationResultModel fullResult, ViewDeltaResultModel deltaResult) {
         boolean isFirstResult = updateLatestResult(fullResult);
+        updateResultLag(fullResult);
         ViewResultListener listener = _userResultListener.get();
         if (listener != null) {
           ViewResultMode resultMode = getResultMode();
@@ -215,6 +236,97 @@ public class ViewClientImpl implements ViewClient {
 
     _mergingViewProcessListener = new RateLimitingMergingViewProcessListener(_mergedViewProcessListener, getViewProcessor().getViewCycleManager(), timer);
     _mergingViewProcessListener.setPaused(true);
+
+    // Attached to the view process in place of the merging listener so that cycle results can be routed to a merger
+    // shared with other clients when this client is eligible for one
+    _processListener = new ViewResultListener() {
+
+      @Override
+      public UserPrincipal getUser() {
+        return ViewClientImpl.this.getUser();
+      }
+
+      @Override
+      public void viewDefinitionCompiled(CompiledViewDefinition compiledViewDefinition, boolean hasMarketDataPermissions) {
+        flushResultFanOut();
+        _mergingViewProcessListener.viewDefinitionCompiled(compiledViewDefinition, hasMarketDataPermissions);
+      }
+
+      @Override
+      public void viewDefinitionCompilationFailed(Instant valuationTime, Exception exception) {
+        flushResultFanOut();
+        _mergingViewProcessListener.viewDefinitionCompilationFailed(valuationTime, exception);
+      }
+
+      @Override
+      public void cycleStarted(ViewCycleMetadata cycleMetadata) {
+        _resultRoutingLock.lock();
+        try {
+          final SharedResultFanOut fanOut = _resultFanOut;
+          if (fanOut != null) {
+            fanOut.cycleStarted(cycleMetadata);
+            return;
+          }
+        } finally {
+          _resultRoutingLock.unlock();
+        }
+        _mergingViewProcessListener.cycleStarted(cycleMetadata);
+      }
+
+      @Override
+      public void cycleCompleted(ViewComputationResultModel fullResult, ViewDeltaResultModel deltaResult) {
+        _resultRoutingLock.lock();
+        try {
+          final SharedResultFanOut fanOut = _resultFanOut;
+          if (fanOut != null) {
+            fanOut.cycleCompleted(fullResult, deltaResult);
+            return;
+          }
+        } finally {
+          _resultRoutingLock.unlock();
+        }
+        _mergingViewProcessListener.cycleCompleted(fullResult, deltaResult);
+      }
+
+      @Override
+      public void cycleFragmentCompleted(ViewComputationResultModel fullFragment, ViewDeltaResultModel deltaFragment) {
+        _resultRoutingLock.lock();
+        try {
+          final SharedResultFanOut fanOut = _resultFanOut;
+          if (fanOut != null) {
+            fanOut.cycleFragmentCompleted(fullFragment, deltaFragment);
+            return;
+          }
+        } finally {
+          _resultRoutingLock.unlock();
+        }
+        _mergingViewProcessListener.cycleFragmentCompleted(fullFragment, deltaFragment);
+      }
+
+      @Override
+      public void cycleExecutionFailed(ViewCycleExecutionOptions executionOptions, Exception exception) {
+        flushResultFanOut();
+        _mergingViewProcessListener.cycleExecutionFailed(executionOptions, exception);
+      }
+
+      @Override
+      public void processCompleted() {
+        flushResultFanOut();
+        _mergingViewProcessListener.processCompleted();
+      }
+
+      @Override
+      public void processTerminated(boolean executionInterrupted) {
+        flushResultFanOut();
+        _mergingViewProcessListener.processTerminated(executionInterrupted);
+      }
+
+      @Override
+      public void clientShutdown(Exception e) {
+        _mergingViewProcessListener.clientShutdown(e);
+      }
+
+    };
   }
 
   @Override
@@ -258,9 +370,9 @@ public class ViewClientImpl implements ViewClient {
       // cause initial updates to be pushed through, they will not be seen until the merging update listener is
       // resumed, at which point the new permission provider will be in place. 
       if (privateProcess) {
-        _permissionProvider = getViewProcessor().attachClientToPrivateViewProcess(getUniqueId(), _mergingViewProcessListener, viewDefinitionId, executionOptions);
+        _permissionProvider = getViewProcessor().attachClientToPrivateViewProcess(getUniqueId(), _processListener, viewDefinitionId, executionOptions);
       } else {
-        _permissionProvider = getViewProcessor().attachClientToSharedViewProcess(getUniqueId(), _mergingViewProcessListener, viewDefinitionId, executionOptions);
+        _permissionProvider = getViewProcessor().attachClientToSharedViewProcess(getUniqueId(), _processListener, viewDefinitionId, executionOptions);
       }
       attachToViewProcessCore();
     } finally {
@@ -273,7 +385,7 @@ public class ViewClientImpl implements ViewClient {
     _clientLock.lock();
     try {
       checkNotTerminated();
-      _permissionProvider = getViewProcessor().attachClientToViewProcess(getUniqueId(), _mergingViewProcessListener, processId);
+      _permissionProvider = getViewProcessor().attachClientToViewProcess(getUniqueId(), _processListener, processId);
       attachToViewProcessCore();
     } finally {
       _clientLock.unlock();
@@ -285,6 +397,7 @@ public class ViewClientImpl implements ViewClient {
     boolean isPaused = getState() == ViewClientState.PAUSED;
     _mergingViewProcessListener.setPaused(isPaused);
     _completionLatch = new CountDownLatch(1);
+    updateResultFanOut();
   }
 
   @Override
@@ -292,6 +405,7 @@ public class ViewClientImpl implements ViewClient {
     _clientLock.lock();
     try {
       processCompleted();
+      leaveResultFanOut(false);
       getViewProcessor().detachClientFromViewProcess(getUniqueId());
       getLatestCycleRetainer().replaceRetainedCycle(null);
       _mergingViewProcessListener.setPaused(true);
@@ -318,12 +432,115 @@ public class ViewClientImpl implements ViewClient {
   //-------------------------------------------------------------------------
   @Override
   public void setResultListener(ViewResultListener resultListener) {
-    _userResultListener.set(resultListener);
+    _clientLock.lock();
+    try {
+      _resultListener = resultListener;
+      updateUserResultListener();
+    } finally {
+      _clientLock.unlock();
+    }
   }
 
   @Override
   public void setUpdatePeriod(long periodMillis) {
-    _mergingViewProcessListener.setMinimumUpdatePeriodMillis(periodMillis);
+    _clientLock.lock();
+    try {
+      _updatePeriodMillis = periodMillis;
+      updateResultFanOut();
+    } finally {
+      _clientLock.unlock();
+    }
+  }
+
+  /**
+   * Moves this client into or out of a result merger shared with other clients, as its state requires. Results are
+   * shared while the client is attached, running, rate-limited and has no need to retain the cycle behind each result.
+   * A client in the shared merger leaves its own merger passing calls straight through so that results from either
+   * merger are delivered in order.
+   */
+  private void updateResultFanOut() {
+    // Caller must hold the client lock
+    final long updatePeriodMillis = _updatePeriodMillis;
+    UniqueId processId = null;
+    if (isAttached() && (getState() == ViewClientState.STARTED) && (updatePeriodMillis > 0) && !isViewCycleAccessSupported()) {
+      processId = getViewProcessor().getViewProcessForClient(getUniqueId()).getUniqueId();
+    }
+    final SharedResultFanOut current = _resultFanOut;
+    if (current != null) {
+      if (ObjectUtils.equals(processId, _resultFanOutProcessId) && (updatePeriodMillis == current.getUpdatePeriodMillis())) {
+        return;
+      }
+      leaveResultFanOut(true);
+    }
+    if (processId != null) {
+      _mergingViewProcessListener.setMinimumUpdatePeriodMillis(0);
+      final SharedResultFanOut fanOut = getViewProcessor().joinResultFanOut(processId, updatePeriodMillis, _mergedViewProcessListener);
+      _resultFanOutCyclesMergedBaseline = fanOut.getCyclesMerged();
+      _resultFanOutProcessId = processId;
+      _resultFanOut = fanOut;
+    } else {
+      _mergingViewProcessListener.setMinimumUpdatePeriodMillis(updatePeriodMillis);
+    }
+  }
+
+  private void leaveResultFanOut(final boolean flush) {
+    // Caller must hold the client lock
+    final SharedResultFanOut current = _resultFanOut;
+    if (current == null) {
+      return;
+    }
+    _resultRoutingLock.lock();
+    try {
+      // Any result offered by this client has now reached the shared merger; later ones go to our own
+      _resultFanOut = null;
+    } finally {
+      _resultRoutingLock.unlock();
+    }
+    if (flush) {
+      current.flush();
+    }
+    getViewProcessor().leaveResultFanOut(_resultFanOutProcessId, current.getUpdatePeriodMillis(), _mergedViewProcessListener);
+    _sharedCyclesMerged += current.getCyclesMerged() - _resultFanOutCyclesMergedBaseline;
+    _resultFanOutProcessId = null;
+    _mergingViewProcessListener.setMinimumUpdatePeriodMillis(_updatePeriodMillis);
+  }
+
+  private void flushResultFanOut() {
+    final SharedResultFanOut fanOut = _resultFanOut;
+    if (fanOut != null) {
+      fanOut.flush();
+    }
+  }
+
+  @Override
+  public void setResultQueueCapacity(int capacity) {
+    ArgumentChecker.isTrue(capacity >= 0, "capacity must not be negative");
+    _clientLock.lock();
+    try {
+      _resultQueueCapacity = capacity;
+      updateUserResultListener();
+    } finally {
+      _clientLock.unlock();
+    }
+  }
+
+  private void updateUserResultListener() {
+    // Caller must hold the client lock
+    final ViewResultListener current = _userResultListener.get();
+    if ((_resultListener != null) && (_resultQueueCapacity > 0)) {
+      if ((current instanceof StreamingViewProcessListener) && (((StreamingViewProcessListener) current).getUnderlying() == _resultListener)) {
+        // Keep the queue, and the dispatch in progress, for the same listener
+        ((StreamingViewProcessListener) current).setCapacity(_resultQueueCapacity);
+        return;
+      }
+      _userResultListener.set(new StreamingViewProcessListener(_resultListener, getViewProcessor().getClientResultExecutor(), _resultQueueCapacity));
+    } else {
+      _userResultListener.set(_resultListener);
+    }
+    if (current instanceof StreamingViewProcessListener) {
+      // Results still queued for the old wrapper are superseded by those delivered from now on
+      ((StreamingViewProcessListener) current).terminate();
+    }
   }
 
   @Override
@@ -352,10 +569,11 @@ public class ViewClientImpl implements ViewClient {
     _clientLock.lock();
     try {
       checkNotTerminated();
+      _state = ViewClientState.PAUSED;
       if (isAttached()) {
+        updateResultFanOut();
         _mergingViewProcessListener.setPaused(true);
       }
-      _state = ViewClientState.PAUSED;
     } finally {
       _clientLock.unlock();
     }
@@ -366,10 +584,11 @@ public class ViewClientImpl implements ViewClient {
     _clientLock.lock();
     try {
       checkNotTerminated();
+      _state = ViewClientState.STARTED;
       if (isAttached()) {
         _mergingViewProcessListener.setPaused(false);
+        updateResultFanOut();
       }
-      _state = ViewClientState.STARTED;
     } finally {
       _clientLock.unlock();
     }
@@ -443,6 +662,7 @@ public class ViewClientImpl implements ViewClient {
       if (!isViewCycleAccessSupported) {
         getLatestCycleRetainer().replaceRetainedCycle(null);
       }
+      updateResultFanOut();
     } finally {
       _clientLock.unlock();
     }
@@ -514,6 +734,45 @@ public class ViewClientImpl implements ViewClient {
     }
   }
 
+  //-------------------------------------------------------------------------
+  /**
+   * Gets the time between the most recent result delivered to this client being calculated and its delivery.
+   *
+   * @return the lag in milliseconds, or -1 if no result has been delivered
+   */
+  public long getResultLagMillis() {
+    return _resultLagMillis.get();
+  }
+
+  /**
+   * Gets the greatest time between a result delivered to this client being calculated and its delivery.
+   *
+   * @return the lag in milliseconds, or -1 if no result has been delivered
+   */
+  public long getMaxResultLagMillis() {
+    return _maxResultLagMillis.get();
+  }
+
+  /**
+   * Gets the number of cycle results which were merged into a later result rather than delivered to this client,
+   * whether by its own merger or by one shared with other clients.
+   *
+   * @return the number of results
+   */
+  public long getCyclesDropped() {
+    _clientLock.lock();
+    try {
+      long dropped = _mergingViewProcessListener.getCyclesMerged() + _sharedCyclesMerged;
+      final SharedResultFanOut fanOut = _resultFanOut;
+      if (fanOut != null) {
+        dropped += fanOut.getCyclesMerged() - _resultFanOutCyclesMergedBaseline;
+      }
+      return dropped;
+    } finally {
+      _clientLock.unlock();
+    }
+  }
+
   //-------------------------------------------------------------------------
   @Override
   public String toString() {
@@ -555,6 +814,18 @@ public class ViewClientImpl implements ViewClient {
     return oldResult == null;
   }
 
+  private void updateResultLag(ViewComputationResultModel result) {
+    if ((result == null) || (result.getCalculationTime() == null)) {
+      return;
+    }
+    final long lag = Duration.between(result.getCalculationTime(), Instant.now()).toMillisLong();
+    _resultLagMillis.set(lag);
+    long max = _maxResultLagMillis.get();
+    while ((lag > max) && !_maxResultLagMillis.compareAndSet(max, lag)) {
+      max = _maxResultLagMillis.get();
+    }
+  }
+
   private void updateLatestCompiledViewDefinition(CompiledViewDefinition compiledViewDefinition) {
     _latestCompiledViewDefinition.set(compiledViewDefinition);
   }
@@ -13,6 +13,7 @@ import com.opengamma.engine.value.ValueProperties;
 import com.opengamma.engine.view.DeltaDefinition;
 import com.opengamma.engine.view.InMemoryViewDeltaResultModel;
 import com.opengamma.engine.view.ViewCalculationResultModel;
+import com.opengamma.engine.view.ViewCalculationResultModelImpl;
 import com.opengamma.engine.view.ViewComputationResultModel;
 import com.opengamma.engine.view.ViewDefinition;
 import com.opengamma.engine.view.ViewDeltaResultModel;
@@ -44,20 +45,21 @@ public class ViewDeltaResultCalculator {
     if (previousResult != null) {
       deltaModel.setPreviousCalculationTime(previousResult.getCalculationTime());
     }
-    for (ComputationTargetSpecification targetSpec : result.getAllTargets()) {
-      computeDeltaModel(viewDefinition, deltaModel, targetSpec, previousResult, result);
-    }
-    return deltaModel;
-  }
-  
-  private static void computeDeltaModel(ViewDefinition viewDefinition, InMemoryViewDeltaResultModel deltaModel, ComputationTargetSpecification targetSpec,
-      ViewResultModel previousResult, ViewResultModel result) {
     for (String calcConfigName : result.getCalculationConfigurationNames()) {
       DeltaDefinition deltaDefinition = viewDefinition.getCalculationConfiguration(calcConfigName).getDeltaDefinition();
       ViewCalculationResultModel resultCalcModel = result.getCalculationResult(calcConfigName);
-      ViewCalculationResultModel previousCalcModel = previousResult != null ? previousResult.getCalculationResult(calcConfigName) : null;      
-      computeDeltaModel(deltaDefinition, deltaModel, targetSpec, calcConfigName, previousCalcModel, resultCalcModel);
+      ViewCalculationResultModel previousCalcModel = previousResult != null ? previousResult.getCalculationResult(calcConfigName) : null;
+      if ((resultCalcModel instanceof ViewCalculationResultModelImpl) && ((previousCalcModel == null) || (previousCalcModel instanceof ViewCalculationResultModelImpl))) {
+        // Compare a column at a time, producing masks of the changed cells
+        final ViewCalculationResultModelImpl resultColumns = (ViewCalculationResultModelImpl) resultCalcModel;
+        deltaModel.addDeltas(calcConfigName, resultColumns, resultColumns.computeDeltas((ViewCalculationResultModelImpl) previousCalcModel, deltaDefinition));
+      } else {
+        for (ComputationTargetSpecification targetSpec : resultCalcModel.getAllTargets()) {
+          computeDeltaModel(deltaDefinition, deltaModel, targetSpec, calcConfigName, previousCalcModel, resultCalcModel);
+        }
+      }
     }
+    return deltaModel;
   }
 
   private static void computeDeltaModel(DeltaDefinition deltaDefinition, InMemoryViewDeltaResultModel deltaModel, ComputationTargetSpecification targetSpec,
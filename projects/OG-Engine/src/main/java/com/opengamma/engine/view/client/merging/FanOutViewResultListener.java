@@ -0,0 +1,179 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.view.client.merging;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.time.Instant;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.opengamma.engine.view.ViewComputationResultModel;
+import com.opengamma.engine.view.ViewDeltaResultModel;
+import com.opengamma.engine.view.calc.ViewCycleMetadata;
+import com.opengamma.engine.view.compilation.CompiledViewDefinition;
+import com.opengamma.engine.view.execution.ViewCycleExecutionOptions;
+import com.opengamma.engine.view.listener.ViewResultListener;
+import com.opengamma.livedata.UserPrincipal;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Passes each update to a changing set of listeners. The set is copied on write so that updates are never blocked by,
+ * and never block, listeners being added or removed. An error from one listener does not prevent the update reaching
+ * the others.
+ */
+public class FanOutViewResultListener implements ViewResultListener {
+
+  private static final Logger s_logger = LoggerFactory.getLogger(FanOutViewResultListener.class);
+
+  private final CopyOnWriteArrayList<ViewResultListener> _listeners = new CopyOnWriteArrayList<ViewResultListener>();
+
+  /**
+   * Adds a listener.
+   *
+   * @param listener  the listener to add, not null
+   */
+  public void addListener(final ViewResultListener listener) {
+    ArgumentChecker.notNull(listener, "listener");
+    _listeners.addIfAbsent(listener);
+  }
+
+  /**
+   * Removes a listener.
+   *
+   * @param listener  the listener to remove, not null
+   * @return true if there are no listeners remaining
+   */
+  public boolean removeListener(final ViewResultListener listener) {
+    _listeners.remove(listener);
+    return _listeners.isEmpty();
+  }
+
+  /**
+   * Gets the number of listeners.
+   *
+   * @return the number of listeners
+   */
+  public int getListenerCount() {
+    return _listeners.size();
+  }
+
+  private void logListenerError(final ViewResultListener listener, final Exception e) {
+    s_logger.error("Error while calling listener " + listener, e);
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Always returns null; the listeners may belong to different users.
+   *
+   * @return null
+   */
+  @Override
+  public UserPrincipal getUser() {
+    return null;
+  }
+
+  @Override
+  public void viewDefinitionCompiled(CompiledViewDefinition compiledViewDefinition, boolean hasMarketDataPermissions) {
+    for (ViewResultListener listener : _listeners) {
+      try {
+        listener.viewDefinitionCompiled(compiledViewDefinition, hasMarketDataPermissions);
+      } catch (Exception e) {
+        logListenerError(listener, e);
+      }
+    }
+  }
+
+  @Override
+  public void viewDefinitionCompilationFailed(Instant valuationTime, Exception exception) {
+    for (ViewResultListener listener : _listeners) {
+      try {
+        listener.viewDefinitionCompilationFailed(valuationTime, exception);
+      } catch (Exception e) {
+        logListenerError(listener, e);
+      }
+    }
+  }
+
+  @Override
+  public void cycleStarted(ViewCycleMetadata cycleMetadata) {
+    for (ViewResultListener listener : _listeners) {
+      try {
+        listener.cycleStarted(cycleMetadata);
+      } catch (Exception e) {
+        logListenerError(listener, e);
+      }
+    }
+  }
+
+  @Override
+  public void cycleCompleted(ViewComputationResultModel fullResult, ViewDeltaResultModel deltaResult) {
+    for (ViewResultListener listener : _listeners) {
+      try {
+        listener.cycleCompleted(fullResult, deltaResult);
+      } catch (Exception e) {
+        logListenerError(listener, e);
+      }
+    }
+  }
+
+  @Override
+  public void cycleFragmentCompleted(ViewComputationResultModel fullFragment, ViewDeltaResultModel deltaFragment) {
+    for (ViewResultListener listener : _listeners) {
+      try {
+        listener.cycleFragmentCompleted(fullFragment, deltaFragment);
+      } catch (Exception e) {
+        logListenerError(listener, e);
+      }
+    }
+  }
+
+  @Override
+  public void cycleExecutionFailed(ViewCycleExecutionOptions executionOptions, Exception exception) {
+    for (ViewResultListener listener : _listeners) {
+      try {
+        listener.cycleExecutionFailed(executionOptions, exception);
+      } catch (Exception e) {
+        logListenerError(listener, e);
+      }
+    }
+  }
+
+  @Override
+  public void processCompleted() {
+    for (ViewResultListener listener : _listeners) {
+      try {
+        listener.processCompleted();
+      } catch (Exception e) {
+        logListenerError(listener, e);
+      }
+    }
+  }
+
+  @Override
+  public void processTerminated(boolean executionInterrupted) {
+    for (ViewResultListener listener : _listeners) {
+      try {
+        listener.processTerminated(executionInterrupted);
+      } catch (Exception e) {
+        logListenerError(listener, e);
+      }
+    }
+  }
+
+  @Override
+  public void clientShutdown(Exception e) {
+    for (ViewResultListener listener : _listeners) {
+      try {
+        listener.clientShutdown(e);
+      } catch (Exception ex) {
+        logListenerError(listener, ex);
+      }
+    }
+  }
+
+}
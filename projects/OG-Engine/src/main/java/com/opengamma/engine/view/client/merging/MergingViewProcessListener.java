@@ -51,6 +51,11 @@ public class MergingViewProcessListener implements ViewResultListener {
    */
   private final AtomicLong _lastUpdateMillis = new AtomicLong(0);
   
+  /**
+   * The number of cycle results which have been merged into a later result rather than being passed on.
+   */
+  private final AtomicLong _cyclesMerged = new AtomicLong(0);
+  
   private final List<Function<ViewResultListener, ?>> _callQueue = new LinkedList<Function<ViewResultListener, ?>>();
   
   private int _previousCycleStartedIndex = -1;
@@ -110,6 +115,16 @@ public class MergingViewProcessListener implements ViewResultListener {
     return _lastUpdateMillis.get();
   }
   
+  /**
+   * Gets the number of cycle results which have been merged into a later result rather than being passed on
+   * individually.
+   * 
+   * @return the number of merged results
+   */
+  public long getCyclesMerged() {
+    return _cyclesMerged.get();
+  }
+  
   //-------------------------------------------------------------------------
   public boolean isLatestResultCycleRetained() {
     return _isLatestResultCycleRetained;
@@ -199,6 +214,7 @@ public class MergingViewProcessListener implements ViewResultListener {
           CycleCompletedCall cycleCompletedCall = pullCallToEnd(_cycleCompletedIndex);
           // Merge new cycle completed call into old one
           cycleCompletedCall.update(fullResult, deltaResult);
+          _cyclesMerged.incrementAndGet();
         } else {
           // No existing cycle completed call - add new one
           CycleCompletedCall cycleCompletedCall = new CycleCompletedCall(fullResult, deltaResult);
@@ -0,0 +1,176 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.view.client.merging;
+
+import java.util.Timer;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.opengamma.engine.view.ViewComputationResultModel;
+import com.opengamma.engine.view.ViewDeltaResultModel;
+import com.opengamma.engine.view.calc.EngineResourceManagerInternal;
+import com.opengamma.engine.view.calc.ViewCycleMetadata;
+import com.opengamma.engine.view.listener.ViewResultListener;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Merges the results of a view process once at a given update rate on behalf of any number of view clients, passing
+ * the same merged results to each.
+ * <p>
+ * Each member client continues to receive the updates from the view process and offers the cycle updates to this
+ * instance. The view process passes the same objects to every client, so an update is only merged the first time it
+ * is offered and subsequent offers from other members are ignored. Updates which are not cycle results are not handled
+ * here; a member must call {@link #flush} before acting on such an update so that it is ordered correctly with respect
+ * to any results still waiting to be released.
+ */
+public class SharedResultFanOut {
+
+  private final ReentrantLock _offerLock = new ReentrantLock();
+  private final FanOutViewResultListener _fanOut = new FanOutViewResultListener();
+  private final RateLimitingMergingViewProcessListener _merger;
+  private final long _updatePeriodMillis;
+  private final AtomicLong _cyclesReceived = new AtomicLong();
+
+  private Object _lastCycleStarted;
+  private Object _lastCycleCompleted;
+  private Object _lastCycleFragmentCompleted;
+
+  /**
+   * Constructs an instance.
+   *
+   * @param cycleManager  the view cycle manager, not null
+   * @param timer  the timer used to release merged results, not null
+   * @param updatePeriodMillis  the minimum time between results, in milliseconds
+   */
+  public SharedResultFanOut(final EngineResourceManagerInternal<?> cycleManager, final Timer timer, final long updatePeriodMillis) {
+    ArgumentChecker.notNull(cycleManager, "cycleManager");
+    ArgumentChecker.notNull(timer, "timer");
+    ArgumentChecker.isTrue(updatePeriodMillis > 0, "updatePeriodMillis must be positive");
+    _updatePeriodMillis = updatePeriodMillis;
+    _merger = new RateLimitingMergingViewProcessListener(_fanOut, cycleManager, timer);
+    _merger.setMinimumUpdatePeriodMillis(updatePeriodMillis);
+  }
+
+  public long getUpdatePeriodMillis() {
+    return _updatePeriodMillis;
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Adds a listener to receive the merged results.
+   *
+   * @param listener  the listener, not null
+   */
+  public void addListener(final ViewResultListener listener) {
+    _fanOut.addListener(listener);
+  }
+
+  /**
+   * Removes a listener. Once the last listener has been removed the instance is terminated and must be discarded.
+   *
+   * @param listener  the listener, not null
+   * @return true if there are no listeners remaining
+   */
+  public boolean removeListener(final ViewResultListener listener) {
+    if (_fanOut.removeListener(listener)) {
+      _merger.terminate();
+      return true;
+    }
+    return false;
+  }
+
+  public int getListenerCount() {
+    return _fanOut.getListenerCount();
+  }
+
+  /**
+   * Gets the number of distinct cycle results received from the view process.
+   *
+   * @return the number of results
+   */
+  public long getCyclesReceived() {
+    return _cyclesReceived.get();
+  }
+
+  /**
+   * Gets the number of cycle results which were merged into a later result rather than passed on individually.
+   *
+   * @return the number of results
+   */
+  public long getCyclesMerged() {
+    return _merger.getCyclesMerged();
+  }
+
+  //-------------------------------------------------------------------------
+  private boolean isNew(final Object update, final Object last) {
+    return (update == null) || (update != last);
+  }
+
+  /**
+   * Offers a cycle started notification from the view process.
+   *
+   * @param cycleMetadata  the cycle metadata
+   */
+  public void cycleStarted(final ViewCycleMetadata cycleMetadata) {
+    _offerLock.lock();
+    try {
+      if (!isNew(cycleMetadata, _lastCycleStarted)) {
+        return;
+      }
+      _lastCycleStarted = cycleMetadata;
+      _merger.cycleStarted(cycleMetadata);
+    } finally {
+      _offerLock.unlock();
+    }
+  }
+
+  /**
+   * Offers a cycle result from the view process.
+   *
+   * @param fullResult  the full result
+   * @param deltaResult  the delta result
+   */
+  public void cycleCompleted(final ViewComputationResultModel fullResult, final ViewDeltaResultModel deltaResult) {
+    _offerLock.lock();
+    try {
+      if (!isNew(fullResult, _lastCycleCompleted)) {
+        return;
+      }
+      _lastCycleCompleted = fullResult;
+      _cyclesReceived.incrementAndGet();
+      _merger.cycleCompleted(fullResult, deltaResult);
+    } finally {
+      _offerLock.unlock();
+    }
+  }
+
+  /**
+   * Offers a cycle fragment result from the view process.
+   *
+   * @param fullFragment  the full fragment
+   * @param deltaFragment  the delta fragment
+   */
+  public void cycleFragmentCompleted(final ViewComputationResultModel fullFragment, final ViewDeltaResultModel deltaFragment) {
+    _offerLock.lock();
+    try {
+      if (!isNew(fullFragment, _lastCycleFragmentCompleted)) {
+        return;
+      }
+      _lastCycleFragmentCompleted = fullFragment;
+      _merger.cycleFragmentCompleted(fullFragment, deltaFragment);
+    } finally {
+      _offerLock.unlock();
+    }
+  }
+
+  /**
+   * Releases any merged results to the listeners immediately.
+   */
+  public void flush() {
+    _merger.drain();
+  }
+
+}
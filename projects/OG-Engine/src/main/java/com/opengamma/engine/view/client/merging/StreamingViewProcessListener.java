@@ -0,0 +1,350 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.view.client.merging;
+
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.time.Instant;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Function;
+import com.opengamma.engine.view.ViewComputationResultModel;
+import com.opengamma.engine.view.ViewDeltaResultModel;
+import com.opengamma.engine.view.calc.ViewCycleMetadata;
+import com.opengamma.engine.view.compilation.CompiledViewDefinition;
+import com.opengamma.engine.view.execution.ViewCycleExecutionOptions;
+import com.opengamma.engine.view.listener.ClientShutdownCall;
+import com.opengamma.engine.view.listener.CycleCompletedCall;
+import com.opengamma.engine.view.listener.CycleExecutionFailedCall;
+import com.opengamma.engine.view.listener.CycleFragmentCompletedCall;
+import com.opengamma.engine.view.listener.CycleStartedCall;
+import com.opengamma.engine.view.listener.ProcessCompletedCall;
+import com.opengamma.engine.view.listener.ProcessTerminatedCall;
+import com.opengamma.engine.view.listener.ViewDefinitionCompilationFailedCall;
+import com.opengamma.engine.view.listener.ViewDefinitionCompiledCall;
+import com.opengamma.engine.view.listener.ViewResultListener;
+import com.opengamma.livedata.UserPrincipal;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Streams view process updates to an underlying listener through a bounded queue, delivering them on a separate thread
+ * so that a slow listener cannot hold up the view process that is producing them.
+ * <p>
+ * Updates are delivered in the order they are received. When the queue is full, updates are merged in the same way as
+ * {@link MergingViewProcessListener}:
+ * <ul>
+ * <li>a cycle fragment that arrives immediately after another is merged into it;
+ * <li>a completed cycle is merged into any completed cycle still waiting, which is moved to the end of the queue;
+ * <li>the fragments, and the cycle started calls for all but the latest cycle, that the merged result supersedes are dropped.
+ * </ul>
+ * The number of queued updates is therefore bounded by the capacity plus the started, fragment and completed calls of
+ * one cycle, and any compilation or failure notifications. A listener that keeps up receives each fragment as it is
+ * produced; one that falls behind receives fewer, larger, fragments and only the latest cycle results.
+ */
+public class StreamingViewProcessListener implements ViewResultListener {
+
+  private static final Logger s_logger = LoggerFactory.getLogger(StreamingViewProcessListener.class);
+
+  private final ReentrantLock _queueLock = new ReentrantLock();
+  private final ViewResultListener _underlying;
+  private final Executor _executor;
+  private int _capacity;
+  private final LinkedList<Function<ViewResultListener, ?>> _callQueue = new LinkedList<Function<ViewResultListener, ?>>();
+  private boolean _isDispatching;
+  private boolean _isTerminated;
+  private final AtomicLong _fragmentsQueued = new AtomicLong();
+  private final AtomicLong _fragmentsMerged = new AtomicLong();
+  private final AtomicLong _cyclesMerged = new AtomicLong();
+
+  private final Runnable _dispatcher = new Runnable() {
+    @Override
+    public void run() {
+      dispatch();
+    }
+  };
+
+  /**
+   * Constructs an instance.
+   *
+   * @param underlying  the listener to deliver the updates to, not null
+   * @param executor  the executor to deliver the updates with, not null
+   * @param capacity  the number of updates that may be queued before fragments are merged, at least one
+   */
+  public StreamingViewProcessListener(final ViewResultListener underlying, final Executor executor, final int capacity) {
+    ArgumentChecker.notNull(underlying, "underlying");
+    ArgumentChecker.notNull(executor, "executor");
+    ArgumentChecker.isTrue(capacity > 0, "capacity must be positive");
+    _underlying = underlying;
+    _executor = executor;
+    _capacity = capacity;
+  }
+
+  public ViewResultListener getUnderlying() {
+    return _underlying;
+  }
+
+  public int getCapacity() {
+    _queueLock.lock();
+    try {
+      return _capacity;
+    } finally {
+      _queueLock.unlock();
+    }
+  }
+
+  /**
+   * Sets the number of updates that may be queued before fragments are merged. Updates already queued are kept.
+   *
+   * @param capacity  the capacity, at least one
+   */
+  public void setCapacity(final int capacity) {
+    ArgumentChecker.isTrue(capacity > 0, "capacity must be positive");
+    _queueLock.lock();
+    try {
+      _capacity = capacity;
+    } finally {
+      _queueLock.unlock();
+    }
+  }
+
+  /**
+   * Stops delivering updates to the underlying listener. Any that are still queued are discarded and any received
+   * afterwards are ignored; this is used when the listener is replaced so that it does not receive results which are
+   * also delivered to its replacement.
+   */
+  public void terminate() {
+    _queueLock.lock();
+    try {
+      _isTerminated = true;
+      _callQueue.clear();
+    } finally {
+      _queueLock.unlock();
+    }
+  }
+
+  /**
+   * Gets the number of updates waiting to be delivered.
+   *
+   * @return the number of updates
+   */
+  public int getQueueSize() {
+    _queueLock.lock();
+    try {
+      return _callQueue.size();
+    } finally {
+      _queueLock.unlock();
+    }
+  }
+
+  /**
+   * Gets the number of cycle fragments that have been queued for delivery.
+   *
+   * @return the number of fragments
+   */
+  public long getFragmentsQueued() {
+    return _fragmentsQueued.get();
+  }
+
+  /**
+   * Gets the number of cycle fragments that were merged into a previously queued fragment, or dropped in favour of a
+   * completed cycle result, because the queue was full.
+   *
+   * @return the number of fragments
+   */
+  public long getFragmentsMerged() {
+    return _fragmentsMerged.get();
+  }
+
+  /**
+   * Gets the number of cycle results that were merged into a later result because the queue was full.
+   *
+   * @return the number of results
+   */
+  public long getCyclesMerged() {
+    return _cyclesMerged.get();
+  }
+
+  //-------------------------------------------------------------------------
+  private void enqueue(final Function<ViewResultListener, ?> call) {
+    _queueLock.lock();
+    try {
+      if (_isTerminated) {
+        return;
+      }
+      _callQueue.add(call);
+      startDispatching();
+    } finally {
+      _queueLock.unlock();
+    }
+  }
+
+  private void startDispatching() {
+    // Caller must hold the queue lock
+    if (!_isDispatching) {
+      _isDispatching = true;
+      try {
+        _executor.execute(_dispatcher);
+      } catch (RuntimeException e) {
+        _isDispatching = false;
+        throw e;
+      }
+    }
+  }
+
+  private void dispatch() {
+    do {
+      final Function<ViewResultListener, ?> call;
+      _queueLock.lock();
+      try {
+        call = _callQueue.poll();
+        if (call == null) {
+          _isDispatching = false;
+          return;
+        }
+      } finally {
+        _queueLock.unlock();
+      }
+      try {
+        call.apply(getUnderlying());
+      } catch (Exception e) {
+        s_logger.error("Error delivering update to " + getUnderlying(), e);
+      }
+    } while (true);
+  }
+
+  //-------------------------------------------------------------------------
+  @Override
+  public UserPrincipal getUser() {
+    return getUnderlying().getUser();
+  }
+
+  @Override
+  public void viewDefinitionCompiled(CompiledViewDefinition compiledViewDefinition, boolean hasMarketDataPermissions) {
+    enqueue(new ViewDefinitionCompiledCall(compiledViewDefinition, hasMarketDataPermissions));
+  }
+
+  @Override
+  public void viewDefinitionCompilationFailed(Instant valuationTime, Exception exception) {
+    enqueue(new ViewDefinitionCompilationFailedCall(valuationTime, exception));
+  }
+
+  @Override
+  public void cycleStarted(ViewCycleMetadata cycleMetadata) {
+    enqueue(new CycleStartedCall(cycleMetadata));
+  }
+
+  @Override
+  public void cycleCompleted(ViewComputationResultModel fullResult, ViewDeltaResultModel deltaResult) {
+    _queueLock.lock();
+    try {
+      if (_isTerminated) {
+        return;
+      }
+      if (_callQueue.size() >= _capacity) {
+        // The listener has fallen behind; collapse the waiting cycle calls into this result
+        mergeCycleCompleted(fullResult, deltaResult);
+      } else {
+        _callQueue.add(new CycleCompletedCall(fullResult, deltaResult));
+      }
+      startDispatching();
+    } finally {
+      _queueLock.unlock();
+    }
+  }
+
+  /**
+   * Merges a completed cycle into the waiting calls. A single cycle completed call is kept, updated with each waiting
+   * result in turn and then the new one, and moved to the end of the queue. The fragments are superseded by the full
+   * result so are dropped, as are the cycle started calls for all but the latest cycle. Other calls are kept in order.
+   * The caller must hold the queue lock.
+   */
+  private void mergeCycleCompleted(final ViewComputationResultModel fullResult, final ViewDeltaResultModel deltaResult) {
+    CycleCompletedCall cycleCompleted = null;
+    Function<ViewResultListener, ?> cycleStarted = null;
+    final Iterator<Function<ViewResultListener, ?>> itr = _callQueue.iterator();
+    while (itr.hasNext()) {
+      final Function<ViewResultListener, ?> call = itr.next();
+      if (call instanceof CycleCompletedCall) {
+        itr.remove();
+        if (cycleCompleted == null) {
+          cycleCompleted = (CycleCompletedCall) call;
+        } else {
+          cycleCompleted.update(((CycleCompletedCall) call).getFullResult(), ((CycleCompletedCall) call).getDeltaResult());
+          _cyclesMerged.incrementAndGet();
+        }
+      } else if (call instanceof CycleFragmentCompletedCall) {
+        itr.remove();
+        _fragmentsMerged.incrementAndGet();
+      } else if (call instanceof CycleStartedCall) {
+        itr.remove();
+        cycleStarted = call;
+      }
+    }
+    if (cycleStarted != null) {
+      _callQueue.add(cycleStarted);
+    }
+    if (cycleCompleted == null) {
+      _callQueue.add(new CycleCompletedCall(fullResult, deltaResult));
+    } else {
+      cycleCompleted.update(fullResult, deltaResult);
+      _cyclesMerged.incrementAndGet();
+      _callQueue.add(cycleCompleted);
+    }
+  }
+
+  @Override
+  public void cycleFragmentCompleted(ViewComputationResultModel fullFragment, ViewDeltaResultModel deltaFragment) {
+    _fragmentsQueued.incrementAndGet();
+    _queueLock.lock();
+    try {
+      if (_isTerminated) {
+        return;
+      }
+      if ((_callQueue.size() >= _capacity) && (_callQueue.getLast() instanceof CycleFragmentCompletedCall)) {
+        // The listener has fallen behind; merge into the fragment still waiting rather than queue another
+        ((CycleFragmentCompletedCall) _callQueue.getLast()).update(fullFragment, deltaFragment);
+        _fragmentsMerged.incrementAndGet();
+      } else {
+        _callQueue.add(new CycleFragmentCompletedCall(fullFragment, deltaFragment));
+        startDispatching();
+      }
+    } finally {
+      _queueLock.unlock();
+    }
+  }
+
+  @Override
+  public void cycleExecutionFailed(ViewCycleExecutionOptions executionOptions, Exception exception) {
+    enqueue(new CycleExecutionFailedCall(executionOptions, exception));
+  }
+
+  @Override
+  public void processCompleted() {
+    enqueue(new ProcessCompletedCall());
+  }
+
+  @Override
+  public void processTerminated(boolean executionInterrupted) {
+    enqueue(new ProcessTerminatedCall(executionInterrupted));
+  }
+
+  @Override
+  public void clientShutdown(Exception e) {
+    enqueue(new ClientShutdownCall(e));
+  }
+
+  @Override
+  public String toString() {
+    return "StreamingViewProcessListener[" + getUnderlying() + "]";
+  }
+
+}
@@ -11,6 +11,7 @@ import com.opengamma.engine.ComputationTargetSpecification;
 import com.opengamma.engine.value.ComputedValueResult;
 import com.opengamma.engine.view.InMemoryViewResultModel;
 import com.opengamma.engine.view.ViewCalculationResultModel;
+import com.opengamma.engine.view.ViewCalculationResultModelImpl;
 import com.opengamma.engine.view.ViewResultModel;
 
 /**
@@ -33,15 +34,25 @@ public class ViewResultModelMergeUtils {
     destination.setViewCycleId(source.getViewCycleId());
     destination.setViewProcessId(source.getViewProcessId());
     
-    for (ComputationTargetSpecification targetSpec : source.getAllTargets()) {
-      for (String calcConfigName : source.getCalculationConfigurationNames()) {
-        ViewCalculationResultModel resultCalcModel = source.getCalculationResult(calcConfigName);
-        Collection<ComputedValueResult> resultValues = resultCalcModel.getAllValues(targetSpec);
-        if (resultValues == null) {
-          continue;
+    for (String calcConfigName : source.getCalculationConfigurationNames()) {
+      ViewCalculationResultModel resultCalcModel = source.getCalculationResult(calcConfigName);
+      if (resultCalcModel instanceof ViewCalculationResultModelImpl) {
+        // Work through the columns directly rather than constructing the per-target collections
+        ViewCalculationResultModelImpl columns = (ViewCalculationResultModelImpl) resultCalcModel;
+        for (int column = 0; column < columns.getColumnCount(); column++) {
+          for (int cell = 0; cell < columns.getCellCount(column); cell++) {
+            destination.addValue(calcConfigName, columns.getCellResult(column, cell));
+          }
         }
-        for (ComputedValueResult result : resultValues) {
-          destination.addValue(calcConfigName, result);
+      } else {
+        for (ComputationTargetSpecification targetSpec : resultCalcModel.getAllTargets()) {
+          Collection<ComputedValueResult> resultValues = resultCalcModel.getAllValues(targetSpec);
+          if (resultValues == null) {
+            continue;
+          }
+          for (ComputedValueResult result : resultValues) {
+            destination.addValue(calcConfigName, result);
+          }
         }
       }
     }
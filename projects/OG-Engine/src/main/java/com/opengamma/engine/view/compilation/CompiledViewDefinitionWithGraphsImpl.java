@@ -19,6 +19,7 @@ import com.opengamma.engine.depgraph.DependencyGraphExplorer;
 import com.opengamma.engine.depgraph.DependencyGraphExplorerImpl;
 import com.opengamma.engine.depgraph.DependencyNode;
 import com.opengamma.engine.view.ViewDefinition;
+import com.opengamma.engine.view.calc.SharedDependencyNodes;
 import com.opengamma.util.ArgumentChecker;
 import com.opengamma.util.tuple.Pair;
 
@@ -29,6 +30,7 @@ public class CompiledViewDefinitionWithGraphsImpl extends CompiledViewDefinition
 
   private final Map<String, DependencyGraph> _graphsByConfiguration;
   private final long _functionInitId;
+  private volatile SharedDependencyNodes _sharedDependencyNodes;
 
   /**
    * Constructs an instance.
@@ -85,6 +87,26 @@ public class CompiledViewDefinitionWithGraphsImpl extends CompiledViewDefinition
     ArgumentChecker.notNull(calcConfigName, "calcConfigName");
     return _graphsByConfiguration.get(calcConfigName);
   }
+
+  /**
+   * Gets the dependency nodes which are shared between calculation configurations. These are identified when first
+   * requested and then used by every cycle that uses this compiled view definition.
+   * 
+   * @return the shared dependency nodes, not null
+   */
+  public SharedDependencyNodes getSharedDependencyNodes() {
+    SharedDependencyNodes sharedNodes = _sharedDependencyNodes;
+    if (sharedNodes == null) {
+      synchronized (this) {
+        sharedNodes = _sharedDependencyNodes;
+        if (sharedNodes == null) {
+          sharedNodes = new SharedDependencyNodes(this);
+          _sharedDependencyNodes = sharedNodes;
+        }
+      }
+    }
+    return sharedNodes;
+  }
   
   //-------------------------------------------------------------------------
   /**
@@ -5,13 +5,21 @@
  */
 package com.opengamma.engine.view.compilation;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import com.opengamma.DataNotFoundException;
 import com.opengamma.OpenGammaRuntimeException;
 import com.opengamma.core.position.Portfolio;
 import com.opengamma.core.position.Position;
 import com.opengamma.core.position.PositionSource;
+import com.opengamma.core.position.impl.AbstractPortfolioNodeTraversalCallback;
 import com.opengamma.core.position.impl.PortfolioNodeTraverser;
 import com.opengamma.core.position.impl.SimplePortfolio;
 import com.opengamma.core.security.Security;
@@ -29,6 +37,11 @@ import com.opengamma.id.VersionCorrection;
  */
 public final class PortfolioCompiler {
 
+  /**
+   * The smallest number of positions worth building as a partition of their own.
+   */
+  private static final int MIN_PARTITION_SIZE = 100;
+
   private PortfolioCompiler() {
   }
 
@@ -54,6 +67,9 @@ public final class PortfolioCompiler {
     }
 
     Portfolio portfolio = forcePortfolioResolution ? getPortfolio(compilationContext, versionCorrection) : null;
+    // Builds are sequential unless partitioning is enabled, in which case all the builders run concurrently
+    final List<DependencyGraphBuilder> concurrentBuilds = (compilationContext.getServices().getDependencyGraphBuilder().getPartitions() > 1) ? new ArrayList<DependencyGraphBuilder>() : null;
+    final List<ViewCalculationConfiguration> partitionedConfigs = new ArrayList<ViewCalculationConfiguration>();
 
     for (ViewCalculationConfiguration calcConfig : compilationContext.getViewDefinition().getAllCalculationConfigurations()) {
       if (calcConfig.getAllPortfolioRequirements().size() == 0) {
@@ -68,21 +84,199 @@ public final class PortfolioCompiler {
       
       // Add portfolio requirements to the dependency graph
       final DependencyGraphBuilder builder = compilationContext.getBuilder(calcConfig.getName());
-      final PortfolioCompilerTraversalCallback traversalCallback = new PortfolioCompilerTraversalCallback(calcConfig, builder);
-      PortfolioNodeTraverser.parallel(traversalCallback, compilationContext.getServices().getExecutorService()).traverse(portfolio.getRootNode());
+      final List<DependencyGraphBuilder> partitionBuilders = compilationContext.getPartitionBuilders(calcConfig.getName());
+      if (partitionBuilders.isEmpty()) {
+        final PortfolioCompilerTraversalCallback traversalCallback = new PortfolioCompilerTraversalCallback(compilationContext, calcConfig);
+        PortfolioNodeTraverser.parallel(traversalCallback, compilationContext.getServices().getExecutorService()).traverse(portfolio.getRootNode());
+      } else {
+        addPartitionedRequirements(compilationContext, calcConfig, portfolio, partitionBuilders);
+        partitionedConfigs.add(calcConfig);
+      }
 
-      // TODO: Use a heuristic to decide whether to let the graph builds run in parallel, or sequentially. We will force sequential builds for the time being.
-      try {
-        builder.waitForDependencyGraphBuild();
-      } catch (InterruptedException e) {
-        throw new OpenGammaRuntimeException("Interrupted", e);
+      if (concurrentBuilds != null) {
+        concurrentBuilds.add(builder);
+        concurrentBuilds.addAll(partitionBuilders);
+      } else {
+        // TODO: Use a heuristic to decide whether to let the graph builds run in parallel, or sequentially. We will force sequential builds for the time being.
+        try {
+          builder.waitForDependencyGraphBuild();
+        } catch (InterruptedException e) {
+          throw new OpenGammaRuntimeException("Interrupted", e);
+        }
       }
 
     }
+
+    if (concurrentBuilds != null) {
+      waitForDependencyGraphBuilds(compilationContext, concurrentBuilds);
+      // The portfolio node requirements of partitioned configurations can only be resolved once the positions beneath them have been
+      final List<DependencyGraphBuilder> nodeBuilds = new ArrayList<DependencyGraphBuilder>(partitionedConfigs.size());
+      for (ViewCalculationConfiguration calcConfig : partitionedConfigs) {
+        if (addNodeRequirements(compilationContext, calcConfig, portfolio)) {
+          nodeBuilds.add(compilationContext.getBuilder(calcConfig.getName()));
+        }
+      }
+      waitForDependencyGraphBuilds(compilationContext, nodeBuilds);
+    }
     
     return portfolio;
   }
 
+  /**
+   * Tests whether the portfolio requirements of a calculation configuration can be divided between partitions. Only the position and trade
+   * requirements are divided; requirements on portfolio nodes depend on every position beneath them so are resolved by the configuration's
+   * own builder after the partitions have completed.
+   * 
+   * @param calcConfig the calculation configuration, not null
+   * @return true if the requirements can be partitioned, false otherwise
+   */
+  /* package */static boolean isPartitionable(final ViewCalculationConfiguration calcConfig) {
+    final ResultModelDefinition resultModel = calcConfig.getViewDefinition().getResultModelDefinition();
+    return (resultModel.getPositionOutputMode() != ResultOutputMode.NONE) || (resultModel.getAggregatePositionOutputMode() != ResultOutputMode.NONE)
+        || (resultModel.getTradeOutputMode() != ResultOutputMode.NONE);
+  }
+
+  /**
+   * Adds the position and trade requirements to the partition builders. The positions are taken in depth-first order, so each partition
+   * receives whole sub-trees where possible, and divided into equal contiguous blocks. Small portfolios use fewer partitions.
+   */
+  private static void addPartitionedRequirements(final ViewCompilationContext compilationContext, final ViewCalculationConfiguration calcConfig, final Portfolio portfolio,
+      final List<DependencyGraphBuilder> partitionBuilders) {
+    final List<Position> positions = new ArrayList<Position>();
+    PortfolioNodeTraverser.depthFirst(new AbstractPortfolioNodeTraversalCallback() {
+      @Override
+      public void preOrderOperation(final Position position) {
+        positions.add(position);
+      }
+    }).traverse(portfolio.getRootNode());
+    final int partitions = Math.max(1, Math.min(partitionBuilders.size(), positions.size() / MIN_PARTITION_SIZE));
+    final List<Callable<Void>> tasks = new ArrayList<Callable<Void>>(partitions);
+    for (int i = 0; i < partitions; i++) {
+      final List<Position> partition = positions.subList((positions.size() * i) / partitions, (positions.size() * (i + 1)) / partitions);
+      final PortfolioCompilerTraversalCallback callback = new PortfolioCompilerTraversalCallback(compilationContext, calcConfig, partitionBuilders.get(i), true, false);
+      tasks.add(new Callable<Void>() {
+        @Override
+        public Void call() {
+          for (Position position : partition) {
+            callback.preOrderOperation(position);
+          }
+          return null;
+        }
+      });
+    }
+    runConcurrently(compilationContext.getServices().getExecutorService(), tasks);
+  }
+
+  /**
+   * Adds the portfolio node requirements of a partitioned configuration to its builder. The partitions must have completed; their resolutions
+   * are given to the builder so that the position values the node requirements depend on are not resolved again.
+   * 
+   * @return true if requirements were added, false if the configuration has no aggregate outputs
+   */
+  private static boolean addNodeRequirements(final ViewCompilationContext compilationContext, final ViewCalculationConfiguration calcConfig, final Portfolio portfolio) {
+    if (calcConfig.getViewDefinition().getResultModelDefinition().getAggregatePositionOutputMode() == ResultOutputMode.NONE) {
+      return false;
+    }
+    final DependencyGraphBuilder builder = compilationContext.getBuilder(calcConfig.getName());
+    for (DependencyGraphBuilder partition : compilationContext.getPartitionBuilders(calcConfig.getName())) {
+      builder.addResolvedValues(partition);
+    }
+    PortfolioNodeTraverser.depthFirst(new PortfolioCompilerTraversalCallback(compilationContext, calcConfig, builder, false, true)).traverse(portfolio.getRootNode());
+    return true;
+  }
+
+  /**
+   * Blocks until all of the builders have completed, running each on its own compilation executor thread where one is free so that the
+   * calling threads of each build operate concurrently.
+   */
+  private static void waitForDependencyGraphBuilds(final ViewCompilationContext compilationContext, final List<DependencyGraphBuilder> builders) {
+    final List<Callable<Void>> tasks = new ArrayList<Callable<Void>>(builders.size());
+    for (final DependencyGraphBuilder builder : builders) {
+      tasks.add(new Callable<Void>() {
+        @Override
+        public Void call() throws InterruptedException {
+          builder.waitForDependencyGraphBuild();
+          return null;
+        }
+      });
+    }
+    runConcurrently(compilationContext.getServices().getExecutorService(), tasks);
+  }
+
+  /**
+   * A task which is run by whichever of the executor or the waiting caller claims it first.
+   */
+  private static final class ClaimableTask implements Callable<Void> {
+
+    private final Callable<Void> _task;
+    private final AtomicBoolean _claimed = new AtomicBoolean();
+
+    private ClaimableTask(final Callable<Void> task) {
+      _task = task;
+    }
+
+    private boolean claim() {
+      return _claimed.compareAndSet(false, true);
+    }
+
+    private void run() throws Exception {
+      _task.call();
+    }
+
+    @Override
+    public Void call() throws Exception {
+      if (claim()) {
+        run();
+      }
+      return null;
+    }
+
+  }
+
+  /**
+   * Runs the tasks concurrently on the compilation executor and waits for them all to complete. The caller may itself be one of the executor's
+   * tasks, so it runs the first task and then any others that the executor has not yet started, and only waits for tasks which are already
+   * running. A bounded executor that is full therefore delays the tasks rather than deadlocking.
+   */
+  private static void runConcurrently(final ExecutorService executor, final List<Callable<Void>> tasks) {
+    if (tasks.isEmpty()) {
+      return;
+    }
+    final List<ClaimableTask> claimableTasks = new ArrayList<ClaimableTask>(tasks.size() - 1);
+    final List<Future<Void>> futures = new ArrayList<Future<Void>>(tasks.size() - 1);
+    for (Callable<Void> task : tasks.subList(1, tasks.size())) {
+      final ClaimableTask claimableTask = new ClaimableTask(task);
+      claimableTasks.add(claimableTask);
+      Future<Void> future;
+      try {
+        future = executor.submit(claimableTask);
+      } catch (RejectedExecutionException e) {
+        // The caller will run it
+        future = null;
+      }
+      futures.add(future);
+    }
+    try {
+      tasks.get(0).call();
+      for (int i = 0; i < claimableTasks.size(); i++) {
+        final ClaimableTask claimableTask = claimableTasks.get(i);
+        if (claimableTask.claim()) {
+          claimableTask.run();
+        } else {
+          futures.get(i).get();
+        }
+      }
+    } catch (InterruptedException e) {
+      throw new OpenGammaRuntimeException("Interrupted", e);
+    } catch (ExecutionException e) {
+      throw new OpenGammaRuntimeException("Error building partitioned dependency graphs", e.getCause());
+    } catch (RuntimeException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new OpenGammaRuntimeException("Error building partitioned dependency graphs", e);
+    }
+  }
+
   /**
    * Tests whether the view has portfolio outputs enabled.
    * 
@@ -35,20 +35,51 @@ import com.opengamma.util.tuple.Pair;
   private final ViewCalculationConfiguration _calculationConfiguration;
   private final ResultModelDefinition _resultModelDefinition;
   private final ConcurrentMap<UniqueId, Set<Pair<String, ValueProperties>>> _nodeRequirements = new ConcurrentHashMap<UniqueId, Set<Pair<String, ValueProperties>>>();
+  private final ViewCompilationContext _compilationContext;
   private final DependencyGraphBuilder _builder;
+  private final boolean _addPositionRequirements;
+  private final boolean _addNodeRequirements;
 
-  public PortfolioCompilerTraversalCallback(final ViewCalculationConfiguration calculationConfiguration, final DependencyGraphBuilder builder) {
+  /**
+   * Creates a callback that adds all of the portfolio requirements to the configuration's builder.
+   * 
+   * @param compilationContext the compilation context, not null
+   * @param calculationConfiguration the calculation configuration, not null
+   */
+  public PortfolioCompilerTraversalCallback(final ViewCompilationContext compilationContext, final ViewCalculationConfiguration calculationConfiguration) {
+    this(compilationContext, calculationConfiguration, compilationContext.getBuilder(calculationConfiguration.getName()), true, true);
+  }
+
+  /**
+   * Creates a callback that adds some of the portfolio requirements to a builder. A partition builder is given the position and trade requirements
+   * only; these include the position requirements needed for any aggregate outputs even if the positions themselves are not output. The portfolio
+   * node requirements are then given to the configuration's builder once the partitions are complete.
+   * 
+   * @param compilationContext the compilation context, not null
+   * @param calculationConfiguration the calculation configuration, not null
+   * @param builder the builder to add the requirements to, not null
+   * @param addPositionRequirements true to add the position and trade requirements
+   * @param addNodeRequirements true to add the portfolio node requirements
+   */
+  public PortfolioCompilerTraversalCallback(final ViewCompilationContext compilationContext, final ViewCalculationConfiguration calculationConfiguration, final DependencyGraphBuilder builder,
+      final boolean addPositionRequirements, final boolean addNodeRequirements) {
     _calculationConfiguration = calculationConfiguration;
     _resultModelDefinition = calculationConfiguration.getViewDefinition().getResultModelDefinition();
+    _compilationContext = compilationContext;
     _builder = builder;
+    _addPositionRequirements = addPositionRequirements;
+    _addNodeRequirements = addNodeRequirements;
   }
 
   protected void addValueRequirement(final ValueRequirement valueRequirement) {
-    _builder.addTarget(valueRequirement);
+    _compilationContext.addTarget(_builder, valueRequirement);
   }
 
   @Override
   public void preOrderOperation(final PortfolioNode node) {
+    if (!_addNodeRequirements) {
+      return;
+    }
     _nodeRequirements.put(node.getUniqueId(), new HashSet<Pair<String, ValueProperties>>());
     final Set<Pair<String, ValueProperties>> requiredOutputs = _calculationConfiguration.getPortfolioRequirementsBySecurityType().get(ViewCalculationConfiguration.SECURITY_TYPE_AGGREGATE_ONLY);
     if ((requiredOutputs != null) && !requiredOutputs.isEmpty()) {
@@ -71,13 +102,14 @@ import com.opengamma.util.tuple.Pair;
         || (_resultModelDefinition.getPositionOutputMode() != ResultOutputMode.NONE)) {
       requiredOutputs = _calculationConfiguration.getPortfolioRequirementsBySecurityType().get(securityType);
       if ((requiredOutputs != null) && !requiredOutputs.isEmpty()) {
-        if (_resultModelDefinition.getAggregatePositionOutputMode() != ResultOutputMode.NONE) {
+        if (_addNodeRequirements && (_resultModelDefinition.getAggregatePositionOutputMode() != ResultOutputMode.NONE)) {
           final Set<Pair<String, ValueProperties>> nodeRequirements = _nodeRequirements.get(position.getParentNodeId());
           synchronized (nodeRequirements) {
             nodeRequirements.addAll(requiredOutputs);
           }
         }
-        if (_resultModelDefinition.getPositionOutputMode() != ResultOutputMode.NONE) {
+        // A partition resolves the position values for the aggregates too, so that the node requirements resolved afterwards can use them
+        if (_addPositionRequirements && (!_addNodeRequirements || (_resultModelDefinition.getPositionOutputMode() != ResultOutputMode.NONE))) {
           final ComputationTargetSpecification positionSpec = new ComputationTargetSpecification(ComputationTargetType.POSITION, position.getUniqueId());
           for (Pair<String, ValueProperties> requiredOutput : requiredOutputs) {
             addValueRequirement(new ValueRequirement(requiredOutput.getFirst(), positionSpec, requiredOutput.getSecond()));
@@ -85,7 +117,7 @@ import com.opengamma.util.tuple.Pair;
         }
       }
     }
-    if (_resultModelDefinition.getTradeOutputMode() != ResultOutputMode.NONE) {
+    if (_addPositionRequirements && (_resultModelDefinition.getTradeOutputMode() != ResultOutputMode.NONE)) {
       final Collection<Trade> trades = position.getTrades();
       if (!trades.isEmpty()) {
         requiredOutputs = _calculationConfiguration.getTradeRequirementsBySecurityType().get(securityType);
@@ -103,6 +135,9 @@ import com.opengamma.util.tuple.Pair;
 
   @Override
   public void postOrderOperation(final PortfolioNode node) {
+    if (!_addNodeRequirements) {
+      return;
+    }
     final Set<Pair<String, ValueProperties>> nodeRequirements = _nodeRequirements.get(node.getUniqueId());
     if (node.getParentNodeId() != null) {
       final Set<Pair<String, ValueProperties>> parentNodeRequirements = _nodeRequirements.get(node.getParentNodeId());
@@ -41,7 +41,7 @@ public final class SpecificRequirementsCompiler {
           // automatically if it is needed for some other terminal output.
           continue;
         }
-        builder.addTarget(requirement);
+        compilationContext.addTarget(builder, requirement);
       }
     }
     return specificTargetTypes;
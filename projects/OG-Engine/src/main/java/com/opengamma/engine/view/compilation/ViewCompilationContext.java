@@ -5,10 +5,14 @@
  */
 package com.opengamma.engine.view.compilation;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.time.Instant;
 
@@ -17,38 +21,87 @@ import com.opengamma.engine.function.FunctionCompilationContext;
 import com.opengamma.engine.function.resolver.ComputationTargetResults;
 import com.opengamma.engine.function.resolver.DefaultCompiledFunctionResolver;
 import com.opengamma.engine.function.resolver.ResolutionRule;
+import com.opengamma.engine.value.ValueRequirement;
 import com.opengamma.engine.view.ViewCalculationConfiguration;
 import com.opengamma.engine.view.ViewDefinition;
 
 /**
  * Holds context relating to the partially-completed compilation of a view definition, for passing to different stages
  * of the compilation.
+ * <p>
+ * An incremental context keeps its graph builders, and their resolution state, after the compilation completes. It
+ * can then be compiled again, for example after the portfolio has changed, and only the requirements not seen by an
+ * earlier compilation will be resolved.
  */
 public class ViewCompilationContext {
 
   private final ViewDefinition _viewDefinition;
   private final ViewCompilationServices _services;
   private final Map<String, DependencyGraphBuilder> _configurationGraphs;
+  private final Map<String, List<DependencyGraphBuilder>> _partitionGraphs;
+  /**
+   * The requirements added by the current compilation, keyed by configuration name. Null if not incremental.
+   */
+  private final Map<String, Set<ValueRequirement>> _requirements;
+  /**
+   * The requirements that have been passed to the builders by any compilation, keyed by configuration name. Null if not incremental.
+   */
+  private final Map<String, Set<ValueRequirement>> _requested;
 
   /* package */ViewCompilationContext(ViewDefinition viewDefinition, ViewCompilationServices compilationServices, Instant valuationTime) {
+    this(viewDefinition, compilationServices, valuationTime, false);
+  }
+
+  /* package */ViewCompilationContext(ViewDefinition viewDefinition, ViewCompilationServices compilationServices, Instant valuationTime, boolean incremental) {
     _viewDefinition = viewDefinition;
     _services = compilationServices;
     final Map<String, DependencyGraphBuilder> configurationGraphs = new HashMap<String, DependencyGraphBuilder>();
+    final Map<String, List<DependencyGraphBuilder>> partitionGraphs = new HashMap<String, List<DependencyGraphBuilder>>();
     final Collection<ResolutionRule> rules = compilationServices.getFunctionResolver().compile(valuationTime).getAllResolutionRules();
+    final int partitions = incremental ? 1 : compilationServices.getDependencyGraphBuilder().getPartitions();
     for (String configName : viewDefinition.getAllCalculationConfigurationNames()) {
-      final DependencyGraphBuilder builder = compilationServices.getDependencyGraphBuilder().newInstance();
-      builder.setCalculationConfigurationName(configName);
-      builder.setMarketDataAvailabilityProvider(compilationServices.getMarketDataAvailabilityProvider());
-      final FunctionCompilationContext compilationContext = compilationServices.getFunctionCompilationContext().clone();
       final ViewCalculationConfiguration calcConfig = viewDefinition.getCalculationConfiguration(configName);
-      compilationContext.setViewCalculationConfiguration(calcConfig);
       final Collection<ResolutionRule> transformedRules = calcConfig.getResolutionRuleTransform().transform(rules);
-      compilationContext.setComputationTargetResults(new ComputationTargetResults(transformedRules, compilationContext));
-      builder.setFunctionResolver(new DefaultCompiledFunctionResolver(compilationContext, transformedRules));
-      builder.setCompilationContext(compilationContext);
+      final DependencyGraphBuilder builder = createBuilder(compilationServices, calcConfig, transformedRules);
+      builder.setRetainResolutions(incremental);
       configurationGraphs.put(configName, builder);
+      final List<DependencyGraphBuilder> partitionBuilders;
+      if ((partitions > 1) && PortfolioCompiler.isPartitionable(calcConfig)) {
+        partitionBuilders = new ArrayList<DependencyGraphBuilder>(partitions);
+        for (int i = 0; i < partitions; i++) {
+          partitionBuilders.add(createBuilder(compilationServices, calcConfig, transformedRules));
+        }
+      } else {
+        partitionBuilders = Collections.emptyList();
+      }
+      partitionGraphs.put(configName, partitionBuilders);
     }
     _configurationGraphs = configurationGraphs;
+    _partitionGraphs = partitionGraphs;
+    if (incremental) {
+      _requirements = new HashMap<String, Set<ValueRequirement>>();
+      _requested = new HashMap<String, Set<ValueRequirement>>();
+      for (String configName : configurationGraphs.keySet()) {
+        _requirements.put(configName, Collections.newSetFromMap(new ConcurrentHashMap<ValueRequirement, Boolean>()));
+        _requested.put(configName, Collections.newSetFromMap(new ConcurrentHashMap<ValueRequirement, Boolean>()));
+      }
+    } else {
+      _requirements = null;
+      _requested = null;
+    }
+  }
+
+  private static DependencyGraphBuilder createBuilder(final ViewCompilationServices compilationServices, final ViewCalculationConfiguration calcConfig,
+      final Collection<ResolutionRule> transformedRules) {
+    final DependencyGraphBuilder builder = compilationServices.getDependencyGraphBuilder().newInstance();
+    builder.setCalculationConfigurationName(calcConfig.getName());
+    builder.setMarketDataAvailabilityProvider(compilationServices.getMarketDataAvailabilityProvider());
+    final FunctionCompilationContext compilationContext = compilationServices.getFunctionCompilationContext().clone();
+    compilationContext.setViewCalculationConfiguration(calcConfig);
+    compilationContext.setComputationTargetResults(new ComputationTargetResults(transformedRules, compilationContext));
+    builder.setFunctionResolver(new DefaultCompiledFunctionResolver(compilationContext, transformedRules));
+    builder.setCompilationContext(compilationContext);
+    return builder;
   }
 
   public ViewDefinition getViewDefinition() {
@@ -67,4 +120,98 @@ public class ViewCompilationContext {
     return Collections.unmodifiableCollection(_configurationGraphs.values());
   }
 
+  /**
+   * Returns the additional builders that a configuration's portfolio requirements may be divided between. Each is a separate graph which
+   * must be merged with the graph from the main builder for the configuration.
+   * 
+   * @param calcConfig the configuration name, not null
+   * @return the partition builders, empty if the configuration is not partitioned
+   */
+  public List<DependencyGraphBuilder> getPartitionBuilders(final String calcConfig) {
+    return _partitionGraphs.get(calcConfig);
+  }
+
+  /**
+   * Returns all of the builders, including any partition builders.
+   * 
+   * @return the builders, not null
+   */
+  public Collection<DependencyGraphBuilder> getAllBuilders() {
+    final List<DependencyGraphBuilder> builders = new ArrayList<DependencyGraphBuilder>(_configurationGraphs.values());
+    for (List<DependencyGraphBuilder> partitionBuilders : _partitionGraphs.values()) {
+      builders.addAll(partitionBuilders);
+    }
+    return builders;
+  }
+
+  /**
+   * Tests whether this context retains its state for incremental compilation.
+   * 
+   * @return true if the context may be compiled again, false if it is for a single compilation
+   */
+  public boolean isIncremental() {
+    return _requirements != null;
+  }
+
+  /**
+   * Adds a terminal requirement to the graph for a configuration. An incremental context records the requirement as
+   * part of the current compilation and only passes it to the builder if an earlier compilation has not already done so.
+   * This may be called concurrently.
+   * 
+   * @param builder the builder for the configuration, not null
+   * @param requirement the requirement to add, not null
+   */
+  /* package */void addTarget(final DependencyGraphBuilder builder, final ValueRequirement requirement) {
+    if (_requirements == null) {
+      builder.addTarget(requirement);
+    } else {
+      final String configName = builder.getCalculationConfigurationName();
+      _requirements.get(configName).add(requirement);
+      if (_requested.get(configName).add(requirement)) {
+        builder.addTarget(requirement);
+      }
+    }
+  }
+
+  /**
+   * Starts a new compilation, discarding the record of which requirements the previous one added.
+   */
+  /* package */void beginCompilation() {
+    if (_requirements != null) {
+      for (Set<ValueRequirement> requirements : _requirements.values()) {
+        requirements.clear();
+      }
+    }
+  }
+
+  /**
+   * Returns the requirements added by the current compilation of an incremental context.
+   * 
+   * @param calcConfig the configuration name, not null
+   * @return the requirements, not null
+   */
+  /* package */Set<ValueRequirement> getRequirements(final String calcConfig) {
+    return _requirements.get(calcConfig);
+  }
+
+  /**
+   * Tests whether an incremental context is holding state for many more requirements than the current compilation
+   * used, for example after large parts of the portfolio have been removed. Such a context should be discarded and
+   * a fresh one used so that the unused state can be released.
+   * 
+   * @return true if the context should be replaced, false otherwise
+   */
+  public boolean isExcessiveState() {
+    if (_requirements == null) {
+      return false;
+    }
+    int current = 0;
+    int requested = 0;
+    for (Map.Entry<String, Set<ValueRequirement>> requirements : _requirements.entrySet()) {
+      current += requirements.getValue().size();
+      requested += _requested.get(requirements.getKey()).size();
+    }
+    return requested > 2 * current + 1000;
+  }
+
 }
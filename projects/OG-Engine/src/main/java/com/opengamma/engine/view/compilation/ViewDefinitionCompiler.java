@@ -33,6 +33,8 @@ import com.opengamma.engine.depgraph.DependencyNodeFormatter;
 import com.opengamma.engine.depgraph.Housekeeper;
 import com.opengamma.engine.value.ValueRequirement;
 import com.opengamma.engine.value.ValueSpecification;
+import com.opengamma.engine.view.ResultModelDefinition;
+import com.opengamma.engine.view.ResultOutputMode;
 import com.opengamma.engine.view.ViewCalculationConfiguration;
 import com.opengamma.engine.view.ViewDefinition;
 import com.opengamma.id.VersionCorrection;
@@ -63,13 +65,13 @@ public final class ViewDefinitionCompiler {
   protected static final class CompilationCompletionEstimate implements Housekeeper.Callback<Supplier<Double>> {
 
     private final String _label;
-    private final ConcurrentMap<String, Double> _buildEstimates;
+    private final ConcurrentMap<DependencyGraphBuilder, Double> _buildEstimates;
 
     private CompilationCompletionEstimate(final ViewCompilationContext context) {
-      final Collection<DependencyGraphBuilder> builders = context.getBuilders();
-      _buildEstimates = new ConcurrentHashMap<String, Double>();
+      final Collection<DependencyGraphBuilder> builders = context.getAllBuilders();
+      _buildEstimates = new ConcurrentHashMap<DependencyGraphBuilder, Double>();
       for (DependencyGraphBuilder builder : builders) {
-        _buildEstimates.put(builder.getCalculationConfigurationName(), 0d);
+        _buildEstimates.put(builder, 0d);
         Housekeeper.of(builder, this, builder.buildFractionEstimate()).start();
       }
       _label = context.getViewDefinition().getName();
@@ -96,7 +98,7 @@ public final class ViewDefinitionCompiler {
     public boolean tick(final DependencyGraphBuilder builder, final Supplier<Double> estimate) {
       final Double estimateValue = estimate.get();
       s_logger.debug("{}/{} building at {}", new Object[] {_label, builder.getCalculationConfigurationName(), estimateValue });
-      _buildEstimates.put(builder.getCalculationConfigurationName(), estimateValue);
+      _buildEstimates.put(builder, estimateValue);
       return estimateValue < 1d;
     }
 
@@ -118,8 +120,38 @@ public final class ViewDefinitionCompiler {
     ArgumentChecker.notNull(viewDefinition, "viewDefinition");
     ArgumentChecker.notNull(compilationServices, "compilationServices");
     s_logger.debug("Compiling {} for use with {}", viewDefinition.getName(), valuationTime);
+    return compileTask(new ViewCompilationContext(viewDefinition, compilationServices, valuationTime), versionCorrection);
+  }
+
+  /**
+   * Creates a compilation context that can be used for incremental compilation. The first call to {@link #compileTask(ViewCompilationContext, VersionCorrection)} with the context performs a full
+   * compilation. Subsequent calls will only resolve requirements that were not part of an earlier compilation, for example those for positions added to the portfolio, and reuse the resolutions
+   * already made for the remainder. The context is only valid for the same view definition, market data availability, and function repository; the caller must use a new context if any of these
+   * change or the valuation time is outside the validity of the graphs compiled from it.
+   * 
+   * @param viewDefinition the view definition, not null
+   * @param compilationServices the compilation services, not null
+   * @param valuationTime the indicative valuation time, not null
+   * @return the context, not null
+   */
+  public static ViewCompilationContext createIncrementalContext(final ViewDefinition viewDefinition, final ViewCompilationServices compilationServices, final Instant valuationTime) {
+    ArgumentChecker.notNull(viewDefinition, "viewDefinition");
+    ArgumentChecker.notNull(compilationServices, "compilationServices");
+    return new ViewCompilationContext(viewDefinition, compilationServices, valuationTime, true);
+  }
+
+  /**
+   * Compiles the view definition held by a compilation context. A context created by {@link #createIncrementalContext} may be compiled more than once, but not concurrently.
+   * 
+   * @param viewCompilationContext the compilation context, not null
+   * @param versionCorrection the version-correction at which to resolve the portfolio, not null
+   * @return the compilation task, not null
+   */
+  public static Future<CompiledViewDefinitionWithGraphsImpl> compileTask(final ViewCompilationContext viewCompilationContext, final VersionCorrection versionCorrection) {
+    ArgumentChecker.notNull(viewCompilationContext, "viewCompilationContext");
+    final ViewDefinition viewDefinition = viewCompilationContext.getViewDefinition();
+    final ViewCompilationServices compilationServices = viewCompilationContext.getServices();
     final OperationTimer timer = new OperationTimer(s_logger, "Compiling ViewDefinition: {}", viewDefinition.getName());
-    final ViewCompilationContext viewCompilationContext = new ViewCompilationContext(viewDefinition, compilationServices, valuationTime);
     if (s_logger.isDebugEnabled()) {
       new CompilationCompletionEstimate(viewCompilationContext);
     }
@@ -134,7 +166,7 @@ public final class ViewDefinitionCompiler {
       @Override
       public boolean cancel(final boolean mayInterruptIfRunning) {
         boolean result = true;
-        for (DependencyGraphBuilder builder : viewCompilationContext.getBuilders()) {
+        for (DependencyGraphBuilder builder : viewCompilationContext.getAllBuilders()) {
           result &= builder.cancel(mayInterruptIfRunning);
         }
         return result;
@@ -146,7 +178,7 @@ public final class ViewDefinitionCompiler {
       @Override
       public boolean isCancelled() {
         boolean result = false;
-        for (DependencyGraphBuilder builder : viewCompilationContext.getBuilders()) {
+        for (DependencyGraphBuilder builder : viewCompilationContext.getAllBuilders()) {
           result |= builder.isCancelled();
         }
         return result;
@@ -162,6 +194,7 @@ public final class ViewDefinitionCompiler {
       
       @Override
       public CompiledViewDefinitionWithGraphsImpl get() throws InterruptedException, ExecutionException {
+        viewCompilationContext.beginCompilation();
         long t = -System.nanoTime();
         EnumSet<ComputationTargetType> specificTargetTypes = SpecificRequirementsCompiler.execute(viewCompilationContext);
         t += System.nanoTime();
@@ -184,7 +217,7 @@ public final class ViewDefinitionCompiler {
           outputLiveDataRequirements(graphsByConfiguration, compilationServices.getComputationTargetResolver().getSecuritySource());
         }
         if (OUTPUT_FAILURE_REPORTS) {
-          outputFailureReports(viewCompilationContext.getBuilders());
+          outputFailureReports(viewCompilationContext.getAllBuilders());
         }
         return _result;
       }
@@ -211,7 +244,18 @@ public final class ViewDefinitionCompiler {
     final Collection<DependencyGraphBuilder> builders = context.getBuilders();
     final Map<String, DependencyGraph> result = new HashMap<String, DependencyGraph>();
     for (DependencyGraphBuilder builder : builders) {
-      final DependencyGraph graph = builder.getDependencyGraph();
+      final DependencyGraph graph;
+      if (context.isIncremental()) {
+        // The builder's nodes are reused by later compilations so work on a copy containing only the current requirements
+        graph = builder.getDependencyGraph(context.getRequirements(builder.getCalculationConfigurationName()));
+      } else {
+        graph = builder.getDependencyGraph();
+      }
+      if (isPartitionOutputEnabled(context.getViewDefinition())) {
+        for (DependencyGraphBuilder partition : context.getPartitionBuilders(builder.getCalculationConfigurationName())) {
+          graph.merge(partition.getDependencyGraph());
+        }
+      }
       graph.removeUnnecessaryValues();
       result.put(builder.getCalculationConfigurationName(), graph);
       // TODO: do we want to do anything with the ValueRequirement to resolved ValueSpecification data?
@@ -219,6 +263,15 @@ public final class ViewDefinitionCompiler {
     return result;
   }
 
+  /**
+   * Tests whether the partition graphs hold any outputs for the view. A view with only aggregate outputs uses the partitions to resolve the position values
+   * beneath the portfolio nodes; the configuration's own graph contains all of the nodes for those and the partition graphs are not needed.
+   */
+  private static boolean isPartitionOutputEnabled(final ViewDefinition viewDefinition) {
+    final ResultModelDefinition resultModel = viewDefinition.getResultModelDefinition();
+    return (resultModel.getPositionOutputMode() != ResultOutputMode.NONE) || (resultModel.getTradeOutputMode() != ResultOutputMode.NONE);
+  }
+
   private static void outputDependencyGraphs(Map<String, DependencyGraph> graphsByConfiguration) {
     StringBuilder sb = new StringBuilder();
     for (Map.Entry<String, DependencyGraph> entry : graphsByConfiguration.entrySet()) {
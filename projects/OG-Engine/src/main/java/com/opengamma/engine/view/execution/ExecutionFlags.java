@@ -97,6 +97,26 @@ public final class ExecutionFlags {
     return this;
   }
 
+  /**
+   * Adds {@link ViewExecutionFlags#INCREMENTAL_COMPILATION}
+   * 
+   * @return this
+   */
+  public ExecutionFlags incrementalCompilation() {
+    _flags.add(ViewExecutionFlags.INCREMENTAL_COMPILATION);
+    return this;
+  }
+
+  /**
+   * Adds {@link ViewExecutionFlags#PIPELINE_CYCLES}
+   * 
+   * @return this
+   */
+  public ExecutionFlags pipelineCycles() {
+    _flags.add(ViewExecutionFlags.PIPELINE_CYCLES);
+    return this;
+  }
+
   //-------------------------------------------------------------------------
   
   /**
@@ -52,6 +52,20 @@ public enum ViewExecutionFlags {
   /**
    * Indicates that the results should be stored in batch database.
    */
-  BATCH
+  BATCH,
+
+  /**
+   * Indicates that changes to the portfolio should trigger a cycle, with the view definition recompiled incrementally.
+   * The graph building state is kept after each compilation so that only targets new to the portfolio need to be
+   * resolved.
+   */
+  INCREMENTAL_COMPILATION,
+
+  /**
+   * Indicates that the next computation cycle may start executing while the results of previous cycles are still
+   * being delivered to the view process and its listeners. The notifications are delivered in order on a separate
+   * thread, and the number of cycles that may be awaiting delivery is limited by the view process.
+   */
+  PIPELINE_CYCLES
     
 }
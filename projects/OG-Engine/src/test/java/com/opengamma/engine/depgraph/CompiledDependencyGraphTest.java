@@ -0,0 +1,154 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.depgraph;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertSame;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.testng.annotations.Test;
+
+import com.opengamma.engine.ComputationTarget;
+import com.opengamma.engine.ComputationTargetType;
+import com.opengamma.engine.function.MarketDataSourcingFunction;
+import com.opengamma.engine.value.ValuePropertyNames;
+import com.opengamma.engine.value.ValueRequirement;
+import com.opengamma.engine.value.ValueSpecification;
+import com.opengamma.id.UniqueId;
+
+/**
+ * Tests the {@link CompiledDependencyGraph} class.
+ */
+@Test
+public class CompiledDependencyGraphTest {
+
+  private static ValueSpecification createValueSpecification(final String name) {
+    final ValueRequirement requirement = new ValueRequirement("Value", new ComputationTarget(ComputationTargetType.PRIMITIVE, UniqueId.of("Test", name)).toSpecification());
+    return new ValueSpecification(requirement.getValueName(), requirement.getTargetSpecification(), requirement.getConstraints().copy().with(ValuePropertyNames.FUNCTION, "Test").get());
+  }
+
+  private static DependencyNode createNode(final String name, final DependencyNode... inputs) {
+    final ValueSpecification output = createValueSpecification(name);
+    final ValueRequirement requirement = new ValueRequirement(output.getValueName(), output.getTargetSpecification());
+    final DependencyNode node = new DependencyNode(new ComputationTarget(ComputationTargetType.PRIMITIVE, UniqueId.of("Test", name)));
+    node.setFunction(new MarketDataSourcingFunction(requirement, output));
+    node.addOutputValue(output);
+    for (DependencyNode input : inputs) {
+      node.addInputNode(input);
+      // Use an equal, but not identical, specification to check the values are interned
+      node.addInputValue(createValueSpecification(input.getComputationTarget().getUniqueId().getValue()));
+    }
+    return node;
+  }
+
+  /**
+   * Creates a diamond shaped graph, 0 depends on 1 and 2 which both depend on 3.
+   */
+  private static List<DependencyNode> createNodes() {
+    final List<DependencyNode> nodes = new ArrayList<DependencyNode>();
+    final DependencyNode node3 = createNode("3");
+    final DependencyNode node1 = createNode("1", node3);
+    final DependencyNode node2 = createNode("2", node3);
+    final DependencyNode node0 = createNode("0", node1, node2);
+    nodes.add(node0);
+    nodes.add(node1);
+    nodes.add(node2);
+    nodes.add(node3);
+    return nodes;
+  }
+
+  private static DependencyGraph createGraph(final List<DependencyNode> nodes) {
+    final DependencyGraph graph = new DependencyGraph("Default");
+    for (DependencyNode node : nodes) {
+      graph.addDependencyNode(node);
+    }
+    return graph;
+  }
+
+  public void testStructure() {
+    final List<DependencyNode> nodes = createNodes();
+    final CompiledDependencyGraph compiled = new CompiledDependencyGraph(createGraph(nodes));
+    assertEquals(4, compiled.getSize());
+    for (int i = 0; i < compiled.getSize(); i++) {
+      final DependencyNode node = compiled.getNode(i);
+      assertEquals(node.getInputNodes().size(), compiled.getInputCount(i));
+      for (int j = 0; j < compiled.getInputCount(i); j++) {
+        final int input = compiled.getInput(i, j);
+        assertTrue(input < i);
+        assertTrue(node.getInputNodes().contains(compiled.getNode(input)));
+      }
+      assertEquals(node.getDependentNodes().size(), compiled.getDependentCount(i));
+      for (int j = 0; j < compiled.getDependentCount(i); j++) {
+        final int dependent = compiled.getDependent(i, j);
+        assertTrue(dependent > i);
+        assertTrue(node.getDependentNodes().contains(compiled.getNode(dependent)));
+      }
+      assertEquals(node == nodes.get(0), compiled.isRoot(i));
+    }
+    assertSame(nodes.get(3), compiled.getNode(0));
+    assertSame(nodes.get(0), compiled.getNode(3));
+  }
+
+  public void testValues() {
+    final List<DependencyNode> nodes = createNodes();
+    final CompiledDependencyGraph compiled = new CompiledDependencyGraph(createGraph(nodes));
+    assertEquals(4, compiled.getValueCount());
+    for (int i = 0; i < compiled.getSize(); i++) {
+      final DependencyNode node = compiled.getNode(i);
+      assertEquals(1, compiled.getOutputValueCount(i));
+      final int output = compiled.getOutputValue(i, 0);
+      assertSame(node.getOutputValues().iterator().next(), compiled.getValue(output));
+      assertEquals(output, compiled.getMarketData(i));
+      assertEquals(node.getInputValues().size(), compiled.getInputValueCount(i));
+      for (int j = 0; j < compiled.getInputValueCount(i); j++) {
+        final ValueSpecification input = compiled.getValue(compiled.getInputValue(i, j));
+        boolean found = false;
+        for (DependencyNode inputNode : node.getInputNodes()) {
+          found |= (inputNode.getOutputValues().iterator().next() == input);
+        }
+        assertTrue(found);
+      }
+    }
+  }
+
+  public void testExecutionOrder() {
+    final List<DependencyNode> nodes = createNodes();
+    final List<DependencyNode> order = CompiledDependencyGraph.getExecutionOrder(createGraph(nodes));
+    assertEquals(4, order.size());
+    assertSame(nodes.get(3), order.get(0));
+    assertSame(nodes.get(0), order.get(3));
+  }
+
+  public void testSubGraph() {
+    final List<DependencyNode> nodes = createNodes();
+    final CompiledDependencyGraph compiled = new CompiledDependencyGraph(createGraph(nodes));
+    final DependencyGraph subGraph = compiled.subGraph(new DependencyNodeFilter() {
+      @Override
+      public boolean accept(final DependencyNode node) {
+        return node != nodes.get(3);
+      }
+    });
+    assertEquals(3, subGraph.getSize());
+    final List<DependencyNode> order = subGraph.getExecutionOrder();
+    assertEquals(3, order.size());
+    assertSame(nodes.get(0), order.get(2));
+    assertFalse(order.contains(nodes.get(3)));
+    subGraph.removeDependencyNode(nodes.get(1));
+    assertEquals(2, subGraph.getExecutionOrder().size());
+  }
+
+  @Test(expectedExceptions = IllegalStateException.class)
+  public void testCycle() {
+    final List<DependencyNode> nodes = createNodes();
+    nodes.get(3).addInputNode(nodes.get(0));
+    new CompiledDependencyGraph(createGraph(nodes));
+  }
+
+}
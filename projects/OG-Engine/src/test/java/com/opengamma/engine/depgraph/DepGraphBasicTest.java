@@ -10,7 +10,10 @@ import static org.testng.AssertJUnit.assertFalse;
 import static org.testng.AssertJUnit.assertNotNull;
 import static org.testng.AssertJUnit.assertTrue;
 
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
 
 import org.apache.commons.lang.ObjectUtils;
 import org.testng.Assert;
@@ -83,6 +86,55 @@ public class DepGraphBasicTest extends AbstractDependencyGraphBuilderTest {
     assertTrue(node.getInputNodes().isEmpty());
   }
 
+  public void incrementalRequirementsWithRetainedResolutions() {
+    DepGraphTestHelper helper = helper();
+    MockFunction fn1 = helper.addFunctionRequiring2Producing1();
+    MockFunction fn2 = helper.addFunctionProducing2();
+    DependencyGraphBuilder builder = helper.getBuilder(null);
+    builder.setRetainResolutions(true);
+    builder.addTarget(helper.getRequirement2());
+    DependencyGraph graph1 = builder.getDependencyGraph(Collections.singleton(helper.getRequirement2()));
+    graph1.removeUnnecessaryValues();
+    assertEquals(1, graph1.getSize());
+    assertGraphContains(graph1, fn2);
+    builder.addTarget(helper.getRequirement1());
+    DependencyGraph graph2 = builder.getDependencyGraph(Arrays.asList(helper.getRequirement1(), helper.getRequirement2()));
+    graph2.removeUnnecessaryValues();
+    assertEquals(2, graph2.getSize());
+    final Map<MockFunction, DependencyNode> nodes = assertGraphContains(graph2, fn1, fn2);
+    assertEquals(Collections.singleton(nodes.get(fn2)), nodes.get(fn1).getInputNodes());
+    assertTrue(graph2.getTerminalOutputSpecifications().contains(helper.getSpec1()));
+    assertTrue(graph2.getTerminalOutputSpecifications().contains(helper.getSpec2()));
+    // The earlier graph is independent of the later one
+    assertFalse(graph1.containsNode(nodes.get(fn2)));
+    assertTrue(graph1.getDependencyNodes().iterator().next().getDependentNodes().isEmpty());
+    DependencyGraph graph3 = builder.getDependencyGraph(Collections.singleton(helper.getRequirement1()));
+    assertEquals(2, graph3.getSize());
+    assertEquals(Collections.singleton(helper.getSpec1()), graph3.getTerminalOutputSpecifications());
+  }
+
+  public void mergedGraphs() {
+    DepGraphTestHelper helper = helper();
+    MockFunction fn1 = helper.addFunctionRequiring2Producing1();
+    MockFunction fn2 = helper.addFunctionProducing2();
+    DependencyGraphBuilder builder = helper.getBuilder(null);
+    builder.setRetainResolutions(true);
+    builder.addTarget(Sets.newHashSet(helper.getRequirement1(), helper.getRequirement2()));
+    DependencyGraph graph1 = builder.getDependencyGraph(Collections.singleton(helper.getRequirement1()));
+    DependencyGraph graph2 = builder.getDependencyGraph(Collections.singleton(helper.getRequirement2()));
+    DependencyGraph merged = new DependencyGraph(graph1.getCalculationConfigurationName());
+    merged.merge(graph2);
+    merged.merge(graph1);
+    assertEquals(2, merged.getSize());
+    final Map<MockFunction, DependencyNode> nodes = assertGraphContains(merged, fn1, fn2);
+    assertEquals(Collections.singleton(nodes.get(fn1)), merged.getRootNodes());
+    assertEquals(Collections.singleton(nodes.get(fn2)), nodes.get(fn1).getInputNodes());
+    assertEquals(Sets.newHashSet(helper.getSpec1(), helper.getSpec2()), merged.getTerminalOutputSpecifications());
+    // The merged graphs are not modified
+    assertEquals(1, graph2.getSize());
+    assertTrue(graph2.getDependencyNodes().iterator().next().getDependentNodes().isEmpty());
+  }
+
   public void unsatisfiableDependency() {
     DepGraphTestHelper helper = helper();
     helper.addFunctionProducing1and2();
@@ -0,0 +1,47 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.marketdata;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertNull;
+
+import org.testng.annotations.Test;
+
+import com.opengamma.engine.ComputationTargetType;
+import com.opengamma.engine.value.ValueRequirement;
+import com.opengamma.id.UniqueId;
+
+/**
+ * Tests {@link InMemoryLKVMarketDataProvider}
+ */
+@Test
+public class InMemoryLKVMarketDataProviderTest {
+
+  private static ValueRequirement getRequirement(final int id) {
+    return new ValueRequirement("Market_Value", ComputationTargetType.PRIMITIVE, UniqueId.of("Test", Integer.toString(id)));
+  }
+
+  public void testSnapshotUnaffectedByUpdates() {
+    final InMemoryLKVMarketDataProvider provider = new InMemoryLKVMarketDataProvider();
+    provider.addValue(getRequirement(1), 1d);
+    provider.addValue(getRequirement(2), 2d);
+    final InMemoryLKVMarketDataSnapshot snapshot = provider.snapshot(null);
+    snapshot.init();
+    assertEquals(2, snapshot.getSequenceNumber());
+    provider.addValue(getRequirement(1), 10d);
+    provider.removeValue(getRequirement(2));
+    provider.addValue(getRequirement(3), 3d);
+    assertEquals(5, provider.getCurrentVersion().getSequenceNumber());
+    assertEquals(1d, snapshot.query(getRequirement(1)).getValue());
+    assertEquals(2d, snapshot.query(getRequirement(2)).getValue());
+    assertNull(snapshot.query(getRequirement(3)));
+    assertEquals(2, snapshot.getAllValueKeys().size());
+    assertEquals(10d, provider.getCurrentValue(getRequirement(1)).getValue());
+    assertNull(provider.getCurrentValue(getRequirement(2)));
+    assertEquals(2, provider.getAllValueKeys().size());
+  }
+
+}
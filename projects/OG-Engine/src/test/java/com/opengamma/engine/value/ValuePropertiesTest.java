@@ -17,6 +17,8 @@ import java.util.Collections;
 
 import org.testng.annotations.Test;
 
+import com.opengamma.engine.MemoryUtils;
+
 /**
  * Tests for the {@link ValueProperties} class.
  */
@@ -311,6 +313,41 @@ public class ValuePropertiesTest {
   
 
   
+  public void testComposeRepeated() {
+    final ValueProperties requirement = ValueProperties.with("A", "1", "2").withAny("B").get();
+    final ValueProperties offered1 = ValueProperties.with("A", "1").with("B", "X").get();
+    final ValueProperties offered2 = ValueProperties.with("A", "2").with("B", "Y").get();
+    final ValueProperties composed1 = requirement.compose(offered1);
+    assertEquals(ValueProperties.with("A", "1").with("B", "X").get(), composed1);
+    final ValueProperties composed2 = requirement.compose(offered2);
+    assertEquals(ValueProperties.with("A", "2").with("B", "Y").get(), composed2);
+    assertEquals(composed1, requirement.compose(offered1));
+    assertSame(requirement, requirement.compose(requirement));
+  }
+
+  public void testIsSatisfiedByRepeated() {
+    final ValueProperties requirement = ValueProperties.with("A", "1").get();
+    final ValueProperties satisfying = ValueProperties.with("A", "1", "2").get();
+    final ValueProperties notSatisfying = ValueProperties.with("A", "2").get();
+    for (int i = 0; i < 2; i++) {
+      assertTrue(requirement.isSatisfiedBy(satisfying));
+      assertTrue(requirement.isSatisfiedBy(satisfying));
+      assertFalse(requirement.isSatisfiedBy(notSatisfying));
+      assertFalse(requirement.isSatisfiedBy(notSatisfying));
+    }
+    assertTrue(requirement.isSatisfiedBy(requirement));
+  }
+
+  public void testCanonicalInstance() {
+    final ValueProperties properties1 = ValueProperties.with("A", new String("Foo")).with("B", new String("1"), new String("2")).withAny("C").withOptional("C").get();
+    final ValueProperties properties2 = ValueProperties.with("A", new String("Foo")).with("B", new String("1"), new String("2")).withAny("C").withOptional("C").get();
+    final ValueProperties canonical = MemoryUtils.instance(properties1);
+    assertEquals(properties1, canonical);
+    assertSame(canonical, MemoryUtils.instance(properties2));
+    assertSame(canonical.getValues("A").iterator().next(), MemoryUtils.instance(ValueProperties.with("X", new String("Foo")).get()).getValues("X").iterator().next());
+    assertSame(ValueProperties.none(), MemoryUtils.instance(ValueProperties.none()));
+  }
+
   @Test(expectedExceptions = IllegalArgumentException.class)
   public void testParseInvalidNoValue() {
     ValueProperties.parse("ValueName=[");
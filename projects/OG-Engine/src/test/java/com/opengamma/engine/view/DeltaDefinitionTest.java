@@ -5,9 +5,12 @@
  */
 package com.opengamma.engine.view;
 
+import static org.testng.AssertJUnit.assertEquals;
 import static org.testng.AssertJUnit.assertFalse;
 import static org.testng.AssertJUnit.assertTrue;
 
+import java.util.BitSet;
+
 import org.testng.annotations.Test;
 
 import com.opengamma.engine.ComputationTargetType;
@@ -38,6 +41,44 @@ public class DeltaDefinitionTest {
     assertTrue(dd.isDelta(createComputedValue(123.1234567), createComputedValue(123.12555555)));
   }
   
+  public void testPrimitives() {
+    DeltaDefinition dd = new DeltaDefinition();
+    assertFalse(dd.isDelta(123.0, 123.0));
+    assertFalse(dd.isDelta(Double.NaN, Double.NaN));
+    assertTrue(dd.isDelta(123.0, 123.1));
+    dd.setNumberComparer(new NumberDeltaComparer(3));
+    assertFalse(dd.isDelta(123.1234567, 123.1239999));
+    assertTrue(dd.isDelta(123.1234567, 123.12555555));
+  }
+
+  public void testFindDeltas() {
+    final double[] previous = new double[] {123.0, 123.1234567, 123.1234567, 1.0, 99.0 };
+    final double[] values = new double[] {123.0, 123.1239999, 123.12555555, 2.0, 100.0 };
+    DeltaDefinition dd = new DeltaDefinition();
+    BitSet deltas = new BitSet();
+    dd.findDeltas(previous, values, 4, deltas);
+    assertEquals(3, deltas.cardinality());
+    assertFalse(deltas.get(0));
+    assertFalse(deltas.get(4));
+    dd.setNumberComparer(new NumberDeltaComparer(3));
+    deltas = new BitSet();
+    dd.findDeltas(previous, values, values.length, deltas);
+    assertEquals(3, deltas.cardinality());
+    assertFalse(deltas.get(0));
+    assertFalse(deltas.get(1));
+    dd.setNumberComparer(new DeltaComparer<Number>() {
+      @Override
+      public boolean isDelta(Number previousValue, Number newValue) {
+        return Math.abs(previousValue.doubleValue() - newValue.doubleValue()) > 0.5;
+      }
+    });
+    deltas = new BitSet();
+    dd.findDeltas(previous, values, values.length, deltas);
+    assertEquals(2, deltas.cardinality());
+    assertTrue(deltas.get(3));
+    assertTrue(deltas.get(4));
+  }
+
   private void doBasicTests(DeltaDefinition dd) {
     assertFalse(dd.isDelta(null, null));
     assertFalse(dd.isDelta(createComputedValue("abc"), createComputedValue("abc")));
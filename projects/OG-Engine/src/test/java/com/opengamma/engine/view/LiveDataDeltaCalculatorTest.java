@@ -174,4 +174,27 @@ public class LiveDataDeltaCalculatorTest {
     assertEquals(_graph.getDependencyNodes(), _deltaCalculator.getChangedNodes());
   }
 
+  public void changeMissing() {
+    put(_previousCache, _node2, 7.0);
+
+    _deltaCalculator.computeDelta();
+
+    assertEquals(Sets.newHashSet(_node1, _node3), _deltaCalculator.getUnchangedNodes());
+    assertEquals(Sets.newHashSet(_node0, _node2), _deltaCalculator.getChangedNodes());
+    assertEquals(2, _deltaCalculator.getChangedNodeCount());
+  }
+
+  public void changeMultiple() {
+    put(_cache, _node1, 6.0);
+    put(_previousCache, _node1, 7.0);
+    put(_cache, _node2, 6.0);
+    put(_previousCache, _node2, 6.0);
+    put(_cache, _node3, 6.0);
+
+    _deltaCalculator.computeDelta();
+
+    assertEquals(Collections.emptySet(), _deltaCalculator.getUnchangedNodes());
+    assertEquals(_graph.getDependencyNodes(), _deltaCalculator.getChangedNodes());
+  }
+
 }
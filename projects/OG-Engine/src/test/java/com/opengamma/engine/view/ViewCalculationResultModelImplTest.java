@@ -6,10 +6,14 @@
 package com.opengamma.engine.view;
 
 import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
 import static org.testng.AssertJUnit.assertNotNull;
 import static org.testng.AssertJUnit.assertNull;
+import static org.testng.AssertJUnit.assertSame;
+import static org.testng.AssertJUnit.assertTrue;
 
 import java.math.BigDecimal;
+import java.util.BitSet;
 import java.util.Map;
 
 import org.testng.annotations.Test;
@@ -20,6 +24,7 @@ import com.opengamma.core.position.impl.SimplePortfolio;
 import com.opengamma.core.position.impl.SimplePortfolioNode;
 import com.opengamma.core.position.impl.SimplePosition;
 import com.opengamma.engine.ComputationTargetSpecification;
+import com.opengamma.engine.ComputationTargetType;
 import com.opengamma.engine.value.ComputedValueResult;
 import com.opengamma.engine.value.ValueProperties;
 import com.opengamma.engine.value.ValueRequirement;
@@ -71,4 +76,77 @@ public class ViewCalculationResultModelImplTest {
     assertNull(calcResult.getValues(new ComputationTargetSpecification("nonexistent")));
   }
 
+  public void columnar() {
+    final ViewCalculationResultModelImpl calcResult = new ViewCalculationResultModelImpl();
+    final ComputationTargetSpecification other = new ComputationTargetSpecification(ComputationTargetType.PRIMITIVE, UniqueId.of("Test", "other"));
+    final ComputedValueResult doubleValue = new ComputedValueResult(new ValueSpecification(new ValueRequirement("DATA", other), "mockFunctionId"), 1.5d, ExecutionLog.EMPTY);
+    calcResult.addValue(SPEC, COMPUTED_VALUE_RESULT);
+    calcResult.addValue(other, doubleValue);
+    assertEquals(2, calcResult.getTargetCount());
+    assertEquals(1, calcResult.getColumnCount());
+    final int row = calcResult.getTargetIndex(other);
+    assertSame(other, calcResult.getTarget(row));
+    final int column = calcResult.getColumnIndex(Pair.of("DATA", doubleValue.getSpecification().getProperties()));
+    assertEquals(0, column);
+    assertSame(doubleValue, calcResult.getResult(row, column));
+    assertTrue(calcResult.isDouble(row, column));
+    assertEquals(1.5d, calcResult.getDouble(row, column), 0d);
+    assertFalse(calcResult.isDouble(calcResult.getTargetIndex(SPEC), column));
+    // Replacing a double with another value
+    final ComputedValueResult stringValue = new ComputedValueResult(doubleValue.getSpecification(), "foo", ExecutionLog.EMPTY);
+    calcResult.addValue(other, stringValue);
+    assertSame(stringValue, calcResult.getResult(row, column));
+    assertFalse(calcResult.isDouble(row, column));
+    assertEquals(1, calcResult.getAllValues(other).size());
+    assertEquals(-1, calcResult.getTargetIndex(new ComputationTargetSpecification("nonexistent")));
+  }
+
+  public void sparseColumns() {
+    final ViewCalculationResultModelImpl calcResult = new ViewCalculationResultModelImpl();
+    final ComputationTargetSpecification target1 = new ComputationTargetSpecification(ComputationTargetType.PRIMITIVE, UniqueId.of("Test", "1"));
+    final ComputationTargetSpecification target2 = new ComputationTargetSpecification(ComputationTargetType.PRIMITIVE, UniqueId.of("Test", "2"));
+    calcResult.addValue(target1, createResult(target1, 1.0));
+    calcResult.addValue(target2, new ComputedValueResult(new ValueSpecification(new ValueRequirement("OTHER", target2), "mockFunctionId"), 2.0, ExecutionLog.EMPTY));
+    assertEquals(2, calcResult.getColumnCount());
+    assertEquals(1, calcResult.getCellCount(0));
+    assertEquals(1, calcResult.getCellCount(1));
+    assertEquals(calcResult.getTargetIndex(target2), calcResult.getCellRow(1, 0));
+    assertEquals(-1, calcResult.getCell(calcResult.getTargetIndex(target1), 1));
+    assertNull(calcResult.getResult(calcResult.getTargetIndex(target2), 0));
+    final Map<Pair<String, ValueProperties>, ComputedValueResult> values = calcResult.getValues(target1);
+    assertSame(values, calcResult.getValues(target1));
+    assertEquals(1, values.size());
+    calcResult.addValue(target1, new ComputedValueResult(new ValueSpecification(new ValueRequirement("OTHER", target1), "mockFunctionId"), 3.0, ExecutionLog.EMPTY));
+    assertEquals(2, calcResult.getValues(target1).size());
+    assertEquals(2, calcResult.getCellCount(1));
+  }
+
+  public void computeDeltas() {
+    final ComputationTargetSpecification target1 = new ComputationTargetSpecification(ComputationTargetType.PRIMITIVE, UniqueId.of("Test", "1"));
+    final ComputationTargetSpecification target2 = new ComputationTargetSpecification(ComputationTargetType.PRIMITIVE, UniqueId.of("Test", "2"));
+    final ComputationTargetSpecification target3 = new ComputationTargetSpecification(ComputationTargetType.PRIMITIVE, UniqueId.of("Test", "3"));
+    final ViewCalculationResultModelImpl previous = new ViewCalculationResultModelImpl();
+    previous.addValue(target2, createResult(target2, 2.0));
+    previous.addValue(target1, createResult(target1, 1.0));
+    previous.addValue(target3, createResult(target3, "foo"));
+    final ViewCalculationResultModelImpl result = new ViewCalculationResultModelImpl();
+    result.addValue(target1, createResult(target1, 1.0));
+    result.addValue(target2, createResult(target2, 2.5));
+    result.addValue(target3, createResult(target3, "foo"));
+    final DeltaDefinition deltaDefinition = new DeltaDefinition();
+    BitSet[] deltas = result.computeDeltas(previous, deltaDefinition);
+    assertEquals(1, deltas.length);
+    assertEquals(1, deltas[0].cardinality());
+    assertTrue(deltas[0].get(result.getCell(result.getTargetIndex(target2), 0)));
+    deltaDefinition.setNumberComparer(new NumberDeltaComparer(-1));
+    deltas = result.computeDeltas(previous, deltaDefinition);
+    assertEquals(0, deltas[0].cardinality());
+    deltas = result.computeDeltas(null, deltaDefinition);
+    assertEquals(3, deltas[0].cardinality());
+  }
+
+  private static ComputedValueResult createResult(final ComputationTargetSpecification target, final Object value) {
+    return new ComputedValueResult(new ValueSpecification(new ValueRequirement("DATA", target), "mockFunctionId"), value, ExecutionLog.EMPTY);
+  }
+
 }
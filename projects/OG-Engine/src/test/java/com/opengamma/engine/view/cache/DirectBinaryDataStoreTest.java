@@ -0,0 +1,96 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.view.cache;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertNull;
+import static org.testng.AssertJUnit.assertTrue;
+
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.testng.annotations.Test;
+
+/**
+ * Tests the {@link DirectBinaryDataStore} and {@link MappedFileBinaryDataStore} classes.
+ */
+@Test
+public class DirectBinaryDataStoreTest {
+
+  private static byte[] randomBytes(final Random random, final int length) {
+    final byte[] bytes = new byte[length];
+    random.nextBytes(bytes);
+    return bytes;
+  }
+
+  private void testPutGet(final BinaryDataStore store) {
+    final Random random = new Random(42L);
+    final Map<Long, byte[]> expected = new HashMap<Long, byte[]>();
+    for (long i = 0; i < 100; i++) {
+      final byte[] data = randomBytes(random, random.nextInt(100));
+      store.put(i, data);
+      expected.put(i, data);
+    }
+    // Larger than the slab size
+    final byte[] large = randomBytes(random, 1000);
+    store.put(100L, large);
+    expected.put(100L, large);
+    final Map<Long, byte[]> batch = new HashMap<Long, byte[]>();
+    for (long i = 200; i < 250; i++) {
+      batch.put(i, randomBytes(random, random.nextInt(50)));
+    }
+    store.put(batch);
+    expected.putAll(batch);
+    for (Map.Entry<Long, byte[]> entry : expected.entrySet()) {
+      assertTrue(Arrays.equals(entry.getValue(), store.get(entry.getKey())));
+    }
+    final Map<Long, byte[]> result = store.get(new LongArrayList(new long[] {0L, 100L, 200L, 300L }));
+    assertEquals(3, result.size());
+    assertTrue(Arrays.equals(large, result.get(100L)));
+    assertNull(store.get(300L));
+    // Replace values with the same, a shorter and a longer value; later values must not overwrite replaced records
+    store.put(1L, expected.get(1L));
+    assertTrue(Arrays.equals(expected.get(1L), store.get(1L)));
+    final byte[] shorter = randomBytes(random, expected.get(2L).length / 2);
+    store.put(2L, shorter);
+    assertTrue(Arrays.equals(shorter, store.get(2L)));
+    final byte[] longer = randomBytes(random, expected.get(3L).length + 10);
+    store.put(3L, longer);
+    assertTrue(Arrays.equals(longer, store.get(3L)));
+    final byte[] later = randomBytes(random, expected.get(3L).length);
+    store.put(400L, later);
+    assertTrue(Arrays.equals(later, store.get(400L)));
+    assertTrue(Arrays.equals(shorter, store.get(2L)));
+    assertTrue(Arrays.equals(longer, store.get(3L)));
+    store.delete();
+    assertNull(store.get(0L));
+    store.put(0L, expected.get(0L));
+    assertNull(store.get(0L));
+  }
+
+  public void testDirect() {
+    testPutGet(new DirectBinaryDataStore(256));
+  }
+
+  public void testMappedFile() {
+    final File folder = new File(System.getProperty("java.io.tmpdir"), "MappedFileBinaryDataStoreTest-" + System.currentTimeMillis());
+    try {
+      final MappedFileBinaryDataStore store = new MappedFileBinaryDataStore(folder, "testMappedFile", 256);
+      assertTrue(store.getFile().exists());
+      testPutGet(store);
+      assertFalse(store.getFile().exists());
+    } finally {
+      folder.delete();
+    }
+  }
+
+}
@@ -0,0 +1,68 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.view.cache;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertSame;
+import static org.testng.AssertJUnit.assertTrue;
+
+import org.fudgemsg.FudgeContext;
+import org.fudgemsg.FudgeMsg;
+import org.fudgemsg.MutableFudgeMsg;
+import org.fudgemsg.wire.FudgeEncoded;
+import org.fudgemsg.wire.types.FudgeWireType;
+import org.testng.annotations.Test;
+
+/**
+ * Tests the {@link EncodedFudgeMessages} class.
+ */
+@Test
+public class EncodedFudgeMessagesTest {
+
+  private final FudgeContext _fudgeContext = FudgeContext.GLOBAL_DEFAULT;
+
+  private FudgeMsg createValue() {
+    final MutableFudgeMsg msg = _fudgeContext.newMessage();
+    msg.add("Foo", 42d);
+    msg.add("Bar", "Test");
+    final MutableFudgeMsg sub = _fudgeContext.newMessage();
+    sub.add(1, 1d);
+    sub.add(2, 2d);
+    msg.add("Sub", sub);
+    return msg;
+  }
+
+  public void testRoundTrip() {
+    final FudgeMsg value = createValue();
+    final FudgeMsg wrapped = EncodedFudgeMessages.wrap(_fudgeContext, value);
+    assertEquals(2, wrapped.getNumFields());
+    final FudgeMsg unwrapped = EncodedFudgeMessages.unwrap(_fudgeContext, wrapped);
+    assertTrue(unwrapped instanceof FudgeEncoded);
+    assertEquals(42d, unwrapped.getDouble("Foo"), 0d);
+    assertEquals("Test", unwrapped.getString("Bar"));
+    assertEquals(2d, unwrapped.getMessage("Sub").getDouble(2), 0d);
+  }
+
+  public void testEncodedNotReencoded() {
+    final FudgeMsg encoded = EncodedFudgeMessages.unwrap(_fudgeContext, EncodedFudgeMessages.wrap(_fudgeContext, createValue()));
+    final byte[] data = ((FudgeEncoded) encoded).getFudgeEncoded();
+    assertSame(data, EncodedFudgeMessages.encode(_fudgeContext, encoded));
+  }
+
+  public void testUnwrappedPassThrough() {
+    final FudgeMsg value = createValue();
+    assertSame(value, EncodedFudgeMessages.unwrap(_fudgeContext, value));
+    assertSame(FudgeContext.EMPTY_MESSAGE, EncodedFudgeMessages.wrap(_fudgeContext, FudgeContext.EMPTY_MESSAGE));
+    assertSame(FudgeContext.EMPTY_MESSAGE, EncodedFudgeMessages.unwrap(_fudgeContext, FudgeContext.EMPTY_MESSAGE));
+  }
+
+  public void testByteArrayValueNotUnwrapped() {
+    final MutableFudgeMsg value = _fudgeContext.newMessage();
+    value.add(null, -2, FudgeWireType.BYTE_ARRAY, new byte[] {1, 2, 3 });
+    assertSame(value, EncodedFudgeMessages.unwrap(_fudgeContext, value));
+  }
+
+}
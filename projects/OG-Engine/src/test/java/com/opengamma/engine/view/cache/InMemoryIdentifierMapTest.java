@@ -0,0 +1,65 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.view.cache;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertNull;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.objects.Object2LongMap;
+
+import java.util.Arrays;
+
+import org.testng.annotations.Test;
+
+import com.opengamma.engine.ComputationTargetSpecification;
+import com.opengamma.engine.ComputationTargetType;
+import com.opengamma.engine.value.ValueProperties;
+import com.opengamma.engine.value.ValuePropertyNames;
+import com.opengamma.engine.value.ValueSpecification;
+import com.opengamma.id.UniqueId;
+
+/**
+ * Tests the {@link InMemoryIdentifierMap} class.
+ */
+@Test
+public class InMemoryIdentifierMapTest {
+
+  private static ValueSpecification createValueSpecification(final int i) {
+    return new ValueSpecification("Value" + i, new ComputationTargetSpecification(ComputationTargetType.PRIMITIVE, UniqueId.of("Test", "Target")),
+        ValueProperties.with(ValuePropertyNames.FUNCTION, "Test").get());
+  }
+
+  public void testSingle() {
+    final IdentifierMap map = new InMemoryIdentifierMap();
+    final ValueSpecification spec0 = createValueSpecification(0);
+    final ValueSpecification spec1 = createValueSpecification(1);
+    final long id0 = map.getIdentifier(spec0);
+    final long id1 = map.getIdentifier(spec1);
+    assertFalse(id0 == id1);
+    assertEquals(id0, map.getIdentifier(createValueSpecification(0)));
+    assertEquals(spec0, map.getValueSpecification(id0));
+    assertEquals(spec1, map.getValueSpecification(id1));
+    assertNull(map.getValueSpecification(0L));
+  }
+
+  public void testMultiple() {
+    final IdentifierMap map = new InMemoryIdentifierMap();
+    final long id0 = map.getIdentifier(createValueSpecification(0));
+    final Object2LongMap<ValueSpecification> identifiers = map.getIdentifiers(Arrays.asList(createValueSpecification(0), createValueSpecification(1),
+        createValueSpecification(2)));
+    assertEquals(3, identifiers.size());
+    assertEquals(id0, identifiers.getLong(createValueSpecification(0)));
+    final Long2ObjectMap<ValueSpecification> specifications = map.getValueSpecifications(new LongArrayList(identifiers.values()));
+    assertEquals(3, specifications.size());
+    for (Object2LongMap.Entry<ValueSpecification> identifier : identifiers.object2LongEntrySet()) {
+      assertEquals(identifier.getKey(), specifications.get(identifier.getLongValue()));
+    }
+  }
+
+}
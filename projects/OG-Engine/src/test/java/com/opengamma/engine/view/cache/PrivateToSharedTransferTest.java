@@ -10,11 +10,12 @@ import static org.testng.AssertJUnit.assertNotNull;
 import static org.testng.AssertJUnit.assertNull;
 import static org.testng.AssertJUnit.assertTrue;
 
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongCollection;
+
 import java.util.Arrays;
-import java.util.Collection;
-import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Map;
 import java.util.Set;
 
 import org.fudgemsg.FudgeContext;
@@ -97,10 +98,10 @@ public class PrivateToSharedTransferTest {
       }
 
       @Override
-      public Map<Long, FudgeMsg> findMissingValues(final ViewComputationCacheKey cache,
-          final Collection<Long> identifiers) {
-        final Map<Long, FudgeMsg> map = new HashMap<Long, FudgeMsg>();
-        for (Long identifier : identifiers) {
+      public Long2ObjectMap<FudgeMsg> findMissingValues(final ViewComputationCacheKey cache,
+          final LongCollection identifiers) {
+        final Long2ObjectMap<FudgeMsg> map = new Long2ObjectOpenHashMap<FudgeMsg>();
+        for (long identifier : identifiers) {
           map.put(identifier, findMissingValue(cache, identifier));
         }
         return map;
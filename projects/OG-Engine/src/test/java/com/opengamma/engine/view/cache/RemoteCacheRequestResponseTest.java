@@ -11,6 +11,8 @@ import static org.testng.AssertJUnit.assertNotNull;
 import static org.testng.AssertJUnit.assertNull;
 import static org.testng.AssertJUnit.assertTrue;
 
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.BitSet;
@@ -243,7 +245,7 @@ public class RemoteCacheRequestResponseTest {
     inputMap.put(identifier2, inputValue2);
     dataStore.put(inputMap);
 
-    final Map<Long, FudgeMsg> outputMap = dataStore.get(Arrays.asList(identifier1, identifier2));
+    final Map<Long, FudgeMsg> outputMap = dataStore.get(new LongArrayList(new long[] {identifier1, identifier2 }));
     assertEquals(2, outputMap.size());
     assertEquals(inputValue1.getAllFields(), outputMap.get(identifier1).getAllFields());
     assertEquals(inputValue2.getAllFields(), outputMap.get(identifier2).getAllFields());
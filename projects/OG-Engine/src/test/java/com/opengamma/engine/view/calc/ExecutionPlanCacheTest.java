@@ -7,12 +7,18 @@ package com.opengamma.engine.view.calc;
 
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
 import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertTrue;
 
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+
+import java.io.File;
 import java.util.Map;
 import java.util.concurrent.Future;
 
+import org.fudgemsg.FudgeContext;
+import org.fudgemsg.MutableFudgeMsg;
 import org.testng.annotations.Test;
 
 import com.opengamma.engine.ComputationTarget;
@@ -26,9 +32,11 @@ import com.opengamma.engine.value.ValueRequirement;
 import com.opengamma.engine.value.ValueSpecification;
 import com.opengamma.engine.view.calc.ExecutionPlanCache.DependencyGraphKey;
 import com.opengamma.engine.view.calc.ExecutionPlanCache.DependencyNodeKey;
+import com.opengamma.engine.view.calc.ExecutionPlanCache.Fingerprinter;
 import com.opengamma.engine.view.calc.stats.GraphExecutorStatisticsGatherer;
 import com.opengamma.id.UniqueId;
 import com.opengamma.util.ehcache.EHCacheUtils;
+import com.opengamma.util.fudgemsg.OpenGammaFudgeContext;
 
 /**
  * Tests the {@link ExecutionPlanCache} class.
@@ -207,9 +215,96 @@ public class ExecutionPlanCacheTest {
       public ExecutionPlan withNodes(Map<DependencyNodeKey, DependencyNode> nodes) {
         return this;
       }
+
+      @Override
+      public MutableFudgeMsg toFudgeMsg(final FudgeContext context, final Fingerprinter fingerprinter) {
+        return context.newMessage();
+      }
     };
   }
 
+  public void testDependencyGraphKey_fingerprint() {
+    final DependencyGraphKey a = new DependencyGraphKey(createDependencyGraph(), 1);
+    final DependencyGraphKey b = new DependencyGraphKey(createDependencyGraph(), 2);
+    assertEquals(a.getFingerprint(), b.getFingerprint());
+    final DependencyGraph graph = createDependencyGraph();
+    graph.addTerminalOutput(new ValueRequirement("1", new ComputationTargetSpecification(UniqueId.of("Test", "X"))),
+        new ValueSpecification("1", new ComputationTargetSpecification(UniqueId.of("Test", "X")), ValueProperties.with(ValuePropertyNames.FUNCTION, "Foo1").get()));
+    final DependencyGraphKey c = new DependencyGraphKey(graph, 1);
+    assertFalse(a.getFingerprint() == c.getFingerprint());
+    assertEquals(a.getNodeFingerprints().size(), 10);
+  }
+
+  private ExecutionPlan createPersistableExecutionPlan(final DependencyGraph graph) {
+    final Fingerprinter fingerprinter = new Fingerprinter();
+    final Long2ObjectOpenHashMap<DependencyNode> nodes = new Long2ObjectOpenHashMap<DependencyNode>();
+    final long[] fingerprints = new long[graph.getSize()];
+    int i = 0;
+    for (DependencyNode node : graph.getExecutionOrder()) {
+      fingerprints[i] = fingerprinter.getNodeFingerprint(node);
+      nodes.put(fingerprints[i++], node);
+    }
+    final MutableFudgeMsg msg = OpenGammaFudgeContext.getInstance().newMessage();
+    msg.add("nodes", fingerprints);
+    return ExecutionPlan.fromFudgeMsg(msg, nodes, new Long2ObjectOpenHashMap<ValueSpecification>());
+  }
+
+  public void testCache_persisted() {
+    final File folder = new File(System.getProperty("java.io.tmpdir"), "ExecutionPlanCacheTest-" + System.currentTimeMillis());
+    try {
+      final ExecutionPlanCache cache = new ExecutionPlanCache(null, folder);
+      cache.setPlanParameters("Test");
+      final DependencyGraph graph = createDependencyGraph();
+      final ExecutionPlan plan = createPersistableExecutionPlan(graph);
+      assertNotNull(plan);
+      cache.cachePlan(graph, 0, plan);
+      cache.waitForPendingWrites();
+      // A new cache instance with the same parameters, for example after a restart, will load the plan
+      final ExecutionPlanCache restarted = new ExecutionPlanCache(EHCacheUtils.createCacheManager(), folder);
+      restarted.setPlanParameters("Test");
+      assertNotNull(restarted.getCachedPlan(createDependencyGraph(), 1));
+      // Different parameters won't
+      restarted.setPlanParameters("Other");
+      assertNull(restarted.getCachedPlan(createDependencyGraph(), 2));
+      // A different graph won't
+      restarted.setPlanParameters("Test");
+      final DependencyGraph other = createDependencyGraph();
+      other.addTerminalOutput(new ValueRequirement("1", new ComputationTargetSpecification(UniqueId.of("Test", "X"))),
+          new ValueSpecification("1", new ComputationTargetSpecification(UniqueId.of("Test", "X")), ValueProperties.with(ValuePropertyNames.FUNCTION, "Foo1").get()));
+      assertNull(restarted.getCachedPlan(other, 1));
+      // Clearing the cache, for example because the executor parameters were changed, doesn't remove the persisted plans
+      restarted.clear();
+      assertNotNull(restarted.getCachedPlan(createDependencyGraph(), 3));
+    } finally {
+      for (File file : folder.listFiles()) {
+        file.delete();
+      }
+      folder.delete();
+    }
+  }
+
+  public void testCache_persistedPruned() {
+    final File folder = new File(System.getProperty("java.io.tmpdir"), "ExecutionPlanCacheTest-" + System.currentTimeMillis());
+    try {
+      final ExecutionPlanCache cache = new ExecutionPlanCache(null, folder);
+      cache.setMaxPersistedPlans(2);
+      final DependencyGraph graph = createDependencyGraph();
+      final ExecutionPlan plan = createPersistableExecutionPlan(graph);
+      for (int i = 0; i < 5; i++) {
+        // Each set of parameters gives a different file
+        cache.setPlanParameters("Test" + i);
+        cache.cachePlan(graph, 0, plan);
+      }
+      cache.waitForPendingWrites();
+      assertEquals(folder.listFiles().length, 2);
+    } finally {
+      for (File file : folder.listFiles()) {
+        file.delete();
+      }
+      folder.delete();
+    }
+  }
+
   public void testCache_identity() {
     final ExecutionPlanCache cache = new ExecutionPlanCache(EHCacheUtils.createCacheManager());
     final DependencyGraph graph = createDependencyGraph();
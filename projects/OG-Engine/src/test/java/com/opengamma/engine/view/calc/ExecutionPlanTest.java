@@ -9,6 +9,10 @@ import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 import static org.mockito.Matchers.any;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -19,6 +23,8 @@ import java.util.concurrent.TimeUnit;
 
 import javax.time.Instant;
 
+import org.fudgemsg.FudgeContext;
+import org.fudgemsg.FudgeMsg;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.testng.annotations.Test;
@@ -31,6 +37,7 @@ import com.opengamma.engine.value.ValueSpecification;
 import com.opengamma.engine.view.ExecutionLogMode;
 import com.opengamma.engine.view.ExecutionLogModeSource;
 import com.opengamma.engine.view.cache.CacheSelectHint;
+import com.opengamma.engine.view.calc.ExecutionPlanCache.Fingerprinter;
 import com.opengamma.engine.view.calc.stats.DiscardingGraphStatisticsGathererProvider;
 import com.opengamma.engine.view.calc.stats.GraphExecutorStatisticsGatherer;
 import com.opengamma.engine.view.calcnode.CalculationJob;
@@ -42,6 +49,7 @@ import com.opengamma.engine.view.calcnode.JobResultReceiver;
 import com.opengamma.engine.view.calcnode.stats.FunctionCosts;
 import com.opengamma.id.UniqueId;
 import com.opengamma.util.async.Cancelable;
+import com.opengamma.util.fudgemsg.OpenGammaFudgeContext;
 import com.opengamma.util.test.Timeout;
 
 /**
@@ -154,17 +162,49 @@ public class ExecutionPlanTest {
     return DiscardingGraphStatisticsGathererProvider.GATHERER_INSTANCE;
   }
 
-  public void testSingleFragment() throws Exception {
+  /**
+   * Writes the plan to a message, and reads it back for the nodes of another graph.
+   */
+  private ExecutionPlan persist(final ExecutionPlan plan, final DependencyGraph graph) {
+    final FudgeContext fudgeContext = OpenGammaFudgeContext.getInstance();
+    final byte[] data = fudgeContext.toByteArray(plan.toFudgeMsg(fudgeContext, new Fingerprinter()));
+    final FudgeMsg msg = fudgeContext.deserialize(data).getMessage();
+    final Fingerprinter fingerprinter = new Fingerprinter();
+    final Long2ObjectMap<DependencyNode> nodes = new Long2ObjectOpenHashMap<DependencyNode>();
+    final Long2ObjectMap<ValueSpecification> values = new Long2ObjectOpenHashMap<ValueSpecification>();
+    for (DependencyNode node : graph.getDependencyNodes()) {
+      nodes.put(fingerprinter.getNodeFingerprint(node), node);
+      for (ValueSpecification output : node.getOutputValues()) {
+        values.put(fingerprinter.getValueFingerprint(output), output);
+      }
+    }
+    final ExecutionPlan persisted = ExecutionPlan.fromFudgeMsg(msg, nodes, values);
+    assertNotNull(persisted);
+    return persisted;
+  }
+
+  private ExecutionPlan createSingleFragmentPlan() {
     final MutableGraphFragmentContext mContext = createMutableGraphFragmentContext();
     final CompleteGraphFragment fragment = new CompleteGraphFragment(mContext, createStatisticsGatherer(), mContext.getGraph().getExecutionOrder());
     fragment.setCacheSelectHint(CacheSelectHint.allShared());
-    final ExecutionPlan plan = ExecutionPlan.of(fragment);
+    return ExecutionPlan.of(fragment);
+  }
+
+  public void testSingleFragment() throws Exception {
+    final ExecutionPlan plan = createSingleFragmentPlan();
     final GraphFragmentContext context = createGraphFragmentContext();
     final Future<?> future = plan.run(context, createStatisticsGatherer());
     assertEquals(future.get(Timeout.standardTimeoutMillis(), TimeUnit.MILLISECONDS), context.getGraph());
   }
 
-  public void testMultipleFragments() throws Exception {
+  public void testSingleFragmentPersisted() throws Exception {
+    final GraphFragmentContext context = createGraphFragmentContext();
+    final ExecutionPlan plan = persist(createSingleFragmentPlan(), context.getGraph());
+    final Future<?> future = plan.run(context, createStatisticsGatherer());
+    assertEquals(future.get(Timeout.standardTimeoutMillis(), TimeUnit.MILLISECONDS), context.getGraph());
+  }
+
+  private ExecutionPlan createMultipleFragmentPlan() {
     final MutableGraphFragmentContext mContext = createMutableGraphFragmentContext();
     final MutableGraphFragment.Root root = new MutableGraphFragment.Root(mContext, createStatisticsGatherer());
     final MutableGraphFragment[] fragment = new MutableGraphFragment[4];
@@ -183,8 +223,19 @@ public class ExecutionPlanTest {
     fragment[3].getOutputFragments().add(root);
     root.getInputFragments().add(fragment[2]);
     root.getInputFragments().add(fragment[3]);
-    final ExecutionPlan plan = ExecutionPlan.of(root);
+    return ExecutionPlan.of(root);
+  }
+
+  public void testMultipleFragments() throws Exception {
+    final ExecutionPlan plan = createMultipleFragmentPlan();
+    final GraphFragmentContext context = createGraphFragmentContext();
+    final Future<?> future = plan.run(context, createStatisticsGatherer());
+    assertEquals(future.get(Timeout.standardTimeoutMillis(), TimeUnit.MILLISECONDS), context.getGraph());
+  }
+
+  public void testMultipleFragmentsPersisted() throws Exception {
     final GraphFragmentContext context = createGraphFragmentContext();
+    final ExecutionPlan plan = persist(createMultipleFragmentPlan(), context.getGraph());
     final Future<?> future = plan.run(context, createStatisticsGatherer());
     assertEquals(future.get(Timeout.standardTimeoutMillis(), TimeUnit.MILLISECONDS), context.getGraph());
   }
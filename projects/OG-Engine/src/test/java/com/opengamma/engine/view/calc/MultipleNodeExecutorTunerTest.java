@@ -0,0 +1,87 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.view.calc;
+
+import static org.testng.AssertJUnit.assertEquals;
+
+import org.testng.annotations.Test;
+
+import com.opengamma.engine.view.calcnode.stats.FunctionCosts;
+
+/**
+ * Tests the job size tuning in {@link MultipleNodeExecutorTuner}.
+ */
+@Test
+public class MultipleNodeExecutorTunerTest {
+
+  private MultipleNodeExecutorTuner createTuner(final FunctionCosts costs) {
+    final MultipleNodeExecutorFactory factory = new MultipleNodeExecutorFactory();
+    factory.setFunctionCosts(costs);
+    final MultipleNodeExecutorTuner tuner = new MultipleNodeExecutorTuner(factory);
+    tuner.setTargetJobDuration(100000000L);
+    return tuner;
+  }
+
+  public void testNotTunedByDefault() {
+    final FunctionCosts costs = new FunctionCosts();
+    costs.functionInvoked("Default", "F", 1, 1000000d, 100d, 100d);
+    final MultipleNodeExecutorTuner tuner = createTuner(costs);
+    tuner.setTargetJobDuration(0);
+    tuner.run();
+    assertEquals(Integer.MAX_VALUE, tuner.getFactory().getMaximumJobItems());
+    assertEquals(Long.MAX_VALUE, tuner.getFactory().getMaximumJobCost());
+  }
+
+  public void testComputeBound() {
+    final FunctionCosts costs = new FunctionCosts();
+    costs.functionInvoked("Default", "F", 1, 1000000d, 100d, 100d);
+    final MultipleNodeExecutorTuner tuner = createTuner(costs);
+    tuner.run();
+    final MultipleNodeExecutorFactory factory = tuner.getFactory();
+    assertEquals(100000000L, factory.getMaximumJobCost());
+    assertEquals(10000000L, factory.getMinimumJobCost());
+    assertEquals(99, factory.getMaximumJobItems());
+    assertEquals(9, factory.getMinimumJobItems());
+    assertEquals(1000000d, tuner.getMeanInvocationCost(), 0d);
+  }
+
+  public void testDataBound() {
+    final FunctionCosts costs = new FunctionCosts();
+    costs.functionInvoked("Default", "F", 1, 100d, 1000d, 1000d);
+    final MultipleNodeExecutorTuner tuner = createTuner(costs);
+    tuner.run();
+    final MultipleNodeExecutorFactory factory = tuner.getFactory();
+    // Data is 95% of the item cost so jobs are enlarged to keep more of it on one node
+    final long expectedCost = (long) (100000000L * ((2000d / 2100d) / 0.5));
+    assertEquals(expectedCost, factory.getMaximumJobCost());
+    assertEquals((int) (expectedCost / 2100d), factory.getMaximumJobItems());
+  }
+
+  public void testMeanWeightedByInvocations() {
+    final FunctionCosts costs = new FunctionCosts();
+    costs.functionInvoked("Default", "Cheap", 9, 9000000d, 0d, 0d);
+    costs.functionInvoked("Default", "Expensive", 1, 10000000d, 0d, 0d);
+    final MultipleNodeExecutorTuner tuner = createTuner(costs);
+    tuner.run();
+    // Nine invocations at 1ms for every one at 10ms
+    assertEquals(1900000d, tuner.getMeanInvocationCost(), 1d);
+    assertEquals(52, tuner.getFactory().getMaximumJobItems());
+  }
+
+  public void testSmallChangeIgnored() {
+    final FunctionCosts costs = new FunctionCosts();
+    costs.functionInvoked("Default", "F", 1, 1000000d, 100d, 100d);
+    final MultipleNodeExecutorTuner tuner = createTuner(costs);
+    tuner.run();
+    tuner.setTargetJobDuration(105000000L);
+    tuner.run();
+    assertEquals(100000000L, tuner.getFactory().getMaximumJobCost());
+    tuner.setTargetJobDuration(200000000L);
+    tuner.run();
+    assertEquals(200000000L, tuner.getFactory().getMaximumJobCost());
+  }
+
+}
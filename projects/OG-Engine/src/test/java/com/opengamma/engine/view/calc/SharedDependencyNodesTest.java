@@ -0,0 +1,116 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.view.calc;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertNull;
+import static org.testng.AssertJUnit.assertSame;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.testng.annotations.Test;
+
+import com.opengamma.core.position.impl.SimplePortfolio;
+import com.opengamma.engine.ComputationTarget;
+import com.opengamma.engine.ComputationTargetSpecification;
+import com.opengamma.engine.depgraph.DependencyGraph;
+import com.opengamma.engine.depgraph.DependencyNode;
+import com.opengamma.engine.function.MarketDataSourcingFunction;
+import com.opengamma.engine.test.MockFunction;
+import com.opengamma.engine.value.ValueProperties;
+import com.opengamma.engine.value.ValuePropertyNames;
+import com.opengamma.engine.value.ValueRequirement;
+import com.opengamma.engine.value.ValueSpecification;
+import com.opengamma.engine.view.ViewCalculationConfiguration;
+import com.opengamma.engine.view.ViewDefinition;
+import com.opengamma.engine.view.compilation.CompiledViewDefinitionWithGraphsImpl;
+import com.opengamma.id.UniqueId;
+import com.opengamma.livedata.UserPrincipal;
+import com.opengamma.util.tuple.Pair;
+
+/**
+ * Tests the {@link SharedDependencyNodes} class.
+ */
+@Test
+public class SharedDependencyNodesTest {
+
+  private static ValueSpecification spec(final String valueName, final String target, final String function) {
+    return new ValueSpecification(valueName, new ComputationTargetSpecification(UniqueId.of("Test", target)), ValueProperties.with(ValuePropertyNames.FUNCTION, function).get());
+  }
+
+  private static DependencyNode marketDataNode() {
+    final ValueSpecification spec = spec("Market", "X", MarketDataSourcingFunction.UNIQUE_ID);
+    final DependencyNode node = new DependencyNode(new ComputationTarget(UniqueId.of("Test", "X")));
+    node.setFunction(new MarketDataSourcingFunction(new ValueRequirement("Market", spec.getTargetSpecification()), spec));
+    node.addOutputValue(spec);
+    return node;
+  }
+
+  private static DependencyNode node(final String function, final String target, final DependencyNode input) {
+    final DependencyNode node = new DependencyNode(new ComputationTarget(UniqueId.of("Test", target)));
+    node.setFunction(new MockFunction(function, new ComputationTarget(UniqueId.of("Test", target))));
+    for (ValueSpecification inputValue : input.getOutputValues()) {
+      node.addInputValue(inputValue);
+    }
+    node.addInputNode(input);
+    node.addOutputValue(spec(function, target, function));
+    return node;
+  }
+
+  private static DependencyGraph graph(final String calcConfigName, final DependencyNode... nodes) {
+    final DependencyGraph graph = new DependencyGraph(calcConfigName);
+    for (DependencyNode node : nodes) {
+      graph.addDependencyNode(node);
+    }
+    return graph;
+  }
+
+  public void testSharedNodes() {
+    final ViewDefinition viewDefinition = new ViewDefinition("Test", UserPrincipal.getTestUser());
+    viewDefinition.addViewCalculationConfiguration(new ViewCalculationConfiguration(viewDefinition, "Base"));
+    viewDefinition.addViewCalculationConfiguration(new ViewCalculationConfiguration(viewDefinition, "Other"));
+    final ViewCalculationConfiguration stressed = new ViewCalculationConfiguration(viewDefinition, "Stressed");
+    stressed.setDefaultProperties(ValueProperties.with(SingleComputationCycle.MARKET_DATA_SHIFT_PROPERTY, "x * 1.01").get());
+    viewDefinition.addViewCalculationConfiguration(stressed);
+    final Map<String, DependencyGraph> graphs = new HashMap<String, DependencyGraph>();
+    final DependencyNode baseMarketData = marketDataNode();
+    final DependencyNode baseCurve = node("Curve", "Y", baseMarketData);
+    final DependencyNode basePV = node("PV", "Z", baseCurve);
+    graphs.put("Base", graph("Base", baseMarketData, baseCurve, basePV));
+    final DependencyNode otherMarketData = marketDataNode();
+    final DependencyNode otherCurve = node("Curve", "Y", otherMarketData);
+    final DependencyNode otherRisk = node("Risk", "Z", otherCurve);
+    graphs.put("Other", graph("Other", otherMarketData, otherCurve, otherRisk));
+    final DependencyNode stressedMarketData = marketDataNode();
+    final DependencyNode stressedCurve = node("Curve", "Y", stressedMarketData);
+    final DependencyNode stressedPV = node("PV", "Z", stressedCurve);
+    graphs.put("Stressed", graph("Stressed", stressedMarketData, stressedCurve, stressedPV));
+    final CompiledViewDefinitionWithGraphsImpl compiled = new CompiledViewDefinitionWithGraphsImpl(viewDefinition, graphs, new SimplePortfolio("Test"), 0);
+    final SharedDependencyNodes shared = compiled.getSharedDependencyNodes();
+    assertSame(shared, compiled.getSharedDependencyNodes());
+    assertFalse(shared.isEmpty());
+    assertEquals(1, shared.getOwningConfigurations().size());
+    // Only the curve is common to two configurations; the stressed market data shift makes its curve distinct
+    assertEquals(1, shared.getOwnedNodes("Base").size());
+    assertTrue(shared.getOwnedNodes("Base").contains(baseCurve));
+    assertTrue(shared.getOwnedNodes("Other").isEmpty());
+    assertEquals(Collections.singleton("Base"), shared.getAliasedConfigurations("Other"));
+    assertTrue(shared.getAliasedConfigurations("Base").isEmpty());
+    assertTrue(shared.getAliasedConfigurations("Stressed").isEmpty());
+    final Collection<Pair<String, DependencyNode>> aliases = shared.getAliases(baseCurve);
+    assertEquals(1, aliases.size());
+    assertEquals(Pair.of("Other", otherCurve), aliases.iterator().next());
+    assertNull(shared.getAliases(basePV));
+    assertNull(shared.getAliases(baseMarketData));
+    assertNull(shared.getAliases(stressedCurve));
+  }
+
+}
@@ -5,27 +5,50 @@
  */
 package com.opengamma.engine.view.calc;
 
+import static org.testng.AssertJUnit.assertEquals;
 import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertNotNull;
 import static org.testng.AssertJUnit.assertTrue;
 
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
 import java.util.Queue;
+import java.util.Set;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Future;
 import java.util.concurrent.FutureTask;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.testng.annotations.Test;
 
+import com.opengamma.engine.ComputationTarget;
+import com.opengamma.engine.ComputationTargetType;
 import com.opengamma.engine.depgraph.DependencyGraph;
+import com.opengamma.engine.function.FunctionExecutionContext;
+import com.opengamma.engine.function.FunctionInputs;
+import com.opengamma.engine.function.InMemoryFunctionRepository;
+import com.opengamma.engine.marketdata.InMemoryLKVMarketDataProvider;
 import com.opengamma.engine.marketdata.spec.MarketData;
+import com.opengamma.engine.test.MockFunction;
+import com.opengamma.engine.test.TestViewResultListener;
 import com.opengamma.engine.test.ViewProcessorTestEnvironment;
+import com.opengamma.engine.value.ComputedValue;
+import com.opengamma.engine.value.ComputedValueResult;
+import com.opengamma.engine.value.ValueRequirement;
 import com.opengamma.engine.view.ExecutionLogModeSource;
+import com.opengamma.engine.view.ViewCalculationConfiguration;
+import com.opengamma.engine.view.ViewCalculationResultModel;
+import com.opengamma.engine.view.ViewComputationResultModel;
+import com.opengamma.engine.view.ViewDefinition;
 import com.opengamma.engine.view.ViewProcessImpl;
 import com.opengamma.engine.view.ViewProcessorImpl;
 import com.opengamma.engine.view.calc.stats.GraphExecutorStatisticsGatherer;
 import com.opengamma.engine.view.client.ViewClient;
 import com.opengamma.engine.view.execution.ExecutionOptions;
+import com.opengamma.id.UniqueId;
 import com.opengamma.livedata.UserPrincipal;
 import com.opengamma.util.test.Timeout;
 
@@ -36,6 +59,7 @@ import com.opengamma.util.test.Timeout;
 public class SingleComputationCycleTest {
 
   private static final long TIMEOUT = Timeout.standardTimeoutMillis();
+  private static final List<String> CALC_CONFIG_NAMES = Arrays.asList("A", "B");
   
   public void testInterruptCycle() throws InterruptedException {
     ViewProcessorTestEnvironment env = new ViewProcessorTestEnvironment();
@@ -68,6 +92,75 @@ public class SingleComputationCycleTest {
     assertTrue(executor.wasInterrupted());
   }
   
+  public void testSharedNodesExecutedOnce() throws InterruptedException {
+    ViewProcessorTestEnvironment env = new ViewProcessorTestEnvironment();
+    final AtomicInteger executions = new AtomicInteger();
+    final ComputationTarget target = new ComputationTarget(ComputationTargetType.PRIMITIVE, "USD");
+    MockFunction fn = new MockFunction(MockFunction.UNIQUE_ID, target) {
+      
+      @Override
+      public Set<ComputedValue> execute(FunctionExecutionContext executionContext, FunctionInputs inputs, ComputationTarget target, Set<ValueRequirement> desiredValues) {
+        executions.incrementAndGet();
+        return super.execute(executionContext, inputs, target, desiredValues);
+      }
+      
+    };
+    ValueRequirement requirement = new ValueRequirement("Curve", target.toSpecification());
+    fn.addRequirement(ViewProcessorTestEnvironment.getPrimitive1());
+    fn.addResult(requirement, "Result");
+    InMemoryFunctionRepository functionRepository = new InMemoryFunctionRepository();
+    functionRepository.addFunction(fn);
+    env.setFunctionRepository(functionRepository);
+    
+    // Both configurations need the same value from the same market data, so the node producing it is shared
+    ViewDefinition vd = new ViewDefinition(UniqueId.of("test", "vd1"), "Test view", UserPrincipal.getLocalUser());
+    for (String calcConfigName : CALC_CONFIG_NAMES) {
+      ViewCalculationConfiguration calcConfig = new ViewCalculationConfiguration(vd, calcConfigName);
+      calcConfig.addSpecificRequirement(requirement);
+      vd.addViewCalculationConfiguration(calcConfig);
+    }
+    vd.setMinFullCalculationPeriod(Long.MAX_VALUE);  // Never force a full calculation
+    vd.setMaxFullCalculationPeriod(Long.MAX_VALUE);  // Never force a full calculation
+    env.setViewDefinition(vd);
+    env.init();
+    
+    ViewProcessorImpl vp = env.getViewProcessor();
+    vp.start();
+    
+    ViewClient client = vp.createViewClient(ViewProcessorTestEnvironment.TEST_USER);
+    TestViewResultListener resultListener = new TestViewResultListener();
+    client.setResultListener(resultListener);
+    client.attachToViewProcess(env.getViewDefinition().getUniqueId(), ExecutionOptions.infinite(MarketData.live()));
+    
+    resultListener.assertViewDefinitionCompiled(TIMEOUT);
+    assertSharedResult(resultListener.getCycleCompleted(TIMEOUT).getFullResult(), target);
+    assertEquals(1, executions.get());
+    
+    // A delta cycle after the market data has changed executes the shared node again, but still only once
+    ((InMemoryLKVMarketDataProvider) env.getMarketDataProvider()).addValue(ViewProcessorTestEnvironment.getPrimitive1(), 1);
+    assertSharedResult(resultListener.getCycleCompleted(TIMEOUT).getFullResult(), target);
+    assertEquals(2, executions.get());
+    
+    // A delta cycle with no change reuses the previous values in both configurations
+    ViewComputationJob recalcJob = env.getCurrentComputationJob(env.getViewProcess(vp, client.getUniqueId()));
+    recalcJob.triggerCycle();
+    assertSharedResult(resultListener.getCycleCompleted(TIMEOUT).getFullResult(), target);
+    assertEquals(2, executions.get());
+    
+    client.shutdown();
+  }
+  
+  private static void assertSharedResult(final ViewComputationResultModel result, final ComputationTarget target) {
+    for (String calcConfigName : CALC_CONFIG_NAMES) {
+      final ViewCalculationResultModel calcResult = result.getCalculationResult(calcConfigName);
+      assertNotNull(calcResult);
+      final Collection<ComputedValueResult> values = calcResult.getAllValues(target.toSpecification());
+      assertNotNull(values);
+      assertEquals(1, values.size());
+      assertEquals("Result", values.iterator().next().getValue());
+    }
+  }
+  
   private class BlockingDependencyGraphExecutorFactory implements DependencyGraphExecutorFactory<ExecutionResult> {
 
     private final BlockingDependencyGraphExecutor _instance;
@@ -6,12 +6,18 @@
 package com.opengamma.engine.view.calc;
 
 import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertTrue;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import javax.time.Duration;
 import javax.time.Instant;
@@ -42,6 +48,7 @@ import com.opengamma.engine.value.ComputedValue;
 import com.opengamma.engine.value.ValueRequirement;
 import com.opengamma.engine.value.ValueSpecification;
 import com.opengamma.engine.view.ViewComputationResultModel;
+import com.opengamma.engine.view.ViewDeltaResultModel;
 import com.opengamma.engine.view.ViewProcessImpl;
 import com.opengamma.engine.view.ViewProcessorImpl;
 import com.opengamma.engine.view.ViewTargetResultModel;
@@ -286,6 +293,62 @@ public class ViewComputationJobTest {
     client.shutdown();
   }
 
+  @Test
+  public void testPipelinedCyclesDeliveredInOrder() throws InterruptedException {
+    ViewProcessorTestEnvironment env = new ViewProcessorTestEnvironment();
+    env.init();
+    
+    ViewProcessorImpl vp = env.getViewProcessor();
+    vp.setCyclePipelineDepth(1);
+    vp.start();
+    
+    ViewClient client = vp.createViewClient(ViewProcessorTestEnvironment.TEST_USER);
+    final CountDownLatch firstDelivery = new CountDownLatch(1);
+    final CountDownLatch releaseFirstDelivery = new CountDownLatch(1);
+    final List<Instant> valuationTimes = new CopyOnWriteArrayList<Instant>();
+    TestViewResultListener resultListener = new TestViewResultListener() {
+      @Override
+      public void cycleCompleted(ViewComputationResultModel fullResult, ViewDeltaResultModel deltaResult) {
+        valuationTimes.add(fullResult.getValuationTime());
+        if (valuationTimes.size() == 1) {
+          firstDelivery.countDown();
+          try {
+            releaseFirstDelivery.await(TIMEOUT, TimeUnit.MILLISECONDS);
+          } catch (InterruptedException e) {
+            throw new OpenGammaRuntimeException("Interrupted", e);
+          }
+        }
+        super.cycleCompleted(fullResult, deltaResult);
+      }
+    };
+    client.setResultListener(resultListener);
+    Instant now = Instant.now();
+    EnumSet<ViewExecutionFlags> flags = ExecutionFlags.none().runAsFastAsPossible().pipelineCycles().get();
+    ViewExecutionOptions executionOptions = ExecutionOptions.of(ArbitraryViewCycleExecutionSequence.of(now, now.plusMillis(10), now.plusMillis(20)), flags);
+    client.attachToViewProcess(env.getViewDefinition().getUniqueId(), executionOptions);
+    
+    // The second cycle runs while the results of the first are still being delivered
+    assertTrue(firstDelivery.await(TIMEOUT, TimeUnit.MILLISECONDS));
+    final long start = System.currentTimeMillis();
+    while (vp.getViewCycleManager().getResourceCount() < 2) {
+      assertTrue("Second cycle did not start while the first was being delivered", System.currentTimeMillis() - start < TIMEOUT);
+      Thread.sleep(10);
+    }
+    assertEquals(1, valuationTimes.size());
+    releaseFirstDelivery.countDown();
+    
+    // Delivery is still in order
+    resultListener.assertViewDefinitionCompiled(TIMEOUT);
+    resultListener.assertCycleCompleted(TIMEOUT);
+    resultListener.assertCycleCompleted(TIMEOUT);
+    resultListener.assertCycleCompleted(TIMEOUT);
+    resultListener.assertProcessCompleted(TIMEOUT);
+    resultListener.assertNoCalls(Timeout.standardTimeoutMillis());
+    assertEquals(Arrays.asList(now, now.plusMillis(10), now.plusMillis(20)), valuationTimes);
+    
+    client.shutdown();
+  }
+
   
   @Test
   public void testUpdateViewDefinitionCausesRecompile() {
@@ -0,0 +1,171 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.view.calcnode;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertSame;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import javax.time.Instant;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.annotations.Test;
+
+import com.opengamma.engine.ComputationTarget;
+import com.opengamma.engine.ComputationTargetType;
+import com.opengamma.engine.function.FunctionExecutionContext;
+import com.opengamma.engine.function.FunctionInputs;
+import com.opengamma.engine.test.CalculationNodeUtils;
+import com.opengamma.engine.test.MockFunction;
+import com.opengamma.engine.test.TestCalculationNode;
+import com.opengamma.engine.value.ComputedValue;
+import com.opengamma.engine.value.ValueRequirement;
+import com.opengamma.engine.value.ValueSpecification;
+import com.opengamma.engine.view.ExecutionLog;
+import com.opengamma.engine.view.ExecutionLogMode;
+import com.opengamma.engine.view.cache.CacheSelectHint;
+import com.opengamma.id.UniqueId;
+import com.opengamma.util.log.LogBridge;
+import com.opengamma.util.log.LogLevel;
+import com.opengamma.util.log.SimpleLogEvent;
+import com.opengamma.util.log.ThreadLocalLogEventListener;
+
+/**
+ * Tests the recycling of per-item state in {@link SimpleCalculationNode} and measures the item throughput of a node executing
+ * jobs made of many small items.
+ * <p>
+ * The throughput test reports items per second and, on JVMs that support per-thread allocation counters, the number of bytes
+ * allocated per item. Increase {@link #ITEMS} and {@link #RUNS} for more stable figures when comparing changes.
+ */
+@Test(groups = "unit")
+public class CalculationNodeThroughputTest {
+
+  private static final Logger s_logger = LoggerFactory.getLogger(CalculationNodeThroughputTest.class);
+
+  private static final int ITEMS = 5000;
+  private static final int RUNS = 5;
+
+  private static CalculationJob createJob(final List<CalculationJobItem> items) {
+    final CalculationJobSpecification jobSpec = new CalculationJobSpecification(UniqueId.of("Test", "ViewProcess"), CalculationNodeUtils.CALC_CONF_NAME, Instant.now(), 1L);
+    return new CalculationJob(jobSpec, 0L, null, items, CacheSelectHint.allShared());
+  }
+
+  private static CalculationJobItem createItem(final MockFunction function, final Set<ValueSpecification> inputs, final ExecutionLogMode logMode) {
+    return new CalculationJobItem(function.getUniqueId(), function.getDefaultParameters(), function.getTarget().toSpecification(), inputs, function.getResultSpecs(), logMode);
+  }
+
+  public void missingInputsNotShared() throws Exception {
+    final ComputationTarget target = new ComputationTarget(ComputationTargetType.PRIMITIVE, "USD");
+    final MockFunction function = CalculationNodeUtils.getMockFunction();
+    final TestCalculationNode node = CalculationNodeUtils.getTestCalcNode(function);
+    final ValueSpecification input1 = function.toValueSpecification(new ValueRequirement("INPUT1", target.toSpecification()));
+    final ValueSpecification input2 = function.toValueSpecification(new ValueRequirement("INPUT2", target.toSpecification()));
+    final List<CalculationJobItem> items = new ArrayList<CalculationJobItem>();
+    items.add(createItem(function, Collections.singleton(input1), ExecutionLogMode.INDICATORS));
+    items.add(createItem(function, Collections.singleton(input2), ExecutionLogMode.INDICATORS));
+    final CalculationJobResult result = node.executeJob(createJob(items));
+    assertEquals(2, result.getResultItems().size());
+    assertEquals(InvocationResult.MISSING_INPUTS, result.getResultItems().get(0).getResult());
+    assertEquals(Collections.singleton(input1), result.getResultItems().get(0).getMissingInputs());
+    assertEquals(InvocationResult.MISSING_INPUTS, result.getResultItems().get(1).getResult());
+    assertEquals(Collections.singleton(input2), result.getResultItems().get(1).getMissingInputs());
+  }
+
+  public void logsNotShared() throws Exception {
+    final ComputationTarget target = new ComputationTarget(ComputationTargetType.PRIMITIVE, "USD");
+    final MockFunction function = new MockFunction(MockFunction.UNIQUE_ID, target) {
+      @Override
+      public Set<ComputedValue> execute(final FunctionExecutionContext executionContext, final FunctionInputs inputs, final ComputationTarget target,
+          final Set<ValueRequirement> desiredValues) {
+        if (!inputs.getAllValues().isEmpty()) {
+          LogBridge.getInstance().log(new SimpleLogEvent(LogLevel.WARN, "Warning during execution"));
+        }
+        return super.execute(executionContext, inputs, target, desiredValues);
+      }
+    };
+    function.addResult(MockFunction.getOutputRequirement(target), "Result");
+    final ThreadLocalLogEventListener logEventListener = new ThreadLocalLogEventListener();
+    final TestCalculationNode node = new TestCalculationNode(logEventListener);
+    CalculationNodeUtils.configureTestCalcNode(node, function);
+    final ValueSpecification input = function.toValueSpecification(new ValueRequirement("INPUT", target.toSpecification()));
+    final List<CalculationJobItem> items = new ArrayList<CalculationJobItem>();
+    items.add(createItem(function, Collections.<ValueSpecification>emptySet(), ExecutionLogMode.INDICATORS));
+    items.add(createItem(function, Collections.singleton(input), ExecutionLogMode.INDICATORS));
+    items.add(createItem(function, Collections.<ValueSpecification>emptySet(), ExecutionLogMode.INDICATORS));
+    final CalculationJob job = createJob(items);
+    node.getCache(job.getSpecification()).putSharedValue(new ComputedValue(input, "Input"));
+    LogBridge.getInstance().addListener(logEventListener);
+    final CalculationJobResult result;
+    try {
+      result = node.executeJob(job);
+    } finally {
+      LogBridge.getInstance().removeListener(logEventListener);
+    }
+    assertEquals(3, result.getResultItems().size());
+    assertSame(ExecutionLog.EMPTY, result.getResultItems().get(0).getExecutionLog());
+    assertTrue(result.getResultItems().get(1).getExecutionLog().hasWarn());
+    assertFalse(result.getResultItems().get(2).getExecutionLog().hasWarn());
+  }
+
+  private static Method getThreadAllocatedBytes(final ThreadMXBean threads) {
+    try {
+      final Method method = threads.getClass().getMethod("getThreadAllocatedBytes", Long.TYPE);
+      method.setAccessible(true);
+      return method;
+    } catch (Exception e) {
+      s_logger.debug("Per-thread allocation counters not available", e);
+      return null;
+    }
+  }
+
+  private static long allocatedBytes(final ThreadMXBean threads, final Method method) {
+    if (method == null) {
+      return 0;
+    }
+    try {
+      return (Long) method.invoke(threads, Thread.currentThread().getId());
+    } catch (Exception e) {
+      return 0;
+    }
+  }
+
+  @Test(groups = {"unit", "slow"})
+  public void throughput() throws Exception {
+    final MockFunction function = CalculationNodeUtils.getMockFunction();
+    final TestCalculationNode node = CalculationNodeUtils.getTestCalcNode(function);
+    final List<CalculationJobItem> items = new ArrayList<CalculationJobItem>(ITEMS);
+    for (int i = 0; i < ITEMS; i++) {
+      items.add(createItem(function, function.getRequirements(), ExecutionLogMode.INDICATORS));
+    }
+    final CalculationJob job = createJob(items);
+    node.getCache(job.getSpecification()).putSharedValue(new ComputedValue(function.getRequirements().iterator().next(), "Input"));
+    final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    final Method allocated = getThreadAllocatedBytes(threads);
+    for (int run = 0; run < RUNS; run++) {
+      final long bytes = allocatedBytes(threads, allocated);
+      final long time = System.nanoTime();
+      final CalculationJobResult result = node.executeJob(job);
+      final long elapsed = System.nanoTime() - time;
+      final long itemBytes = (allocatedBytes(threads, allocated) - bytes) / ITEMS;
+      assertEquals(ITEMS, result.getResultItems().size());
+      for (CalculationJobResultItem item : result.getResultItems()) {
+        assertEquals(InvocationResult.SUCCESS, item.getResult());
+      }
+      s_logger.info("Run {}: {} items/sec, {} bytes/item", new Object[] {run, (long) ITEMS * 1000000000L / Math.max(elapsed, 1L), itemBytes });
+    }
+  }
+
+}
@@ -27,6 +27,12 @@ import org.slf4j.LoggerFactory;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
+import com.opengamma.engine.ComputationTargetSpecification;
+import com.opengamma.engine.ComputationTargetType;
+import com.opengamma.engine.value.ValueProperties;
+import com.opengamma.engine.value.ValuePropertyNames;
+import com.opengamma.engine.value.ValueSpecification;
+import com.opengamma.engine.view.ExecutionLogMode;
 import com.opengamma.engine.view.cache.CacheSelectHint;
 import com.opengamma.id.UniqueId;
 import com.opengamma.util.async.Cancelable;
@@ -155,6 +161,86 @@ public class JobDispatcherTest {
     assertNull(node2._callback);
   }
 
+  private static ValueSpecification createValueSpecification(final String name) {
+    return new ValueSpecification(name, new ComputationTargetSpecification(ComputationTargetType.PRIMITIVE, UniqueId.of("Test", "Target")),
+        ValueProperties.with(ValuePropertyNames.FUNCTION, "Test").get());
+  }
+
+  private static CalculationJob createTestJob(final Collection<ValueSpecification> inputs, final Collection<ValueSpecification> outputs) {
+    final CalculationJobItem item = new CalculationJobItem("Test", null, new ComputationTargetSpecification(ComputationTargetType.PRIMITIVE, UniqueId.of("Test", "Target")),
+        inputs, outputs, ExecutionLogMode.INDICATORS);
+    return new CalculationJob(createTestJobSpec(), 0L, null, Collections.singletonList(item), CacheSelectHint.allShared());
+  }
+
+  private void nodeTest(final String expectedNodeId, final JobDispatcher jobDispatcher, final CalculationJob job) {
+    final TestJobResultReceiver result = new TestJobResultReceiver();
+    jobDispatcher.dispatchJob(job, result);
+    final CalculationJobResult jobResult = result.waitForResult(TIMEOUT);
+    assertNotNull(jobResult);
+    assertEquals(expectedNodeId, jobResult.getComputeNodeId());
+  }
+
+  @Test
+  public void invokeWithInputAffinity() {
+    s_logger.info("invokeWithInputAffinity");
+    final JobDispatcher jobDispatcher = new JobDispatcher();
+    final TestJobInvoker node1 = new TestJobInvoker("1");
+    final TestJobInvoker node2 = new TestJobInvoker("2");
+    final TestJobInvoker node3 = new TestJobInvoker("3");
+    jobDispatcher.registerJobInvoker(node1);
+    jobDispatcher.registerJobInvoker(node2);
+    jobDispatcher.registerJobInvoker(node3);
+    final ValueSpecification x = createValueSpecification("X");
+    final ValueSpecification y = createValueSpecification("Y");
+    final Collection<ValueSpecification> none = Collections.emptySet();
+    nodeTest("1", jobDispatcher, createTestJob(none, Collections.singleton(x)));
+    nodeTest("2", jobDispatcher, createTestJob(none, Collections.singleton(y)));
+    // Round robin would pick node 3, but node 1 holds the input
+    nodeTest("1", jobDispatcher, createTestJob(Collections.singleton(x), none));
+    assertEquals(1L, jobDispatcher.getLocalInputCount());
+    assertEquals(0L, jobDispatcher.getRemoteInputCount());
+    // Node 2 holds the input but refuses the job
+    node2._disabled = true;
+    nodeTest("3", jobDispatcher, createTestJob(Collections.singleton(y), none));
+    assertNotNull(node2._callback);
+    assertEquals(1L, jobDispatcher.getLocalInputCount());
+    assertEquals(1L, jobDispatcher.getRemoteInputCount());
+    // No affinity reverts to round robin
+    jobDispatcher.setAffinityCapacity(0);
+    nodeTest("1", jobDispatcher, createTestJob(none, Collections.singleton(x)));
+    nodeTest("3", jobDispatcher, createTestJob(Collections.singleton(x), none));
+    assertEquals(0L, jobDispatcher.getLocalInputCount());
+  }
+
+  @Test
+  public void dispatchStatistics() {
+    s_logger.info("dispatchStatistics");
+    final JobDispatcher jobDispatcher = new JobDispatcher();
+    final TestJobResultReceiver result1 = new TestJobResultReceiver();
+    jobDispatcher.dispatchJob(createTestJob(), result1);
+    assertEquals(1, jobDispatcher.getPendingJobCount());
+    assertEquals(0, jobDispatcher.getInvokerCount());
+    assertEquals(0L, jobDispatcher.getDispatchedJobCount());
+    final TestJobInvoker node = new TestJobInvoker("1");
+    jobDispatcher.registerJobInvoker(node);
+    assertNotNull(result1.waitForResult(TIMEOUT));
+    assertEquals(0, jobDispatcher.getPendingJobCount());
+    assertEquals(1, jobDispatcher.getInvokerCount());
+    assertEquals(1L, jobDispatcher.getDispatchedJobCount());
+    node._disabled = true;
+    final TestJobResultReceiver result2 = new TestJobResultReceiver();
+    jobDispatcher.dispatchJob(createTestJob(), result2);
+    assertEquals(1, jobDispatcher.getPendingJobCount());
+    assertEquals(0, jobDispatcher.getInvokerCount());
+    assertEquals(1L, jobDispatcher.getRefusedInvocationCount());
+    assertNotNull(node._callback);
+    node._disabled = false;
+    node._callback.registerJobInvoker(node);
+    assertNotNull(result2.waitForResult(TIMEOUT));
+    assertEquals(0, jobDispatcher.getPendingJobCount());
+    assertEquals(2L, jobDispatcher.getDispatchedJobCount());
+  }
+
   @Test
   public void saturateInvokers() {
     s_logger.info("saturateInvokers");
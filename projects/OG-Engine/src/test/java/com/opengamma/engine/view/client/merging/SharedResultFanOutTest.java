@@ -0,0 +1,58 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.view.client.merging;
+
+import static org.mockito.Mockito.mock;
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.util.Timer;
+
+import org.testng.annotations.Test;
+
+import com.opengamma.engine.test.TestViewResultListener;
+import com.opengamma.engine.view.ViewComputationResultModel;
+import com.opengamma.engine.view.calc.EngineResourceManagerImpl;
+
+/**
+ * Tests the {@link SharedResultFanOut} class.
+ */
+@Test
+public class SharedResultFanOutTest {
+
+  public void testSharedMerging() {
+    final Timer timer = new Timer("Custom timer");
+    try {
+      final SharedResultFanOut fanOut = new SharedResultFanOut(mock(EngineResourceManagerImpl.class), timer, 60000);
+      final TestViewResultListener listener1 = new TestViewResultListener();
+      final TestViewResultListener listener2 = new TestViewResultListener();
+      fanOut.addListener(listener1);
+      fanOut.addListener(listener2);
+      assertEquals(2, fanOut.getListenerCount());
+      for (int i = 0; i < 10; i++) {
+        final ViewComputationResultModel result = mock(ViewComputationResultModel.class);
+        // Each member offers the same result object; only the first offer counts
+        fanOut.cycleCompleted(result, null);
+        fanOut.cycleCompleted(result, null);
+      }
+      assertEquals(10, fanOut.getCyclesReceived());
+      assertEquals(9, fanOut.getCyclesMerged());
+      listener1.assertNoCalls();
+      listener2.assertNoCalls();
+      fanOut.flush();
+      listener1.assertCycleCompleted();
+      listener1.assertNoCalls();
+      listener2.assertCycleCompleted();
+      listener2.assertNoCalls();
+      assertFalse(fanOut.removeListener(listener1));
+      assertTrue(fanOut.removeListener(listener2));
+    } finally {
+      timer.cancel();
+    }
+  }
+
+}
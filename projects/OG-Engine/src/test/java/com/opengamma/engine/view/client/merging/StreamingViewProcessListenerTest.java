@@ -0,0 +1,148 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.view.client.merging;
+
+import static org.mockito.Mockito.mock;
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.util.LinkedList;
+import java.util.concurrent.Executor;
+
+import org.testng.annotations.Test;
+
+import com.opengamma.engine.test.TestViewResultListener;
+import com.opengamma.engine.view.ViewComputationResultModel;
+import com.opengamma.engine.view.calc.ViewCycleMetadata;
+import com.opengamma.engine.view.compilation.CompiledViewDefinitionWithGraphsImpl;
+
+/**
+ * Tests the {@link StreamingViewProcessListener} class.
+ */
+@Test
+public class StreamingViewProcessListenerTest {
+
+  /**
+   * Executor which only runs its tasks when asked to.
+   */
+  private static final class ManualExecutor implements Executor {
+
+    private final LinkedList<Runnable> _tasks = new LinkedList<Runnable>();
+
+    @Override
+    public void execute(final Runnable command) {
+      _tasks.add(command);
+    }
+
+    public int runAll() {
+      int count = 0;
+      Runnable task;
+      while ((task = _tasks.poll()) != null) {
+        task.run();
+        count++;
+      }
+      return count;
+    }
+
+  }
+
+  public void testOrderPreserved() {
+    final TestViewResultListener testListener = new TestViewResultListener();
+    final ManualExecutor executor = new ManualExecutor();
+    final StreamingViewProcessListener listener = new StreamingViewProcessListener(testListener, executor, 10);
+    listener.viewDefinitionCompiled(mock(CompiledViewDefinitionWithGraphsImpl.class), true);
+    listener.cycleStarted(mock(ViewCycleMetadata.class));
+    listener.cycleFragmentCompleted(null, null);
+    listener.cycleFragmentCompleted(null, null);
+    listener.cycleCompleted(mock(ViewComputationResultModel.class), null);
+    listener.processCompleted();
+    testListener.assertNoCalls();
+    assertEquals(6, listener.getQueueSize());
+    assertEquals(1, executor.runAll());
+    testListener.assertViewDefinitionCompiled();
+    testListener.assertCycleStarted();
+    testListener.assertCycleFragmentCompleted(2);
+    testListener.assertCycleCompleted();
+    testListener.assertProcessCompleted();
+    testListener.assertNoCalls();
+    assertEquals(0, listener.getQueueSize());
+    assertEquals(0, listener.getFragmentsMerged());
+  }
+
+  public void testFragmentsMergedWhenFull() {
+    final TestViewResultListener testListener = new TestViewResultListener();
+    final ManualExecutor executor = new ManualExecutor();
+    final StreamingViewProcessListener listener = new StreamingViewProcessListener(testListener, executor, 3);
+    listener.cycleStarted(mock(ViewCycleMetadata.class));
+    for (int i = 0; i < 10; i++) {
+      listener.cycleFragmentCompleted(null, null);
+    }
+    assertEquals(3, listener.getQueueSize());
+    assertEquals(8, listener.getFragmentsMerged());
+    // The completed cycle supersedes the fragments still waiting
+    listener.cycleCompleted(mock(ViewComputationResultModel.class), null);
+    listener.cycleFragmentCompleted(null, null);
+    assertEquals(3, listener.getQueueSize());
+    assertEquals(11, listener.getFragmentsQueued());
+    assertEquals(10, listener.getFragmentsMerged());
+    executor.runAll();
+    testListener.assertCycleStarted();
+    testListener.assertCycleCompleted();
+    testListener.assertCycleFragmentCompleted();
+    testListener.assertNoCalls();
+  }
+
+  public void testCyclesMergedWhenFull() {
+    final TestViewResultListener testListener = new TestViewResultListener();
+    final ManualExecutor executor = new ManualExecutor();
+    final StreamingViewProcessListener listener = new StreamingViewProcessListener(testListener, executor, 2);
+    listener.viewDefinitionCompiled(mock(CompiledViewDefinitionWithGraphsImpl.class), true);
+    ViewComputationResultModel result = null;
+    for (int i = 0; i < 100; i++) {
+      listener.cycleStarted(mock(ViewCycleMetadata.class));
+      listener.cycleFragmentCompleted(null, null);
+      result = mock(ViewComputationResultModel.class);
+      listener.cycleCompleted(result, null);
+      assertTrue(listener.getQueueSize() <= 4);
+    }
+    assertEquals(99, listener.getCyclesMerged());
+    executor.runAll();
+    testListener.assertViewDefinitionCompiled();
+    testListener.assertCycleStarted();
+    testListener.assertCycleCompleted(0, result, null);
+    testListener.assertNoCalls();
+  }
+
+  public void testRestartsDispatch() {
+    final TestViewResultListener testListener = new TestViewResultListener();
+    final ManualExecutor executor = new ManualExecutor();
+    final StreamingViewProcessListener listener = new StreamingViewProcessListener(testListener, executor, 1);
+    listener.processCompleted();
+    listener.processCompleted();
+    assertEquals(1, executor.runAll());
+    testListener.assertProcessCompleted();
+    testListener.assertProcessCompleted();
+    listener.processTerminated(false);
+    assertEquals(1, executor.runAll());
+    testListener.assertProcessTerminated();
+    testListener.assertNoCalls();
+  }
+
+  public void testTerminateDiscardsQueue() {
+    final TestViewResultListener testListener = new TestViewResultListener();
+    final ManualExecutor executor = new ManualExecutor();
+    final StreamingViewProcessListener listener = new StreamingViewProcessListener(testListener, executor, 10);
+    listener.cycleStarted(mock(ViewCycleMetadata.class));
+    listener.cycleCompleted(mock(ViewComputationResultModel.class), null);
+    listener.terminate();
+    assertEquals(0, listener.getQueueSize());
+    listener.processCompleted();
+    assertEquals(0, listener.getQueueSize());
+    executor.runAll();
+    testListener.assertNoCalls();
+  }
+
+}
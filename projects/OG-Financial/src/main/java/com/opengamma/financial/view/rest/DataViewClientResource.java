@@ -66,8 +66,10 @@ public class DataViewClientResource extends AbstractRestfulJmsResultPublisher {
   public static final String PATH_SET_MINIMUM_LOG_MODE = "logMode";
 
   public static final String PATH_UPDATE_PERIOD = "updatePeriod";
+  public static final String PATH_RESULT_QUEUE_CAPACITY = "resultQueueCapacity";
   
   public static final String UPDATE_PERIOD_FIELD = "updatePeriod";
+  public static final String RESULT_QUEUE_CAPACITY_FIELD = "resultQueueCapacity";
   public static final String VIEW_CYCLE_ACCESS_SUPPORTED_FIELD = "isViewCycleAccessSupported";
   //CSON: just constants
   
@@ -179,6 +181,16 @@ public class DataViewClientResource extends AbstractRestfulJmsResultPublisher {
     return responseOk();
   }
 
+  @PUT
+  @Path(PATH_RESULT_QUEUE_CAPACITY)
+  @Consumes(FudgeRest.MEDIA)
+  public Response setResultQueueCapacity(FudgeMsg msg) {
+    updateLastAccessed();
+    int capacity = msg.getInt(RESULT_QUEUE_CAPACITY_FIELD);
+    getViewClient().setResultQueueCapacity(capacity);
+    return responseOk();
+  }
+
   //-------------------------------------------------------------------------
   @GET
   @Path(PATH_RESULT_MODE)
@@ -245,6 +245,14 @@ public class RemoteViewClient extends AbstractRestfulJmsResultConsumer implement
     getClient().accessFudge(uri).put(msg);
   }
 
+  @Override
+  public void setResultQueueCapacity(int capacity) {
+    URI uri = getUri(getBaseUri(), DataViewClientResource.PATH_RESULT_QUEUE_CAPACITY);
+    MutableFudgeMsg msg = FudgeContext.GLOBAL_DEFAULT.newMessage();
+    msg.add(DataViewClientResource.RESULT_QUEUE_CAPACITY_FIELD, capacity);
+    getClient().accessFudge(uri).put(msg);
+  }
+
   @Override
   public ViewResultMode getResultMode() {
     URI uri = getUri(getBaseUri(), DataViewClientResource.PATH_RESULT_MODE);
@@ -203,6 +203,11 @@ import com.opengamma.livedata.UserPrincipal;
     throw new UnsupportedOperationException();
   }
 
+  @Override
+  public void setResultQueueCapacity(final int capacity) {
+    throw new UnsupportedOperationException();
+  }
+
   @Override
   public void setViewCycleAccessSupported(final boolean isViewCycleAccessSupported) {
     throw new UnsupportedOperationException();
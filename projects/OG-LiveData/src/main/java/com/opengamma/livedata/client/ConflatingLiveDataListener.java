@@ -0,0 +1,296 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.livedata.client;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.fudgemsg.FudgeField;
+import org.fudgemsg.MutableFudgeMsg;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.opengamma.livedata.LiveDataListener;
+import com.opengamma.livedata.LiveDataSpecification;
+import com.opengamma.livedata.LiveDataValueUpdate;
+import com.opengamma.livedata.LiveDataValueUpdateBean;
+import com.opengamma.livedata.msg.LiveDataSubscriptionResponse;
+import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.PublicAPI;
+import com.opengamma.util.fudgemsg.OpenGammaFudgeContext;
+
+/**
+ * A {@link LiveDataListener} which conflates updates for a subscriber that cannot keep up with them.
+ * <p>
+ * Updates are not passed to the underlying listener as they arrive. Only the latest update for each specification is
+ * held until the underlying listener is ready for it, so a slow subscriber holds at most one update per specification
+ * however fast the data arrives, and the thread delivering the data is never held up. The fields of the updates
+ * replaced can optionally be merged into the latest, keeping the last value of every field in the same way as the
+ * server's field history; otherwise a field which is absent from the latest update is lost.
+ * <p>
+ * The subscriber pulls the latest state at its own rate by calling {@link #deliverPendingUpdates}, or
+ * {@link #pollPendingUpdates} if it wants the updates returned rather than passed to the underlying listener.
+ * Alternatively an executor can be supplied which will call {@link #deliverPendingUpdates} whenever updates are waiting,
+ * conflating any which arrive while the underlying listener is busy.
+ * <p>
+ * Subscribe with an instance of this class in place of the subscriber's own listener, and unsubscribe with the same
+ * instance.
+ */
+@PublicAPI
+public class ConflatingLiveDataListener implements LiveDataListener {
+
+  private static final Logger s_logger = LoggerFactory.getLogger(ConflatingLiveDataListener.class);
+
+  /**
+   * The subscriber's listener.
+   */
+  private final LiveDataListener _underlying;
+  /**
+   * Whether to merge the fields of conflated updates.
+   */
+  private final boolean _mergeFields;
+  /**
+   * The executor to deliver from, null if the subscriber pulls updates itself.
+   */
+  private final Executor _executor;
+  /**
+   * The latest undelivered update for each specification.
+   */
+  private final ConcurrentMap<LiveDataSpecification, LiveDataValueUpdate> _pendingUpdates = new ConcurrentHashMap<LiveDataSpecification, LiveDataValueUpdate>();
+  /**
+   * Set while a thread is delivering updates; the underlying listener is only called by one thread at a time so it sees
+   * updates to each specification in order.
+   */
+  private final AtomicBoolean _delivering = new AtomicBoolean();
+  /**
+   * Set while a delivery task is waiting to run on the executor.
+   */
+  private final AtomicBoolean _deliveryScheduled = new AtomicBoolean();
+  /**
+   * The number of updates received.
+   */
+  private final AtomicLong _numUpdatesReceived = new AtomicLong();
+  /**
+   * The number of updates passed to the subscriber.
+   */
+  private final AtomicLong _numUpdatesDelivered = new AtomicLong();
+  /**
+   * Delivers the pending updates from the executor.
+   */
+  private final Runnable _deliveryTask = new Runnable() {
+    @Override
+    public void run() {
+      // Clear the flag first so that an update arriving from now on schedules another task
+      _deliveryScheduled.set(false);
+      deliverPendingUpdates();
+    }
+  };
+
+  /**
+   * Creates a listener which the subscriber pulls updates from.
+   *
+   * @param underlying  the subscriber's listener, not null
+   * @param mergeFields  whether to merge the fields of conflated updates
+   */
+  public ConflatingLiveDataListener(final LiveDataListener underlying, final boolean mergeFields) {
+    this(underlying, mergeFields, null);
+  }
+
+  /**
+   * Creates a listener.
+   *
+   * @param underlying  the subscriber's listener, not null
+   * @param mergeFields  whether to merge the fields of conflated updates
+   * @param executor  the executor to deliver updates from, null if the subscriber pulls updates itself
+   */
+  public ConflatingLiveDataListener(final LiveDataListener underlying, final boolean mergeFields, final Executor executor) {
+    ArgumentChecker.notNull(underlying, "underlying");
+    _underlying = underlying;
+    _mergeFields = mergeFields;
+    _executor = executor;
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Gets the subscriber's listener.
+   *
+   * @return the listener, not null
+   */
+  public LiveDataListener getUnderlying() {
+    return _underlying;
+  }
+
+  /**
+   * Gets whether the fields of conflated updates are merged.
+   *
+   * @return true if fields are merged, false if only the latest update is kept
+   */
+  public boolean isMergeFields() {
+    return _mergeFields;
+  }
+
+  //-------------------------------------------------------------------------
+  @Override
+  public void subscriptionResultReceived(final LiveDataSubscriptionResponse subscriptionResult) {
+    _underlying.subscriptionResultReceived(subscriptionResult);
+  }
+
+  @Override
+  public void subscriptionStopped(final LiveDataSpecification fullyQualifiedSpecification) {
+    _pendingUpdates.remove(fullyQualifiedSpecification);
+    _underlying.subscriptionStopped(fullyQualifiedSpecification);
+  }
+
+  @Override
+  public void valueUpdate(final LiveDataValueUpdate valueUpdate) {
+    _numUpdatesReceived.incrementAndGet();
+    final LiveDataSpecification specification = valueUpdate.getSpecification();
+    if (_mergeFields) {
+      LiveDataValueUpdate previous = _pendingUpdates.putIfAbsent(specification, valueUpdate);
+      while ((previous != null) && !_pendingUpdates.replace(specification, previous, merge(previous, valueUpdate))) {
+        // The previous update was delivered, or replaced by another thread
+        previous = _pendingUpdates.putIfAbsent(specification, valueUpdate);
+      }
+    } else {
+      _pendingUpdates.put(specification, valueUpdate);
+    }
+    if (_executor != null) {
+      scheduleDelivery();
+    }
+  }
+
+  private void scheduleDelivery() {
+    if (!_pendingUpdates.isEmpty() && _deliveryScheduled.compareAndSet(false, true)) {
+      _executor.execute(_deliveryTask);
+    }
+  }
+
+  private static LiveDataValueUpdate merge(final LiveDataValueUpdate previous, final LiveDataValueUpdate latest) {
+    final Map<String, FudgeField> fields = new LinkedHashMap<String, FudgeField>();
+    for (FudgeField field : previous.getFields()) {
+      fields.put(field.getName(), field);
+    }
+    for (FudgeField field : latest.getFields()) {
+      fields.put(field.getName(), field);
+    }
+    final MutableFudgeMsg msg = OpenGammaFudgeContext.getInstance().newMessage();
+    for (FudgeField field : fields.values()) {
+      msg.add(field);
+    }
+    return new LiveDataValueUpdateBean(latest.getSequenceNumber(), latest.getSpecification(), msg);
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Removes and returns the latest update for each specification, without passing them to the underlying listener.
+   * <p>
+   * This must not be used at the same time as {@link #deliverPendingUpdates} or an executor.
+   *
+   * @return the updates, not null
+   */
+  public List<LiveDataValueUpdate> pollPendingUpdates() {
+    final List<LiveDataValueUpdate> updates = new ArrayList<LiveDataValueUpdate>(_pendingUpdates.size());
+    for (LiveDataSpecification specification : _pendingUpdates.keySet()) {
+      final LiveDataValueUpdate update = _pendingUpdates.remove(specification);
+      if (update != null) {
+        updates.add(update);
+      }
+    }
+    _numUpdatesDelivered.addAndGet(updates.size());
+    return updates;
+  }
+
+  /**
+   * Passes the latest update for each specification to the underlying listener.
+   * <p>
+   * Only the updates waiting when this is called are delivered, so it returns even if updates arrive continuously; any
+   * that arrive meanwhile are left for the next call, or for another task if an executor was supplied. If another thread
+   * is already delivering updates this method returns at once.
+   *
+   * @return the number of updates delivered by this call
+   */
+  public int deliverPendingUpdates() {
+    if (!_delivering.compareAndSet(false, true)) {
+      return 0;
+    }
+    int count = 0;
+    try {
+      for (LiveDataValueUpdate update : pollPendingUpdates()) {
+        try {
+          _underlying.valueUpdate(update);
+        } catch (RuntimeException e) {
+          s_logger.error("Failed to deliver " + update + " to " + _underlying, e);
+        }
+        count++;
+      }
+    } finally {
+      _delivering.set(false);
+    }
+    if (_executor != null) {
+      // An update arriving while this thread was delivering may not have scheduled a task that could run
+      scheduleDelivery();
+    }
+    return count;
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Gets the number of updates received from the server.
+   *
+   * @return the update count
+   */
+  public long getNumUpdatesReceived() {
+    return _numUpdatesReceived.get();
+  }
+
+  /**
+   * Gets the number of updates passed to the subscriber.
+   *
+   * @return the update count
+   */
+  public long getNumUpdatesDelivered() {
+    return _numUpdatesDelivered.get();
+  }
+
+  /**
+   * Gets the number of specifications with an update waiting for the subscriber.
+   *
+   * @return the number of pending updates
+   */
+  public int getNumPendingUpdates() {
+    return _pendingUpdates.size();
+  }
+
+  /**
+   * Gets the ratio of the updates received to those delivered or waiting to be delivered.
+   * <p>
+   * This is 1 for a subscriber that keeps up with every update, and grows as more updates are conflated.
+   *
+   * @return the conflation ratio, at least 1
+   */
+  public double getConflationRatio() {
+    final long received = _numUpdatesReceived.get();
+    // The counts are read at slightly different times so may be momentarily inconsistent
+    final long delivered = _numUpdatesDelivered.get() + _pendingUpdates.size();
+    if (delivered == 0) {
+      return 1d;
+    }
+    return Math.max(1d, (double) received / delivered);
+  }
+
+  @Override
+  public String toString() {
+    return "ConflatingLiveDataListener[" + _underlying + "]";
+  }
+
+}
@@ -0,0 +1,132 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+
+package com.opengamma.livedata.firehose;
+
+import java.io.File;
+import java.util.concurrent.ExecutorService;
+
+import org.fudgemsg.FudgeContext;
+import org.fudgemsg.FudgeMsg;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Implementation of {@link AbstractFireHoseLiveData} which replays a journal written by {@link TickJournalWriter}.
+ * <p>
+ * This is intended for regression and load testing of a {@link FireHoseLiveDataServer} and the systems behind it. The
+ * market data is marked as complete when the replay finishes.
+ */
+public class JournalReplayFireHoseLiveData extends AbstractFireHoseLiveData {
+
+  private static final Logger s_logger = LoggerFactory.getLogger(JournalReplayFireHoseLiveData.class);
+
+  private FudgeContext _fudgeContext = FudgeContext.GLOBAL_DEFAULT;
+  private String _filename;
+  private double _speed = TickJournalReplayer.WALL_CLOCK;
+  private ExecutorService _executorService;
+  private TickJournalReplayer _replayer;
+
+  public void setFudgeContext(final FudgeContext fudgeContext) {
+    ArgumentChecker.notNull(fudgeContext, "fudgeContext");
+    _fudgeContext = fudgeContext;
+  }
+
+  public FudgeContext getFudgeContext() {
+    return _fudgeContext;
+  }
+
+  public void setFilename(final String filename) {
+    _filename = filename;
+  }
+
+  public String getFilename() {
+    return _filename;
+  }
+
+  /**
+   * Sets the replay speed.
+   *
+   * @param speed  the multiple of the recorded speed, {@link TickJournalReplayer#WALL_CLOCK} for the recorded speed or
+   *  {@link TickJournalReplayer#AS_FAST_AS_POSSIBLE} for no pacing
+   */
+  public void setSpeed(final double speed) {
+    ArgumentChecker.notNegative(speed, "speed");
+    _speed = speed;
+  }
+
+  public double getSpeed() {
+    return _speed;
+  }
+
+  public ExecutorService getExecutorService() {
+    return _executorService;
+  }
+
+  public void setExecutorService(final ExecutorService executorService) {
+    _executorService = executorService;
+  }
+
+  /**
+   * Gets the replayer, if started.
+   *
+   * @return the replayer, null if not started
+   */
+  public synchronized TickJournalReplayer getReplayer() {
+    return _replayer;
+  }
+
+  @Override
+  public synchronized void start() {
+    if (_replayer != null) {
+      throw new IllegalStateException("Replay already active");
+    }
+    ArgumentChecker.notNull(getFilename(), "filename");
+    ArgumentChecker.notNull(getExecutorService(), "executorService");
+    final TickJournalReader reader = new TickJournalReader(new File(getFilename()), getFudgeContext());
+    final TickJournalReplayer replayer = new TickJournalReplayer(reader, new ValueUpdateListener() {
+      @Override
+      public void updatedValue(final String uniqueId, final FudgeMsg msg) {
+        storeValue(uniqueId, msg);
+      }
+    });
+    replayer.setSpeed(getSpeed());
+    s_logger.info("Starting replay of {} ticks", reader.getNumTicks());
+    _replayer = replayer;
+    getExecutorService().submit(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          replayer.replay();
+        } catch (RuntimeException e) {
+          // Nothing reads the future, so the failure would otherwise go unreported
+          s_logger.error("Replay of " + getFilename() + " failed", e);
+        } finally {
+          setMarketDataComplete(true);
+        }
+      }
+    });
+  }
+
+  @Override
+  public synchronized void stop() {
+    final TickJournalReplayer replayer = _replayer;
+    if (replayer == null) {
+      throw new IllegalStateException("Replay not active");
+    }
+    s_logger.info("Poisoning replay");
+    _replayer = null;
+    replayer.poison();
+  }
+
+  @Override
+  public synchronized boolean isStarted() {
+    return _replayer != null;
+  }
+
+}
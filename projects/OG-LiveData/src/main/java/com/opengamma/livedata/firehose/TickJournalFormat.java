@@ -0,0 +1,123 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+
+package com.opengamma.livedata.firehose;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * Constants and primitive encodings shared by {@link TickJournalWriter} and {@link TickJournalReader}.
+ * <p>
+ * A journal file starts with a fixed size header, followed by a sequence of records each introduced by a type byte.
+ * Ticker and field names are defined by records before their first use and referred to by number afterwards. Ticks
+ * are grouped into blocks; each block starts with a record holding the time of its first tick, and all delta encoding
+ * restarts at a block boundary so that a reader can start from any block. A zero type byte marks the end of the
+ * records. When the journal is closed the index is written after the records and its position stored in the header.
+ * <p>
+ * Within a tick the time is the unsigned difference from the previous tick in the block, and only the fields which
+ * differ from the previous tick for the same ticker in the block are written. Doubles are written as the exclusive or
+ * of their bits with the previous value and integers as the difference from the previous value, both as variable
+ * length integers, so small price movements take only a few bytes.
+ */
+/* package */final class TickJournalFormat {
+
+  private TickJournalFormat() {
+  }
+
+  public static final int MAGIC = 0x4F47544A;
+  public static final int VERSION = 1;
+
+  /**
+   * Header layout: magic, version, index position.
+   */
+  public static final int HEADER_SIZE = 16;
+  public static final int HEADER_INDEX_POSITION = 8;
+
+  /**
+   * The largest record the writer will write. A reader mapping the journal in chunks overlaps them by this much, so
+   * that any record starting in a chunk can be read from that chunk alone.
+   */
+  public static final int MAX_RECORD_SIZE = 256 * 1024 * 1024;
+
+  public static final byte RECORD_END = 0;
+  public static final byte RECORD_TICKER = 1;
+  public static final byte RECORD_FIELD = 2;
+  public static final byte RECORD_BLOCK = 3;
+  public static final byte RECORD_TICK = 4;
+  public static final byte RECORD_FULL_TICK = 5;
+
+  public static final byte VALUE_REMOVED = 0;
+  public static final byte VALUE_DOUBLE = 1;
+  public static final byte VALUE_LONG = 2;
+  public static final byte VALUE_INT = 3;
+  public static final byte VALUE_STRING = 4;
+  public static final byte VALUE_TRUE = 5;
+  public static final byte VALUE_FALSE = 6;
+  public static final byte VALUE_FUDGE = 7;
+
+  public static final Charset UTF8 = Charset.forName("UTF-8");
+
+  public static void putVarLong(final ByteBuffer buffer, long value) {
+    while ((value & ~0x7FL) != 0) {
+      buffer.put((byte) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    buffer.put((byte) value);
+  }
+
+  public static long getVarLong(final ByteBuffer buffer) {
+    long value = 0;
+    int shift = 0;
+    byte b;
+    do {
+      b = buffer.get();
+      value |= (long) (b & 0x7F) << shift;
+      shift += 7;
+    } while (b < 0);
+    return value;
+  }
+
+  public static void putVarInt(final ByteBuffer buffer, final int value) {
+    putVarLong(buffer, value & 0xFFFFFFFFL);
+  }
+
+  public static int getVarInt(final ByteBuffer buffer) {
+    return (int) getVarLong(buffer);
+  }
+
+  public static long zigZag(final long value) {
+    return (value << 1) ^ (value >> 63);
+  }
+
+  public static long unZigZag(final long value) {
+    return (value >>> 1) ^ -(value & 1);
+  }
+
+  public static void putString(final ByteBuffer buffer, final String value) {
+    final byte[] bytes = value.getBytes(UTF8);
+    putVarInt(buffer, bytes.length);
+    buffer.put(bytes);
+  }
+
+  public static String getString(final ByteBuffer buffer) {
+    final byte[] bytes = new byte[getVarInt(buffer)];
+    buffer.get(bytes);
+    return new String(bytes, UTF8);
+  }
+
+  public static void putBytes(final ByteBuffer buffer, final byte[] value) {
+    putVarInt(buffer, value.length);
+    buffer.put(value);
+  }
+
+  public static byte[] getBytes(final ByteBuffer buffer) {
+    final byte[] bytes = new byte[getVarInt(buffer)];
+    buffer.get(bytes);
+    return bytes;
+  }
+
+}
@@ -0,0 +1,687 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+
+package com.opengamma.livedata.firehose;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.fudgemsg.FudgeContext;
+import org.fudgemsg.FudgeField;
+import org.fudgemsg.FudgeMsg;
+import org.fudgemsg.MutableFudgeMsg;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.opengamma.OpenGammaRuntimeException;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Reads a journal written by {@link TickJournalWriter}.
+ * <p>
+ * The journal is memory mapped in chunks when it is opened, so it is not limited to the 2Gb of a single mapping.
+ * Chunks overlap by {@link TickJournalFormat#MAX_RECORD_SIZE} so that every record can be read from the chunk it
+ * starts in. If the journal was closed, its index is read from the end of the file; otherwise the index is rebuilt
+ * by scanning the records, which also recovers the ticks of a journal whose writer did not close it. Ticks are read
+ * through a {@link Cursor}, which can be restricted to a range of times and a set of tickers; the index is used to
+ * skip the blocks which hold neither.
+ * <p>
+ * This class is thread-safe; each cursor must only be used by one thread at a time.
+ */
+public class TickJournalReader {
+
+  private static final Logger s_logger = LoggerFactory.getLogger(TickJournalReader.class);
+
+  /**
+   * The default spacing of the mapped chunks.
+   */
+  private static final int DEFAULT_CHUNK_SIZE = 1024 * 1024 * 1024;
+
+  private final File _file;
+  private final FudgeContext _fudgeContext;
+  private final int _chunkSize;
+  private final ByteBuffer[] _chunks;
+  private final boolean _indexed;
+  private final List<String> _fieldNames = new ArrayList<String>();
+  private final List<String> _tickerNames = new ArrayList<String>();
+  private final Object2IntOpenHashMap<String> _tickerIds = new Object2IntOpenHashMap<String>();
+  private long[] _tickerTicks;
+  private int[][] _tickerBlocks;
+  private long[] _blockPositions;
+  private long[] _blockTimes;
+  private int[] _blockTicks;
+  private long _endTime;
+  private long _numTicks;
+  private long _dataEnd;
+
+  /**
+   * Opens a journal.
+   *
+   * @param file  the journal file, not null
+   * @param fudgeContext  the Fudge context, not null
+   */
+  public TickJournalReader(final File file, final FudgeContext fudgeContext) {
+    this(file, fudgeContext, DEFAULT_CHUNK_SIZE);
+  }
+
+  /**
+   * Opens a journal, mapping it in chunks of the given size.
+   *
+   * @param file  the journal file, not null
+   * @param fudgeContext  the Fudge context, not null
+   * @param chunkSize  the spacing of the mapped chunks, at most {@link #DEFAULT_CHUNK_SIZE}
+   */
+  /* package */TickJournalReader(final File file, final FudgeContext fudgeContext, final int chunkSize) {
+    ArgumentChecker.notNull(file, "file");
+    ArgumentChecker.notNull(fudgeContext, "fudgeContext");
+    ArgumentChecker.isTrue((chunkSize > 0) && (chunkSize <= DEFAULT_CHUNK_SIZE), "chunkSize must be positive and at most {}", DEFAULT_CHUNK_SIZE);
+    _file = file;
+    _fudgeContext = fudgeContext;
+    _chunkSize = chunkSize;
+    _tickerIds.defaultReturnValue(-1);
+    ByteBuffer index = null;
+    try {
+      final RandomAccessFile raf = new RandomAccessFile(file, "r");
+      try {
+        final FileChannel channel = raf.getChannel();
+        final long length = raf.length();
+        final ByteBuffer header = ByteBuffer.allocate(TickJournalFormat.HEADER_SIZE);
+        while (header.hasRemaining() && (channel.read(header, header.position()) > 0)) {
+          continue;
+        }
+        if (header.hasRemaining() || (header.getInt(0) != TickJournalFormat.MAGIC)) {
+          throw new OpenGammaRuntimeException(file + " is not a tick journal");
+        }
+        if (header.getInt(4) != TickJournalFormat.VERSION) {
+          throw new OpenGammaRuntimeException("Unsupported tick journal version " + header.getInt(4) + " in " + file);
+        }
+        final long indexPosition = header.getLong(TickJournalFormat.HEADER_INDEX_POSITION);
+        _indexed = indexPosition > 0;
+        _dataEnd = _indexed ? indexPosition : length;
+        if (_indexed) {
+          if (length - indexPosition > Integer.MAX_VALUE) {
+            throw new OpenGammaRuntimeException("Index of journal " + file + " is too large");
+          }
+          index = channel.map(FileChannel.MapMode.READ_ONLY, indexPosition, length - indexPosition);
+        }
+        // The mappings remain valid after the file is closed
+        _chunks = new ByteBuffer[(int) Math.max(1L, (_dataEnd + chunkSize - 1) / chunkSize)];
+        for (int i = 0; i < _chunks.length; i++) {
+          final long start = (long) i * chunkSize;
+          final long chunkLength = Math.max(0L, Math.min((long) chunkSize + TickJournalFormat.MAX_RECORD_SIZE, _dataEnd - start));
+          _chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, chunkLength);
+        }
+      } finally {
+        raf.close();
+      }
+    } catch (IOException e) {
+      throw new OpenGammaRuntimeException("Couldn't open journal " + file, e);
+    }
+    if (_indexed) {
+      readIndex(index);
+    } else {
+      s_logger.warn("Journal {} was not closed; rebuilding index", file);
+      scan();
+    }
+    for (int i = 0; i < _tickerNames.size(); i++) {
+      _tickerIds.put(_tickerNames.get(i), i);
+    }
+    for (long ticks : _tickerTicks) {
+      _numTicks += ticks;
+    }
+  }
+
+  private void readIndex(final ByteBuffer buffer) {
+    final int numFields = TickJournalFormat.getVarInt(buffer);
+    for (int i = 0; i < numFields; i++) {
+      _fieldNames.add(TickJournalFormat.getString(buffer));
+    }
+    final int numTickers = TickJournalFormat.getVarInt(buffer);
+    _tickerTicks = new long[numTickers];
+    _tickerBlocks = new int[numTickers][];
+    for (int i = 0; i < numTickers; i++) {
+      _tickerNames.add(TickJournalFormat.getString(buffer));
+      _tickerTicks[i] = TickJournalFormat.getVarLong(buffer);
+      final int[] blocks = new int[TickJournalFormat.getVarInt(buffer)];
+      int block = 0;
+      for (int j = 0; j < blocks.length; j++) {
+        block += TickJournalFormat.getVarInt(buffer);
+        blocks[j] = block;
+      }
+      _tickerBlocks[i] = blocks;
+    }
+    final int numBlocks = TickJournalFormat.getVarInt(buffer);
+    _blockPositions = new long[numBlocks];
+    _blockTimes = new long[numBlocks];
+    _blockTicks = new int[numBlocks];
+    long blockPosition = 0;
+    long blockTime = 0;
+    for (int i = 0; i < numBlocks; i++) {
+      blockPosition += TickJournalFormat.getVarLong(buffer);
+      blockTime += TickJournalFormat.unZigZag(TickJournalFormat.getVarLong(buffer));
+      _blockPositions[i] = blockPosition;
+      _blockTimes[i] = blockTime;
+      _blockTicks[i] = TickJournalFormat.getVarInt(buffer);
+    }
+    _endTime = buffer.getLong();
+  }
+
+  /**
+   * Gets a buffer for reading the record at a position. Each record lies wholly within the chunk it starts in.
+   *
+   * @param position  the position of the record in the file
+   * @return a buffer over the chunk, positioned at the record and limited to the end of the data, not null
+   */
+  private ByteBuffer chunkAt(final long position) {
+    final int chunk = (int) Math.min(position / _chunkSize, _chunks.length - 1);
+    final long chunkStart = (long) chunk * _chunkSize;
+    final ByteBuffer buffer = _chunks[chunk].duplicate();
+    buffer.limit((int) Math.min(buffer.limit(), _dataEnd - chunkStart));
+    buffer.position((int) (position - chunkStart));
+    return buffer;
+  }
+
+  private void scan() {
+    ByteBuffer buffer = chunkAt(TickJournalFormat.HEADER_SIZE);
+    long chunkStart = TickJournalFormat.HEADER_SIZE - buffer.position();
+    final LongArrayList tickerTicks = new LongArrayList();
+    final List<IntArrayList> tickerBlocks = new ArrayList<IntArrayList>();
+    final LongArrayList blockPositions = new LongArrayList();
+    final LongArrayList blockTimes = new LongArrayList();
+    final IntArrayList blockTicks = new IntArrayList();
+    long time = 0;
+    long position = TickJournalFormat.HEADER_SIZE;
+    try {
+      scan: while (true) {
+        if (buffer.position() >= _chunkSize) {
+          buffer = chunkAt(position);
+          chunkStart = position - buffer.position();
+        }
+        if (!buffer.hasRemaining()) {
+          break;
+        }
+        final byte recordType = buffer.get();
+        switch (recordType) {
+          case TickJournalFormat.RECORD_END:
+            break scan;
+          case TickJournalFormat.RECORD_TICKER:
+            TickJournalFormat.getVarInt(buffer);
+            _tickerNames.add(TickJournalFormat.getString(buffer));
+            tickerTicks.add(0L);
+            tickerBlocks.add(new IntArrayList());
+            break;
+          case TickJournalFormat.RECORD_FIELD:
+            TickJournalFormat.getVarInt(buffer);
+            _fieldNames.add(TickJournalFormat.getString(buffer));
+            break;
+          case TickJournalFormat.RECORD_BLOCK:
+            time = buffer.getLong();
+            blockPositions.add(position);
+            blockTimes.add(time);
+            blockTicks.add(0);
+            break;
+          case TickJournalFormat.RECORD_TICK:
+          case TickJournalFormat.RECORD_FULL_TICK: {
+            final long delta = TickJournalFormat.getVarLong(buffer);
+            final int tickerId = TickJournalFormat.getVarInt(buffer);
+            final int length = TickJournalFormat.getVarInt(buffer);
+            // Skipping the body checks that the record is complete
+            buffer.position(buffer.position() + length);
+            time += delta;
+            final int block = blockTicks.size() - 1;
+            blockTicks.set(block, blockTicks.getInt(block) + 1);
+            tickerTicks.set(tickerId, tickerTicks.getLong(tickerId) + 1);
+            final IntArrayList blocks = tickerBlocks.get(tickerId);
+            if (blocks.isEmpty() || (blocks.getInt(blocks.size() - 1) != block)) {
+              blocks.add(block);
+            }
+            break;
+          }
+          default:
+            throw new OpenGammaRuntimeException("Corrupt record at " + position + " in " + _file);
+        }
+        _endTime = time;
+        position = chunkStart + buffer.position();
+      }
+    } catch (BufferUnderflowException e) {
+      s_logger.warn("Incomplete record at end of {}", _file);
+    } catch (IllegalArgumentException e) {
+      s_logger.warn("Incomplete record at end of {}", _file);
+    }
+    _dataEnd = position;
+    _tickerTicks = tickerTicks.toLongArray();
+    _tickerBlocks = new int[tickerBlocks.size()][];
+    for (int i = 0; i < _tickerBlocks.length; i++) {
+      _tickerBlocks[i] = tickerBlocks.get(i).toIntArray();
+    }
+    _blockPositions = blockPositions.toLongArray();
+    _blockTimes = blockTimes.toLongArray();
+    _blockTicks = blockTicks.toIntArray();
+  }
+
+  //-------------------------------------------------------------------------
+  public File getFile() {
+    return _file;
+  }
+
+  /**
+   * Tests whether the journal was closed by its writer.
+   *
+   * @return true if the index was written by the writer, false if it was rebuilt
+   */
+  public boolean isIndexed() {
+    return _indexed;
+  }
+
+  /**
+   * Gets the tickers in the journal.
+   *
+   * @return the tickers, in order of their first tick, not null
+   */
+  public List<String> getTickers() {
+    return Collections.unmodifiableList(_tickerNames);
+  }
+
+  public long getNumTicks() {
+    return _numTicks;
+  }
+
+  /**
+   * Gets the number of ticks for a ticker.
+   *
+   * @param ticker  the ticker, not null
+   * @return the number of ticks, zero if the ticker is not in the journal
+   */
+  public long getNumTicks(final String ticker) {
+    final int tickerId = _tickerIds.getInt(ticker);
+    return (tickerId < 0) ? 0 : _tickerTicks[tickerId];
+  }
+
+  public int getNumBlocks() {
+    return _blockPositions.length;
+  }
+
+  /**
+   * Gets the time of the first tick.
+   *
+   * @return the time in nanoseconds since the epoch, or {@link Long#MIN_VALUE} if the journal is empty
+   */
+  public long getStartTime() {
+    return (_blockTimes.length > 0) ? _blockTimes[0] : Long.MIN_VALUE;
+  }
+
+  /**
+   * Gets the time of the last tick.
+   *
+   * @return the time in nanoseconds since the epoch, or {@link Long#MIN_VALUE} if the journal is empty
+   */
+  public long getEndTime() {
+    return (_blockTimes.length > 0) ? _endTime : Long.MIN_VALUE;
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Opens a cursor over all ticks in the journal.
+   *
+   * @return the cursor, not null
+   */
+  public Cursor openCursor() {
+    return openCursor(Long.MIN_VALUE, Long.MAX_VALUE, null);
+  }
+
+  /**
+   * Opens a cursor over some of the ticks in the journal.
+   *
+   * @param fromTime  the time of the first tick to return, inclusive, in nanoseconds since the epoch
+   * @param toTime  the time of the last tick to return, inclusive, in nanoseconds since the epoch
+   * @param tickers  the tickers to return, null for all
+   * @return the cursor, not null
+   */
+  public Cursor openCursor(final long fromTime, final long toTime, final Collection<String> tickers) {
+    boolean[] tickerFilter = null;
+    boolean[] blockFilter = null;
+    if (tickers != null) {
+      tickerFilter = new boolean[_tickerNames.size()];
+      blockFilter = new boolean[_blockPositions.length];
+      for (String ticker : tickers) {
+        final int tickerId = _tickerIds.getInt(ticker);
+        if (tickerId >= 0) {
+          tickerFilter[tickerId] = true;
+          for (int block : _tickerBlocks[tickerId]) {
+            blockFilter[block] = true;
+          }
+        }
+      }
+    }
+    final IntArrayList blocks = new IntArrayList();
+    for (int i = 0; i < _blockPositions.length; i++) {
+      if ((blockFilter != null) && !blockFilter[i]) {
+        continue;
+      }
+      if (_blockTimes[i] > toTime) {
+        break;
+      }
+      if ((i + 1 < _blockTimes.length) && (_blockTimes[i + 1] < fromTime)) {
+        continue;
+      }
+      blocks.add(i);
+    }
+    return new Cursor(fromTime, toTime, tickerFilter, blocks.toIntArray());
+  }
+
+  /**
+   * The decoded state of a ticker within a block.
+   * <p>
+   * Values are held unboxed, by type, so that decoding a tick allocates nothing unless it has string or Fudge fields.
+   * The message is only built when asked for, and is kept until the fields next change.
+   */
+  private static final class TickerState {
+
+    private int _block = -1;
+    /**
+     * The value type of each field, {@link TickJournalFormat#VALUE_REMOVED} if the field is absent.
+     */
+    private byte[] _types = new byte[16];
+    /**
+     * The bits of double fields and the values of integer fields.
+     */
+    private long[] _bits = new long[16];
+    /**
+     * The values of string and Fudge fields.
+     */
+    private Object[] _objects = new Object[16];
+    private final IntArrayList _fields = new IntArrayList();
+    private FudgeMsg _message;
+
+    private void ensureField(final int fieldId) {
+      if (fieldId >= _types.length) {
+        final int size = Math.max(fieldId + 1, _types.length * 2);
+        _types = Arrays.copyOf(_types, size);
+        _bits = Arrays.copyOf(_bits, size);
+        _objects = Arrays.copyOf(_objects, size);
+      }
+    }
+
+    private void reset(final int block) {
+      for (int i = 0; i < _fields.size(); i++) {
+        final int fieldId = _fields.getInt(i);
+        _types[fieldId] = TickJournalFormat.VALUE_REMOVED;
+        _objects[fieldId] = null;
+      }
+      _fields.clear();
+      _block = block;
+      _message = null;
+    }
+
+  }
+
+  /**
+   * Iterates over ticks in the journal, in the order they were written.
+   */
+  public final class Cursor {
+
+    private final long _fromTime;
+    private final long _toTime;
+    private final boolean[] _tickerFilter;
+    private final int[] _blocks;
+    private final TickerState[] _states = new TickerState[_tickerNames.size()];
+    private ByteBuffer _buffer;
+    private long _chunkStart;
+    private int _nextBlock;
+    private int _block = -1;
+    private long _time;
+    private int _tickerId = -1;
+    private int _fullTickPosition = -1;
+    private int _fullTickLength;
+    private FudgeMsg _fullTickMessage;
+
+    private Cursor(final long fromTime, final long toTime, final boolean[] tickerFilter, final int[] blocks) {
+      _fromTime = fromTime;
+      _toTime = toTime;
+      _tickerFilter = tickerFilter;
+      _blocks = blocks;
+      moveTo(TickJournalFormat.HEADER_SIZE);
+    }
+
+    private void moveTo(final long position) {
+      _buffer = chunkAt(position);
+      _chunkStart = position - _buffer.position();
+    }
+
+    /**
+     * Moves to the next tick.
+     *
+     * @return true if there is a tick, false if there are no more
+     */
+    public boolean next() {
+      _fullTickMessage = null;
+      try {
+        while (true) {
+          if (_buffer.position() >= _chunkSize) {
+            // The record starts in the overlap with the next chunk, so might not end within this one
+            moveTo(_chunkStart + _buffer.position());
+          }
+          final ByteBuffer buffer = _buffer;
+          if (!buffer.hasRemaining()) {
+            return false;
+          }
+          final byte recordType = buffer.get();
+          switch (recordType) {
+            case TickJournalFormat.RECORD_END:
+              return false;
+            case TickJournalFormat.RECORD_TICKER:
+            case TickJournalFormat.RECORD_FIELD: {
+              // The dictionaries were read when the journal was opened
+              TickJournalFormat.getVarInt(buffer);
+              final int length = TickJournalFormat.getVarInt(buffer);
+              buffer.position(buffer.position() + length);
+              break;
+            }
+            case TickJournalFormat.RECORD_BLOCK: {
+              if (_nextBlock >= _blocks.length) {
+                return false;
+              }
+              final int block = _blocks[_nextBlock++];
+              if (block != _block + 1) {
+                moveTo(_blockPositions[block] + 1);
+              }
+              _block = block;
+              _time = _buffer.getLong();
+              break;
+            }
+            case TickJournalFormat.RECORD_TICK:
+            case TickJournalFormat.RECORD_FULL_TICK: {
+              _time += TickJournalFormat.getVarLong(buffer);
+              if (_time > _toTime) {
+                return false;
+              }
+              final int tickerId = TickJournalFormat.getVarInt(buffer);
+              final int length = TickJournalFormat.getVarInt(buffer);
+              if ((_tickerFilter != null) && !_tickerFilter[tickerId]) {
+                buffer.position(buffer.position() + length);
+                break;
+              }
+              TickerState state = _states[tickerId];
+              if (state == null) {
+                state = new TickerState();
+                _states[tickerId] = state;
+              }
+              if (state._block != _block) {
+                state.reset(_block);
+              }
+              if (recordType == TickJournalFormat.RECORD_TICK) {
+                // Earlier ticks must still be decoded to track the field values
+                decodeDelta(state, buffer.position() + length);
+                _fullTickPosition = -1;
+              } else {
+                state.reset(_block);
+                _fullTickPosition = buffer.position();
+                _fullTickLength = length;
+                buffer.position(_fullTickPosition + length);
+              }
+              if (_time >= _fromTime) {
+                _tickerId = tickerId;
+                return true;
+              }
+              break;
+            }
+            default:
+              throw new OpenGammaRuntimeException("Corrupt record at " + (_chunkStart + buffer.position() - 1) + " in " + _file);
+          }
+        }
+      } catch (BufferUnderflowException e) {
+        throw new OpenGammaRuntimeException("Corrupt record in " + _file, e);
+      }
+    }
+
+    private void decodeDelta(final TickerState state, final int end) {
+      final ByteBuffer buffer = _buffer;
+      while (buffer.position() < end) {
+        final int fieldId = TickJournalFormat.getVarInt(buffer);
+        state.ensureField(fieldId);
+        state._message = null;
+        final byte previousType = state._types[fieldId];
+        final byte valueType = buffer.get();
+        switch (valueType) {
+          case TickJournalFormat.VALUE_REMOVED:
+            if (previousType != TickJournalFormat.VALUE_REMOVED) {
+              state._types[fieldId] = TickJournalFormat.VALUE_REMOVED;
+              state._objects[fieldId] = null;
+              state._fields.rem(fieldId);
+            }
+            continue;
+          case TickJournalFormat.VALUE_DOUBLE: {
+            final long previousBits = (previousType == TickJournalFormat.VALUE_DOUBLE) ? state._bits[fieldId] : 0L;
+            state._bits[fieldId] = TickJournalFormat.getVarLong(buffer) ^ previousBits;
+            state._objects[fieldId] = null;
+            break;
+          }
+          case TickJournalFormat.VALUE_LONG: {
+            final long previousValue = (previousType == TickJournalFormat.VALUE_LONG) ? state._bits[fieldId] : 0L;
+            state._bits[fieldId] = previousValue + TickJournalFormat.unZigZag(TickJournalFormat.getVarLong(buffer));
+            state._objects[fieldId] = null;
+            break;
+          }
+          case TickJournalFormat.VALUE_INT: {
+            final long previousValue = (previousType == TickJournalFormat.VALUE_INT) ? state._bits[fieldId] : 0L;
+            state._bits[fieldId] = (int) (previousValue + TickJournalFormat.unZigZag(TickJournalFormat.getVarLong(buffer)));
+            state._objects[fieldId] = null;
+            break;
+          }
+          case TickJournalFormat.VALUE_STRING:
+            state._objects[fieldId] = TickJournalFormat.getString(buffer);
+            break;
+          case TickJournalFormat.VALUE_TRUE:
+          case TickJournalFormat.VALUE_FALSE:
+            state._objects[fieldId] = null;
+            break;
+          case TickJournalFormat.VALUE_FUDGE:
+            state._objects[fieldId] = _fudgeContext.deserialize(TickJournalFormat.getBytes(buffer)).getMessage().iterator().next();
+            break;
+          default:
+            throw new OpenGammaRuntimeException("Corrupt field at " + (_chunkStart + buffer.position() - 1) + " in " + _file);
+        }
+        if (previousType == TickJournalFormat.VALUE_REMOVED) {
+          state._fields.add(fieldId);
+        }
+        state._types[fieldId] = valueType;
+      }
+    }
+
+    /**
+     * Gets the time of the current tick.
+     *
+     * @return the time in nanoseconds since the epoch
+     */
+    public long getTime() {
+      return _time;
+    }
+
+    /**
+     * Gets the ticker of the current tick.
+     *
+     * @return the ticker, not null
+     */
+    public String getTicker() {
+      return _tickerNames.get(_tickerId);
+    }
+
+    /**
+     * Gets the full message describing the value at the current tick.
+     * <p>
+     * The message is built when first asked for, and the same instance is returned for later ticks of the ticker until
+     * its fields change, so it must not be modified. Fields are in the order in which they first appeared for the
+     * ticker, which may differ from the order in the recorded message.
+     *
+     * @return the message, not null
+     */
+    public FudgeMsg getMessage() {
+      if (_fullTickPosition >= 0) {
+        if (_fullTickMessage == null) {
+          final byte[] bytes = new byte[_fullTickLength];
+          final ByteBuffer buffer = _buffer.duplicate();
+          buffer.position(_fullTickPosition);
+          buffer.get(bytes);
+          _fullTickMessage = _fudgeContext.deserialize(bytes).getMessage();
+        }
+        return _fullTickMessage;
+      }
+      final TickerState state = _states[_tickerId];
+      if (state._message == null) {
+        final MutableFudgeMsg msg = _fudgeContext.newMessage();
+        for (int i = 0; i < state._fields.size(); i++) {
+          final int fieldId = state._fields.getInt(i);
+          final String name = _fieldNames.get(fieldId);
+          switch (state._types[fieldId]) {
+            case TickJournalFormat.VALUE_DOUBLE:
+              msg.add(name, Double.longBitsToDouble(state._bits[fieldId]));
+              break;
+            case TickJournalFormat.VALUE_LONG:
+              msg.add(name, state._bits[fieldId]);
+              break;
+            case TickJournalFormat.VALUE_INT:
+              msg.add(name, (int) state._bits[fieldId]);
+              break;
+            case TickJournalFormat.VALUE_TRUE:
+              msg.add(name, Boolean.TRUE);
+              break;
+            case TickJournalFormat.VALUE_FALSE:
+              msg.add(name, Boolean.FALSE);
+              break;
+            case TickJournalFormat.VALUE_FUDGE:
+              msg.add((FudgeField) state._objects[fieldId]);
+              break;
+            default:
+              msg.add(name, state._objects[fieldId]);
+              break;
+          }
+        }
+        state._message = msg;
+      }
+      return state._message;
+    }
+
+  }
+
+  @Override
+  public String toString() {
+    return "TickJournalReader[" + _file + "]";
+  }
+
+}
@@ -0,0 +1,206 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+
+package com.opengamma.livedata.firehose;
+
+import java.util.Collection;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Replays the ticks in a journal to a {@link FireHoseLiveData.ValueUpdateListener}.
+ * <p>
+ * The ticks can be replayed with the same spacing as they were recorded, at a multiple of that speed, or as fast as
+ * the listener will accept them. When pacing, the replay is scheduled against the time the replay started rather than
+ * the previous tick, so it does not drift if the listener is occasionally slow; a listener which is consistently
+ * slower than the journal receives the ticks as fast as possible.
+ */
+public class TickJournalReplayer implements Runnable {
+
+  private static final Logger s_logger = LoggerFactory.getLogger(TickJournalReplayer.class);
+
+  /**
+   * The speed at which the ticks are replayed with the spacing they were recorded with.
+   */
+  public static final double WALL_CLOCK = 1d;
+  /**
+   * The speed at which ticks are replayed as fast as possible.
+   */
+  public static final double AS_FAST_AS_POSSIBLE = 0d;
+
+  /**
+   * Waits shorter than this are made by spinning rather than parking the thread.
+   */
+  private static final long SPIN_NANOS = 50000L;
+
+  private final TickJournalReader _reader;
+  private final FireHoseLiveData.ValueUpdateListener _listener;
+  private volatile double _speed = WALL_CLOCK;
+  private volatile long _fromTime = Long.MIN_VALUE;
+  private volatile long _toTime = Long.MAX_VALUE;
+  private volatile Collection<String> _tickers;
+  private volatile boolean _poisoned;
+  private volatile long _numTicksReplayed;
+  private volatile long _replayNanos;
+
+  /**
+   * Creates a replayer.
+   *
+   * @param reader  the journal to replay, not null
+   * @param listener  the listener to receive the ticks, not null
+   */
+  public TickJournalReplayer(final TickJournalReader reader, final FireHoseLiveData.ValueUpdateListener listener) {
+    ArgumentChecker.notNull(reader, "reader");
+    ArgumentChecker.notNull(listener, "listener");
+    _reader = reader;
+    _listener = listener;
+  }
+
+  //-------------------------------------------------------------------------
+  public TickJournalReader getReader() {
+    return _reader;
+  }
+
+  public double getSpeed() {
+    return _speed;
+  }
+
+  /**
+   * Sets the replay speed.
+   *
+   * @param speed  the multiple of the recorded speed, {@link #WALL_CLOCK} for the recorded speed or
+   *  {@link #AS_FAST_AS_POSSIBLE} for no pacing
+   */
+  public void setSpeed(final double speed) {
+    ArgumentChecker.notNegative(speed, "speed");
+    _speed = speed;
+  }
+
+  public long getFromTime() {
+    return _fromTime;
+  }
+
+  /**
+   * Sets the time of the first tick to replay.
+   *
+   * @param fromTime  the time, inclusive, in nanoseconds since the epoch
+   */
+  public void setFromTime(final long fromTime) {
+    _fromTime = fromTime;
+  }
+
+  public long getToTime() {
+    return _toTime;
+  }
+
+  /**
+   * Sets the time of the last tick to replay.
+   *
+   * @param toTime  the time, inclusive, in nanoseconds since the epoch
+   */
+  public void setToTime(final long toTime) {
+    _toTime = toTime;
+  }
+
+  public Collection<String> getTickers() {
+    return _tickers;
+  }
+
+  /**
+   * Sets the tickers to replay.
+   *
+   * @param tickers  the tickers, null for all
+   */
+  public void setTickers(final Collection<String> tickers) {
+    _tickers = tickers;
+  }
+
+  //-------------------------------------------------------------------------
+  @Override
+  public void run() {
+    replay();
+  }
+
+  /**
+   * Replays the journal.
+   *
+   * @return the number of ticks replayed
+   */
+  public long replay() {
+    final double speed = _speed;
+    final TickJournalReader.Cursor cursor = _reader.openCursor(_fromTime, _toTime, _tickers);
+    s_logger.info("Replaying {} at speed {}", _reader, speed);
+    final long start = System.nanoTime();
+    long count = 0;
+    long firstTickTime = 0;
+    while (!_poisoned && cursor.next()) {
+      if (speed > 0) {
+        if (count == 0) {
+          firstTickTime = cursor.getTime();
+        } else {
+          waitUntil(start + (long) ((cursor.getTime() - firstTickTime) / speed));
+        }
+      }
+      _listener.updatedValue(cursor.getTicker(), cursor.getMessage());
+      count++;
+    }
+    final long elapsed = System.nanoTime() - start;
+    _numTicksReplayed = count;
+    _replayNanos = elapsed;
+    s_logger.info("Replayed {} ticks in {}ms", count, elapsed / 1000000L);
+    return count;
+  }
+
+  private void waitUntil(final long due) {
+    long wait = due - System.nanoTime();
+    while (wait > 0) {
+      if (_poisoned) {
+        return;
+      }
+      if (wait > SPIN_NANOS) {
+        LockSupport.parkNanos(wait - SPIN_NANOS);
+      }
+      wait = due - System.nanoTime();
+    }
+  }
+
+  /**
+   * Stops a replay in progress. Any later replay stops at once.
+   */
+  public void poison() {
+    _poisoned = true;
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Gets the number of ticks replayed by the last completed replay.
+   *
+   * @return the tick count
+   */
+  public long getNumTicksReplayed() {
+    return _numTicksReplayed;
+  }
+
+  /**
+   * Gets the rate at which ticks were replayed by the last completed replay.
+   *
+   * @return the ticks per second, zero if no replay has completed
+   */
+  public double getTicksPerSecond() {
+    final long nanos = _replayNanos;
+    return (nanos > 0) ? (double) _numTicksReplayed * 1e9 / nanos : 0d;
+  }
+
+  @Override
+  public String toString() {
+    return "TickJournalReplayer[" + _reader + "]";
+  }
+
+}
@@ -0,0 +1,465 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+
+package com.opengamma.livedata.firehose;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.fudgemsg.FudgeContext;
+import org.fudgemsg.FudgeField;
+import org.fudgemsg.FudgeMsg;
+import org.fudgemsg.MutableFudgeMsg;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.opengamma.OpenGammaRuntimeException;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Records ticks from a fire hose into a memory mapped journal file which can be replayed with {@link TickJournalReplayer}.
+ * <p>
+ * The journal is append-only; the file is extended in large memory mapped chunks and each tick is written directly
+ * into the mapping. Only the fields which changed since the previous tick for the same ticker are written, so a tick
+ * typically takes a few tens of bytes. The index of blocks by time and by ticker is written when the journal is
+ * closed; a journal which was not closed can still be read, the reader rebuilds the index by scanning it.
+ * <p>
+ * An instance can be registered as the value update listener of a {@link FireHoseLiveData} to record the ticks it
+ * produces, timestamped with the time they arrive. Tick times must be non-decreasing; a tick earlier than the previous
+ * one is recorded at the time of the previous one. A single tick is limited to {@link TickJournalFormat#MAX_RECORD_SIZE}
+ * bytes, but the journal itself is not limited in size. Ticks may be appended by any thread, but appending from more
+ * than one thread at a time serializes them.
+ */
+public class TickJournalWriter implements FireHoseLiveData.ValueUpdateListener {
+
+  private static final Logger s_logger = LoggerFactory.getLogger(TickJournalWriter.class);
+
+  /**
+   * The default number of ticks in each block.
+   */
+  public static final int DEFAULT_BLOCK_SIZE = 65536;
+
+  private static final int MAP_CHUNK_SIZE = 64 * 1024 * 1024;
+
+  /**
+   * The most a tick record adds to its body: the type byte, time delta, ticker and body length.
+   */
+  private static final int TICK_OVERHEAD = 26;
+
+  /**
+   * The state of a ticker within the current block.
+   */
+  private static final class TickerState {
+
+    private int _block = -1;
+    private Object[] _values = new Object[16];
+    private int[] _stamps = new int[16];
+    private int _stamp;
+    private boolean _writeFull;
+    private final IntArrayList _fields = new IntArrayList();
+    private final IntArrayList _blocks = new IntArrayList();
+    private long _numTicks;
+
+    private void ensureField(final int fieldId) {
+      if (fieldId >= _values.length) {
+        final int size = Math.max(fieldId + 1, _values.length * 2);
+        _values = Arrays.copyOf(_values, size);
+        _stamps = Arrays.copyOf(_stamps, size);
+      }
+    }
+
+    private void clear() {
+      for (int i = 0; i < _fields.size(); i++) {
+        _values[_fields.getInt(i)] = null;
+      }
+      _fields.clear();
+    }
+
+  }
+
+  private final File _file;
+  private final FudgeContext _fudgeContext;
+  private final int _blockSize;
+  private final RandomAccessFile _raf;
+  private final FileChannel _channel;
+  private final long _clockOrigin;
+  private MappedByteBuffer _mapped;
+  private long _mappedPosition;
+  private ByteBuffer _body = ByteBuffer.allocate(4096);
+  private final Object2IntOpenHashMap<String> _tickerIds = new Object2IntOpenHashMap<String>();
+  private final List<String> _tickerNames = new ArrayList<String>();
+  private final List<TickerState> _tickers = new ArrayList<TickerState>();
+  private final Object2IntOpenHashMap<String> _fieldIds = new Object2IntOpenHashMap<String>();
+  private final List<String> _fieldNames = new ArrayList<String>();
+  private final LongArrayList _blockPositions = new LongArrayList();
+  private final LongArrayList _blockTimes = new LongArrayList();
+  private final IntArrayList _blockTicks = new IntArrayList();
+  private int _block = -1;
+  private long _lastTime = Long.MIN_VALUE;
+  private long _numTicks;
+  private boolean _closed;
+
+  /**
+   * Creates a journal with the default block size, replacing any existing file.
+   *
+   * @param file  the journal file, not null
+   * @param fudgeContext  the Fudge context, not null
+   */
+  public TickJournalWriter(final File file, final FudgeContext fudgeContext) {
+    this(file, fudgeContext, DEFAULT_BLOCK_SIZE);
+  }
+
+  /**
+   * Creates a journal, replacing any existing file.
+   * <p>
+   * A reader can only start from, or skip to, the beginning of a block, and the first tick for each ticker in a block
+   * is written in full. Smaller blocks give a finer index at the expense of a larger file.
+   *
+   * @param file  the journal file, not null
+   * @param fudgeContext  the Fudge context, not null
+   * @param blockSize  the number of ticks in each block
+   */
+  public TickJournalWriter(final File file, final FudgeContext fudgeContext, final int blockSize) {
+    ArgumentChecker.notNull(file, "file");
+    ArgumentChecker.notNull(fudgeContext, "fudgeContext");
+    ArgumentChecker.notNegativeOrZero(blockSize, "blockSize");
+    _file = file;
+    _fudgeContext = fudgeContext;
+    _blockSize = blockSize;
+    _tickerIds.defaultReturnValue(-1);
+    _fieldIds.defaultReturnValue(-1);
+    try {
+      _raf = new RandomAccessFile(file, "rw");
+      _raf.setLength(0);
+      _channel = _raf.getChannel();
+      final ByteBuffer header = ByteBuffer.allocate(TickJournalFormat.HEADER_SIZE);
+      header.putInt(TickJournalFormat.MAGIC).putInt(TickJournalFormat.VERSION).putLong(0L);
+      header.flip();
+      _channel.write(header, 0);
+      _mappedPosition = TickJournalFormat.HEADER_SIZE;
+    } catch (IOException e) {
+      throw new OpenGammaRuntimeException("Couldn't create journal " + file, e);
+    }
+    _clockOrigin = System.currentTimeMillis() * 1000000L - System.nanoTime();
+  }
+
+  //-------------------------------------------------------------------------
+  public File getFile() {
+    return _file;
+  }
+
+  public int getBlockSize() {
+    return _blockSize;
+  }
+
+  public synchronized long getNumTicks() {
+    return _numTicks;
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Records a tick, timestamped with the current time.
+   *
+   * @param uniqueId  the ticker, not null
+   * @param msg  the full message describing the value, not null
+   */
+  @Override
+  public void updatedValue(final String uniqueId, final FudgeMsg msg) {
+    append(_clockOrigin + System.nanoTime(), uniqueId, msg);
+  }
+
+  /**
+   * Records a tick.
+   *
+   * @param timeNanos  the time of the tick, in nanoseconds since the epoch
+   * @param ticker  the ticker, not null
+   * @param msg  the full message describing the value, not null
+   */
+  public synchronized void append(long timeNanos, final String ticker, final FudgeMsg msg) {
+    ArgumentChecker.notNull(ticker, "ticker");
+    ArgumentChecker.notNull(msg, "msg");
+    if (_closed) {
+      throw new IllegalStateException("Journal " + _file + " is closed");
+    }
+    if (timeNanos < _lastTime) {
+      timeNanos = _lastTime;
+    }
+    if ((_block < 0) || (_blockTicks.getInt(_block) >= _blockSize)) {
+      startBlock(timeNanos);
+    }
+    final int tickerId = getTickerId(ticker);
+    final TickerState state = _tickers.get(tickerId);
+    if (state._block != _block) {
+      state.clear();
+      state._block = _block;
+      state._blocks.add(_block);
+    }
+    final byte recordType;
+    _body.clear();
+    if (!state._writeFull && isDeltaEncodable(state, msg)) {
+      recordType = TickJournalFormat.RECORD_TICK;
+      encodeDelta(state, msg);
+    } else {
+      // Repeated or unnamed fields can't be matched against the previous tick
+      recordType = TickJournalFormat.RECORD_FULL_TICK;
+      final byte[] encoded = _fudgeContext.toByteArray(msg);
+      ensureBody(encoded.length);
+      _body.put(encoded);
+      state.clear();
+      state._writeFull = false;
+    }
+    _body.flip();
+    if (_body.remaining() > TickJournalFormat.MAX_RECORD_SIZE - TICK_OVERHEAD) {
+      // Nothing is written, so a reader still has the previous values; the next tick must replace them in full
+      state.clear();
+      state._writeFull = true;
+      throw new OpenGammaRuntimeException("Tick of " + _body.remaining() + " bytes for " + ticker + " is too large for journal " + _file);
+    }
+    final ByteBuffer out = reserve(TICK_OVERHEAD + _body.remaining());
+    out.put(recordType);
+    TickJournalFormat.putVarLong(out, timeNanos - _lastTime);
+    TickJournalFormat.putVarInt(out, tickerId);
+    TickJournalFormat.putVarInt(out, _body.remaining());
+    out.put(_body);
+    _lastTime = timeNanos;
+    _blockTicks.set(_block, _blockTicks.getInt(_block) + 1);
+    state._numTicks++;
+    _numTicks++;
+  }
+
+  private void startBlock(final long timeNanos) {
+    final ByteBuffer out = reserve(9);
+    _block++;
+    _blockPositions.add(_mappedPosition + out.position());
+    _blockTimes.add(timeNanos);
+    _blockTicks.add(0);
+    out.put(TickJournalFormat.RECORD_BLOCK);
+    out.putLong(timeNanos);
+    _lastTime = timeNanos;
+  }
+
+  private int getTickerId(final String ticker) {
+    int id = _tickerIds.getInt(ticker);
+    if (id < 0) {
+      id = _tickerNames.size();
+      writeDefinition(TickJournalFormat.RECORD_TICKER, id, ticker);
+      _tickerIds.put(ticker, id);
+      _tickerNames.add(ticker);
+      _tickers.add(new TickerState());
+    }
+    return id;
+  }
+
+  private int getFieldId(final String field) {
+    int id = _fieldIds.getInt(field);
+    if (id < 0) {
+      id = _fieldNames.size();
+      writeDefinition(TickJournalFormat.RECORD_FIELD, id, field);
+      _fieldIds.put(field, id);
+      _fieldNames.add(field);
+    }
+    return id;
+  }
+
+  private void writeDefinition(final byte recordType, final int id, final String name) {
+    final byte[] bytes = name.getBytes(TickJournalFormat.UTF8);
+    final ByteBuffer out = reserve(11 + bytes.length);
+    out.put(recordType);
+    TickJournalFormat.putVarInt(out, id);
+    TickJournalFormat.putBytes(out, bytes);
+  }
+
+  private boolean isDeltaEncodable(final TickerState state, final FudgeMsg msg) {
+    final int stamp = ++state._stamp;
+    for (FudgeField field : msg) {
+      if (field.getName() == null) {
+        return false;
+      }
+      final int fieldId = getFieldId(field.getName());
+      state.ensureField(fieldId);
+      if (state._stamps[fieldId] == stamp) {
+        return false;
+      }
+      state._stamps[fieldId] = stamp;
+    }
+    return true;
+  }
+
+  private void encodeDelta(final TickerState state, final FudgeMsg msg) {
+    // The stamps set by isDeltaEncodable identify the fields present in this tick
+    final int stamp = state._stamp;
+    for (int i = state._fields.size(); --i >= 0;) {
+      final int fieldId = state._fields.getInt(i);
+      if (state._stamps[fieldId] != stamp) {
+        ensureBody(6);
+        TickJournalFormat.putVarInt(_body, fieldId);
+        _body.put(TickJournalFormat.VALUE_REMOVED);
+        state._values[fieldId] = null;
+        state._fields.removeInt(i);
+      }
+    }
+    for (FudgeField field : msg) {
+      final int fieldId = _fieldIds.getInt(field.getName());
+      final Object previous = state._values[fieldId];
+      Object value = field.getValue();
+      if ((value instanceof Byte) || (value instanceof Short)) {
+        value = ((Number) value).intValue();
+      }
+      if (value.equals(previous)) {
+        continue;
+      }
+      if (previous == null) {
+        state._fields.add(fieldId);
+      }
+      state._values[fieldId] = value;
+      if (value instanceof Double) {
+        final long bits = Double.doubleToRawLongBits((Double) value);
+        final long previousBits = (previous instanceof Double) ? Double.doubleToRawLongBits((Double) previous) : 0L;
+        ensureBody(16);
+        TickJournalFormat.putVarInt(_body, fieldId);
+        _body.put(TickJournalFormat.VALUE_DOUBLE);
+        TickJournalFormat.putVarLong(_body, bits ^ previousBits);
+      } else if (value instanceof Long) {
+        final long previousValue = (previous instanceof Long) ? (Long) previous : 0L;
+        ensureBody(16);
+        TickJournalFormat.putVarInt(_body, fieldId);
+        _body.put(TickJournalFormat.VALUE_LONG);
+        TickJournalFormat.putVarLong(_body, TickJournalFormat.zigZag((Long) value - previousValue));
+      } else if (value instanceof Integer) {
+        final long previousValue = (previous instanceof Integer) ? (Integer) previous : 0L;
+        ensureBody(16);
+        TickJournalFormat.putVarInt(_body, fieldId);
+        _body.put(TickJournalFormat.VALUE_INT);
+        TickJournalFormat.putVarLong(_body, TickJournalFormat.zigZag((Integer) value - previousValue));
+      } else if (value instanceof Boolean) {
+        ensureBody(6);
+        TickJournalFormat.putVarInt(_body, fieldId);
+        _body.put((Boolean) value ? TickJournalFormat.VALUE_TRUE : TickJournalFormat.VALUE_FALSE);
+      } else if (value instanceof String) {
+        final byte[] bytes = ((String) value).getBytes(TickJournalFormat.UTF8);
+        ensureBody(11 + bytes.length);
+        TickJournalFormat.putVarInt(_body, fieldId);
+        _body.put(TickJournalFormat.VALUE_STRING);
+        TickJournalFormat.putBytes(_body, bytes);
+      } else {
+        final MutableFudgeMsg fieldMsg = _fudgeContext.newMessage();
+        fieldMsg.add(field);
+        final byte[] bytes = _fudgeContext.toByteArray(fieldMsg);
+        ensureBody(11 + bytes.length);
+        TickJournalFormat.putVarInt(_body, fieldId);
+        _body.put(TickJournalFormat.VALUE_FUDGE);
+        TickJournalFormat.putBytes(_body, bytes);
+      }
+    }
+  }
+
+  private void ensureBody(final int size) {
+    if (_body.remaining() < size) {
+      final ByteBuffer body = ByteBuffer.allocate(Math.max(_body.capacity() * 2, _body.position() + size));
+      _body.flip();
+      body.put(_body);
+      _body = body;
+    }
+  }
+
+  /**
+   * Returns the mapping positioned to write the given number of bytes, extending the file if necessary.
+   */
+  private ByteBuffer reserve(final int size) {
+    if ((_mapped == null) || (_mapped.remaining() < size)) {
+      final long position = (_mapped == null) ? _mappedPosition : _mappedPosition + _mapped.position();
+      final long length = Math.max(MAP_CHUNK_SIZE, size);
+      try {
+        _mapped = _channel.map(FileChannel.MapMode.READ_WRITE, position, length);
+      } catch (IOException e) {
+        throw new OpenGammaRuntimeException("Couldn't extend journal " + _file, e);
+      }
+      _mappedPosition = position;
+    }
+    return _mapped;
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Writes the index and closes the journal.
+   */
+  public synchronized void close() {
+    if (_closed) {
+      return;
+    }
+    _closed = true;
+    reserve(1).put(TickJournalFormat.RECORD_END);
+    final long indexPosition = _mappedPosition + _mapped.position();
+    writeIndex();
+    final long end = _mappedPosition + _mapped.position();
+    try {
+      _mapped.force();
+      final ByteBuffer header = ByteBuffer.allocate(8);
+      header.putLong(indexPosition);
+      header.flip();
+      _channel.write(header, TickJournalFormat.HEADER_INDEX_POSITION);
+      _channel.truncate(end);
+      _channel.force(true);
+      _raf.close();
+    } catch (IOException e) {
+      throw new OpenGammaRuntimeException("Couldn't close journal " + _file, e);
+    }
+    _mapped = null;
+    s_logger.info("Closed journal {} with {} ticks", _file, _numTicks);
+  }
+
+  private void writeIndex() {
+    TickJournalFormat.putVarInt(reserve(5), _fieldNames.size());
+    for (String field : _fieldNames) {
+      final byte[] bytes = field.getBytes(TickJournalFormat.UTF8);
+      TickJournalFormat.putBytes(reserve(5 + bytes.length), bytes);
+    }
+    TickJournalFormat.putVarInt(reserve(5), _tickerNames.size());
+    for (int i = 0; i < _tickerNames.size(); i++) {
+      final byte[] bytes = _tickerNames.get(i).getBytes(TickJournalFormat.UTF8);
+      TickJournalFormat.putBytes(reserve(5 + bytes.length), bytes);
+      final TickerState state = _tickers.get(i);
+      ByteBuffer out = reserve(15);
+      TickJournalFormat.putVarLong(out, state._numTicks);
+      TickJournalFormat.putVarInt(out, state._blocks.size());
+      int previous = 0;
+      for (int j = 0; j < state._blocks.size(); j++) {
+        final int block = state._blocks.getInt(j);
+        TickJournalFormat.putVarInt(reserve(5), block - previous);
+        previous = block;
+      }
+    }
+    TickJournalFormat.putVarInt(reserve(5), _blockPositions.size());
+    long previousPosition = 0;
+    long previousTime = 0;
+    for (int i = 0; i < _blockPositions.size(); i++) {
+      final ByteBuffer out = reserve(25);
+      TickJournalFormat.putVarLong(out, _blockPositions.getLong(i) - previousPosition);
+      TickJournalFormat.putVarLong(out, TickJournalFormat.zigZag(_blockTimes.getLong(i) - previousTime));
+      TickJournalFormat.putVarInt(out, _blockTicks.getInt(i));
+      previousPosition = _blockPositions.getLong(i);
+      previousTime = _blockTimes.getLong(i);
+    }
+    reserve(8).putLong(_lastTime);
+  }
+
+  @Override
+  public String toString() {
+    return "TickJournalWriter[" + _file + "]";
+  }
+
+}
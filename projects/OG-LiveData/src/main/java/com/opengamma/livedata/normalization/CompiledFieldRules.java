@@ -0,0 +1,359 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.livedata.normalization;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.fudgemsg.FudgeField;
+import org.fudgemsg.FudgeMsg;
+import org.fudgemsg.MutableFudgeMsg;
+
+import com.opengamma.livedata.server.FieldHistoryStore;
+import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.fudgemsg.OpenGammaFudgeContext;
+
+/**
+ * A consecutive run of {@link FieldNameChange}, {@link UnitChange}, {@link FieldFilter} and {@link RequiredFieldFilter}
+ * rules fused into a single pass over the message.
+ * <p>
+ * Applied in turn, each of these rules copies or rebuilds the message. None of them depends on the values of the
+ * other fields, so the fate of a field under the whole run depends only on its name: the name it ends up with, the
+ * multipliers applied to it, whether a filter removes it, and which filters it satisfies. This is worked out once for
+ * each field name seen and cached, and each message is then normalized by looking up the plan for each of its fields
+ * and building the result in one go, producing exactly the message that applying the rules in turn would.
+ * <p>
+ * Applying the rules in turn keeps only the first of several fields with the same name when one of them is renamed
+ * or multiplied. Messages where this happens, or where a field to be multiplied is not numeric, are rare and are
+ * normalized by applying the rules in turn.
+ */
+/* package */final class CompiledFieldRules implements NormalizationRule {
+
+  /**
+   * The number of field names for which plans are cached; messages with other fields are normalized by applying the
+   * rules in turn.
+   */
+  private static final int MAX_PLANS = 4096;
+
+  /**
+   * The fate of a field with a given name.
+   */
+  private static final class FieldPlan {
+
+    private final String _name;
+    private final boolean _alive;
+    private final double[] _multipliers;
+    private final int _moveIndex;
+    private final long _conditions;
+    private final int _terminalId;
+
+    private FieldPlan(final String name, final boolean alive, final double[] multipliers, final int moveIndex, final long conditions, final int terminalId) {
+      _name = name;
+      _alive = alive;
+      _multipliers = multipliers;
+      _moveIndex = moveIndex;
+      _conditions = conditions;
+      _terminalId = terminalId;
+    }
+
+  }
+
+  /**
+   * Working storage for a normalizing thread.
+   */
+  private static final class Scratch {
+
+    private FudgeField[] _fields = new FudgeField[64];
+    private FieldPlan[] _plans = new FieldPlan[64];
+    private int[] _stamps = new int[64];
+    private boolean[] _moved = new boolean[64];
+    private int _stamp;
+    private final FudgeField[] _movedFields;
+    private final FieldPlan[] _movedPlans;
+
+    private Scratch(final int numRules) {
+      _movedFields = new FudgeField[numRules];
+      _movedPlans = new FieldPlan[numRules];
+    }
+
+  }
+
+  private final NormalizationRule[] _rules;
+  private final int[] _conditionOffsets;
+  private final long _allConditions;
+  private final FieldPlan _unnamedPlan;
+  private final ConcurrentMap<String, FieldPlan> _plans = new ConcurrentHashMap<String, FieldPlan>();
+  private final ConcurrentMap<String, Integer> _terminalIds = new ConcurrentHashMap<String, Integer>();
+  private final AtomicInteger _nextTerminalId = new AtomicInteger();
+  private final ThreadLocal<Scratch> _scratch = new ThreadLocal<Scratch>() {
+    @Override
+    protected Scratch initialValue() {
+      return new Scratch(_rules.length);
+    }
+  };
+
+  /**
+   * Creates a fused run of rules.
+   *
+   * @param rules  the rules, each of which must be {@link #isFusable fusable}, not null
+   */
+  public CompiledFieldRules(final List<NormalizationRule> rules) {
+    ArgumentChecker.notNull(rules, "rules");
+    _rules = rules.toArray(new NormalizationRule[rules.size()]);
+    _conditionOffsets = new int[_rules.length];
+    int conditions = 0;
+    for (int i = 0; i < _rules.length; i++) {
+      if (!isFusable(_rules[i])) {
+        throw new IllegalArgumentException("Can't fuse " + _rules[i]);
+      }
+      _conditionOffsets[i] = conditions;
+      conditions += getNumConditions(_rules[i]);
+    }
+    if (conditions > Long.SIZE) {
+      throw new IllegalArgumentException("Too many filter conditions in " + rules);
+    }
+    _allConditions = (conditions == Long.SIZE) ? -1L : (1L << conditions) - 1;
+    _unnamedPlan = createPlan(null);
+  }
+
+  /**
+   * Tests whether a rule can be fused with others.
+   * <p>
+   * Subclasses of the fusable rules might behave differently so are not fusable.
+   *
+   * @param rule  the rule, not null
+   * @return true if the rule can be fused
+   */
+  public static boolean isFusable(final NormalizationRule rule) {
+    final Class<?> clazz = rule.getClass();
+    return (clazz == FieldNameChange.class) || (clazz == UnitChange.class) || (clazz == FieldFilter.class)
+        || ((clazz == RequiredFieldFilter.class) && (getNumConditions(rule) <= Long.SIZE));
+  }
+
+  /**
+   * Gets the number of bits a rule needs to record the filters a message satisfies.
+   *
+   * @param rule  the rule, not null
+   * @return the number of conditions
+   */
+  public static int getNumConditions(final NormalizationRule rule) {
+    if (rule instanceof FieldFilter) {
+      return 1;
+    } else if (rule instanceof RequiredFieldFilter) {
+      return ((RequiredFieldFilter) rule).getRequiredFieldNames().size();
+    } else {
+      return 0;
+    }
+  }
+
+  //-------------------------------------------------------------------------
+  private FieldPlan getPlan(final String name) {
+    if (name == null) {
+      return _unnamedPlan;
+    }
+    FieldPlan plan = _plans.get(name);
+    if (plan == null) {
+      if (_plans.size() >= MAX_PLANS) {
+        return null;
+      }
+      plan = createPlan(name);
+      final FieldPlan existing = _plans.putIfAbsent(name, plan);
+      if (existing != null) {
+        plan = existing;
+      }
+    }
+    return plan;
+  }
+
+  private FieldPlan createPlan(final String inputName) {
+    String name = inputName;
+    double[] multipliers = new double[0];
+    int moveIndex = -1;
+    long conditions = 0;
+    for (int i = 0; i < _rules.length; i++) {
+      final NormalizationRule rule = _rules[i];
+      if (rule instanceof FieldNameChange) {
+        final FieldNameChange rename = (FieldNameChange) rule;
+        if (rename.getFrom().equals(name)) {
+          name = rename.getTo();
+          moveIndex = i;
+        }
+      } else if (rule instanceof UnitChange) {
+        final UnitChange unitChange = (UnitChange) rule;
+        if (unitChange.getField().equals(name)) {
+          multipliers = Arrays.copyOf(multipliers, multipliers.length + 1);
+          multipliers[multipliers.length - 1] = unitChange.getMultiplier();
+          moveIndex = i;
+        }
+      } else if (rule instanceof FieldFilter) {
+        if ((name == null) || !((FieldFilter) rule).getFieldsToAccept().contains(name)) {
+          return new FieldPlan(name, false, multipliers, moveIndex, conditions, getTerminalId(name));
+        }
+        conditions |= 1L << _conditionOffsets[i];
+      } else if (rule instanceof RequiredFieldFilter) {
+        int bit = _conditionOffsets[i];
+        for (String required : ((RequiredFieldFilter) rule).getRequiredFieldNames()) {
+          if (required.equals(name)) {
+            conditions |= 1L << bit;
+          }
+          bit++;
+        }
+      }
+    }
+    return new FieldPlan(name, true, multipliers, moveIndex, conditions, getTerminalId(name));
+  }
+
+  /**
+   * Numbers the names fields end up with, so that fields which end up with the same name can be detected cheaply.
+   */
+  private int getTerminalId(final String name) {
+    if (name == null) {
+      return -1;
+    }
+    Integer id = _terminalIds.get(name);
+    if (id == null) {
+      id = _nextTerminalId.getAndIncrement();
+      final Integer existing = _terminalIds.putIfAbsent(name, id);
+      if (existing != null) {
+        id = existing;
+      }
+    }
+    return id;
+  }
+
+  //-------------------------------------------------------------------------
+  @Override
+  public MutableFudgeMsg apply(final MutableFudgeMsg msg, final String securityUniqueId, final FieldHistoryStore fieldHistory) {
+    return apply(msg, true, securityUniqueId, fieldHistory);
+  }
+
+  /**
+   * Applies the rules.
+   *
+   * @param msg  the message to normalize, not null
+   * @param mutable  whether the message may be modified and returned if the rules are applied in turn
+   * @param securityUniqueId  the data provider's unique ID of the security, not null
+   * @param fieldHistory  the distributor-specific field history, not null
+   * @return the normalized message, or null to prevent the message from being sent to the client
+   */
+  public MutableFudgeMsg apply(final FudgeMsg msg, final boolean mutable, final String securityUniqueId, final FieldHistoryStore fieldHistory) {
+    final Scratch scratch = _scratch.get();
+    int stamp = ++scratch._stamp;
+    if (stamp == 0) {
+      Arrays.fill(scratch._stamps, 0);
+      stamp = ++scratch._stamp;
+    }
+    final int numFields = msg.getNumFields();
+    if (numFields > scratch._fields.length) {
+      scratch._fields = new FudgeField[Math.max(numFields, scratch._fields.length * 2)];
+      scratch._plans = new FieldPlan[scratch._fields.length];
+    }
+    final FudgeField[] fields = scratch._fields;
+    final FieldPlan[] plans = scratch._plans;
+    long conditions = 0;
+    int count = 0;
+    for (FudgeField field : msg) {
+      final FieldPlan plan = getPlan(field.getName());
+      if (plan == null) {
+        return applyInTurn(msg, mutable, securityUniqueId, fieldHistory);
+      }
+      if ((plan._multipliers.length > 0) && !(field.getValue() instanceof Number)) {
+        return applyInTurn(msg, mutable, securityUniqueId, fieldHistory);
+      }
+      final int terminalId = plan._terminalId;
+      if (terminalId >= 0) {
+        if (terminalId >= scratch._stamps.length) {
+          final int size = Math.max(terminalId + 1, scratch._stamps.length * 2);
+          scratch._stamps = Arrays.copyOf(scratch._stamps, size);
+          scratch._moved = Arrays.copyOf(scratch._moved, size);
+        }
+        final boolean moved = plan._moveIndex >= 0;
+        if (scratch._stamps[terminalId] == stamp) {
+          // Fields ending with the same name are only independent if neither was renamed or multiplied
+          if (moved || scratch._moved[terminalId]) {
+            return applyInTurn(msg, mutable, securityUniqueId, fieldHistory);
+          }
+        } else {
+          scratch._stamps[terminalId] = stamp;
+          scratch._moved[terminalId] = moved;
+        }
+      }
+      conditions |= plan._conditions;
+      fields[count] = field;
+      plans[count++] = plan;
+    }
+    if ((conditions & _allConditions) != _allConditions) {
+      // A filter rejected the message
+      Arrays.fill(fields, 0, count, null);
+      return null;
+    }
+    final MutableFudgeMsg normalizedMsg = OpenGammaFudgeContext.getInstance().newMessage();
+    final FudgeField[] movedFields = scratch._movedFields;
+    final FieldPlan[] movedPlans = scratch._movedPlans;
+    for (int i = 0; i < count; i++) {
+      final FieldPlan plan = plans[i];
+      if (plan._alive) {
+        if (plan._moveIndex < 0) {
+          normalizedMsg.add(fields[i]);
+        } else {
+          movedFields[plan._moveIndex] = fields[i];
+          movedPlans[plan._moveIndex] = plan;
+        }
+      }
+      fields[i] = null;
+    }
+    // Renamed or multiplied fields are removed and added at the end, in the order of the rules that last moved them
+    for (int i = 0; i < movedFields.length; i++) {
+      final FudgeField field = movedFields[i];
+      if (field != null) {
+        final FieldPlan plan = movedPlans[i];
+        if (plan._multipliers.length > 0) {
+          double value = ((Number) field.getValue()).doubleValue();
+          for (double multiplier : plan._multipliers) {
+            value *= multiplier;
+          }
+          normalizedMsg.add(plan._name, value);
+        } else {
+          normalizedMsg.add(plan._name, null, field.getType(), field.getValue());
+        }
+        movedFields[i] = null;
+        movedPlans[i] = null;
+      }
+    }
+    return normalizedMsg;
+  }
+
+  private MutableFudgeMsg applyInTurn(final FudgeMsg msg, final boolean mutable, final String securityUniqueId, final FieldHistoryStore fieldHistory) {
+    Arrays.fill(_scratch.get()._fields, null);
+    MutableFudgeMsg normalizedMsg = mutable ? (MutableFudgeMsg) msg : OpenGammaFudgeContext.getInstance().newMessage(msg);
+    for (NormalizationRule rule : _rules) {
+      normalizedMsg = rule.apply(normalizedMsg, securityUniqueId, fieldHistory);
+      if (normalizedMsg == null) {
+        break;
+      }
+    }
+    return normalizedMsg;
+  }
+
+  /**
+   * Gets the rules fused by this instance.
+   *
+   * @return the rules, not null
+   */
+  public List<NormalizationRule> getRules() {
+    return new ArrayList<NormalizationRule>(Arrays.asList(_rules));
+  }
+
+  @Override
+  public String toString() {
+    return "CompiledFieldRules" + Arrays.toString(_rules);
+  }
+
+}
@@ -25,6 +25,24 @@ public class FieldNameChange implements NormalizationRule {
     _from = from;
     _to = to;
   }
+
+  /**
+   * Gets the name of the field to rename.
+   * 
+   * @return the field name, not null
+   */
+  public String getFrom() {
+    return _from;
+  }
+
+  /**
+   * Gets the new name of the field.
+   * 
+   * @return the field name, not null
+   */
+  public String getTo() {
+    return _to;
+  }
   
   @Override
   public MutableFudgeMsg apply(MutableFudgeMsg msg, String securityUniqueId, FieldHistoryStore fieldHistory) {
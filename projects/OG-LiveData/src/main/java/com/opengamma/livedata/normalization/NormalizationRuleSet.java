@@ -22,6 +22,9 @@ import com.opengamma.util.fudgemsg.OpenGammaFudgeContext;
 
 /**
  * An ordered set of normalization rules.
+ * <p>
+ * Consecutive {@link FieldNameChange}, {@link UnitChange}, {@link FieldFilter} and {@link RequiredFieldFilter}
+ * rules are fused when the set is created, and applied together in a single pass over each message.
  */
 public class NormalizationRuleSet {
   
@@ -30,6 +33,10 @@ public class NormalizationRuleSet {
   private final String _id;
   private final String _jmsTopicSuffix;
   private final List<NormalizationRule> _rules;
+  /**
+   * The rules as applied, with consecutive field renames, unit changes and filters fused.
+   */
+  private final NormalizationRule[] _compiledRules;
   
   /* Useful for tests */
   public NormalizationRuleSet(String id) {
@@ -56,6 +63,36 @@ public class NormalizationRuleSet {
     }
     
     _rules = new ArrayList<NormalizationRule>(rules);    
+    _compiledRules = compile(_rules);
+  }
+
+  private static NormalizationRule[] compile(final List<NormalizationRule> rules) {
+    final List<NormalizationRule> compiled = new ArrayList<NormalizationRule>();
+    final List<NormalizationRule> run = new ArrayList<NormalizationRule>();
+    int runConditions = 0;
+    for (NormalizationRule rule : rules) {
+      if (CompiledFieldRules.isFusable(rule)) {
+        final int conditions = CompiledFieldRules.getNumConditions(rule);
+        if (runConditions + conditions > Long.SIZE) {
+          compiled.add(new CompiledFieldRules(run));
+          run.clear();
+          runConditions = 0;
+        }
+        run.add(rule);
+        runConditions += conditions;
+      } else {
+        if (!run.isEmpty()) {
+          compiled.add(new CompiledFieldRules(run));
+          run.clear();
+          runConditions = 0;
+        }
+        compiled.add(rule);
+      }
+    }
+    if (!run.isEmpty()) {
+      compiled.add(new CompiledFieldRules(run));
+    }
+    return compiled.toArray(new NormalizationRule[compiled.size()]);
   }
   
   /**
@@ -70,16 +107,49 @@ public class NormalizationRuleSet {
    * rejected the message.
    */
   public FudgeMsg getNormalizedMessage(FudgeMsg msg, String securityUniqueId, FieldHistoryStore fieldHistory) {
+    final NormalizationRule[] rules = _compiledRules;
+    MutableFudgeMsg normalizedMsg;
+    int i = 0;
+    if ((rules.length > 0) && (rules[0] instanceof CompiledFieldRules)) {
+      // The fused rules build a new message so the original needn't be copied first
+      normalizedMsg = ((CompiledFieldRules) rules[0]).apply(msg, false, securityUniqueId, fieldHistory);
+      i++;
+    } else {
+      normalizedMsg = OpenGammaFudgeContext.getInstance().newMessage(msg);
+    }
+    while ((normalizedMsg != null) && (i < rules.length)) {
+      normalizedMsg = rules[i++].apply(normalizedMsg, securityUniqueId, fieldHistory);
+    }
+    if (s_logger.isDebugEnabled()) {
+      if (normalizedMsg == null) {
+        // One of the rules rejected the message entirely.
+        s_logger.debug("Rule {} in rule set {} rejected message {}", new Object[] {rules[i - 1], getId(), msg});
+      } else {
+        s_logger.debug("Applying rule set {} to message {} produced normalized message {}", new Object[] {getId(), msg, normalizedMsg});
+      }
+    }
+    return normalizedMsg;
+  }
+
+  /**
+   * Gets a normalized message by applying each rule in turn, without fusing any of them.
+   * <p>
+   * This produces the same result as {@link #getNormalizedMessage} and is used to check it.
+   * 
+   * @param msg message received from underlying market data API in its native format.
+   * @param securityUniqueId  the data provider's unique ID of the security, not null
+   * @param fieldHistory history of field values  
+   * @return the normalized message. Null if one of the normalization rules
+   * rejected the message.
+   */
+  /* package */FudgeMsg getNormalizedMessageInTurn(FudgeMsg msg, String securityUniqueId, FieldHistoryStore fieldHistory) {
     MutableFudgeMsg normalizedMsg = OpenGammaFudgeContext.getInstance().newMessage(msg);
     for (NormalizationRule rule : _rules) {
       normalizedMsg = rule.apply(normalizedMsg, securityUniqueId, fieldHistory);
       if (normalizedMsg == null) {
-        // One of the rules rejected the message entirely.
-        s_logger.debug("Rule {} in rule set {} rejected message {}", new Object[] {rule, getId(), normalizedMsg});
         break;
       }
     }
-    s_logger.debug("Applying rule set {} to message {} produced normalized message {}", new Object[] {getId(), msg, normalizedMsg});
     return normalizedMsg;
   }
   
@@ -23,6 +23,24 @@ public class UnitChange implements NormalizationRule {
     _field = field;
     _multiplier = multiplier;        
   }
+
+  /**
+   * Gets the name of the field to multiply.
+   * 
+   * @return the field name, not null
+   */
+  public String getField() {
+    return _field;
+  }
+
+  /**
+   * Gets the constant the field is multiplied by.
+   * 
+   * @return the multiplier
+   */
+  public double getMultiplier() {
+    return _multiplier;
+  }
   
   @Override
   public MutableFudgeMsg apply(MutableFudgeMsg msg, String securityUniqueId, FieldHistoryStore fieldHistory) {
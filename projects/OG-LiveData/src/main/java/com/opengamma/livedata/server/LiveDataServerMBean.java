@@ -138,6 +138,36 @@ public class LiveDataServerMBean {
     }
   }
 
+  @ManagedAttribute(description = "# of ticks sent to clients/sec, calculated over the last 60 seconds")
+  public double getNumTicksDistributedPerSecondOverLastMinute() {
+    try {
+      return getServer().getNumTicksDistributedPerSecondOverLastMinute();
+    } catch (RuntimeException e) {
+      s_logger.error("getNumTicksDistributedPerSecondOverLastMinute() failed", e);
+      throw new RuntimeException(e.getMessage());
+    }
+  }
+
+  @ManagedAttribute(description = "Mean time in milliseconds from receipt of a tick to the completion of its send.")
+  public double getMeanTickLatencyMillis() {
+    try {
+      return getServer().getMeanTickLatencyMillis();
+    } catch (RuntimeException e) {
+      s_logger.error("getMeanTickLatencyMillis() failed", e);
+      throw new RuntimeException(e.getMessage());
+    }
+  }
+
+  @ManagedAttribute(description = "Longest time in milliseconds from receipt of a tick to the completion of its send.")
+  public double getMaxTickLatencyMillis() {
+    try {
+      return getServer().getMaxTickLatencyMillis();
+    } catch (RuntimeException e) {
+      s_logger.error("getMaxTickLatencyMillis() failed", e);
+      throw new RuntimeException(e.getMessage());
+    }
+  }
+
   @ManagedOperation(description = "Subscribes to market data. The subscription will be non-persistent."
       + " If the server already subscribes to the given market data, this method is a "
       + " no-op. Returns the name of the JMS topic market data will be published on.")
@@ -10,11 +10,19 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
@@ -42,6 +50,7 @@ import com.opengamma.livedata.normalization.StandardRules;
 import com.opengamma.livedata.resolver.DistributionSpecificationResolver;
 import com.opengamma.livedata.resolver.NaiveDistributionSpecificationResolver;
 import com.opengamma.livedata.server.distribution.EmptyMarketDataSenderFactory;
+import com.opengamma.livedata.server.distribution.MarketDataDistributionPipeline;
 import com.opengamma.livedata.server.distribution.MarketDataDistributor;
 import com.opengamma.livedata.server.distribution.MarketDataSenderFactory;
 import com.opengamma.util.ArgumentChecker;
@@ -59,23 +68,37 @@ public abstract class StandardLiveDataServer implements LiveDataServer, Lifecycl
   private static final Logger s_logger = LoggerFactory.getLogger(StandardLiveDataServer.class);
 
   private volatile MarketDataSenderFactory _marketDataSenderFactory = new EmptyMarketDataSenderFactory();
+  private volatile MarketDataDistributionPipeline _distributionPipeline = new MarketDataDistributionPipeline();
   private final Collection<SubscriptionListener> _subscriptionListeners = new CopyOnWriteArrayList<SubscriptionListener>();
 
-  /** Access controlled via _subscriptionLock */
-  private final Set<Subscription> _currentlyActiveSubscriptions = new HashSet<Subscription>();
+  /**
+   * The default number of shards that subscription management is divided into.
+   */
+  public static final int DEFAULT_SUBSCRIPTION_SHARDS = 16;
+
+  /** _Write_ access controlled via the lock of the subscription's shard */
+  private final Set<Subscription> _currentlyActiveSubscriptions = Collections.newSetFromMap(new ConcurrentHashMap<Subscription, Boolean>());
 
-  /** _Write_ access controlled via _subscriptionLock */
+  /** _Write_ access controlled via the lock of the subscription's shard */
   private final Map<String, Subscription> _securityUniqueId2Subscription = new ConcurrentHashMap<String, Subscription>();
 
-  /** Access controlled via _subscriptionLock */
-  private final Map<LiveDataSpecification, MarketDataDistributor> _fullyQualifiedSpec2Distributor = new HashMap<LiveDataSpecification, MarketDataDistributor>();
+  /** _Write_ access controlled via the lock of the subscription's shard */
+  private final Map<LiveDataSpecification, MarketDataDistributor> _fullyQualifiedSpec2Distributor = new ConcurrentHashMap<LiveDataSpecification, MarketDataDistributor>();
 
   private final AtomicLong _numMarketDataUpdatesReceived = new AtomicLong(0);
   private final PerformanceCounter _performanceCounter;
 
   private final CacheManager _cacheManager;
 
-  private final Lock _subscriptionLock = new ReentrantLock();
+  /**
+   * Locks controlling changes to subscriptions, indexed by shard. See {@link #getSubscriptionShard}.
+   */
+  private final Lock[] _subscriptionLocks;
+
+  /**
+   * The executor used to process the shards of a large request in parallel, null to process them one at a time.
+   */
+  private volatile ExecutorService _subscriptionExecutor;
 
   private DistributionSpecificationResolver _distributionSpecificationResolver = new NaiveDistributionSpecificationResolver();
   private LiveDataEntitlementChecker _entitlementChecker = new PermissiveLiveDataEntitlementChecker();
@@ -101,9 +124,28 @@ public abstract class StandardLiveDataServer implements LiveDataServer, Lifecycl
    * @param isPerformanceCountingEnabled  whether to track the message rate here, see {@link #getNumLiveDataUpdatesSentPerSecondOverLastMinute()}
    */
   protected StandardLiveDataServer(CacheManager cacheManager, boolean isPerformanceCountingEnabled) {
+    this(cacheManager, isPerformanceCountingEnabled, DEFAULT_SUBSCRIPTION_SHARDS);
+  }
+
+  /**
+   * Creates an instance controlling performance counting and the division of subscription management.
+   * <p>
+   * Subscriptions are divided between shards by security unique ID. Subscribing, unsubscribing and expiring
+   * subscriptions in one shard does not block the same operations in any other shard.
+   *
+   * @param cacheManager  the cache manager, not null
+   * @param isPerformanceCountingEnabled  whether to track the message rate here, see {@link #getNumLiveDataUpdatesSentPerSecondOverLastMinute()}
+   * @param subscriptionShards  the number of shards to divide subscriptions between, must be positive
+   */
+  protected StandardLiveDataServer(CacheManager cacheManager, boolean isPerformanceCountingEnabled, int subscriptionShards) {
     ArgumentChecker.notNull(cacheManager, "cacheManager");
+    ArgumentChecker.notNegativeOrZero(subscriptionShards, "subscriptionShards");
     _cacheManager = cacheManager;
     _performanceCounter = isPerformanceCountingEnabled ? new PerformanceCounter(60) : null;
+    _subscriptionLocks = new Lock[subscriptionShards];
+    for (int i = 0; i < subscriptionShards; i++) {
+      _subscriptionLocks[i] = new ReentrantLock();
+    }
   }
 
   //-------------------------------------------------------------------------
@@ -154,6 +196,47 @@ public abstract class StandardLiveDataServer implements LiveDataServer, Lifecycl
     _marketDataSenderFactory = marketDataSenderFactory;
   }
 
+  /**
+   * Gets the pipeline configuration used by the distributors of new subscriptions.
+   *
+   * @return the pipeline, not null
+   */
+  public MarketDataDistributionPipeline getDistributionPipeline() {
+    return _distributionPipeline;
+  }
+
+  /**
+   * Sets the pipeline configuration used by the distributors of new subscriptions.
+   *
+   * @param distributionPipeline  the pipeline, not null
+   */
+  public void setDistributionPipeline(MarketDataDistributionPipeline distributionPipeline) {
+    ArgumentChecker.notNull(distributionPipeline, "distributionPipeline");
+    _distributionPipeline = distributionPipeline;
+  }
+
+  /**
+   * Gets the executor used to process the shards of a large subscription or snapshot request in parallel.
+   *
+   * @return the executor, null if requests are not split by shard
+   */
+  public ExecutorService getSubscriptionExecutor() {
+    return _subscriptionExecutor;
+  }
+
+  /**
+   * Sets the executor used to process the shards of a large subscription or snapshot request in parallel.
+   * <p>
+   * When set, {@link #doSubscribe} and {@link #doSnapshot} may be called concurrently for different shards,
+   * so should only be set if the underlying market data API allows that. When not set, the shards a request
+   * touches are processed one after another on the requesting thread, each holding only its own lock.
+   *
+   * @param subscriptionExecutor  the executor, null to process the shards of each request on the requesting thread
+   */
+  public void setSubscriptionExecutor(ExecutorService subscriptionExecutor) {
+    _subscriptionExecutor = subscriptionExecutor;
+  }
+
   /**
    * Adds a subscription listener.
    *
@@ -339,9 +422,45 @@ public abstract class StandardLiveDataServer implements LiveDataServer, Lifecycl
 
   //-------------------------------------------------------------------------
   void reestablishSubscriptions() {
-    _subscriptionLock.lock();
+    ExecutorService executor = getSubscriptionExecutor();
+    if (executor == null) {
+      for (int shard = 0; shard < _subscriptionLocks.length; shard++) {
+        reestablishSubscriptions(shard);
+      }
+      return;
+    }
+    List<Callable<Object>> tasks = new ArrayList<Callable<Object>>(_subscriptionLocks.length);
+    for (int shard = 0; shard < _subscriptionLocks.length; shard++) {
+      final int taskShard = shard;
+      tasks.add(new Callable<Object>() {
+        @Override
+        public Object call() {
+          reestablishSubscriptions(taskShard);
+          return null;
+        }
+      });
+    }
+    invokeShardTasks(executor, tasks);
+  }
+
+  /**
+   * Reestablishes the subscriptions in a shard, holding the lock of that shard.
+   *
+   * @param shard  the shard index
+   */
+  private void reestablishSubscriptions(int shard) {
+    Lock subscriptionLock = _subscriptionLocks[shard];
+    subscriptionLock.lock();
     try {
-      Set<String> securities = _securityUniqueId2Subscription.keySet();
+      Set<String> securities = new HashSet<String>();
+      for (String security : _securityUniqueId2Subscription.keySet()) {
+        if (getSubscriptionShard(security) == shard) {
+          securities.add(security);
+        }
+      }
+      if (securities.isEmpty()) {
+        return;
+      }
       try {
         Map<String, Object> subscriptions = doSubscribe(securities);
         for (Entry<String, Object> entry : subscriptions.entrySet()) {
@@ -352,8 +471,62 @@ public abstract class StandardLiveDataServer implements LiveDataServer, Lifecycl
         s_logger.error("Could not reestablish subscription to {}", new Object[] {securities}, e);
       }
     } finally {
-      _subscriptionLock.unlock();
+      subscriptionLock.unlock();
+    }
+  }
+
+  /**
+   * Gets the shard that a security's subscription belongs to.
+   *
+   * @param securityUniqueId  the security unique ID, not null
+   * @return the shard index
+   */
+  private int getSubscriptionShard(String securityUniqueId) {
+    return (securityUniqueId.hashCode() & Integer.MAX_VALUE) % _subscriptionLocks.length;
+  }
+
+  /**
+   * Runs tasks for each shard of a request in parallel on the subscription executor.
+   * <p>
+   * This waits for every task to finish, even if some fail or the calling thread is interrupted, so no shard is
+   * left part way through a change when this returns. The first failure is then rethrown, so tasks that change
+   * state must report their own failures rather than throw.
+   *
+   * @param <T>  the result type
+   * @param executor  the subscription executor, not null
+   * @param tasks  the tasks, not null
+   * @return the results of the tasks, not null
+   */
+  private <T> List<T> invokeShardTasks(ExecutorService executor, List<Callable<T>> tasks) {
+    List<Future<T>> futures = new ArrayList<Future<T>>(tasks.size());
+    for (Callable<T> task : tasks) {
+      futures.add(executor.submit(task));
+    }
+    List<T> results = new ArrayList<T>(tasks.size());
+    RuntimeException failure = null;
+    boolean interrupted = false;
+    for (Future<T> future : futures) {
+      while (true) {
+        try {
+          results.add(future.get());
+          break;
+        } catch (ExecutionException e) {
+          if (failure == null) {
+            failure = (e.getCause() instanceof RuntimeException) ? (RuntimeException) e.getCause() : new OpenGammaRuntimeException("Shard task failed", e.getCause());
+          }
+          break;
+        } catch (InterruptedException e) {
+          interrupted = true;
+        }
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
     }
+    if (failure != null) {
+      throw failure;
+    }
+    return results;
   }
 
   protected void verifyConnectionOk() {
@@ -454,7 +627,7 @@ public abstract class StandardLiveDataServer implements LiveDataServer, Lifecycl
   }
 
   public Collection<LiveDataSubscriptionResponse> subscribe(
-      Collection<LiveDataSpecification> liveDataSpecificationsFromClient, boolean persistent) {
+      Collection<LiveDataSpecification> liveDataSpecificationsFromClient, final boolean persistent) {
     ArgumentChecker.notNull(liveDataSpecificationsFromClient, "Subscriptions to be created");
 
     s_logger.info("Subscribe requested for {}, persistent = {}", liveDataSpecificationsFromClient, persistent);
@@ -462,24 +635,111 @@ public abstract class StandardLiveDataServer implements LiveDataServer, Lifecycl
     verifyConnectionOk();
 
     Collection<LiveDataSubscriptionResponse> responses = new ArrayList<LiveDataSubscriptionResponse>();
-    Map<String, Subscription> securityUniqueId2NewSubscription = new HashMap<String, Subscription>();
-    Map<String, LiveDataSpecification> securityUniqueId2SpecFromClient = new HashMap<String, LiveDataSpecification>();
+    SortedMap<Integer, Map<LiveDataSpecification, DistributionSpecification>> shard2DistrSpecs = new TreeMap<Integer, Map<LiveDataSpecification, DistributionSpecification>>();
 
-    _subscriptionLock.lock();
-    try {
+    Map<LiveDataSpecification, DistributionSpecification> distrSpecs = getDistributionSpecificationResolver().resolve(liveDataSpecificationsFromClient);
+    for (LiveDataSpecification specFromClient : liveDataSpecificationsFromClient) {
 
-      Map<LiveDataSpecification, DistributionSpecification> distrSpecs = getDistributionSpecificationResolver().resolve(liveDataSpecificationsFromClient);
-      for (LiveDataSpecification specFromClient : liveDataSpecificationsFromClient) {
+      // this is the only place where subscribe() can 'partially' fail
+      DistributionSpecification distributionSpec = distrSpecs.get(specFromClient);
 
-        // this is the only place where subscribe() can 'partially' fail
-        DistributionSpecification distributionSpec = distrSpecs.get(specFromClient);
+      if (distributionSpec == null) {
+        s_logger.info("Unable to work out distribution spec for specification " + specFromClient);
+        responses.add(buildErrorMessageResponse(specFromClient, LiveDataSubscriptionResult.NOT_PRESENT, "Unable to work out distribution spec"));
+        continue;
+      }
 
-        if (distributionSpec == null) {
-          s_logger.info("Unable to work out distribution spec for specification " + specFromClient);
-          responses.add(buildErrorMessageResponse(specFromClient, LiveDataSubscriptionResult.NOT_PRESENT, "Unable to work out distribution spec"));
-          continue;
+      LiveDataSpecification fullyQualifiedSpec = distributionSpec.getFullyQualifiedLiveDataSpecification();
+      String securityUniqueId = fullyQualifiedSpec.getIdentifier(getUniqueIdDomain());
+      if (securityUniqueId == null) {
+        String errorMsg = "Qualified spec " + fullyQualifiedSpec + " does not contain ID of domain " + getUniqueIdDomain();
+        responses.add(buildErrorMessageResponse(specFromClient, LiveDataSubscriptionResult.INTERNAL_ERROR, errorMsg));
+        continue;
+      }
+
+      Integer shard = getSubscriptionShard(securityUniqueId);
+      Map<LiveDataSpecification, DistributionSpecification> shardDistrSpecs = shard2DistrSpecs.get(shard);
+      if (shardDistrSpecs == null) {
+        shardDistrSpecs = new LinkedHashMap<LiveDataSpecification, DistributionSpecification>();
+        shard2DistrSpecs.put(shard, shardDistrSpecs);
+      }
+      shardDistrSpecs.put(specFromClient, distributionSpec);
+    }
+
+    if (shard2DistrSpecs.size() == 1) {
+      Map.Entry<Integer, Map<LiveDataSpecification, DistributionSpecification>> shardDistrSpecs = shard2DistrSpecs.entrySet().iterator().next();
+      responses.addAll(subscribe(shardDistrSpecs.getKey(), shardDistrSpecs.getValue(), persistent));
+      return responses;
+    }
+
+    ExecutorService executor = getSubscriptionExecutor();
+    if (executor == null) {
+      for (Map.Entry<Integer, Map<LiveDataSpecification, DistributionSpecification>> shardDistrSpecs : shard2DistrSpecs.entrySet()) {
+        responses.addAll(subscribeShard(shardDistrSpecs.getKey(), shardDistrSpecs.getValue(), persistent));
+      }
+      return responses;
+    }
+
+    List<Callable<Collection<LiveDataSubscriptionResponse>>> tasks = new ArrayList<Callable<Collection<LiveDataSubscriptionResponse>>>(shard2DistrSpecs.size());
+    for (final Map.Entry<Integer, Map<LiveDataSpecification, DistributionSpecification>> shardDistrSpecs : shard2DistrSpecs.entrySet()) {
+      tasks.add(new Callable<Collection<LiveDataSubscriptionResponse>>() {
+        @Override
+        public Collection<LiveDataSubscriptionResponse> call() {
+          return subscribeShard(shardDistrSpecs.getKey(), shardDistrSpecs.getValue(), persistent);
         }
+      });
+    }
+    for (Collection<LiveDataSubscriptionResponse> shardResponses : invokeShardTasks(executor, tasks)) {
+      responses.addAll(shardResponses);
+    }
+
+    return responses;
+  }
+
+  /**
+   * Subscribes to market data for securities in one shard of a request that touches several.
+   * <p>
+   * The other shards may have subscribed, so a failure is reported for this shard's specifications only.
+   *
+   * @param shard  the shard index
+   * @param distrSpecs  the distribution specifications for each client specification, not null
+   * @param persistent  whether the subscriptions are persistent
+   * @return the responses, not null
+   */
+  private Collection<LiveDataSubscriptionResponse> subscribeShard(int shard, Map<LiveDataSpecification, DistributionSpecification> distrSpecs, boolean persistent) {
+    try {
+      return subscribe(shard, distrSpecs, persistent);
+    } catch (RuntimeException e) {
+      Collection<LiveDataSubscriptionResponse> failures = new ArrayList<LiveDataSubscriptionResponse>();
+      for (LiveDataSpecification specFromClient : distrSpecs.keySet()) {
+        failures.add(buildErrorMessageResponse(specFromClient, LiveDataSubscriptionResult.INTERNAL_ERROR, "Subscription failed: " + e.getMessage()));
+      }
+      return failures;
+    }
+  }
+
+  /**
+   * Subscribes to market data for securities in a shard, holding the lock of that shard.
+   * <p>
+   * If this fails, none of the new subscriptions are kept and the exception is rethrown.
+   *
+   * @param shard  the shard index
+   * @param distrSpecs  the distribution specifications for each client specification, not null
+   * @param persistent  whether the subscriptions are persistent
+   * @return the responses, not null
+   */
+  private Collection<LiveDataSubscriptionResponse> subscribe(int shard, Map<LiveDataSpecification, DistributionSpecification> distrSpecs, boolean persistent) {
+    Collection<LiveDataSubscriptionResponse> responses = new ArrayList<LiveDataSubscriptionResponse>();
+    Map<String, Subscription> securityUniqueId2NewSubscription = new HashMap<String, Subscription>();
+    Map<String, LiveDataSpecification> securityUniqueId2SpecFromClient = new HashMap<String, LiveDataSpecification>();
+
+    Lock subscriptionLock = _subscriptionLocks[shard];
+    subscriptionLock.lock();
+    try {
 
+      for (Map.Entry<LiveDataSpecification, DistributionSpecification> distrSpec : distrSpecs.entrySet()) {
+        LiveDataSpecification specFromClient = distrSpec.getKey();
+        DistributionSpecification distributionSpec = distrSpec.getValue();
         LiveDataSpecification fullyQualifiedSpec = distributionSpec.getFullyQualifiedLiveDataSpecification();
 
         Subscription subscription = getSubscription(fullyQualifiedSpec);
@@ -493,13 +753,7 @@ public abstract class StandardLiveDataServer implements LiveDataServer, Lifecycl
         } else {
 
           String securityUniqueId = fullyQualifiedSpec.getIdentifier(getUniqueIdDomain());
-          if (securityUniqueId == null) {
-            String errorMsg = "Qualified spec " + fullyQualifiedSpec + " does not contain ID of domain " + getUniqueIdDomain();
-            responses.add(buildErrorMessageResponse(specFromClient, LiveDataSubscriptionResult.INTERNAL_ERROR, errorMsg));
-            continue;
-          }
-
-          subscription = new Subscription(securityUniqueId, getMarketDataSenderFactory(), getLkvStoreProvider());
+          subscription = new Subscription(securityUniqueId, getMarketDataSenderFactory(), getLkvStoreProvider(), getDistributionPipeline());
           subscription.createDistributor(distributionSpec, persistent);
           securityUniqueId2NewSubscription.put(subscription.getSecurityUniqueId(), subscription);
           securityUniqueId2SpecFromClient.put(subscription.getSecurityUniqueId(), specFromClient);
@@ -580,7 +834,7 @@ public abstract class StandardLiveDataServer implements LiveDataServer, Lifecycl
       throw e;
 
     } finally {
-      _subscriptionLock.unlock();
+      subscriptionLock.unlock();
     }
 
     //notify that subscription data structure is completely built
@@ -677,7 +931,7 @@ public abstract class StandardLiveDataServer implements LiveDataServer, Lifecycl
     }
 
     s_logger.debug("Need to actually snapshot {}", snapshotsToActuallyDo);
-    Map<String, FudgeMsg> snapshots = doSnapshot(snapshotsToActuallyDo);
+    Map<String, FudgeMsg> snapshots = doShardedSnapshot(snapshotsToActuallyDo);
     for (Map.Entry<String, FudgeMsg> snapshotEntry : snapshots.entrySet()) {
       String securityUniqueId = snapshotEntry.getKey();
       FudgeMsg msg = snapshotEntry.getValue();
@@ -701,6 +955,47 @@ public abstract class StandardLiveDataServer implements LiveDataServer, Lifecycl
     return responses;
   }
 
+  /**
+   * Requests snapshots from the underlying market data API. If there is a subscription executor, one request is
+   * made for the unique IDs in each shard in parallel; otherwise a single request is made.
+   *
+   * @param uniqueIds  the unique IDs to snapshot, not null
+   * @return the snapshot results, not null
+   */
+  private Map<String, FudgeMsg> doShardedSnapshot(Collection<String> uniqueIds) {
+    ExecutorService executor = getSubscriptionExecutor();
+    if (executor == null) {
+      return doSnapshot(uniqueIds);
+    }
+    Map<Integer, Collection<String>> shard2UniqueIds = new HashMap<Integer, Collection<String>>();
+    for (String uniqueId : uniqueIds) {
+      Integer shard = getSubscriptionShard(uniqueId);
+      Collection<String> shardUniqueIds = shard2UniqueIds.get(shard);
+      if (shardUniqueIds == null) {
+        shardUniqueIds = new ArrayList<String>();
+        shard2UniqueIds.put(shard, shardUniqueIds);
+      }
+      shardUniqueIds.add(uniqueId);
+    }
+    if (shard2UniqueIds.size() <= 1) {
+      return doSnapshot(uniqueIds);
+    }
+    List<Callable<Map<String, FudgeMsg>>> tasks = new ArrayList<Callable<Map<String, FudgeMsg>>>(shard2UniqueIds.size());
+    for (final Collection<String> shardUniqueIds : shard2UniqueIds.values()) {
+      tasks.add(new Callable<Map<String, FudgeMsg>>() {
+        @Override
+        public Map<String, FudgeMsg> call() {
+          return doSnapshot(shardUniqueIds);
+        }
+      });
+    }
+    Map<String, FudgeMsg> snapshots = new HashMap<String, FudgeMsg>();
+    for (Map<String, FudgeMsg> shardSnapshots : invokeShardTasks(executor, tasks)) {
+      snapshots.putAll(shardSnapshots);
+    }
+    return snapshots;
+  }
+
   /**
    * If you want to force a snapshot - i.e., always a request a snapshot from the underlying API -
    * you can use this method.
@@ -868,7 +1163,8 @@ public abstract class StandardLiveDataServer implements LiveDataServer, Lifecycl
 
     boolean actuallyUnsubscribed = false;
 
-    _subscriptionLock.lock();
+    Lock subscriptionLock = _subscriptionLocks[getSubscriptionShard(subscription.getSecurityUniqueId())];
+    subscriptionLock.lock();
     try {
       if (isSubscribedTo(subscription)) {
 
@@ -908,7 +1204,7 @@ public abstract class StandardLiveDataServer implements LiveDataServer, Lifecycl
       }
 
     } finally {
-      _subscriptionLock.unlock();
+      subscriptionLock.unlock();
     }
 
     return actuallyUnsubscribed;
@@ -929,7 +1225,8 @@ public abstract class StandardLiveDataServer implements LiveDataServer, Lifecycl
   public boolean stopDistributor(MarketDataDistributor distributor) {
     ArgumentChecker.notNull(distributor, "Distributor");
 
-    _subscriptionLock.lock();
+    Lock subscriptionLock = _subscriptionLocks[getSubscriptionShard(distributor.getSubscription().getSecurityUniqueId())];
+    subscriptionLock.lock();
     try {
       MarketDataDistributor realDistributor = getMarketDataDistributor(distributor.getDistributionSpec());
       if (realDistributor != distributor) {
@@ -948,7 +1245,7 @@ public abstract class StandardLiveDataServer implements LiveDataServer, Lifecycl
       }
 
     } finally {
-      _subscriptionLock.unlock();
+      subscriptionLock.unlock();
     }
 
     return true;
@@ -959,16 +1256,11 @@ public abstract class StandardLiveDataServer implements LiveDataServer, Lifecycl
   }
 
   public boolean isSubscribedTo(LiveDataSpecification fullyQualifiedSpec) {
-    _subscriptionLock.lock();
-    try {
-      return _fullyQualifiedSpec2Distributor.containsKey(fullyQualifiedSpec);
-    } finally {
-      _subscriptionLock.unlock();
-    }
+    return _fullyQualifiedSpec2Distributor.containsKey(fullyQualifiedSpec);
   }
 
   public boolean isSubscribedTo(Subscription subscription) {
-    return getSubscriptions().contains(subscription);
+    return _currentlyActiveSubscriptions.contains(subscription);
   }
 
   public void liveDataReceived(String securityUniqueId,
@@ -1022,13 +1314,29 @@ public abstract class StandardLiveDataServer implements LiveDataServer, Lifecycl
     return _performanceCounter == null ? -1.0 : _performanceCounter.getHitsPerSecond();
   }
 
+  /**
+   * @return The approximate rate of ticks sent to clients over the last minute
+   */
+  public double getNumTicksDistributedPerSecondOverLastMinute() {
+    return getDistributionPipeline().getTicksDistributedPerSecond();
+  }
+
+  /**
+   * @return The mean time in milliseconds from receipt of a tick to the completion of its send
+   */
+  public double getMeanTickLatencyMillis() {
+    return getDistributionPipeline().getMeanLatencyMillis();
+  }
+
+  /**
+   * @return The longest time in milliseconds from receipt of a tick to the completion of its send
+   */
+  public double getMaxTickLatencyMillis() {
+    return getDistributionPipeline().getMaxLatencyMillis();
+  }
+
   public Set<Subscription> getSubscriptions() {
-    _subscriptionLock.lock();
-    try {
-      return new HashSet<Subscription>(_currentlyActiveSubscriptions);
-    } finally {
-      _subscriptionLock.unlock();
-    }
+    return new HashSet<Subscription>(_currentlyActiveSubscriptions);
   }
 
   public Subscription getSubscription(LiveDataSpecification fullyQualifiedSpec) {
@@ -1054,25 +1362,15 @@ public abstract class StandardLiveDataServer implements LiveDataServer, Lifecycl
 
   public Map<LiveDataSpecification, MarketDataDistributor> getMarketDataDistributors(Collection<LiveDataSpecification> fullyQualifiedSpecs) {
     //NOTE: this is not much (if any) faster here, but for subclasses it can be
-    _subscriptionLock.lock();
-    try {
-      HashMap<LiveDataSpecification, MarketDataDistributor> hashMap = new HashMap<LiveDataSpecification, MarketDataDistributor>();
-      for (LiveDataSpecification liveDataSpecification : fullyQualifiedSpecs) {
-        hashMap.put(liveDataSpecification, _fullyQualifiedSpec2Distributor.get(liveDataSpecification));
-      }
-      return hashMap;
-    } finally {
-      _subscriptionLock.unlock();
+    HashMap<LiveDataSpecification, MarketDataDistributor> hashMap = new HashMap<LiveDataSpecification, MarketDataDistributor>();
+    for (LiveDataSpecification liveDataSpecification : fullyQualifiedSpecs) {
+      hashMap.put(liveDataSpecification, _fullyQualifiedSpec2Distributor.get(liveDataSpecification));
     }
+    return hashMap;
   }
 
   public MarketDataDistributor getMarketDataDistributor(LiveDataSpecification fullyQualifiedSpec) {
-    _subscriptionLock.lock();
-    try {
-      return _fullyQualifiedSpec2Distributor.get(fullyQualifiedSpec);
-    } finally {
-      _subscriptionLock.unlock();
-    }
+    return _fullyQualifiedSpec2Distributor.get(fullyQualifiedSpec);
   }
 
   /**
@@ -5,8 +5,10 @@
  */
 package com.opengamma.livedata.server;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.locks.ReentrantLock;
@@ -16,6 +18,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.opengamma.livedata.LiveDataSpecification;
+import com.opengamma.livedata.server.distribution.MarketDataDistributionPipeline;
 import com.opengamma.livedata.server.distribution.MarketDataDistributor;
 import com.opengamma.livedata.server.distribution.MarketDataSenderFactory;
 import com.opengamma.util.ArgumentChecker;
@@ -37,7 +40,11 @@ public class Subscription {
    */
   private final MarketDataSenderFactory _marketDataSenderFactory;
   /**
-   * A lock to enforce that live data is handled in a serialized and thus safe & ordered fashion.
+   * Controls how distributors pass data to their senders.
+   */
+  private final MarketDataDistributionPipeline _distributionPipeline;
+  /**
+   * A lock to enforce that live data is queued to the distributors in a serialized and thus safe & ordered fashion.
    */
   private final ReentrantLock _liveDataSerializationLock = new ReentrantLock();
   /** 
@@ -73,11 +80,26 @@ public class Subscription {
    * @param lkvStoreProvider  the factory for last known value stores, not null
    */
   public Subscription(String securityUniqueId, MarketDataSenderFactory marketDataSenderFactory, LastKnownValueStoreProvider lkvStoreProvider) {
+    this(securityUniqueId, marketDataSenderFactory, lkvStoreProvider, new MarketDataDistributionPipeline());
+  }
+
+  /**
+   * Creates an instance.
+   * 
+   * @param securityUniqueId  the security unique ID, specific to the market data provider, not null
+   * @param marketDataSenderFactory  the factory that will create market data distributors for this subscription, not null
+   * @param lkvStoreProvider  the factory for last known value stores, not null
+   * @param distributionPipeline  controls how distributors pass data to their senders, not null
+   */
+  public Subscription(String securityUniqueId, MarketDataSenderFactory marketDataSenderFactory, LastKnownValueStoreProvider lkvStoreProvider,
+      MarketDataDistributionPipeline distributionPipeline) {
     ArgumentChecker.notNull(securityUniqueId, "securityUniqueId");
     ArgumentChecker.notNull(marketDataSenderFactory, "marketDataSenderFactory");
     ArgumentChecker.notNull(lkvStoreProvider, "lkvStoreProvider");
+    ArgumentChecker.notNull(distributionPipeline, "distributionPipeline");
     _securityUniqueId = securityUniqueId;
     _marketDataSenderFactory = marketDataSenderFactory;
+    _distributionPipeline = distributionPipeline;
     _creationTime = new Date();
     _lkvStoreProvider = lkvStoreProvider;
   }
@@ -128,6 +150,15 @@ public class Subscription {
     return _marketDataSenderFactory;
   }
 
+  /**
+   * Gets the pipeline configuration used by distributors.
+   * 
+   * @return the pipeline, not null
+   */
+  public MarketDataDistributionPipeline getDistributionPipeline() {
+    return _distributionPipeline;
+  }
+
   //-------------------------------------------------------------------------
   /**
    * Gets the set of distribution specifications.
@@ -230,29 +261,46 @@ public class Subscription {
   }
 
   /*package*/ void initialSnapshotReceived(FudgeMsg liveDataFields) {
+    final List<MarketDataDistributor> distributors = new ArrayList<MarketDataDistributor>(getDistributors());
+    final long[] sequences = new long[distributors.size()];
     _liveDataSerializationLock.lock();
     try {
       _history.liveDataReceived(liveDataFields);
 
-      for (MarketDataDistributor distributor : getDistributors()) {
-        distributor.updateFieldHistory(liveDataFields);
+      int i = 0;
+      for (MarketDataDistributor distributor : distributors) {
+        sequences[i++] = distributor.enqueueFieldHistory(liveDataFields);
       }
     } finally {
       _liveDataSerializationLock.unlock();
     }
+    for (MarketDataDistributor distributor : distributors) {
+      distributor.processPendingTicks();
+    }
+    // Another thread may be normalizing for a distributor; the snapshot must be in its last known values before
+    // the caller goes on to read them
+    for (int i = 0; i < sequences.length; i++) {
+      distributors.get(i).awaitFieldHistory(sequences[i]);
+    }
   }
 
   /*package*/ void liveDataReceived(FudgeMsg liveDataFields) {
+    final Collection<MarketDataDistributor> distributors = getDistributors();
     _liveDataSerializationLock.lock();
     try {
       _history.liveDataReceived(liveDataFields);
 
-      for (MarketDataDistributor distributor : getDistributors()) {
-        distributor.distributeLiveData(liveDataFields);
+      for (MarketDataDistributor distributor : distributors) {
+        distributor.enqueueLiveData(liveDataFields);
       }
     } finally {
       _liveDataSerializationLock.unlock();
     }
+    // Each distributor normalizes and sends its queued data in the order it was queued above, so this can be
+    // done outside the lock without one thread's slow send holding up other threads queuing ticks
+    for (MarketDataDistributor distributor : distributors) {
+      distributor.processPendingTicks();
+    }
   }
 
   //-------------------------------------------------------------------------
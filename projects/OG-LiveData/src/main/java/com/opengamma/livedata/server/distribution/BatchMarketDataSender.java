@@ -0,0 +1,27 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.livedata.server.distribution;
+
+import java.util.List;
+
+import com.opengamma.livedata.LiveDataValueUpdateBean;
+
+/**
+ * A {@link MarketDataSender} which can send several updates more cheaply than sending each in turn.
+ */
+public interface BatchMarketDataSender extends MarketDataSender {
+
+  /**
+   * Sends market data to clients.
+   * <p>
+   * The updates must be delivered in order, exactly as if each had been passed to
+   * {@link #sendMarketData(LiveDataValueUpdateBean)}.
+   *
+   * @param data  the updates to send, in sequence number order, not null
+   */
+  void sendMarketData(List<LiveDataValueUpdateBean> data);
+
+}
@@ -5,11 +5,15 @@
  */
 package com.opengamma.livedata.server.distribution;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.Semaphore;
 
 import javax.jms.BytesMessage;
+import javax.jms.Destination;
 import javax.jms.JMSException;
 import javax.jms.Message;
+import javax.jms.MessageProducer;
 import javax.jms.Session;
 
 import org.fudgemsg.FudgeContext;
@@ -17,7 +21,10 @@ import org.fudgemsg.FudgeMsg;
 import org.fudgemsg.mapping.FudgeSerializer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.jms.core.JmsTemplate;
 import org.springframework.jms.core.MessageCreator;
+import org.springframework.jms.core.SessionCallback;
+import org.springframework.jms.support.JmsUtils;
 
 import com.opengamma.livedata.LiveDataValueUpdateBean;
 import com.opengamma.livedata.LiveDataValueUpdateBeanFudgeBuilder;
@@ -32,8 +39,10 @@ import com.opengamma.util.jms.JmsConnector;
  * When the sender loses connection to JMS, it starts building a 
  * cumulative delta of changes. This cumulative delta is published when 
  * the sender reconnects.
+ * <p>
+ * A batch of updates is sent through a single JMS session and producer.
  */
-public class JmsSender implements MarketDataSender {
+public class JmsSender implements BatchMarketDataSender {
 
   /** Logger. */
   private static final Logger s_logger = LoggerFactory.getLogger(JmsSender.class);
@@ -108,18 +117,56 @@ public class JmsSender implements MarketDataSender {
     }
   }
 
-  private void send() {
-    DistributionSpecification distributionSpec = getDistributor().getDistributionSpec();
-    
+  @Override
+  public void sendMarketData(List<LiveDataValueUpdateBean> data) {
+    _lock.acquireUninterruptibly();
+    try {
+      if (_interrupted) {
+        for (LiveDataValueUpdateBean update : data) {
+          _cumulativeDelta.liveDataReceived(update.getFields());
+          _lastSequenceNumber = update.getSequenceNumber();
+        }
+        s_logger.debug("{}: Interrupted - not sending {} messages", this, data.size());
+        return;
+      }
+      final List<byte[]> messages = new ArrayList<byte[]>(data.size());
+      for (LiveDataValueUpdateBean update : data) {
+        _cumulativeDelta.liveDataReceived(update.getFields());
+        _lastSequenceNumber = update.getSequenceNumber();
+        if (messages.isEmpty()) {
+          // The first message carries anything accumulated while the transport was interrupted
+          messages.add(toByteArray(createCumulativeUpdate()));
+        } else {
+          s_logger.debug("{}: Sending Live Data update {}", this, update);
+          messages.add(toByteArray(update));
+        }
+      }
+      send(messages);
+      // The delta now holds every field in the batch, so is only cleared once the whole batch is sent
+      _cumulativeDelta.clear();
+    } finally {
+      _lock.release();
+    }
+  }
+
+  private LiveDataValueUpdateBean createCumulativeUpdate() {
     LiveDataValueUpdateBean liveDataValueUpdateBean = new LiveDataValueUpdateBean(
         _lastSequenceNumber, 
-        distributionSpec.getFullyQualifiedLiveDataSpecification(), 
+        getDistributor().getDistributionSpec().getFullyQualifiedLiveDataSpecification(), 
         _cumulativeDelta.getLastKnownValues());
     s_logger.debug("{}: Sending Live Data update {}", this, liveDataValueUpdateBean);
-    
+    return liveDataValueUpdateBean;
+  }
+
+  private byte[] toByteArray(LiveDataValueUpdateBean liveDataValueUpdateBean) {
     FudgeMsg fudgeMsg = LiveDataValueUpdateBeanFudgeBuilder.toFudgeMsg(new FudgeSerializer(_fudgeContext), liveDataValueUpdateBean);
+    return _fudgeContext.toByteArray(fudgeMsg);
+  }
+
+  private void send() {
+    DistributionSpecification distributionSpec = getDistributor().getDistributionSpec();
     String destinationName = distributionSpec.getJmsTopic();
-    final byte[] bytes = _fudgeContext.toByteArray(fudgeMsg);
+    final byte[] bytes = toByteArray(createCumulativeUpdate());
     
     _jmsConnector.getJmsTemplateTopic().send(destinationName, new MessageCreator() {
       @Override
@@ -134,6 +181,33 @@ public class JmsSender implements MarketDataSender {
     _cumulativeDelta.clear();
   }
 
+  private void send(final List<byte[]> messages) {
+    final String destinationName = getDistributor().getDistributionSpec().getJmsTopic();
+    final JmsTemplate jmsTemplate = _jmsConnector.getJmsTemplateTopic();
+    jmsTemplate.execute(new SessionCallback<Object>() {
+      @Override
+      public Object doInJms(Session session) throws JMSException {
+        final Destination destination = jmsTemplate.getDestinationResolver().resolveDestinationName(session, destinationName, jmsTemplate.isPubSubDomain());
+        final MessageProducer producer = session.createProducer(destination);
+        try {
+          for (byte[] bytes : messages) {
+            BytesMessage bytesMessage = session.createBytesMessage();
+            bytesMessage.writeBytes(bytes);
+            if (jmsTemplate.isExplicitQosEnabled()) {
+              producer.send(bytesMessage, jmsTemplate.getDeliveryMode(), jmsTemplate.getPriority(), jmsTemplate.getTimeToLive());
+            } else {
+              producer.send(bytesMessage);
+            }
+          }
+          JmsUtils.commitIfNecessary(session);
+        } finally {
+          JmsUtils.closeMessageProducer(producer);
+        }
+        return null;
+      }
+    }, true);
+  }
+
   //-------------------------------------------------------------------------
   /**
    * Checks if the sender is interrupted.
@@ -0,0 +1,212 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.livedata.server.distribution;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.PerformanceCounter;
+
+/**
+ * Controls how {@link MarketDataDistributor} instances pass normalized ticks to their senders, and gathers statistics
+ * about the ticks passing through them.
+ * <p>
+ * Each distributor normalizes its ticks on one thread at a time, in the order they were received, and hands the
+ * results to its senders through a bounded ring buffer. Without an executor the sends are made by the normalizing
+ * thread once it runs out of ticks or fills a batch. With an executor the sends are made from the executor, so a slow
+ * transport does not hold up normalization. Either way, the ticks which have accumulated in the buffer when the senders
+ * run are passed to them together, up to the maximum batch size.
+ * <p>
+ * One instance is normally shared by all the distributors of a server. This class is thread-safe.
+ */
+public class MarketDataDistributionPipeline {
+
+  /**
+   * The default capacity of each distributor's ring buffer.
+   */
+  public static final int DEFAULT_BUFFER_SIZE = 1024;
+  /**
+   * The default maximum number of ticks passed to the senders at once.
+   */
+  public static final int DEFAULT_MAX_BATCH_SIZE = 64;
+  /**
+   * The number of sets of statistics that sends are divided between; a power of two.
+   */
+  private static final int STATISTICS_STRIPES = 16;
+
+  /**
+   * The executor to send from, null to send from the normalizing thread.
+   */
+  private final Executor _sendExecutor;
+  /**
+   * The capacity of each distributor's ring buffer.
+   */
+  private final int _bufferSize;
+  /**
+   * The maximum number of ticks passed to the senders at once.
+   */
+  private final int _maxBatchSize;
+  /**
+   * The statistics, divided by sending thread so that distributors sending at the same time rarely update the same
+   * counters. They are combined when read.
+   */
+  private final TickStatistics[] _statistics = new TickStatistics[STATISTICS_STRIPES];
+
+  /**
+   * Statistics about the ticks sent by a subset of the sending threads.
+   */
+  private static final class TickStatistics {
+    /**
+     * The number of ticks sent.
+     */
+    private final AtomicLong _numTicksDistributed = new AtomicLong();
+    /**
+     * The total time, in nanoseconds, from receipt of each tick sent to the completion of its send.
+     */
+    private final AtomicLong _totalLatencyNanos = new AtomicLong();
+    /**
+     * The longest time, in nanoseconds, from receipt of a tick to the completion of its send.
+     */
+    private final AtomicLong _maxLatencyNanos = new AtomicLong();
+    /**
+     * The rate at which ticks are sent.
+     */
+    private final PerformanceCounter _performanceCounter = new PerformanceCounter(60);
+  }
+
+  /**
+   * Creates a pipeline which sends from the normalizing thread.
+   */
+  public MarketDataDistributionPipeline() {
+    this(null, DEFAULT_BUFFER_SIZE, DEFAULT_MAX_BATCH_SIZE);
+  }
+
+  /**
+   * Creates a pipeline.
+   *
+   * @param sendExecutor  the executor to send from, null to send from the normalizing thread
+   * @param bufferSize  the capacity of each distributor's ring buffer, rounded up to a power of two
+   * @param maxBatchSize  the maximum number of ticks passed to the senders at once
+   */
+  public MarketDataDistributionPipeline(final Executor sendExecutor, final int bufferSize, final int maxBatchSize) {
+    ArgumentChecker.notNegativeOrZero(bufferSize, "bufferSize");
+    ArgumentChecker.notNegativeOrZero(maxBatchSize, "maxBatchSize");
+    _sendExecutor = sendExecutor;
+    _bufferSize = bufferSize;
+    _maxBatchSize = maxBatchSize;
+    for (int i = 0; i < STATISTICS_STRIPES; i++) {
+      _statistics[i] = new TickStatistics();
+    }
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Gets the executor that sends are made from.
+   *
+   * @return the executor, null if sends are made from the normalizing thread
+   */
+  public Executor getSendExecutor() {
+    return _sendExecutor;
+  }
+
+  /**
+   * Gets the capacity of each distributor's ring buffer.
+   *
+   * @return the requested capacity
+   */
+  public int getBufferSize() {
+    return _bufferSize;
+  }
+
+  /**
+   * Gets the maximum number of ticks passed to the senders at once.
+   *
+   * @return the maximum batch size
+   */
+  public int getMaxBatchSize() {
+    return _maxBatchSize;
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Records the sending of a batch of ticks.
+   *
+   * @param count  the number of ticks sent
+   * @param totalLatencyNanos  the sum of the latencies of the ticks sent
+   * @param maxLatencyNanos  the longest latency of the ticks sent
+   */
+  /* package */void ticksDistributed(final int count, final long totalLatencyNanos, final long maxLatencyNanos) {
+    final TickStatistics statistics = _statistics[(int) Thread.currentThread().getId() & (STATISTICS_STRIPES - 1)];
+    statistics._numTicksDistributed.addAndGet(count);
+    statistics._totalLatencyNanos.addAndGet(totalLatencyNanos);
+    long max = statistics._maxLatencyNanos.get();
+    while ((maxLatencyNanos > max) && !statistics._maxLatencyNanos.compareAndSet(max, maxLatencyNanos)) {
+      max = statistics._maxLatencyNanos.get();
+    }
+    statistics._performanceCounter.hitMultiple(count);
+  }
+
+  /**
+   * Gets the number of ticks sent.
+   *
+   * @return the tick count
+   */
+  public long getNumTicksDistributed() {
+    long count = 0;
+    for (TickStatistics statistics : _statistics) {
+      count += statistics._numTicksDistributed.get();
+    }
+    return count;
+  }
+
+  /**
+   * Gets the approximate rate at which ticks have been sent over the last minute.
+   *
+   * @return the ticks per second
+   */
+  public double getTicksDistributedPerSecond() {
+    double rate = 0;
+    for (TickStatistics statistics : _statistics) {
+      rate += statistics._performanceCounter.getHitsPerSecond();
+    }
+    return rate;
+  }
+
+  /**
+   * Gets the mean time from receipt of a tick to the completion of its send.
+   *
+   * @return the mean latency in milliseconds, zero if no ticks have been sent
+   */
+  public double getMeanLatencyMillis() {
+    long count = 0;
+    long totalLatencyNanos = 0;
+    for (TickStatistics statistics : _statistics) {
+      count += statistics._numTicksDistributed.get();
+      totalLatencyNanos += statistics._totalLatencyNanos.get();
+    }
+    return (count > 0) ? (double) totalLatencyNanos / count / 1e6 : 0;
+  }
+
+  /**
+   * Gets the longest time from receipt of a tick to the completion of its send.
+   *
+   * @return the maximum latency in milliseconds, zero if no ticks have been sent
+   */
+  public double getMaxLatencyMillis() {
+    long maxLatencyNanos = 0;
+    for (TickStatistics statistics : _statistics) {
+      maxLatencyNanos = Math.max(maxLatencyNanos, statistics._maxLatencyNanos.get());
+    }
+    return (double) maxLatencyNanos / 1e6;
+  }
+
+  @Override
+  public String toString() {
+    return "MarketDataDistributionPipeline[executor=" + _sendExecutor + ", bufferSize=" + _bufferSize + ", maxBatchSize=" + _maxBatchSize + "]";
+  }
+
+}
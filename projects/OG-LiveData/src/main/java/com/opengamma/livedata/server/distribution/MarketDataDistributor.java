@@ -5,7 +5,14 @@
  */
 package com.opengamma.livedata.server.distribution;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.fudgemsg.FudgeMsg;
@@ -23,12 +30,54 @@ import com.opengamma.util.ArgumentChecker;
 
 /**
  * Distributes market data to clients and keeps a history of what has been distributed.
+ * <p>
+ * Ticks pass through two stages without holding a monitor. Ticks are first queued, then normalized by whichever
+ * thread wins the right to do so, one thread at a time and in the order they were queued. Each normalized update is
+ * then handed to the senders through a ring buffer, as described by the subscription's
+ * {@link MarketDataDistributionPipeline}, so that a slow send need not hold up the normalization of later ticks.
  */
 public class MarketDataDistributor {
 
   /** Logger. */
   private static final Logger s_logger = LoggerFactory.getLogger(MarketDataDistributor.class);
 
+  /**
+   * A tick waiting to be normalized.
+   */
+  private static final class PendingTick {
+
+    private final FudgeMsg _fields;
+    private final boolean _distribute;
+    private final long _receivedNanos;
+    /**
+     * The field history sequence number, or zero if this tick is distributed.
+     */
+    private final long _historySequence;
+
+    public PendingTick(final FudgeMsg fields, final boolean distribute, final long historySequence) {
+      _fields = fields;
+      _distribute = distribute;
+      _receivedNanos = System.nanoTime();
+      _historySequence = historySequence;
+    }
+
+  }
+
+  /**
+   * A normalized update waiting to be sent.
+   */
+  private static final class PendingUpdate {
+
+    private final LiveDataValueUpdateBean _data;
+    private final long _receivedNanos;
+
+    public PendingUpdate(final LiveDataValueUpdateBean data, final long receivedNanos) {
+      _data = data;
+      _receivedNanos = receivedNanos;
+    }
+
+  }
+
   /**
    * What data should be distributed, how and where.
    */
@@ -56,9 +105,59 @@ public class MarketDataDistributor {
    */
   private final FieldHistoryStore _history = new FieldHistoryStore();
   /**
-   * Stores how many normalized messages have been sent to clients.  
+   * Stores how many normalized messages have been released to the senders. This is the sequence number of the
+   * next message.
    */
   private final AtomicLong _numMessagesSent = new AtomicLong(0);
+  /**
+   * The sending stage configuration and statistics.
+   */
+  private final MarketDataDistributionPipeline _pipeline;
+  /**
+   * Ticks waiting to be normalized.
+   */
+  private final Queue<PendingTick> _pendingTicks = new ConcurrentLinkedQueue<PendingTick>();
+  /**
+   * Set while a thread is normalizing; that thread is the only writer to the history, last known values and
+   * sequence number, and the only producer for {@link #_pendingUpdates}.
+   */
+  private final AtomicBoolean _normalizing = new AtomicBoolean();
+  /**
+   * The sequence number of the last field history update queued. Only written by the thread queuing ticks.
+   */
+  private final AtomicLong _historyQueued = new AtomicLong();
+  /**
+   * The sequence number of the last field history update applied. Guarded by its own monitor, which is notified
+   * whenever it changes.
+   */
+  private final AtomicLong _historyApplied = new AtomicLong();
+  /**
+   * Normalized updates waiting to be sent.
+   */
+  private final RingBuffer<PendingUpdate> _pendingUpdates;
+  /**
+   * Set while a thread is sending; that thread is the only consumer of {@link #_pendingUpdates}.
+   */
+  private final AtomicBoolean _sending = new AtomicBoolean();
+  /**
+   * Set while a send task is waiting to run on the pipeline's executor.
+   */
+  private final AtomicBoolean _sendScheduled = new AtomicBoolean();
+  /**
+   * The batch being sent. Only used by the sending thread.
+   */
+  private final List<PendingUpdate> _sendBatch = new ArrayList<PendingUpdate>();
+  /**
+   * Sends the pending updates from the pipeline's executor.
+   */
+  private final Runnable _sendTask = new Runnable() {
+    @Override
+    public void run() {
+      // Clear the flag first so that an update published from now on schedules another task
+      _sendScheduled.set(false);
+      sendPendingUpdates();
+    }
+  };
   /**
    * Whether this distributor is persistent. 
    * <p>
@@ -98,6 +197,8 @@ public class MarketDataDistributor {
     
     _distributionSpec = distributionSpec;
     _subscription = subscription;
+    _pipeline = subscription.getDistributionPipeline();
+    _pendingUpdates = new RingBuffer<PendingUpdate>(_pipeline.getBufferSize());
     _marketDataSenders = marketDataSenderFactory.create(this);
     if (_marketDataSenders == null) {
       throw new IllegalStateException("Null returned by " + marketDataSenderFactory);
@@ -167,18 +268,15 @@ public class MarketDataDistributor {
         lastKnownValues);
   }
 
-  private synchronized FudgeMsg getLastKnownValues() {
+  private FudgeMsg getLastKnownValues() {
     // NOTE kirk 2012-07-12 -- I have to assume the sentinel is important
     // so I'm preserving it even though _lastKnownValues will never be null now.
+    // The store only ever gains fields, so once it is not empty it stays that way
     if (_lastKnownValues.isEmpty()) {
       return null;
     }
     return _lastKnownValues.getFields();
   }
-  
-  private synchronized void updateLastKnownValues(FudgeMsg lastKnownValue) {
-    _lastKnownValues.updateFields(lastKnownValue);
-  }
 
   //-------------------------------------------------------------------------
   /**
@@ -195,34 +293,134 @@ public class MarketDataDistributor {
 
   /**
    * Updates field history without sending any market data to field receivers. 
+   * <p>
+   * If another thread is already normalizing data for this topic, this waits for that thread to apply the update
+   * so that the new values are visible from {@link #getSnapshot} when this method returns.
    * 
    * @param msg Unnormalized market data from underlying market data API.
    */
-  public synchronized void updateFieldHistory(FudgeMsg msg) {
-    FudgeMsg normalizedMsg = normalize(msg);
-    if (normalizedMsg != null) {
-      updateLastKnownValues(normalizedMsg);
-    }
+  public void updateFieldHistory(FudgeMsg msg) {
+    final long sequence = enqueueFieldHistory(msg);
+    processPendingTicks();
+    awaitFieldHistory(sequence);
   }
 
   /**
    * Sends normalized market data to field receivers. 
    * <p>
-   * Serialized to ensure a well-defined distribution order for this topic.
+   * The data is sent in a well-defined distribution order for this topic, but if another thread is already
+   * distributing data for this topic the send may happen on that thread after this method returns.
    * 
    * @param liveDataFields Unnormalized market data from underlying market data API.
    */
-  public synchronized void distributeLiveData(FudgeMsg liveDataFields) {
+  public void distributeLiveData(FudgeMsg liveDataFields) {
+    enqueueLiveData(liveDataFields);
+    processPendingTicks();
+  }
+
+  /**
+   * Queues market data for distribution by {@link #processPendingTicks}.
+   * <p>
+   * Data is distributed in the order it is queued, so the caller must serialize calls to this method.
+   * 
+   * @param liveDataFields Unnormalized market data from underlying market data API.
+   */
+  public void enqueueLiveData(FudgeMsg liveDataFields) {
+    _pendingTicks.add(new PendingTick(liveDataFields, true, 0L));
+  }
+
+  /**
+   * Queues market data for {@link #processPendingTicks} to update the field history with, without sending anything.
+   * <p>
+   * The caller must serialize calls to this method and {@link #enqueueLiveData}.
+   * 
+   * @param msg Unnormalized market data from underlying market data API.
+   * @return the sequence number to pass to {@link #awaitFieldHistory} to wait for the update to be applied
+   */
+  public long enqueueFieldHistory(FudgeMsg msg) {
+    final long sequence = _historyQueued.incrementAndGet();
+    _pendingTicks.add(new PendingTick(msg, false, sequence));
+    return sequence;
+  }
+
+  /**
+   * Waits for a field history update queued by {@link #enqueueFieldHistory} to be applied. The caller must have
+   * called {@link #processPendingTicks} after queuing the update.
+   * <p>
+   * The update counts as applied even if it could not be normalized. If the thread is interrupted the wait
+   * continues and the interrupt status is restored afterwards.
+   * 
+   * @param sequence  the sequence number returned by {@link #enqueueFieldHistory}
+   */
+  public void awaitFieldHistory(final long sequence) {
+    boolean interrupted = false;
+    synchronized (_historyApplied) {
+      while (_historyApplied.get() < sequence) {
+        try {
+          _historyApplied.wait();
+        } catch (InterruptedException e) {
+          interrupted = true;
+        }
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Normalizes and sends any queued market data.
+   * <p>
+   * If another thread is already doing this, the queued data is left for that thread and this method returns at once.
+   */
+  public void processPendingTicks() {
+    do {
+      if (!_normalizing.compareAndSet(false, true)) {
+        // The other thread checks the queue again after releasing the flag, so will see anything we queued
+        return;
+      }
+      try {
+        PendingTick tick = _pendingTicks.poll();
+        while (tick != null) {
+          try {
+            processTick(tick);
+          } finally {
+            if (!tick._distribute) {
+              historyApplied(tick._historySequence);
+            }
+          }
+          tick = _pendingTicks.poll();
+        }
+      } finally {
+        _normalizing.set(false);
+      }
+    } while (!_pendingTicks.isEmpty());
+    if ((_pipeline.getSendExecutor() == null) && !_pendingUpdates.isEmpty()) {
+      sendPendingUpdates();
+    }
+  }
+
+  private void historyApplied(final long sequence) {
+    synchronized (_historyApplied) {
+      _historyApplied.set(sequence);
+      _historyApplied.notifyAll();
+    }
+  }
+
+  private void processTick(final PendingTick tick) {
     FudgeMsg normalizedMsg;
     try {
-      normalizedMsg = normalize(liveDataFields);
+      normalizedMsg = normalize(tick._fields);
     } catch (RuntimeException e) {
-      s_logger.error("Normalizing " + liveDataFields + " to " + this + " failed.", e);
+      s_logger.error("Normalizing " + tick._fields + " to " + this + " failed.", e);
       return;
     }
     
     if (normalizedMsg != null) {
-      updateLastKnownValues(normalizedMsg);
+      _lastKnownValues.updateFields(normalizedMsg);
+      if (!tick._distribute) {
+        return;
+      }
       
       LiveDataValueUpdateBean data = new LiveDataValueUpdateBean(
           getNumMessagesSent(), // 0-based as it should be
@@ -230,20 +428,101 @@ public class MarketDataDistributor {
           normalizedMsg);
       
       s_logger.debug("{}: Sending Live Data update {}", this, data);
+      publish(new PendingUpdate(data, tick._receivedNanos));
       
-      for (MarketDataSender sender : _marketDataSenders) {
+      _numMessagesSent.incrementAndGet();
+    
+    } else if (tick._distribute) {
+      s_logger.debug("{}: Not sending Live Data update (message extinguished).", this);
+    }
+  }
+
+  /**
+   * Hands an update to the sending stage. Only called by the normalizing thread.
+   * 
+   * @param update  the update to send, not null
+   */
+  private void publish(final PendingUpdate update) {
+    while (!_pendingUpdates.offer(update)) {
+      // The buffer is full; send from this thread unless another thread is already sending
+      if (!sendPendingUpdates()) {
+        Thread.yield();
+      }
+    }
+    final Executor executor = _pipeline.getSendExecutor();
+    if (executor != null) {
+      if (_sendScheduled.compareAndSet(false, true)) {
+        try {
+          executor.execute(_sendTask);
+        } catch (RejectedExecutionException e) {
+          // The executor is shutting down or saturated; send from this thread so the update isn't stranded
+          s_logger.debug("Send task rejected by {}; sending inline", executor);
+          _sendScheduled.set(false);
+          sendPendingUpdates();
+        }
+      }
+    } else if (_pendingUpdates.size() >= _pipeline.getMaxBatchSize()) {
+      sendPendingUpdates();
+    }
+  }
+
+  /**
+   * Sends the updates in the ring buffer, in batches, until it is empty.
+   * 
+   * @return false if another thread was already sending, true otherwise
+   */
+  private boolean sendPendingUpdates() {
+    do {
+      if (!_sending.compareAndSet(false, true)) {
+        return false;
+      }
+      try {
+        while (_pendingUpdates.drainTo(_sendBatch, _pipeline.getMaxBatchSize()) > 0) {
+          send(_sendBatch);
+          _sendBatch.clear();
+        }
+      } finally {
+        _sendBatch.clear();
+        _sending.set(false);
+      }
+      // An update published after the last drain but before the flag was released would otherwise be stranded
+    } while (!_pendingUpdates.isEmpty());
+    return true;
+  }
+
+  private void send(final List<PendingUpdate> batch) {
+    final List<LiveDataValueUpdateBean> data = new ArrayList<LiveDataValueUpdateBean>(batch.size());
+    for (PendingUpdate update : batch) {
+      data.add(update._data);
+    }
+    for (MarketDataSender sender : _marketDataSenders) {
+      if ((data.size() > 1) && (sender instanceof BatchMarketDataSender)) {
         try {
-          sender.sendMarketData(data);
+          ((BatchMarketDataSender) sender).sendMarketData(data);
         } catch (RuntimeException e) {
           s_logger.error(sender + " failed", e);
         }
+      } else {
+        for (LiveDataValueUpdateBean update : data) {
+          try {
+            sender.sendMarketData(update);
+          } catch (RuntimeException e) {
+            s_logger.error(sender + " failed", e);
+          }
+        }
+      }
+    }
+    final long now = System.nanoTime();
+    long totalLatency = 0;
+    long maxLatency = 0;
+    for (PendingUpdate update : batch) {
+      final long latency = now - update._receivedNanos;
+      totalLatency += latency;
+      if (latency > maxLatency) {
+        maxLatency = latency;
       }
-      
-      _numMessagesSent.incrementAndGet();
-    
-    } else {
-      s_logger.debug("{}: Not sending Live Data update (message extinguished).", this);
     }
+    _pipeline.ticksDistributed(batch.size(), totalLatency, maxLatency);
   }
 
   //-------------------------------------------------------------------------
@@ -0,0 +1,95 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.livedata.server.distribution;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded buffer passing items from one producing thread to one consuming thread without locking.
+ * <p>
+ * Only one thread may offer at a time and only one thread may poll at a time, although these may be different threads
+ * at different times provided each handover establishes a happens-before relationship, for example through an atomic
+ * flag. The producer and consumer may run concurrently.
+ *
+ * @param <T> the item type
+ */
+/* package */final class RingBuffer<T> {
+
+  private final Object[] _items;
+  private final int _mask;
+  /**
+   * The position of the next item to poll. Only written by the consumer.
+   */
+  private final AtomicLong _head = new AtomicLong();
+  /**
+   * The position of the next item to offer. Only written by the producer.
+   */
+  private final AtomicLong _tail = new AtomicLong();
+
+  /**
+   * Creates a buffer.
+   *
+   * @param capacity  the minimum capacity, rounded up to a power of two, must be positive
+   */
+  public RingBuffer(final int capacity) {
+    final int size = (capacity > 1) ? Integer.highestOneBit(capacity - 1) << 1 : 1;
+    _items = new Object[size];
+    _mask = size - 1;
+  }
+
+  public int getCapacity() {
+    return _items.length;
+  }
+
+  /**
+   * Adds an item to the buffer. Must only be called by the producer.
+   *
+   * @param item  the item to add, not null
+   * @return true if the item was added, false if the buffer is full
+   */
+  public boolean offer(final T item) {
+    final long tail = _tail.get();
+    if (tail - _head.get() >= _items.length) {
+      return false;
+    }
+    _items[(int) tail & _mask] = item;
+    // The ordered write publishes the item to the consumer
+    _tail.lazySet(tail + 1);
+    return true;
+  }
+
+  /**
+   * Removes items from the buffer. Must only be called by the consumer.
+   *
+   * @param target  the collection to add the removed items to, not null
+   * @param maxItems  the maximum number of items to remove
+   * @return the number of items removed
+   */
+  @SuppressWarnings("unchecked")
+  public int drainTo(final Collection<? super T> target, final int maxItems) {
+    final long head = _head.get();
+    final int count = (int) Math.min(_tail.get() - head, maxItems);
+    for (int i = 0; i < count; i++) {
+      final int index = (int) (head + i) & _mask;
+      target.add((T) _items[index]);
+      _items[index] = null;
+    }
+    if (count > 0) {
+      _head.lazySet(head + count);
+    }
+    return count;
+  }
+
+  public int size() {
+    return (int) (_tail.get() - _head.get());
+  }
+
+  public boolean isEmpty() {
+    return _tail.get() == _head.get();
+  }
+
+}
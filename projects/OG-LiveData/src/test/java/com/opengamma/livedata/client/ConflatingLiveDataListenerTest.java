@@ -0,0 +1,136 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.livedata.client;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertNull;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import org.fudgemsg.FudgeContext;
+import org.fudgemsg.MutableFudgeMsg;
+import org.testng.annotations.Test;
+
+import com.opengamma.id.ExternalId;
+import com.opengamma.livedata.LiveDataSpecification;
+import com.opengamma.livedata.LiveDataValueUpdate;
+import com.opengamma.livedata.LiveDataValueUpdateBean;
+import com.opengamma.livedata.test.CollectingLiveDataListener;
+import com.opengamma.util.fudgemsg.OpenGammaFudgeContext;
+
+/**
+ * Test.
+ */
+@Test(groups = "unit")
+public class ConflatingLiveDataListenerTest {
+
+  private final FudgeContext _fudgeContext = OpenGammaFudgeContext.getInstance();
+  private final LiveDataSpecification _spec1 = new LiveDataSpecification("foo", ExternalId.of("bar", "1"));
+  private final LiveDataSpecification _spec2 = new LiveDataSpecification("foo", ExternalId.of("bar", "2"));
+
+  private LiveDataValueUpdateBean update(long sequenceNumber, LiveDataSpecification spec, String field, double value) {
+    MutableFudgeMsg msg = _fudgeContext.newMessage();
+    msg.add(field, value);
+    return new LiveDataValueUpdateBean(sequenceNumber, spec, msg);
+  }
+
+  public void latestUpdateOnly() {
+    CollectingLiveDataListener underlying = new CollectingLiveDataListener();
+    ConflatingLiveDataListener listener = new ConflatingLiveDataListener(underlying, false);
+    listener.valueUpdate(update(0, _spec1, "BID", 1.0));
+    listener.valueUpdate(update(1, _spec1, "ASK", 2.0));
+    listener.valueUpdate(update(0, _spec2, "BID", 3.0));
+    assertTrue(underlying.getValueUpdates().isEmpty());
+    assertEquals(2, listener.getNumPendingUpdates());
+    assertEquals(2, listener.deliverPendingUpdates());
+    List<LiveDataValueUpdate> updates = underlying.getValueUpdates();
+    assertEquals(2, updates.size());
+    LiveDataValueUpdate update = updates.get(0).getSpecification().equals(_spec1) ? updates.get(0) : updates.get(1);
+    assertEquals(1, update.getSequenceNumber());
+    assertNull(update.getFields().getDouble("BID"));
+    assertEquals(2.0, update.getFields().getDouble("ASK"), 0d);
+    assertEquals(3, listener.getNumUpdatesReceived());
+    assertEquals(2, listener.getNumUpdatesDelivered());
+    assertEquals(1.5, listener.getConflationRatio(), 1e-9);
+    assertEquals(0, listener.deliverPendingUpdates());
+  }
+
+  public void mergeFields() {
+    CollectingLiveDataListener underlying = new CollectingLiveDataListener();
+    ConflatingLiveDataListener listener = new ConflatingLiveDataListener(underlying, true);
+    listener.valueUpdate(update(0, _spec1, "BID", 1.0));
+    listener.valueUpdate(update(1, _spec1, "ASK", 2.0));
+    listener.valueUpdate(update(2, _spec1, "BID", 1.5));
+    List<LiveDataValueUpdate> updates = listener.pollPendingUpdates();
+    assertEquals(1, updates.size());
+    assertEquals(2, updates.get(0).getSequenceNumber());
+    assertEquals(1.5, updates.get(0).getFields().getDouble("BID"), 0d);
+    assertEquals(2.0, updates.get(0).getFields().getDouble("ASK"), 0d);
+    assertEquals(3.0, listener.getConflationRatio(), 1e-9);
+    assertTrue(underlying.getValueUpdates().isEmpty());
+  }
+
+  public void stoppedSubscriptionDiscarded() {
+    CollectingLiveDataListener underlying = new CollectingLiveDataListener();
+    ConflatingLiveDataListener listener = new ConflatingLiveDataListener(underlying, false);
+    listener.valueUpdate(update(0, _spec1, "BID", 1.0));
+    listener.subscriptionStopped(_spec1);
+    assertEquals(0, listener.deliverPendingUpdates());
+    assertEquals(1, underlying.getStoppedSubscriptions().size());
+  }
+
+  public void continuousUpdates() {
+    final ConflatingLiveDataListener[] listener = new ConflatingLiveDataListener[1];
+    CollectingLiveDataListener underlying = new CollectingLiveDataListener() {
+      @Override
+      public synchronized void valueUpdate(LiveDataValueUpdate valueUpdate) {
+        super.valueUpdate(valueUpdate);
+        // Another update arrives every time one is delivered
+        listener[0].valueUpdate(update(valueUpdate.getSequenceNumber() + 1, _spec1, "BID", 1.0));
+      }
+    };
+    listener[0] = new ConflatingLiveDataListener(underlying, false);
+    listener[0].valueUpdate(update(0, _spec1, "BID", 1.0));
+    assertEquals(1, listener[0].deliverPendingUpdates());
+    assertEquals(1, listener[0].getNumPendingUpdates());
+    assertEquals(1, listener[0].deliverPendingUpdates());
+    assertEquals(2, underlying.getValueUpdates().size());
+  }
+
+  public void executorRescheduled() {
+    final LinkedList<Runnable> tasks = new LinkedList<Runnable>();
+    final Executor executor = new Executor() {
+      @Override
+      public void execute(Runnable command) {
+        tasks.add(command);
+      }
+    };
+    final ConflatingLiveDataListener[] listener = new ConflatingLiveDataListener[1];
+    CollectingLiveDataListener underlying = new CollectingLiveDataListener() {
+      @Override
+      public synchronized void valueUpdate(LiveDataValueUpdate valueUpdate) {
+        super.valueUpdate(valueUpdate);
+        if (valueUpdate.getSequenceNumber() == 0) {
+          listener[0].valueUpdate(update(1, _spec1, "BID", 2.0));
+        }
+      }
+    };
+    listener[0] = new ConflatingLiveDataListener(underlying, false, executor);
+    listener[0].valueUpdate(update(0, _spec1, "BID", 1.0));
+    assertEquals(1, tasks.size());
+    tasks.removeFirst().run();
+    assertEquals(1, underlying.getValueUpdates().size());
+    // The update which arrived during delivery is left for a new task rather than delivered in a loop
+    assertEquals(1, tasks.size());
+    tasks.removeFirst().run();
+    assertEquals(2, underlying.getValueUpdates().size());
+    assertTrue(tasks.isEmpty());
+  }
+
+}
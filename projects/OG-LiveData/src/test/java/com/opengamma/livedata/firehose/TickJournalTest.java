@@ -0,0 +1,231 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+
+package com.opengamma.livedata.firehose;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.fudgemsg.FudgeContext;
+import org.fudgemsg.FudgeMsg;
+import org.fudgemsg.MutableFudgeMsg;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.opengamma.util.fudgemsg.OpenGammaFudgeContext;
+
+/**
+ * Test.
+ */
+@Test(groups = "unit")
+public class TickJournalTest {
+
+  private static final long START = 1330000000000000000L;
+
+  private final FudgeContext _fudgeContext = OpenGammaFudgeContext.getInstance();
+  private File _file;
+
+  @BeforeMethod
+  public void createFile() throws IOException {
+    _file = File.createTempFile("ticks", ".journal");
+  }
+
+  @AfterMethod
+  public void deleteFile() {
+    _file.delete();
+  }
+
+  private FudgeMsg message(final int i) {
+    final MutableFudgeMsg msg = _fudgeContext.newMessage();
+    msg.add("BID", 100d + (i % 7) * 0.01);
+    msg.add("ASK", 100.05d + (i % 5) * 0.01);
+    msg.add("VOLUME", 1000L + i);
+    if (i % 3 != 0) {
+      msg.add("EXCHANGE", "XLON");
+    }
+    return msg;
+  }
+
+  private void writeTicks(final TickJournalWriter writer, final int count) {
+    for (int i = 0; i < count; i++) {
+      writer.append(START + i * 1000L, "T" + (i % 10), message(i));
+    }
+  }
+
+  private static void assertMessage(final FudgeMsg actual, final FudgeMsg expected) {
+    assertEquals(actual.getNumFields(), expected.getNumFields());
+    assertEquals(actual.getDouble("BID"), expected.getDouble("BID"));
+    assertEquals(actual.getDouble("ASK"), expected.getDouble("ASK"));
+    assertEquals(actual.getLong("VOLUME"), expected.getLong("VOLUME"));
+    assertEquals(actual.getString("EXCHANGE"), expected.getString("EXCHANGE"));
+  }
+
+  public void roundTrip() {
+    final TickJournalWriter writer = new TickJournalWriter(_file, _fudgeContext, 16);
+    writeTicks(writer, 1000);
+    writer.close();
+    final TickJournalReader reader = new TickJournalReader(_file, _fudgeContext);
+    assertTrue(reader.isIndexed());
+    assertEquals(reader.getNumTicks(), 1000);
+    assertEquals(reader.getNumTicks("T3"), 100);
+    assertEquals(reader.getTickers().size(), 10);
+    assertEquals(reader.getNumBlocks(), 63);
+    assertEquals(reader.getStartTime(), START);
+    assertEquals(reader.getEndTime(), START + 999000L);
+    final TickJournalReader.Cursor cursor = reader.openCursor();
+    for (int i = 0; i < 1000; i++) {
+      assertTrue(cursor.next());
+      assertEquals(cursor.getTime(), START + i * 1000L);
+      assertEquals(cursor.getTicker(), "T" + (i % 10));
+      assertMessage(cursor.getMessage(), message(i));
+    }
+    assertFalse(cursor.next());
+  }
+
+  public void repeatedFields() {
+    final TickJournalWriter writer = new TickJournalWriter(_file, _fudgeContext);
+    final MutableFudgeMsg msg = _fudgeContext.newMessage();
+    msg.add("BID", 1d);
+    msg.add("BID", 2d);
+    writer.append(START, "A", msg);
+    writer.append(START + 1, "A", message(1));
+    writer.close();
+    final TickJournalReader.Cursor cursor = new TickJournalReader(_file, _fudgeContext).openCursor();
+    assertTrue(cursor.next());
+    assertEquals(cursor.getMessage().getAllByName("BID").size(), 2);
+    assertTrue(cursor.next());
+    assertMessage(cursor.getMessage(), message(1));
+    assertFalse(cursor.next());
+  }
+
+  public void filtered() {
+    final TickJournalWriter writer = new TickJournalWriter(_file, _fudgeContext, 16);
+    writeTicks(writer, 1000);
+    writer.close();
+    final TickJournalReader reader = new TickJournalReader(_file, _fudgeContext);
+    final TickJournalReader.Cursor cursor = reader.openCursor(START + 500000L, START + 599000L, Collections.singleton("T3"));
+    for (int i = 503; i < 600; i += 10) {
+      assertTrue(cursor.next());
+      assertEquals(cursor.getTime(), START + i * 1000L);
+      assertEquals(cursor.getTicker(), "T3");
+      assertMessage(cursor.getMessage(), message(i));
+    }
+    assertFalse(cursor.next());
+  }
+
+  public void unclosed() {
+    final TickJournalWriter writer = new TickJournalWriter(_file, _fudgeContext, 16);
+    writeTicks(writer, 100);
+    final TickJournalReader reader = new TickJournalReader(_file, _fudgeContext);
+    assertFalse(reader.isIndexed());
+    assertEquals(reader.getNumTicks(), 100);
+    assertEquals(reader.getEndTime(), START + 99000L);
+    final TickJournalReader.Cursor cursor = reader.openCursor();
+    int count = 0;
+    while (cursor.next()) {
+      assertMessage(cursor.getMessage(), message(count++));
+    }
+    assertEquals(count, 100);
+    writer.close();
+  }
+
+  public void replay() {
+    final TickJournalWriter writer = new TickJournalWriter(_file, _fudgeContext);
+    writeTicks(writer, 1000);
+    writer.close();
+    final List<String> tickers = new ArrayList<String>();
+    final TickJournalReplayer replayer = new TickJournalReplayer(new TickJournalReader(_file, _fudgeContext), new FireHoseLiveData.ValueUpdateListener() {
+      @Override
+      public void updatedValue(final String uniqueId, final FudgeMsg msg) {
+        tickers.add(uniqueId);
+      }
+    });
+    replayer.setSpeed(TickJournalReplayer.AS_FAST_AS_POSSIBLE);
+    assertEquals(replayer.replay(), 1000);
+    assertEquals(tickers.get(999), "T9");
+    // The ticks span a millisecond, so a hundredth of the speed takes at least 100ms
+    tickers.clear();
+    replayer.setSpeed(0.01);
+    final long start = System.nanoTime();
+    assertEquals(replayer.replay(), 1000);
+    assertTrue(System.nanoTime() - start >= 99000000L);
+    assertEquals(replayer.getNumTicksReplayed(), 1000);
+  }
+
+  public void chunked() throws IOException {
+    final TickJournalWriter writer = new TickJournalWriter(_file, _fudgeContext, 16);
+    writeTicks(writer, 1000);
+    writer.close();
+    assertTrue(_file.length() > 10000);
+    TickJournalReader reader = new TickJournalReader(_file, _fudgeContext, 1000);
+    assertReadsAll(reader);
+    TickJournalReader.Cursor cursor = reader.openCursor(START + 500000L, START + 599000L, Collections.singleton("T3"));
+    for (int i = 503; i < 600; i += 10) {
+      assertTrue(cursor.next());
+      assertMessage(cursor.getMessage(), message(i));
+    }
+    assertFalse(cursor.next());
+    // Clearing the index position makes the reader rebuild the index by scanning across the chunks
+    final RandomAccessFile raf = new RandomAccessFile(_file, "rw");
+    try {
+      raf.seek(TickJournalFormat.HEADER_INDEX_POSITION);
+      raf.writeLong(0L);
+    } finally {
+      raf.close();
+    }
+    reader = new TickJournalReader(_file, _fudgeContext, 1000);
+    assertFalse(reader.isIndexed());
+    assertEquals(reader.getNumBlocks(), 63);
+    assertReadsAll(reader);
+  }
+
+  private void assertReadsAll(final TickJournalReader reader) {
+    assertEquals(reader.getNumTicks(), 1000);
+    final TickJournalReader.Cursor cursor = reader.openCursor();
+    for (int i = 0; i < 1000; i++) {
+      assertTrue(cursor.next());
+      assertEquals(cursor.getTime(), START + i * 1000L);
+      assertMessage(cursor.getMessage(), message(i));
+    }
+    assertFalse(cursor.next());
+  }
+
+  public void unchangedMessageReused() {
+    final TickJournalWriter writer = new TickJournalWriter(_file, _fudgeContext);
+    writer.append(START, "A", message(1));
+    writer.append(START + 1, "A", message(1));
+    writer.append(START + 2, "A", message(2));
+    writer.close();
+    final TickJournalReader.Cursor cursor = new TickJournalReader(_file, _fudgeContext).openCursor();
+    assertTrue(cursor.next());
+    final FudgeMsg first = cursor.getMessage();
+    assertTrue(cursor.next());
+    assertSame(cursor.getMessage(), first);
+    assertTrue(cursor.next());
+    assertMessage(cursor.getMessage(), message(2));
+    assertFalse(cursor.next());
+  }
+
+  public void empty() {
+    new TickJournalWriter(_file, _fudgeContext).close();
+    final TickJournalReader reader = new TickJournalReader(_file, _fudgeContext);
+    assertEquals(reader.getNumTicks(), 0);
+    assertEquals(reader.getStartTime(), Long.MIN_VALUE);
+    assertFalse(reader.openCursor().next());
+    assertTrue(reader.getTickers().isEmpty());
+  }
+
+}
@@ -0,0 +1,127 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.livedata.normalization;
+
+import static org.testng.AssertJUnit.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.fudgemsg.FudgeField;
+import org.fudgemsg.FudgeMsg;
+import org.fudgemsg.MutableFudgeMsg;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.annotations.Test;
+
+import com.opengamma.core.value.MarketDataRequirementNames;
+import com.opengamma.livedata.server.FieldHistoryStore;
+import com.opengamma.util.fudgemsg.OpenGammaFudgeContext;
+
+/**
+ * Measures the cost per tick of normalizing with the standard rule sets, with the field rules fused and applied in
+ * turn.
+ */
+@Test(groups = {"unit", "slow"})
+public class NormalizationRuleSetPerformanceTest {
+
+  private static final Logger s_logger = LoggerFactory.getLogger(NormalizationRuleSetPerformanceTest.class);
+
+  private static final int WARMUP_TICKS = 100000;
+  private static final int TICKS = 500000;
+
+  private static final String[] RAW_FIELDS = new String[] {"BID", "ASK", "LAST_PRICE", "PX_SETTLE", "VOLUME", "OPT_IMPLIED_VOLATILITY_BID_RT",
+    "OPT_IMPLIED_VOLATILITY_ASK_RT", "OPT_IMPLIED_VOLATILITY_LAST_RT", "OPT_IMPLIED_VOLATILITY_MID_RT", "YLD_CNV_MID", "YLD_YTM_MID", "PX_DIRTY_MID"};
+  private static final String[] NORMALIZED_FIELDS = new String[] {MarketDataRequirementNames.BID, MarketDataRequirementNames.ASK,
+    MarketDataRequirementNames.LAST, MarketDataRequirementNames.SETTLE_PRICE, MarketDataRequirementNames.VOLUME, MarketDataRequirementNames.BID_IMPLIED_VOLATILITY,
+    MarketDataRequirementNames.ASK_IMPLIED_VOLATILITY, MarketDataRequirementNames.LAST_IMPLIED_VOLATILITY, MarketDataRequirementNames.MID_IMPLIED_VOLATILITY,
+    MarketDataRequirementNames.YIELD_CONVENTION_MID, MarketDataRequirementNames.YIELD_YIELD_TO_MATURITY_MID, MarketDataRequirementNames.DIRTY_PRICE_MID};
+
+  /**
+   * Creates the OpenGamma rule set as configured for a Bloomberg server, without the security specific rules.
+   */
+  private static NormalizationRuleSet getOpenGammaRuleSet() {
+    final List<NormalizationRule> rules = new ArrayList<NormalizationRule>();
+    rules.add(new FieldFilter(RAW_FIELDS));
+    for (int i = 0; i < RAW_FIELDS.length; i++) {
+      rules.add(new FieldNameChange(RAW_FIELDS[i], NORMALIZED_FIELDS[i]));
+    }
+    rules.add(new MarketValueCalculator());
+    rules.add(new ImpliedVolatilityCalculator());
+    rules.add(new FieldHistoryUpdater());
+    rules.add(new FieldFilter(
+        MarketDataRequirementNames.MARKET_VALUE,
+        MarketDataRequirementNames.SETTLE_PRICE,
+        MarketDataRequirementNames.VOLUME,
+        MarketDataRequirementNames.IMPLIED_VOLATILITY,
+        MarketDataRequirementNames.YIELD_CONVENTION_MID,
+        MarketDataRequirementNames.YIELD_YIELD_TO_MATURITY_MID,
+        MarketDataRequirementNames.DIRTY_PRICE_MID));
+    rules.add(new RequiredFieldFilter(MarketDataRequirementNames.MARKET_VALUE));
+    return new NormalizationRuleSet(StandardRules.getOpenGammaRuleSetId(), "", rules);
+  }
+
+  private static FudgeMsg[] createTicks() {
+    final FudgeMsg[] ticks = new FudgeMsg[256];
+    for (int i = 0; i < ticks.length; i++) {
+      final MutableFudgeMsg msg = OpenGammaFudgeContext.getInstance().newMessage();
+      msg.add("BID", 100d + i * 0.01);
+      msg.add("ASK", 100.02d + i * 0.01);
+      msg.add("LAST_PRICE", 100.01d + i * 0.01);
+      msg.add("VOLUME", 1000L + i);
+      msg.add("EXCH_CODE", "LN");
+      msg.add("TIME", "12:00:00");
+      msg.add("BID_SIZE", 500);
+      msg.add("ASK_SIZE", 700);
+      msg.add("RT_PX_CHG_PCT_1D", 0.5d);
+      msg.add("EVT_TRADE_CONDITION_CODE_RT", "XT");
+      ticks[i] = msg;
+    }
+    return ticks;
+  }
+
+  private static long normalize(final NormalizationRuleSet ruleSet, final FudgeMsg[] ticks, final int count, final boolean fused) {
+    final FieldHistoryStore history = new FieldHistoryStore();
+    final long start = System.nanoTime();
+    for (int i = 0; i < count; i++) {
+      final FudgeMsg tick = ticks[i & (ticks.length - 1)];
+      if (fused) {
+        ruleSet.getNormalizedMessage(tick, "123", history);
+      } else {
+        ruleSet.getNormalizedMessageInTurn(tick, "123", history);
+      }
+    }
+    return System.nanoTime() - start;
+  }
+
+  private static void benchmark(final NormalizationRuleSet ruleSet) {
+    final FudgeMsg[] ticks = createTicks();
+    for (FudgeMsg tick : ticks) {
+      final List<FudgeField> expected = ruleSet.getNormalizedMessageInTurn(tick, "123", new FieldHistoryStore()).getAllFields();
+      final List<FudgeField> actual = ruleSet.getNormalizedMessage(tick, "123", new FieldHistoryStore()).getAllFields();
+      assertEquals(expected.size(), actual.size());
+      for (int i = 0; i < expected.size(); i++) {
+        assertEquals(expected.get(i).getName(), actual.get(i).getName());
+        assertEquals(expected.get(i).getValue(), actual.get(i).getValue());
+      }
+    }
+    normalize(ruleSet, ticks, WARMUP_TICKS, false);
+    normalize(ruleSet, ticks, WARMUP_TICKS, true);
+    final long inTurn = normalize(ruleSet, ticks, TICKS, false);
+    final long fused = normalize(ruleSet, ticks, TICKS, true);
+    s_logger.info("Rule set {}: {}ns per tick applying rules in turn, {}ns per tick with field rules fused",
+        new Object[] {ruleSet.getId(), inTurn / TICKS, fused / TICKS});
+  }
+
+  public void noNormalization() {
+    benchmark(StandardRules.getNoNormalization());
+  }
+
+  public void openGamma() {
+    benchmark(getOpenGammaRuleSet());
+  }
+
+}
@@ -5,12 +5,18 @@
  */
 package com.opengamma.livedata.normalization;
 
+import static org.testng.AssertJUnit.assertEquals;
 import static org.testng.AssertJUnit.assertNull;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import org.fudgemsg.FudgeField;
 import org.fudgemsg.FudgeMsg;
 import org.fudgemsg.MutableFudgeMsg;
 import org.testng.annotations.Test;
 
+import com.opengamma.core.value.MarketDataRequirementNames;
 import com.opengamma.livedata.server.FieldHistoryStore;
 import com.opengamma.util.fudgemsg.OpenGammaFudgeContext;
 
@@ -39,4 +45,98 @@ public class NormalizationRuleSetTest {
     assertNull(normalizedMsg);
   }
 
+  //-------------------------------------------------------------------------
+  private static List<String> describe(FudgeMsg msg) {
+    if (msg == null) {
+      return null;
+    }
+    List<String> fields = new ArrayList<String>();
+    for (FudgeField field : msg) {
+      fields.add(field.getName() + "/" + field.getOrdinal() + "/" + field.getType() + "/" + field.getValue());
+    }
+    return fields;
+  }
+
+  private static Object normalize(NormalizationRuleSet ruleSet, FudgeMsg msg, boolean fused) {
+    try {
+      if (fused) {
+        return describe(ruleSet.getNormalizedMessage(msg, "123", new FieldHistoryStore()));
+      } else {
+        return describe(ruleSet.getNormalizedMessageInTurn(msg, "123", new FieldHistoryStore()));
+      }
+    } catch (RuntimeException e) {
+      return e.getClass();
+    }
+  }
+
+  private static void assertFusedMatchesInTurn(NormalizationRuleSet ruleSet, FudgeMsg msg) {
+    assertEquals(normalize(ruleSet, msg, false), normalize(ruleSet, msg, true));
+  }
+
+  public void fusedRulesMatchRulesInTurn() {
+    NormalizationRuleSet ruleSet = new NormalizationRuleSet(
+        "Testing",
+        new FieldFilter("BID", "ASK", "LAST", "VOLUME", "Foo"),
+        new FieldNameChange("BID", "Bid"),
+        new UnitChange("ASK", 0.01),
+        new FieldNameChange("ASK", "Ask"),
+        new FieldNameChange("LAST", "Last"),
+        new UnitChange("Last", 10),
+        new RequiredFieldFilter("Bid"));
+    
+    MutableFudgeMsg msg = OpenGammaFudgeContext.getInstance().newMessage();
+    msg.add("LAST", 3.0);
+    msg.add("Foo", null, 7, "a");
+    msg.add("BID", 1.0);
+    msg.add("Baz", "b");
+    msg.add("ASK", 200);
+    msg.add("VOLUME", 1000L);
+    msg.add("Foo", "c");
+    msg.add(null, 1, "unnamed");
+    assertFusedMatchesInTurn(ruleSet, msg);
+    
+    // Renaming onto an existing field
+    msg.add("Bid", 5.0);
+    msg.add("BID", 6.0);
+    assertFusedMatchesInTurn(ruleSet, msg);
+    
+    // Multiplying a string
+    msg = OpenGammaFudgeContext.getInstance().newMessage();
+    msg.add("BID", 1.0);
+    msg.add("ASK", "x");
+    assertFusedMatchesInTurn(ruleSet, msg);
+    
+    // Rejected by the required field filter
+    msg = OpenGammaFudgeContext.getInstance().newMessage();
+    msg.add("ASK", 1.0);
+    assertNull(ruleSet.getNormalizedMessage(msg, "123", new FieldHistoryStore()));
+    
+    // Extinguished by the field filter
+    msg = OpenGammaFudgeContext.getInstance().newMessage();
+    msg.add("Baz", 1.0);
+    assertNull(ruleSet.getNormalizedMessage(msg, "123", new FieldHistoryStore()));
+  }
+
+  public void fusedRulesAroundOtherRules() {
+    NormalizationRuleSet ruleSet = new NormalizationRuleSet(
+        "Testing",
+        new FieldNameChange("BID", MarketDataRequirementNames.BID),
+        new FieldNameChange("ASK", MarketDataRequirementNames.ASK),
+        new MarketValueCalculator(),
+        new FieldHistoryUpdater(),
+        new FieldFilter(MarketDataRequirementNames.MARKET_VALUE),
+        new RequiredFieldFilter(MarketDataRequirementNames.MARKET_VALUE));
+    
+    MutableFudgeMsg msg = OpenGammaFudgeContext.getInstance().newMessage();
+    msg.add("BID", 1.0);
+    msg.add("ASK", 1.02);
+    msg.add("Foo", "x");
+    assertFusedMatchesInTurn(ruleSet, msg);
+    FieldHistoryStore history = new FieldHistoryStore();
+    FudgeMsg normalizedMsg = ruleSet.getNormalizedMessage(msg, "123", history);
+    assertEquals(1, normalizedMsg.getNumFields());
+    assertEquals(1.01, normalizedMsg.getDouble(MarketDataRequirementNames.MARKET_VALUE), 1e-9);
+    assertEquals(1.0, history.getLastKnownValues().getDouble(MarketDataRequirementNames.BID), 0d);
+  }
+
 }
@@ -7,10 +7,12 @@ package com.opengamma.livedata.server;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.fudgemsg.FudgeMsg;
 
@@ -26,10 +28,11 @@ import com.opengamma.util.fudgemsg.OpenGammaFudgeContext;
 public class MockLiveDataServer extends StandardLiveDataServer {
 
   private final ExternalScheme _domain;
-  private final List<String> _subscriptions = new ArrayList<String>();
-  private final List<String> _unsubscriptions = new ArrayList<String>();
+  private final List<String> _subscriptions = Collections.synchronizedList(new ArrayList<String>());
+  private final List<String> _unsubscriptions = Collections.synchronizedList(new ArrayList<String>());
   private volatile int _numConnections; // = 0;
   private volatile int _numDisconnections; // = 0;
+  private final AtomicInteger _numSubscribeCalls = new AtomicInteger();
   private final Map<String, FudgeMsg> _uniqueId2MarketData;
 
   public MockLiveDataServer(ExternalScheme domain) {
@@ -56,6 +59,7 @@ public class MockLiveDataServer extends StandardLiveDataServer {
 
   @Override
   protected Map<String, Object> doSubscribe(Collection<String> uniqueIds) {
+    _numSubscribeCalls.incrementAndGet();
     Map<String, Object> returnValue = new HashMap<String, Object>();
     
     for (String uniqueId : uniqueIds) {
@@ -99,6 +103,10 @@ public class MockLiveDataServer extends StandardLiveDataServer {
     return _subscriptions;
   }
 
+  public int getNumSubscribeCalls() {
+    return _numSubscribeCalls.get();
+  }
+
   public List<String> getActualUnsubscriptions() {
     return _unsubscriptions;
   }
@@ -12,7 +12,13 @@ import static org.testng.AssertJUnit.assertNull;
 import static org.testng.AssertJUnit.assertSame;
 import static org.testng.AssertJUnit.assertTrue;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
@@ -224,4 +230,80 @@ public class MockLiveDataServerTest {
     assertFalse(_server.unsubscribe("testsub"));
   }
 
+  public void shardedBulkSubscription() {
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      _server.setSubscriptionExecutor(executor);
+      List<LiveDataSpecification> specs = new ArrayList<LiveDataSpecification>();
+      for (int i = 0; i < 1000; i++) {
+        specs.add(getSpec("bulk" + i));
+      }
+      Collection<LiveDataSubscriptionResponse> responses = _server.subscribe(specs, false);
+      assertEquals(1000, responses.size());
+      for (LiveDataSubscriptionResponse response : responses) {
+        assertEquals(LiveDataSubscriptionResult.SUCCESS, response.getSubscriptionResult());
+      }
+      assertEquals(1000, _server.getNumActiveSubscriptions());
+      assertEquals(1000, _server.getActualSubscriptions().size());
+      for (LiveDataSpecification spec : specs) {
+        assertTrue(_server.isSubscribedTo(spec));
+      }
+      assertTrue(_server.unsubscribe("bulk0"));
+      assertFalse(_server.isSubscribedTo(specs.get(0)));
+      assertEquals(999, _server.getNumActiveSubscriptions());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  public void sequentialBulkSubscription() {
+    List<LiveDataSpecification> specs = new ArrayList<LiveDataSpecification>();
+    for (int i = 0; i < 100; i++) {
+      specs.add(getSpec("bulk" + i));
+    }
+    Collection<LiveDataSubscriptionResponse> responses = _server.subscribe(specs, false);
+    assertEquals(100, responses.size());
+    // Without an executor the shards are still subscribed separately, one after another
+    assertTrue(_server.getNumSubscribeCalls() > 1);
+    assertEquals(100, _server.getNumActiveSubscriptions());
+  }
+
+  public void shardedBulkSubscriptionPartialFailure() {
+    _server = new MockLiveDataServer(_domain) {
+      @Override
+      protected void checkSubscribe(Set<String> uniqueIds) {
+        if (uniqueIds.contains("bad")) {
+          throw new IllegalStateException("bad");
+        }
+      }
+    };
+    _server.connect();
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      _server.setSubscriptionExecutor(executor);
+      List<LiveDataSpecification> specs = new ArrayList<LiveDataSpecification>();
+      specs.add(getSpec("bad"));
+      for (int i = 0; i < 100; i++) {
+        specs.add(getSpec("bulk" + i));
+      }
+      Collection<LiveDataSubscriptionResponse> responses = _server.subscribe(specs, true);
+      assertEquals(101, responses.size());
+      int failed = 0;
+      for (LiveDataSubscriptionResponse response : responses) {
+        if (response.getSubscriptionResult() == LiveDataSubscriptionResult.SUCCESS) {
+          assertTrue(_server.isSubscribedTo(response.getRequestedSpecification()));
+        } else {
+          assertEquals(LiveDataSubscriptionResult.INTERNAL_ERROR, response.getSubscriptionResult());
+          assertFalse(_server.isSubscribedTo(response.getRequestedSpecification()));
+          failed++;
+        }
+      }
+      assertTrue(failed >= 1);
+      assertFalse(_server.isSubscribedTo(getSpec("bad")));
+      assertEquals(101 - failed, _server.getNumActiveSubscriptions());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
 }
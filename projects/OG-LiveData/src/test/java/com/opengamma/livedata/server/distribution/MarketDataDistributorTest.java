@@ -6,6 +6,17 @@
 package com.opengamma.livedata.server.distribution;
 
 import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
 import org.fudgemsg.FudgeContext;
 import org.fudgemsg.MutableFudgeMsg;
@@ -13,6 +24,7 @@ import org.testng.annotations.Test;
 
 import com.opengamma.id.ExternalId;
 import com.opengamma.livedata.LiveDataValueUpdate;
+import com.opengamma.livedata.LiveDataValueUpdateBean;
 import com.opengamma.livedata.normalization.StandardRules;
 import com.opengamma.livedata.server.DistributionSpecification;
 import com.opengamma.livedata.server.MapLastKnownValueStoreProvider;
@@ -25,12 +37,16 @@ import com.opengamma.util.fudgemsg.OpenGammaFudgeContext;
 @Test(groups = "unit")
 public class MarketDataDistributorTest {
   public static MarketDataDistributor getTestDistributor(MarketDataSenderFactory factory) {
+    return getTestDistributor(factory, new MarketDataDistributionPipeline());
+  }
+
+  static MarketDataDistributor getTestDistributor(MarketDataSenderFactory factory, MarketDataDistributionPipeline pipeline) {
     MapLastKnownValueStoreProvider lkvStoreProvider = new MapLastKnownValueStoreProvider();
     return new MarketDataDistributor(new DistributionSpecification(
         ExternalId.of("RIC", "AAPL.O"),
         StandardRules.getNoNormalization(),
         "LiveData.Bloomberg.Equity.AAPL"),
-        new Subscription("", factory, lkvStoreProvider),
+        new Subscription("", factory, lkvStoreProvider, pipeline),
         factory,
         false,
         lkvStoreProvider);
@@ -55,4 +71,93 @@ public class MarketDataDistributorTest {
     assertEquals(1, mdd.getNumMessagesSent());
   }
 
+  private static class CollectingSender implements BatchMarketDataSender {
+
+    private final MarketDataDistributor _distributor;
+    private final List<LiveDataValueUpdateBean> _sent = Collections.synchronizedList(new ArrayList<LiveDataValueUpdateBean>());
+
+    public CollectingSender(MarketDataDistributor distributor) {
+      _distributor = distributor;
+    }
+
+    @Override
+    public MarketDataDistributor getDistributor() {
+      return _distributor;
+    }
+
+    @Override
+    public void sendMarketData(LiveDataValueUpdateBean data) {
+      _sent.add(data);
+    }
+
+    @Override
+    public void sendMarketData(List<LiveDataValueUpdateBean> data) {
+      _sent.addAll(data);
+    }
+
+  }
+
+  public void testPipelineOrdering() throws Exception {
+    final List<CollectingSender> senders = new ArrayList<CollectingSender>();
+    MarketDataSenderFactory factory = new MarketDataSenderFactory() {
+      @Override
+      public Collection<MarketDataSender> create(MarketDataDistributor distributor) {
+        CollectingSender sender = new CollectingSender(distributor);
+        senders.add(sender);
+        return Collections.<MarketDataSender>singleton(sender);
+      }
+    };
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      MarketDataDistributionPipeline pipeline = new MarketDataDistributionPipeline(executor, 4, 3);
+      MarketDataDistributor mdd = getTestDistributor(factory, pipeline);
+      for (int i = 0; i < 100; i++) {
+        MutableFudgeMsg msg = OpenGammaFudgeContext.getInstance().newMessage();
+        msg.add("foo", i);
+        mdd.distributeLiveData(msg);
+      }
+      assertEquals(100, mdd.getNumMessagesSent());
+      executor.shutdown();
+      assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+      List<LiveDataValueUpdateBean> sent = senders.get(0)._sent;
+      assertEquals(100, sent.size());
+      for (int i = 0; i < 100; i++) {
+        assertEquals(i, sent.get(i).getSequenceNumber());
+        assertEquals(i, sent.get(i).getFields().getInt("foo").intValue());
+      }
+      assertEquals(100, pipeline.getNumTicksDistributed());
+      assertTrue(pipeline.getMaxLatencyMillis() >= pipeline.getMeanLatencyMillis());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  public void testRejectedSendTask() {
+    final List<CollectingSender> senders = new ArrayList<CollectingSender>();
+    MarketDataSenderFactory factory = new MarketDataSenderFactory() {
+      @Override
+      public Collection<MarketDataSender> create(MarketDataDistributor distributor) {
+        CollectingSender sender = new CollectingSender(distributor);
+        senders.add(sender);
+        return Collections.<MarketDataSender>singleton(sender);
+      }
+    };
+    Executor executor = new Executor() {
+      @Override
+      public void execute(Runnable command) {
+        throw new RejectedExecutionException();
+      }
+    };
+    MarketDataDistributionPipeline pipeline = new MarketDataDistributionPipeline(executor, 4, 3);
+    MarketDataDistributor mdd = getTestDistributor(factory, pipeline);
+    for (int i = 0; i < 10; i++) {
+      MutableFudgeMsg msg = OpenGammaFudgeContext.getInstance().newMessage();
+      msg.add("foo", i);
+      mdd.distributeLiveData(msg);
+    }
+    // Every update is sent from the normalizing thread instead
+    assertEquals(10, senders.get(0)._sent.size());
+    assertEquals(10, pipeline.getNumTicksDistributed());
+  }
+
 }
@@ -0,0 +1,409 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.util.map;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * An immutable hash map which is updated by creating a new map that shares most of its structure with the original.
+ * <p>
+ * The map is a hash array mapped trie. Each level of the trie is indexed by five bits of the key hash and only holds
+ * the slots which are in use, so an update copies one small array at each of at most seven levels rather than the
+ * whole map. Keys with identical hashes are held together in a list at the bottom of the trie.
+ * <p>
+ * Any number of threads may read a map concurrently. Neither keys nor values may be null. The {@link Map} mutation
+ * methods are not supported; use {@link #with} and {@link #without} instead.
+ *
+ * @param <K> key type
+ * @param <V> value type
+ */
+public final class PersistentHashMap<K, V> extends AbstractMap<K, V> {
+
+  private static final int BITS = 5;
+  private static final int MASK = (1 << BITS) - 1;
+  /**
+   * The deepest a trie can be, including the collision level.
+   */
+  private static final int MAX_DEPTH = 32 / BITS + 2;
+
+  @SuppressWarnings("rawtypes")
+  private static final PersistentHashMap EMPTY = new PersistentHashMap(null, 0);
+
+  /**
+   * A level of the trie. Entries are held in pairs in the array, key then value; a null key means that the value is
+   * the node for the next level.
+   */
+  private abstract static class Node {
+
+    private final Object[] _array;
+
+    protected Node(final Object[] array) {
+      _array = array;
+    }
+
+    protected Object[] getArray() {
+      return _array;
+    }
+
+    public abstract Object find(int shift, int hash, Object key);
+
+    public abstract Node with(int shift, int hash, Object key, Object value, boolean[] added);
+
+    public abstract Node without(int shift, int hash, Object key);
+
+  }
+
+  /**
+   * A level of the trie indexed by part of the hash. Only the slots in the bitmap are present in the array.
+   */
+  private static final class BitmapNode extends Node {
+
+    private static final BitmapNode EMPTY_NODE = new BitmapNode(0, new Object[0]);
+
+    private final int _bitmap;
+
+    public BitmapNode(final int bitmap, final Object[] array) {
+      super(array);
+      _bitmap = bitmap;
+    }
+
+    private int index(final int bit) {
+      return Integer.bitCount(_bitmap & (bit - 1)) << 1;
+    }
+
+    @Override
+    public Object find(final int shift, final int hash, final Object key) {
+      final int bit = 1 << ((hash >>> shift) & MASK);
+      if ((_bitmap & bit) == 0) {
+        return null;
+      }
+      final Object[] array = getArray();
+      final int index = index(bit);
+      final Object k = array[index];
+      if (k == null) {
+        return ((Node) array[index + 1]).find(shift + BITS, hash, key);
+      }
+      return key.equals(k) ? array[index + 1] : null;
+    }
+
+    @Override
+    public Node with(final int shift, final int hash, final Object key, final Object value, final boolean[] added) {
+      final int bit = 1 << ((hash >>> shift) & MASK);
+      final Object[] array = getArray();
+      final int index = index(bit);
+      if ((_bitmap & bit) == 0) {
+        final Object[] newArray = new Object[array.length + 2];
+        System.arraycopy(array, 0, newArray, 0, index);
+        newArray[index] = key;
+        newArray[index + 1] = value;
+        System.arraycopy(array, index, newArray, index + 2, array.length - index);
+        added[0] = true;
+        return new BitmapNode(_bitmap | bit, newArray);
+      }
+      final Object k = array[index];
+      final Object v = array[index + 1];
+      if (k == null) {
+        final Node node = ((Node) v).with(shift + BITS, hash, key, value, added);
+        return (node == v) ? this : new BitmapNode(_bitmap, set(array, index + 1, node));
+      }
+      if (key.equals(k)) {
+        return (value == v) ? this : new BitmapNode(_bitmap, set(array, index + 1, value));
+      }
+      added[0] = true;
+      final Object[] newArray = set(array, index + 1, createNode(shift + BITS, k, v, hash, key, value));
+      newArray[index] = null;
+      return new BitmapNode(_bitmap, newArray);
+    }
+
+    @Override
+    public Node without(final int shift, final int hash, final Object key) {
+      final int bit = 1 << ((hash >>> shift) & MASK);
+      if ((_bitmap & bit) == 0) {
+        return this;
+      }
+      final Object[] array = getArray();
+      final int index = index(bit);
+      final Object k = array[index];
+      if (k == null) {
+        final Node v = (Node) array[index + 1];
+        final Node node = v.without(shift + BITS, hash, key);
+        if (node == v) {
+          return this;
+        }
+        if (node != null) {
+          return new BitmapNode(_bitmap, set(array, index + 1, node));
+        }
+      } else if (!key.equals(k)) {
+        return this;
+      }
+      if (_bitmap == bit) {
+        return null;
+      }
+      final Object[] newArray = new Object[array.length - 2];
+      System.arraycopy(array, 0, newArray, 0, index);
+      System.arraycopy(array, index + 2, newArray, index, array.length - index - 2);
+      return new BitmapNode(_bitmap ^ bit, newArray);
+    }
+
+  }
+
+  /**
+   * The bottom of the trie, holding keys with identical hashes.
+   */
+  private static final class CollisionNode extends Node {
+
+    private final int _hash;
+
+    public CollisionNode(final int hash, final Object[] array) {
+      super(array);
+      _hash = hash;
+    }
+
+    private int index(final Object key) {
+      final Object[] array = getArray();
+      for (int i = 0; i < array.length; i += 2) {
+        if (key.equals(array[i])) {
+          return i;
+        }
+      }
+      return -1;
+    }
+
+    @Override
+    public Object find(final int shift, final int hash, final Object key) {
+      final int index = index(key);
+      return (index >= 0) ? getArray()[index + 1] : null;
+    }
+
+    @Override
+    public Node with(final int shift, final int hash, final Object key, final Object value, final boolean[] added) {
+      if (hash != _hash) {
+        // Push this node down a level beneath a bitmap node that can hold both
+        final Node node = new BitmapNode(1 << ((_hash >>> shift) & MASK), new Object[] {null, this });
+        return node.with(shift, hash, key, value, added);
+      }
+      final Object[] array = getArray();
+      final int index = index(key);
+      if (index >= 0) {
+        return (array[index + 1] == value) ? this : new CollisionNode(_hash, set(array, index + 1, value));
+      }
+      final Object[] newArray = new Object[array.length + 2];
+      System.arraycopy(array, 0, newArray, 0, array.length);
+      newArray[array.length] = key;
+      newArray[array.length + 1] = value;
+      added[0] = true;
+      return new CollisionNode(_hash, newArray);
+    }
+
+    @Override
+    public Node without(final int shift, final int hash, final Object key) {
+      final int index = index(key);
+      if (index < 0) {
+        return this;
+      }
+      final Object[] array = getArray();
+      if (array.length == 2) {
+        return null;
+      }
+      final Object[] newArray = new Object[array.length - 2];
+      System.arraycopy(array, 0, newArray, 0, index);
+      System.arraycopy(array, index + 2, newArray, index, array.length - index - 2);
+      return new CollisionNode(_hash, newArray);
+    }
+
+  }
+
+  private static Object[] set(final Object[] array, final int index, final Object value) {
+    final Object[] newArray = array.clone();
+    newArray[index] = value;
+    return newArray;
+  }
+
+  private static Node createNode(final int shift, final Object key1, final Object value1, final int hash2, final Object key2, final Object value2) {
+    final int hash1 = hash(key1);
+    if (hash1 == hash2) {
+      return new CollisionNode(hash1, new Object[] {key1, value1, key2, value2 });
+    }
+    final boolean[] added = new boolean[1];
+    return BitmapNode.EMPTY_NODE.with(shift, hash1, key1, value1, added).with(shift, hash2, key2, value2, added);
+  }
+
+  private static int hash(final Object key) {
+    final int h = key.hashCode();
+    return h ^ (h >>> 16);
+  }
+
+  /**
+   * Walks the trie depth first.
+   */
+  private final class EntryIterator implements Iterator<Map.Entry<K, V>> {
+
+    private final Object[][] _arrays = new Object[MAX_DEPTH][];
+    private final int[] _positions = new int[MAX_DEPTH];
+    private int _depth;
+    private Map.Entry<K, V> _next;
+
+    public EntryIterator() {
+      if (_root != null) {
+        _arrays[0] = _root.getArray();
+      } else {
+        _depth = -1;
+      }
+      advance();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void advance() {
+      while (_depth >= 0) {
+        final Object[] array = _arrays[_depth];
+        final int position = _positions[_depth];
+        if (position >= array.length) {
+          _depth--;
+          continue;
+        }
+        _positions[_depth] = position + 2;
+        final Object key = array[position];
+        if (key == null) {
+          _depth++;
+          _arrays[_depth] = ((Node) array[position + 1]).getArray();
+          _positions[_depth] = 0;
+        } else {
+          _next = new AbstractMap.SimpleImmutableEntry<K, V>((K) key, (V) array[position + 1]);
+          return;
+        }
+      }
+      _next = null;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return _next != null;
+    }
+
+    @Override
+    public Map.Entry<K, V> next() {
+      if (_next == null) {
+        throw new NoSuchElementException();
+      }
+      final Map.Entry<K, V> next = _next;
+      advance();
+      return next;
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException();
+    }
+
+  }
+
+  private final Node _root;
+  private final int _size;
+
+  private PersistentHashMap(final Node root, final int size) {
+    _root = root;
+    _size = size;
+  }
+
+  /**
+   * Gets the empty map.
+   *
+   * @param <K> key type
+   * @param <V> value type
+   * @return the empty map, not null
+   */
+  @SuppressWarnings("unchecked")
+  public static <K, V> PersistentHashMap<K, V> of() {
+    return EMPTY;
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Returns a map with a key associated with a value. This map is not changed.
+   *
+   * @param key  the key, not null
+   * @param value  the value, not null
+   * @return the new map, or this map if the key is already associated with the same value instance, not null
+   */
+  public PersistentHashMap<K, V> with(final K key, final V value) {
+    ArgumentChecker.notNull(key, "key");
+    ArgumentChecker.notNull(value, "value");
+    final boolean[] added = new boolean[1];
+    final Node root = ((_root != null) ? _root : BitmapNode.EMPTY_NODE).with(0, hash(key), key, value, added);
+    if (root == _root) {
+      return this;
+    }
+    return new PersistentHashMap<K, V>(root, added[0] ? _size + 1 : _size);
+  }
+
+  /**
+   * Returns a map without a key. This map is not changed.
+   *
+   * @param key  the key, not null
+   * @return the new map, or this map if the key is not present, not null
+   */
+  public PersistentHashMap<K, V> without(final Object key) {
+    ArgumentChecker.notNull(key, "key");
+    if (_root == null) {
+      return this;
+    }
+    final Node root = _root.without(0, hash(key), key);
+    if (root == _root) {
+      return this;
+    }
+    return (root != null) ? new PersistentHashMap<K, V>(root, _size - 1) : PersistentHashMap.<K, V>of();
+  }
+
+  //-------------------------------------------------------------------------
+  @SuppressWarnings("unchecked")
+  @Override
+  public V get(final Object key) {
+    if ((_root == null) || (key == null)) {
+      return null;
+    }
+    return (V) _root.find(0, hash(key), key);
+  }
+
+  @Override
+  public boolean containsKey(final Object key) {
+    return get(key) != null;
+  }
+
+  @Override
+  public int size() {
+    return _size;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return _size == 0;
+  }
+
+  @Override
+  public Set<Map.Entry<K, V>> entrySet() {
+    return new AbstractSet<Map.Entry<K, V>>() {
+
+      @Override
+      public Iterator<Map.Entry<K, V>> iterator() {
+        return new EntryIterator();
+      }
+
+      @Override
+      public int size() {
+        return _size;
+      }
+
+    };
+  }
+
+}
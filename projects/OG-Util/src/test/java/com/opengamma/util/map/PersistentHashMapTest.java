@@ -0,0 +1,95 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.util.map;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.testng.annotations.Test;
+
+/**
+ * Tests the {@link PersistentHashMap} implementation.
+ */
+@Test
+public class PersistentHashMapTest {
+
+  /**
+   * Key with a poor hash so that the collision handling is exercised.
+   */
+  private static final class Key {
+
+    private final int _value;
+
+    public Key(final int value) {
+      _value = value;
+    }
+
+    @Override
+    public int hashCode() {
+      return _value / 4;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+      return (o instanceof Key) && (((Key) o)._value == _value);
+    }
+
+  }
+
+  public void testBasicOperations() {
+    final PersistentHashMap<String, String> empty = PersistentHashMap.of();
+    assertTrue(empty.isEmpty());
+    final PersistentHashMap<String, String> map1 = empty.with("A", "Foo");
+    final PersistentHashMap<String, String> map2 = map1.with("B", "Bar");
+    final PersistentHashMap<String, String> map3 = map2.with("A", "Cow");
+    assertEquals(empty.size(), 0);
+    assertEquals(map1.size(), 1);
+    assertEquals(map2.size(), 2);
+    assertEquals(map3.size(), 2);
+    assertEquals(map1.get("A"), "Foo");
+    assertNull(map1.get("B"));
+    assertEquals(map2.get("A"), "Foo");
+    assertEquals(map3.get("A"), "Cow");
+    assertEquals(map3.get("B"), "Bar");
+    assertSame(map3.with("B", map3.get("B")), map3);
+    final PersistentHashMap<String, String> map4 = map3.without("A");
+    assertFalse(map4.containsKey("A"));
+    assertTrue(map3.containsKey("A"));
+    assertSame(map4.without("A"), map4);
+    assertTrue(map4.without("B").isEmpty());
+  }
+
+  public void testAgainstHashMap() {
+    final Random random = new Random(1L);
+    final Map<Key, Integer> expected = new HashMap<Key, Integer>();
+    PersistentHashMap<Key, Integer> map = PersistentHashMap.of();
+    for (int i = 0; i < 20000; i++) {
+      final Key key = new Key(random.nextInt(2000));
+      if (random.nextInt(3) == 0) {
+        expected.remove(key);
+        map = map.without(key);
+      } else {
+        expected.put(key, i);
+        map = map.with(key, i);
+      }
+    }
+    assertEquals(map.size(), expected.size());
+    assertEquals(map, expected);
+    assertEquals(new HashMap<Key, Integer>(map), expected);
+    for (int i = 0; i < 2000; i++) {
+      final Key key = new Key(i);
+      assertEquals(map.get(key), expected.get(key));
+    }
+  }
+
+}